@@ -29,9 +29,11 @@ import jakarta.servlet.annotation.WebListener;
 
 import org.omnifaces.cdi.Eager;
 import org.omnifaces.cdi.GraphicImageBean;
+import org.omnifaces.cdi.ViewScoped;
 import org.omnifaces.cdi.eager.EagerBeansRepository;
 import org.omnifaces.cdi.eager.EagerBeansWebListener;
 import org.omnifaces.cdi.push.Socket;
+import org.omnifaces.cdi.viewscope.ViewScopeStorageInSession;
 import org.omnifaces.component.output.Cache;
 import org.omnifaces.config.OmniFaces;
 import org.omnifaces.eventlistener.DefaultServletContextListener;
@@ -56,10 +58,13 @@ import org.omnifaces.util.cache.CacheInitializer;
  * <li>Add {@link ViewResourceHandler} mapping to FacesServlet if necessary.
  * <li>Register {@link FacesExceptionFilter} via {@link FullAjaxExceptionHandler} if necessary.
  * <li>Instantiate {@link Eager} application scoped beans and register {@link EagerBeansWebListener} if necessary.
- * <li>Register {@link GraphicImageBean} beans in {@link GraphicResource}.
+ * <li>Register {@link GraphicImageBean} beans in {@link GraphicResource} and create its server side cache if necessary.
  * <li>Register {@link Socket} endpoint if necessary.
  * </ol>
  * <p>
+ * When the servlet context is destroyed, it stops any background activity of the {@link Cache} provider and of the
+ * {@link ViewScoped} beans in session.
+ * <p>
  * This is invoked <strong>after</strong> {@link ApplicationInitializer} and <strong>before</strong> {@link ApplicationProcessor}.
  * If any exception is thrown, then the deployment will fail, unless the {@value OmniFaces#PARAM_NAME_SKIP_DEPLOYMENT_EXCEPTION}
  * context parameter is set to <code>true</code>, it will then merely log a WARNING line.
@@ -107,6 +112,7 @@ public class ApplicationListener extends DefaultServletContextListener {
 
             EagerBeansRepository.instantiateApplicationScopedAndRegisterListenerIfNecessary(servletContext);
             GraphicResource.registerGraphicImageBeans();
+            GraphicResource.createCacheIfNecessary(servletContext);
             Socket.registerEndpointIfNecessary(servletContext);
         }
         catch (Exception | LinkageError e) {
@@ -122,6 +128,12 @@ public class ApplicationListener extends DefaultServletContextListener {
         }
     }
 
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        CacheInitializer.destroy(event.getServletContext());
+        ViewScopeStorageInSession.stopSweeper(event.getServletContext());
+    }
+
     private static void checkFacesAvailable() {
         try {
             checkFacesAPIAvailable();
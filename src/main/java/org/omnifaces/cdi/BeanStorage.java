@@ -13,6 +13,7 @@
 package org.omnifaces.cdi;
 
 import java.io.Serializable;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -53,6 +54,15 @@ public class BeanStorage implements Serializable {
         beans = new ConcurrentHashMap<>(initialCapacity);
     }
 
+    /**
+     * Construct a new CDI bean storage holding the given beans, as obtained from {@link #getBeans()}.
+     * @param beans The beans, mapped by their identifier.
+     * @since 4.6
+     */
+    public BeanStorage(Map<String, Serializable> beans) {
+        this.beans = new ConcurrentHashMap<>(beans);
+    }
+
     // Actions --------------------------------------------------------------------------------------------------------
 
     /**
@@ -94,6 +104,15 @@ public class BeanStorage implements Serializable {
         return (T) beans.get(getBeanId(type));
     }
 
+    /**
+     * Returns a snapshot of all beans managed so far, mapped by their identifier.
+     * @return A snapshot of all beans managed so far, mapped by their identifier.
+     * @since 4.6
+     */
+    public Map<String, Serializable> getBeans() {
+        return Map.copyOf(beans);
+    }
+
     /**
      * Returns the bean identifier of the given type.
      */
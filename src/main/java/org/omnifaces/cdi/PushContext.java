@@ -12,12 +12,20 @@
  */
 package org.omnifaces.cdi;
 
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+
 import java.io.Serializable;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import jakarta.websocket.RemoteEndpoint.Async;
 
@@ -97,4 +105,85 @@ public interface PushContext extends Serializable {
      */
     <S extends Serializable> Map<S, Set<Future<Void>>> send(Object message, Collection<S> users);
 
+    /**
+     * Broadcast given message object to the push socket channel as identified by <code>&#64;</code>{@link Push}.
+     * This does the same as {@link #send(Object)}, but instead of returning a future per open web socket session, it
+     * returns a single aggregate result for all of them. This is more efficient when there are many open web socket
+     * sessions on the same channel. The default implementation aggregates the results of {@link #send(Object)}.
+     * @param message The push message object.
+     * @return The aggregate result of the broadcast operation. It will complete with <code>null</code> when the message
+     * has been successfully delivered to all open web socket sessions, also when there were none, and otherwise complete
+     * exceptionally with the first failure when all deliveries have completed.
+     * @throws IllegalArgumentException If given message object cannot be encoded as JSON.
+     * @see Json#encode(Object)
+     * @since 4.6
+     */
+    default CompletableFuture<Void> broadcast(Object message) {
+        return aggregate(send(message).stream());
+    }
+
+    /**
+     * Broadcast given message object to the push socket channel as identified by <code>&#64;</code>{@link Push},
+     * but at most once per given window. The first message is delivered immediately. Any message which is broadcast on
+     * the same channel during the window replaces the previously pending one, and only the latest pending one is
+     * delivered when the window ends. This is useful when only the latest value is relevant and it may change faster
+     * than clients can keep up with, such as a ticker. Note that in case of session or view scoped channels, the window
+     * applies per session or view. The default implementation ignores the window and delegates to
+     * {@link #broadcast(Object)}.
+     * @param message The push message object.
+     * @param window The minimum time between two deliveries on the same channel.
+     * @return The aggregate result of the broadcast operation, see {@link #broadcast(Object)}. The messages which are
+     * coalesced into the same delivery share the same result.
+     * @throws IllegalArgumentException If given message object cannot be encoded as JSON.
+     * @see Json#encode(Object)
+     * @since 4.6
+     */
+    default CompletableFuture<Void> broadcast(Object message, Duration window) {
+        return broadcast(message);
+    }
+
+    /**
+     * Broadcast given message object to the push socket channel as identified by <code>&#64;</code>{@link Push},
+     * targeted to the given users as identified by <code>&lt;o:socket user&gt;</code>.
+     * This does the same as {@link #send(Object, Collection)}, but instead of returning futures per user and per open
+     * web socket session, it returns a single aggregate result for all of them. The default implementation aggregates
+     * the results of {@link #send(Object, Collection)}.
+     * @param <S> The generic type of the user identifier.
+     * @param message The push message object.
+     * @param users The users to which the push message object must be delivered to.
+     * @return The aggregate result of the broadcast operation, see {@link #broadcast(Object)}.
+     * @throws IllegalArgumentException If given message object cannot be encoded as JSON.
+     * @see Json#encode(Object)
+     * @since 4.6
+     */
+    default <S extends Serializable> CompletableFuture<Void> broadcast(Object message, Collection<S> users) {
+        return aggregate(send(message, users).values().stream().flatMap(Set::stream));
+    }
+
+    // Helpers --------------------------------------------------------------------------------------------------------
+
+    private static CompletableFuture<Void> aggregate(Stream<Future<Void>> results) {
+        return allOf(results.map(PushContext::toCompletableFuture).toArray(CompletableFuture[]::new));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<Void> toCompletableFuture(Future<Void> result) {
+        if (result instanceof CompletionStage) {
+            return ((CompletionStage<Void>) result).toCompletableFuture();
+        }
+
+        return supplyAsync(() -> {
+            try {
+                return result.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            catch (ExecutionException e) {
+                throw new CompletionException(e.getCause());
+            }
+        });
+    }
+
 }
\ No newline at end of file
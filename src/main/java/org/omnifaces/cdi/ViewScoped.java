@@ -36,6 +36,7 @@ import org.omnifaces.cdi.viewscope.ViewScopeStorageInSession;
 import org.omnifaces.cdi.viewscope.ViewScopeStorageInViewState;
 import org.omnifaces.context.OmniExternalContext;
 import org.omnifaces.context.OmniExternalContextFactory;
+import org.omnifaces.util.cache.ConcurrentLruCache;
 import org.omnifaces.util.cache.LruCache;
 import org.omnifaces.viewhandler.OmniViewHandler;
 
@@ -151,7 +152,29 @@ import org.omnifaces.viewhandler.OmniViewHandler;
  * {@value org.omnifaces.cdi.viewscope.ViewScopeManager#DEFAULT_MAX_ACTIVE_VIEW_SCOPES} will be used. When a view scoped
  * bean is evicted from the LRU map, then its <code>&#64;PreDestroy</code> will also guaranteed to be invoked.
  * <p>
- * This setting has no effect when <code>saveInViewState</code> attribute is set to <code>true</code>.
+ * Since 4.6, the LRU map can be replaced by a {@link ConcurrentLruCache}, whose reads don't take any lock at the expense
+ * of a slightly less exact eviction order under high concurrency, by setting the
+ * {@value org.omnifaces.cdi.viewscope.ViewScopeManager#PARAM_NAME_CONCURRENT_LRU} context parameter to
+ * <code>true</code>. This is disabled by default.
+ * <p>
+ * Since 4.6, an active view scope which hasn't been accessed for a certain amount of minutes can be destroyed by setting
+ * the {@value org.omnifaces.cdi.viewscope.ViewScopeManager#PARAM_NAME_IDLE_TIMEOUT} context parameter. This is
+ * disabled by default and is enforced by a single background thread per application which sweeps all HTTP sessions
+ * once a minute, so it doesn't add any work to the request. Additionally, the approximate serialized size in bytes of
+ * all active view scopes in HTTP session can be capped by setting the
+ * {@value org.omnifaces.cdi.viewscope.ViewScopeManager#PARAM_NAME_MAX_SIZE_PER_SESSION} context parameter, whereupon
+ * the least recently used view scopes will be destroyed first, but never the most recently used one. This is disabled
+ * by default. A view scope is only weighed when it's created and when a bean is created in it, so changes in the state
+ * of an existing bean are not accounted for.
+ * <p>
+ * These settings have no effect when <code>saveInViewState</code> attribute is set to <code>true</code>.
+ * <p>
+ * Since 4.6, when <code>saveInViewState</code> attribute is set to <code>true</code>, the view scoped beans in the
+ * Faces view state can be compressed with ZLIB once their serialized size exceeds the amount of bytes specified by the
+ * {@value org.omnifaces.cdi.viewscope.ViewScopeManager#PARAM_NAME_VIEW_STATE_COMPRESSION_THRESHOLD} context parameter.
+ * This is disabled by default, because the Faces implementation may already compress the whole view state. A warning
+ * can be logged once per set of view scoped beans whose serialized size exceeds the amount of bytes specified by the
+ * {@value org.omnifaces.cdi.viewscope.ViewScopeManager#PARAM_NAME_VIEW_STATE_WARNING_THRESHOLD} context parameter.
  *
  * <h2>Using window.onbeforeunload</h2>
  * <p>
@@ -228,6 +251,7 @@ import org.omnifaces.viewhandler.OmniViewHandler;
  * @see ViewScopeEventListener
  * @see BeanStorage
  * @see LruCache
+ * @see ConcurrentLruCache
  * @see OmniViewHandler
  * @see OmniExternalContext
  * @see OmniExternalContextFactory
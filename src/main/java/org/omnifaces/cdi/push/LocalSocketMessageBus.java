@@ -0,0 +1,44 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.cdi.push;
+
+import java.util.function.Consumer;
+
+import jakarta.servlet.ServletContext;
+
+/**
+ * <p>
+ * The default {@link SocketMessageBus} which assumes that there are no other nodes. The push messages are already
+ * delivered to the web socket sessions connected to the local node, so publishing does nothing.
+ *
+ * @author Bauke Scholtz
+ * @since 4.6
+ */
+public class LocalSocketMessageBus implements SocketMessageBus {
+
+    @Override
+    public void start(ServletContext servletContext, Consumer<SocketMessage> receiver) {
+        // NOOP.
+    }
+
+    @Override
+    public void publish(SocketMessage message) {
+        // NOOP.
+    }
+
+    @Override
+    public void stop() {
+        // NOOP.
+    }
+
+}
@@ -80,6 +80,45 @@ import org.omnifaces.util.State;
  * It will install the {@link SocketEndpoint}. Lazy initialization of the endpoint via component is unfortunately not
  * possible across all containers (yet).
  * See also <a href="https://github.com/jakartaee/websocket/issues/211">WS spec issue 211</a>.
+ * <p>
+ * Since 4.6, every web socket session has its own send queue, so that the container never sees concurrent sends on the
+ * same web socket session and a slow client can't hold up threads. The maximum amount of pending push messages per web
+ * socket session defaults to 100 and can be configured by below integer context parameter in <code>web.xml</code>:
+ * <pre>
+ * &lt;context-param&gt;
+ *     &lt;param-name&gt;org.omnifaces.SOCKET_SEND_QUEUE_MAX_SIZE&lt;/param-name&gt;
+ *     &lt;param-value&gt;100&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * <p>
+ * What happens when the send queue is full can be configured by below context parameter in <code>web.xml</code>:
+ * <pre>
+ * &lt;context-param&gt;
+ *     &lt;param-name&gt;org.omnifaces.SOCKET_SEND_QUEUE_OVERFLOW&lt;/param-name&gt;
+ *     &lt;param-value&gt;DROP_OLDEST&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * <p>
+ * Supported values are:
+ * <ul>
+ * <li><code>DROP_OLDEST</code>: the oldest pending push message is dropped. This is the default.</li>
+ * <li><code>COALESCE</code>: all pending push messages are dropped in favor of the new one. This is useful when only
+ * the latest value is relevant, such as a ticker.</li>
+ * <li><code>CLOSE</code>: the web socket session is closed. The client will attempt to reconnect.</li>
+ * </ul>
+ * <p>
+ * The futures returned by {@link PushContext#send(Object)} of dropped push messages will throw
+ * {@link java.util.concurrent.ExecutionException}.
+ * <p>
+ * Since 4.6, the open web socket sessions, the send queue depth, the send latency and the failed and dropped push
+ * messages are counted per push channel by {@link SocketMetrics}, which can be injected as CDI bean or be registered
+ * as JMX MXBean by below boolean context parameter in <code>web.xml</code>:
+ * <pre>
+ * &lt;context-param&gt;
+ *     &lt;param-name&gt;org.omnifaces.SOCKET_METRICS_JMX_ENABLED&lt;/param-name&gt;
+ *     &lt;param-value&gt;true&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
  *
  *
  * <h2 id="usage-client"><a href="#usage-client">Usage (client)</a></h2>
@@ -156,6 +195,17 @@ import org.omnifaces.util.State;
  * plain vanilla <code>String</code>, but it can also be a collection, map and even a javabean. For supported argument
  * types, see also {@link Json#encode(Object)}.
  * <p>
+ * In case there are many open web sockets on the same channel, e.g. thousands of clients listening to a ticker, then
+ * you can use <strong>{@link PushContext#broadcast(Object)}</strong> instead. It returns a single aggregate result
+ * instead of a future per web socket. You can also use {@link PushContext#broadcast(Object, java.time.Duration)} to
+ * deliver at most one message per given window, whereby only the latest message is delivered and the ones in between
+ * are skipped.
+ * <pre>
+ * public void onTick(Price price) {
+ *     someChannel.broadcast(price, Duration.ofMillis(250));
+ * }
+ * </pre>
+ * <p>
  * Although web sockets support two-way communication, the <code>&lt;o:socket&gt;</code> push is designed for one-way
  * communication, from server to client. In case you intend to send some data from client to server, just continue
  * using Faces ajax the usual way, if necessary from JavaScript on with <code>&lt;h:commandScript&gt;</code> or perhaps
@@ -686,6 +736,20 @@ import org.omnifaces.util.State;
  *     pushManager.fireEvent(new PushEvent(entity.getSomeProperty()));
  * }
  * </pre>
+ * <p>
+ * Since 4.6, an alternative is to configure a {@link SocketMessageBus} by below context parameter in
+ * <code>web.xml</code>. Every push message will then be delivered to the sockets connected to the local node and be
+ * published to the other nodes, which in turn deliver it to the sockets connected to them. OmniFaces ships with
+ * {@link TcpSocketMessageBus}, which publishes via plain TCP connections between the nodes. See its javadoc for its
+ * configuration. You can also implement your own, e.g. on top of JMS or a database table.
+ * <pre>
+ * &lt;context-param&gt;
+ *     &lt;param-name&gt;org.omnifaces.SOCKET_MESSAGE_BUS&lt;/param-name&gt;
+ *     &lt;param-value&gt;org.omnifaces.cdi.push.TcpSocketMessageBus&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * <p>
+ * Note that the results returned by {@link PushContext} only represent the deliveries on the local node.
  *
  *
  * <h2 id="ui"><a href="#ui">UI update design hints</a></h2>
@@ -750,6 +814,18 @@ public class Socket extends ScriptFamily implements ClientBehaviorHolder {
     /** The boolean context parameter name to register web socket endpoint during startup. */
     public static final String PARAM_SOCKET_ENDPOINT_ENABLED = "org.omnifaces.SOCKET_ENDPOINT_ENABLED";
 
+    /** The integer context parameter name to specify the maximum amount of pending push messages per web socket session. @since 4.6 */
+    public static final String PARAM_SOCKET_SEND_QUEUE_MAX_SIZE = "org.omnifaces.SOCKET_SEND_QUEUE_MAX_SIZE";
+
+    /** The context parameter name to specify what to do when the send queue of a web socket session is full. @since 4.6 */
+    public static final String PARAM_SOCKET_SEND_QUEUE_OVERFLOW = "org.omnifaces.SOCKET_SEND_QUEUE_OVERFLOW";
+
+    /** The context parameter name to specify the fully qualified name of the {@link SocketMessageBus} implementation. @since 4.6 */
+    public static final String PARAM_SOCKET_MESSAGE_BUS = "org.omnifaces.SOCKET_MESSAGE_BUS";
+
+    /** The boolean context parameter name to register {@link SocketMetrics} as JMX MXBean. @since 4.6 */
+    public static final String PARAM_SOCKET_METRICS_JMX_ENABLED = "org.omnifaces.SOCKET_METRICS_JMX_ENABLED";
+
     // Private constants ----------------------------------------------------------------------------------------------
 
     private static final Pattern PATTERN_CHANNEL = Pattern.compile("[\\w.-]+");
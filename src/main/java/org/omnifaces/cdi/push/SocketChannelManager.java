@@ -22,6 +22,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -109,6 +110,9 @@ public class SocketChannelManager implements Serializable {
     @Inject
     private SocketUserManager socketUsers;
 
+    @Inject
+    private SocketMetrics socketMetrics;
+
     // Actions --------------------------------------------------------------------------------------------------------
 
     /**
@@ -123,12 +127,18 @@ public class SocketChannelManager implements Serializable {
      */
     @SuppressWarnings("unchecked")
     protected String register(String channel, String scope, Serializable user) {
-        switch (Scope.of(scope, user)) {
-            case APPLICATION: return register(null, channel, APPLICATION_SCOPE, sessionScopedChannels, getViewScopedChannels(false));
-            case SESSION: return register(user, channel, sessionScopedChannels, APPLICATION_SCOPE, getViewScopedChannels(false));
-            case VIEW: return register(user, channel, getViewScopedChannels(true), APPLICATION_SCOPE, sessionScopedChannels);
+        var resolvedScope = Scope.of(scope, user);
+        String channelId;
+
+        switch (resolvedScope) {
+            case APPLICATION: channelId = register(null, channel, APPLICATION_SCOPE, sessionScopedChannels, getViewScopedChannels(false)); break;
+            case SESSION: channelId = register(user, channel, sessionScopedChannels, APPLICATION_SCOPE, getViewScopedChannels(false)); break;
+            case VIEW: channelId = register(user, channel, getViewScopedChannels(true), APPLICATION_SCOPE, sessionScopedChannels); break;
             default: throw new UnsupportedOperationException();
         }
+
+        socketMetrics.getChannel(channel).setScope(resolvedScope.name().toLowerCase(Locale.ROOT));
+        return channelId;
     }
 
     @SuppressWarnings("unchecked")
@@ -272,6 +282,14 @@ public class SocketChannelManager implements Serializable {
         return getReference(SocketChannelManager.class);
     }
 
+    /**
+     * For internal usage only. This makes it possible to resolve the application scoped channel identifier of the
+     * given channel name when a push message is received from another node, see {@link SocketMessageBus}.
+     */
+    static String getApplicationScopedChannelId(String channel) {
+        return APPLICATION_SCOPE.get(channel);
+    }
+
     /**
      * For internal usage only. This makes it possible to resolve the session and view scoped channel ID during push
      * send time in {@link SocketPushContext}.
@@ -317,7 +335,7 @@ public class SocketChannelManager implements Serializable {
         for (var sessionUser : sessionUsers.entrySet()) {
             var userId = sessionUser.getValue();
             socketUsers.register(sessionUser.getKey(), userId);
-            socketUsers.getUserChannels().put(userId, sessionUserChannels.get(userId));
+            socketUsers.restoreUserChannels(userId, sessionUserChannels.get(userId));
         }
 
         // Below awkwardness is because SocketChannelManager can't be injected in SocketSessionManager (CDI session scope
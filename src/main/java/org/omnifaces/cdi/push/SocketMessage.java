@@ -0,0 +1,104 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.cdi.push;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Serializable;
+import java.util.Set;
+
+import org.omnifaces.cdi.PushContext;
+
+/**
+ * <p>
+ * A push message as published to other nodes via {@link SocketMessageBus}. It represents a single invocation of one of
+ * the send or broadcast methods of {@link PushContext}, with the message object already encoded as JSON.
+ * <p>
+ * The target is identified by either the users, or the channel identifier, or only the channel name. The users and
+ * the application scoped channel are resolved by each node on its own, because they're not shared across nodes. The
+ * session and view scoped channel identifiers are shared across nodes via session replication.
+ *
+ * @author Bauke Scholtz
+ * @since 4.6
+ * @see SocketMessageBus
+ */
+public final class SocketMessage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String channel;
+    private final String channelId;
+    private final Set<Serializable> users;
+    private final String json;
+    private final long windowInMillis;
+
+    /**
+     * Create a push message.
+     * @param channel The channel name.
+     * @param channelId The session or view scoped channel identifier, or <code>null</code> if it's application scoped
+     * or targeted to users.
+     * @param users The users, or <code>null</code> if it's not targeted to users.
+     * @param json The push message object encoded as JSON.
+     * @param windowInMillis The throttle window in milliseconds, or 0 if it's not throttled.
+     */
+    public SocketMessage(String channel, String channelId, Set<Serializable> users, String json, long windowInMillis) {
+        this.channel = requireNonNull(channel, "channel");
+        this.channelId = channelId;
+        this.users = users;
+        this.json = requireNonNull(json, "json");
+        this.windowInMillis = windowInMillis;
+    }
+
+    /**
+     * Returns the channel name.
+     * @return The channel name.
+     */
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * Returns the session or view scoped channel identifier, or <code>null</code> if it's application scoped or
+     * targeted to users.
+     * @return The session or view scoped channel identifier.
+     */
+    public String getChannelId() {
+        return channelId;
+    }
+
+    /**
+     * Returns the users, or <code>null</code> if it's not targeted to users.
+     * @return The users.
+     */
+    public Set<Serializable> getUsers() {
+        return users;
+    }
+
+    /**
+     * Returns the push message object encoded as JSON.
+     * @return The push message object encoded as JSON.
+     */
+    public String getJson() {
+        return json;
+    }
+
+    /**
+     * Returns the throttle window in milliseconds, or 0 if it's not throttled.
+     * @return The throttle window in milliseconds.
+     * @see PushContext#broadcast(Object, java.time.Duration)
+     */
+    public long getWindowInMillis() {
+        return windowInMillis;
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.cdi.push;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import jakarta.servlet.ServletContext;
+
+import org.omnifaces.cdi.PushContext;
+
+/**
+ * <p>
+ * SPI for publishing push messages to the other nodes of a cluster. Every push message sent via {@link PushContext} is
+ * delivered to the web socket sessions connected to the local node and then published via this message bus, so that
+ * the other nodes can deliver it to the web socket sessions connected to them. The results as returned by
+ * {@link PushContext} only represent the local deliveries.
+ * <p>
+ * The implementation can be configured by the {@value Socket#PARAM_SOCKET_MESSAGE_BUS} context parameter, whose value
+ * must represent the fully qualified name of a class implementing this interface with a public default constructor.
+ * The default implementation is {@link LocalSocketMessageBus}, which does nothing as there are no other nodes. OmniFaces
+ * also ships with {@link TcpSocketMessageBus}.
+ *
+ * @author Bauke Scholtz
+ * @since 4.6
+ * @see Socket
+ */
+public interface SocketMessageBus {
+
+    /**
+     * Start this message bus. This is invoked once, when the {@link SocketSessionManager} is created.
+     * @param servletContext The servlet context, which can be used to obtain any context parameters.
+     * @param receiver The receiver of push messages published by the other nodes. It will deliver them to the web
+     * socket sessions connected to the local node.
+     * @throws IOException When something fails at I/O level.
+     */
+    void start(ServletContext servletContext, Consumer<SocketMessage> receiver) throws IOException;
+
+    /**
+     * Publish the given push message to the other nodes. This must not block on I/O.
+     * @param message The push message.
+     */
+    void publish(SocketMessage message);
+
+    /**
+     * Stop this message bus. This is invoked once, when the {@link SocketSessionManager} is destroyed.
+     */
+    void stop();
+
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.cdi.push;
+
+import static java.lang.Boolean.parseBoolean;
+import static java.lang.String.format;
+import static java.util.logging.Level.FINEST;
+import static java.util.logging.Level.WARNING;
+import static java.util.stream.Collectors.toList;
+import static org.omnifaces.cdi.push.Socket.PARAM_SOCKET_METRICS_JMX_ENABLED;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.servlet.ServletContext;
+
+/**
+ * <p>
+ * This web socket metrics collector holds the counters of all push channels, which is useful for capacity planning. It
+ * can be obtained as a CDI bean, and it can be registered as JMX MXBean under the name
+ * <code>org.omnifaces:type=SocketMetrics,context=&lt;context path&gt;</code> by below boolean context parameter in
+ * <code>web.xml</code>:
+ * <pre>
+ * &lt;context-param&gt;
+ *     &lt;param-name&gt;org.omnifaces.SOCKET_METRICS_JMX_ENABLED&lt;/param-name&gt;
+ *     &lt;param-value&gt;true&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * <p>
+ * The counters are {@link LongAdder} instances, so collecting them costs only a few uncontended increments per push
+ * message. The totals are summed from the counters of all push channels on every call.
+ *
+ * @author Bauke Scholtz
+ * @since 4.6
+ * @see SocketMetricsMXBean
+ */
+@ApplicationScoped
+public class SocketMetrics implements SocketMetricsMXBean {
+
+    // Constants ------------------------------------------------------------------------------------------------------
+
+    private static final Logger logger = Logger.getLogger(SocketMetrics.class.getName());
+
+    private static final long[] SEND_LATENCY_BUCKETS_IN_MILLIS = { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+    private static final String OBJECT_NAME = "org.omnifaces:type=SocketMetrics,context=%s";
+    private static final String WARNING_JMX_REGISTRATION_FAILED =
+        "Cannot register SocketMetrics as JMX MXBean '%s'.";
+
+    // Properties -----------------------------------------------------------------------------------------------------
+
+    private final ConcurrentHashMap<String, ChannelMetrics> channels = new ConcurrentHashMap<>();
+
+    @Inject
+    private ServletContext servletContext;
+
+    private ObjectName objectName;
+
+    // Init -----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Register as JMX MXBean if enabled by the context parameter.
+     */
+    @PostConstruct
+    public void init() {
+        if (!parseBoolean(servletContext.getInitParameter(PARAM_SOCKET_METRICS_JMX_ENABLED))) {
+            return;
+        }
+
+        var name = format(OBJECT_NAME, ObjectName.quote(servletContext.getContextPath()));
+
+        try {
+            objectName = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        }
+        catch (JMException | SecurityException e) {
+            logger.log(WARNING, format(WARNING_JMX_REGISTRATION_FAILED, name), e);
+            objectName = null;
+        }
+    }
+
+    /**
+     * Unregister as JMX MXBean, if any.
+     */
+    @PreDestroy
+    public void destroy() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            }
+            catch (JMException ignore) {
+                logger.log(FINEST, "Ignoring thrown exception; there is nothing more we could do here.", ignore);
+            }
+        }
+    }
+
+    // Actions --------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the metrics of given push channel, creating it if necessary.
+     * @param channel The push channel.
+     * @return The metrics of given push channel.
+     */
+    protected ChannelMetrics getChannel(String channel) {
+        return channels.computeIfAbsent(channel, ChannelMetrics::new);
+    }
+
+    @Override
+    public long getOpenSessions() {
+        return sum(ChannelMetrics::getOpenSessions);
+    }
+
+    @Override
+    public long getOpenedSessions() {
+        return sum(ChannelMetrics::getOpenedSessions);
+    }
+
+    @Override
+    public long getClosedSessions() {
+        return sum(ChannelMetrics::getClosedSessions);
+    }
+
+    @Override
+    public long getQueueDepth() {
+        return sum(ChannelMetrics::getQueueDepth);
+    }
+
+    @Override
+    public long getSentMessages() {
+        return sum(ChannelMetrics::getSentMessages);
+    }
+
+    @Override
+    public long getFailedMessages() {
+        return sum(ChannelMetrics::getFailedMessages);
+    }
+
+    @Override
+    public long getDroppedMessages() {
+        return sum(ChannelMetrics::getDroppedMessages);
+    }
+
+    @Override
+    public long[] getSendLatencyBucketsInMillis() {
+        return SEND_LATENCY_BUCKETS_IN_MILLIS.clone();
+    }
+
+    @Override
+    public long[] getSendLatencyHistogram() {
+        var histogram = new long[SEND_LATENCY_BUCKETS_IN_MILLIS.length + 1];
+
+        for (var channel : channels.values()) {
+            var channelHistogram = channel.getSendLatencyHistogram();
+
+            for (var i = 0; i < histogram.length; i++) {
+                histogram[i] += channelHistogram[i];
+            }
+        }
+
+        return histogram;
+    }
+
+    @Override
+    public List<ChannelMetrics> getChannels() {
+        return channels.values().stream().collect(toList());
+    }
+
+    // Helpers --------------------------------------------------------------------------------------------------------
+
+    private long sum(ToLongFunction<ChannelMetrics> counter) {
+        return channels.values().stream().mapToLong(counter).sum();
+    }
+
+    // Nested classes -------------------------------------------------------------------------------------------------
+
+    /**
+     * The metrics of a single push channel.
+     *
+     * @author Bauke Scholtz
+     * @since 4.6
+     */
+    public static final class ChannelMetrics {
+
+        private final String channel;
+        private volatile String scope;
+        private final LongAdder opened = new LongAdder();
+        private final LongAdder closed = new LongAdder();
+        private final LongAdder queueDepth = new LongAdder();
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder sendLatencyInNanos = new LongAdder();
+        private final LongAdder[] sendLatencyHistogram = new LongAdder[SEND_LATENCY_BUCKETS_IN_MILLIS.length + 1];
+
+        /**
+         * Creates the metrics of given push channel.
+         * @param channel The push channel name.
+         */
+        public ChannelMetrics(String channel) {
+            this.channel = channel;
+
+            for (var i = 0; i < sendLatencyHistogram.length; i++) {
+                sendLatencyHistogram[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Returns the push channel name.
+         * @return The push channel name.
+         */
+        public String getChannel() {
+            return channel;
+        }
+
+        /**
+         * Returns the scope of the push channel, which is one of <code>application</code>, <code>session</code> or
+         * <code>view</code>, or <code>null</code> if it's not yet registered by <code>&lt;o:socket&gt;</code> on this
+         * node.
+         * @return The scope of the push channel.
+         */
+        public String getScope() {
+            return scope;
+        }
+
+        /**
+         * Returns the amount of currently open web socket sessions on this push channel.
+         * @return The amount of currently open web socket sessions on this push channel.
+         */
+        public long getOpenSessions() {
+            return opened.sum() - closed.sum();
+        }
+
+        /**
+         * Returns the amount of web socket sessions which have been opened so far on this push channel.
+         * @return The amount of web socket sessions which have been opened so far on this push channel.
+         */
+        public long getOpenedSessions() {
+            return opened.sum();
+        }
+
+        /**
+         * Returns the amount of web socket sessions which have been closed so far on this push channel.
+         * @return The amount of web socket sessions which have been closed so far on this push channel.
+         */
+        public long getClosedSessions() {
+            return closed.sum();
+        }
+
+        /**
+         * Returns the amount of push messages which are currently pending or being sent on this push channel.
+         * @return The amount of push messages which are currently pending or being sent on this push channel.
+         */
+        public long getQueueDepth() {
+            return queueDepth.sum();
+        }
+
+        /**
+         * Returns the amount of push messages which have been successfully sent so far on this push channel.
+         * @return The amount of push messages which have been successfully sent so far on this push channel.
+         */
+        public long getSentMessages() {
+            return sent.sum();
+        }
+
+        /**
+         * Returns the amount of push messages whose send has failed so far on this push channel.
+         * @return The amount of push messages whose send has failed so far on this push channel.
+         */
+        public long getFailedMessages() {
+            return failed.sum();
+        }
+
+        /**
+         * Returns the amount of push messages which have been dropped so far on this push channel.
+         * @return The amount of push messages which have been dropped so far on this push channel.
+         */
+        public long getDroppedMessages() {
+            return dropped.sum();
+        }
+
+        /**
+         * Returns the average send latency in milliseconds of sent and failed push messages on this push channel.
+         * @return The average send latency in milliseconds of sent and failed push messages on this push channel.
+         */
+        public double getAverageSendLatencyInMillis() {
+            var count = sent.sum() + failed.sum();
+            return count == 0 ? 0 : sendLatencyInNanos.sum() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * Returns the amount of sent and failed push messages per send latency bucket on this push channel.
+         * @return The amount of sent and failed push messages per send latency bucket on this push channel.
+         * @see SocketMetricsMXBean#getSendLatencyBucketsInMillis()
+         */
+        public long[] getSendLatencyHistogram() {
+            var histogram = new long[sendLatencyHistogram.length];
+
+            for (var i = 0; i < histogram.length; i++) {
+                histogram[i] = sendLatencyHistogram[i].sum();
+            }
+
+            return histogram;
+        }
+
+        void setScope(String scope) {
+            if (!scope.equals(this.scope)) {
+                this.scope = scope;
+            }
+        }
+
+        void opened() {
+            opened.increment();
+        }
+
+        void closed() {
+            closed.increment();
+        }
+
+        void offered() {
+            queueDepth.increment();
+        }
+
+        void completed(long offeredNanoTime, Throwable exception) {
+            queueDepth.decrement();
+            (exception == null ? sent : failed).increment();
+
+            var latencyInNanos = System.nanoTime() - offeredNanoTime;
+            sendLatencyInNanos.add(latencyInNanos);
+            var latencyInMillis = TimeUnit.NANOSECONDS.toMillis(latencyInNanos);
+            var bucket = 0;
+
+            while (bucket < SEND_LATENCY_BUCKETS_IN_MILLIS.length && latencyInMillis > SEND_LATENCY_BUCKETS_IN_MILLIS[bucket]) {
+                bucket++;
+            }
+
+            sendLatencyHistogram[bucket].increment();
+        }
+
+        void dropped() {
+            queueDepth.decrement();
+            dropped.increment();
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.cdi.push;
+
+import java.util.List;
+
+import org.omnifaces.cdi.push.SocketMetrics.ChannelMetrics;
+
+/**
+ * <p>
+ * The JMX management interface of {@link SocketMetrics}. All values are totals of all push channels, except of
+ * {@link #getChannels()}.
+ *
+ * @author Bauke Scholtz
+ * @since 4.6
+ * @see SocketMetrics
+ */
+public interface SocketMetricsMXBean {
+
+    /**
+     * Returns the amount of currently open web socket sessions.
+     * @return The amount of currently open web socket sessions.
+     */
+    long getOpenSessions();
+
+    /**
+     * Returns the amount of web socket sessions which have been opened so far.
+     * @return The amount of web socket sessions which have been opened so far.
+     */
+    long getOpenedSessions();
+
+    /**
+     * Returns the amount of web socket sessions which have been closed so far.
+     * @return The amount of web socket sessions which have been closed so far.
+     */
+    long getClosedSessions();
+
+    /**
+     * Returns the amount of push messages which are currently pending or being sent.
+     * @return The amount of push messages which are currently pending or being sent.
+     */
+    long getQueueDepth();
+
+    /**
+     * Returns the amount of push messages which have been successfully sent so far.
+     * @return The amount of push messages which have been successfully sent so far.
+     */
+    long getSentMessages();
+
+    /**
+     * Returns the amount of push messages whose send has failed so far.
+     * @return The amount of push messages whose send has failed so far.
+     */
+    long getFailedMessages();
+
+    /**
+     * Returns the amount of push messages which have been dropped so far because the send queue was full or the web
+     * socket session was closed.
+     * @return The amount of push messages which have been dropped so far.
+     */
+    long getDroppedMessages();
+
+    /**
+     * Returns the inclusive upper bounds in milliseconds of the buckets of {@link #getSendLatencyHistogram()}. The last
+     * bucket has no upper bound.
+     * @return The inclusive upper bounds in milliseconds of the send latency histogram buckets.
+     */
+    long[] getSendLatencyBucketsInMillis();
+
+    /**
+     * Returns the amount of sent and failed push messages per send latency bucket. The send latency is the time between
+     * offering the push message to the send queue of the web socket session and the completion of its send.
+     * @return The amount of sent and failed push messages per send latency bucket.
+     */
+    long[] getSendLatencyHistogram();
+
+    /**
+     * Returns the metrics per push channel.
+     * @return The metrics per push channel.
+     */
+    List<ChannelMetrics> getChannels();
+
+}
@@ -19,11 +19,13 @@ import static org.omnifaces.util.Beans.isActive;
 import static org.omnifaces.util.Faces.hasContext;
 
 import java.io.Serializable;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
 import jakarta.enterprise.context.SessionScoped;
@@ -75,7 +77,9 @@ public class SocketPushContext implements PushContext {
 
     @Override
     public Set<Future<Void>> send(Object message) {
-        return socketSessions.send(getChannelId(channel, sessionScopedChannels, viewScopedChannels), Json.encode(message));
+        var json = Json.encode(message);
+        publish(json, 0);
+        return socketSessions.send(getChannelId(channel, sessionScopedChannels, viewScopedChannels), json);
     }
 
     @Override
@@ -87,6 +91,7 @@ public class SocketPushContext implements PushContext {
     public <S extends Serializable> Map<S, Set<Future<Void>>> send(Object message, Collection<S> users) {
         Map<S, Set<Future<Void>>> resultsByUser = new HashMap<>(users.size());
         String json = Json.encode(message);
+        publish(json, users);
 
         for (S user : users) {
             Set<String> channelIds = socketUsers.getChannelIds(user, channel);
@@ -102,4 +107,62 @@ public class SocketPushContext implements PushContext {
         return resultsByUser;
     }
 
+    @Override
+    public CompletableFuture<Void> broadcast(Object message) {
+        var json = Json.encode(message);
+        publish(json, 0);
+        return socketSessions.broadcast(singleton(getChannelId(channel, sessionScopedChannels, viewScopedChannels)), json);
+    }
+
+    @Override
+    public CompletableFuture<Void> broadcast(Object message, Duration window) {
+        var json = Json.encode(message);
+        publish(json, window.toMillis());
+        return socketSessions.broadcast(getChannelId(channel, sessionScopedChannels, viewScopedChannels), json, window.toMillis());
+    }
+
+    @Override
+    public <S extends Serializable> CompletableFuture<Void> broadcast(Object message, Collection<S> users) {
+        Set<String> channelIds = new HashSet<>();
+
+        for (S user : users) {
+            channelIds.addAll(socketUsers.getChannelIds(user, channel));
+        }
+
+        var json = Json.encode(message);
+        publish(json, users);
+        return socketSessions.broadcast(channelIds, json);
+    }
+
+    // Helpers --------------------------------------------------------------------------------------------------------
+
+    /**
+     * Publish the given JSON to the other nodes. The application scoped channel is represented by a null channel ID,
+     * because each node has its own application scoped channel ID.
+     */
+    private void publish(String json, long windowInMillis) {
+        if (!socketSessions.isPublishing()) {
+            return;
+        }
+
+        var channelId = viewScopedChannels.get(channel);
+
+        if (channelId == null) {
+            channelId = sessionScopedChannels.get(channel);
+        }
+
+        socketSessions.publish(new SocketMessage(channel, channelId, null, json, windowInMillis));
+    }
+
+    /**
+     * Publish the given JSON targeted to the given users to the other nodes.
+     */
+    private <S extends Serializable> void publish(String json, Collection<S> users) {
+        if (!socketSessions.isPublishing()) {
+            return;
+        }
+
+        socketSessions.publish(new SocketMessage(channel, null, new HashSet<>(users), json, 0));
+    }
+
 }
\ No newline at end of file
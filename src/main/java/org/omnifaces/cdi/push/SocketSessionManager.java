@@ -15,34 +15,51 @@ package org.omnifaces.cdi.push;
 import static jakarta.websocket.CloseReason.CloseCodes.NORMAL_CLOSURE;
 import static java.lang.String.format;
 import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.logging.Level.FINEST;
-import static java.util.logging.Level.WARNING;
 import static java.util.stream.Collectors.toUnmodifiableSet;
+import static org.omnifaces.cdi.push.Socket.PARAM_SOCKET_MESSAGE_BUS;
+import static org.omnifaces.cdi.push.Socket.PARAM_SOCKET_SEND_QUEUE_MAX_SIZE;
+import static org.omnifaces.cdi.push.Socket.PARAM_SOCKET_SEND_QUEUE_OVERFLOW;
+import static org.omnifaces.cdi.push.SocketChannelManager.getApplicationScopedChannelId;
 import static org.omnifaces.cdi.push.SocketEndpoint.PARAM_CHANNEL;
 import static org.omnifaces.util.Beans.getReference;
+import static org.omnifaces.util.Utils.isEmpty;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.util.AnnotationLiteral;
 import jakarta.inject.Inject;
+import jakarta.servlet.ServletContext;
 import jakarta.websocket.CloseReason;
 import jakarta.websocket.Session;
 
 import org.omnifaces.cdi.push.SocketEvent.Closed;
 import org.omnifaces.cdi.push.SocketEvent.Opened;
+import org.omnifaces.cdi.push.SocketSessionQueue.Overflow;
 import org.omnifaces.util.Beans;
-import org.omnifaces.util.Hacks;
+import org.omnifaces.util.Reflection;
 
 /**
  * <p>
@@ -60,16 +77,17 @@ public class SocketSessionManager {
     private static final Logger logger = Logger.getLogger(SocketSessionManager.class.getName());
 
     private static final CloseReason REASON_EXPIRED = new CloseReason(NORMAL_CLOSURE, "Expired");
-    private static final long TOMCAT_WEB_SOCKET_RETRY_TIMEOUT = 10; // Milliseconds.
-    private static final long TOMCAT_WEB_SOCKET_MAX_RETRIES = 100; // So, that's retrying for about 1 second.
-    private static final String WARNING_TOMCAT_WEB_SOCKET_BOMBED =
-        "Tomcat cannot handle concurrent push messages."
-            + " A push message has been sent only after %s retries of " + TOMCAT_WEB_SOCKET_RETRY_TIMEOUT + "ms apart."
-            + " Consider rate limiting sending push messages. For example, once every 500ms.";
-    private static final String ERROR_TOMCAT_WEB_SOCKET_BOMBED =
-        "Tomcat cannot handle concurrent push messages."
-            + " A push message could NOT be sent after %s retries of " + TOMCAT_WEB_SOCKET_RETRY_TIMEOUT + "ms apart."
-            + " Consider rate limiting sending push messages. For example, once every 500ms.";
+    private static final String SEND_QUEUE = SocketSessionQueue.class.getName();
+    private static final String THREAD_NAME_THROTTLE = "OmniFaces-SocketThrottle";
+    private static final int DEFAULT_SEND_QUEUE_MAX_SIZE = 100;
+    private static final Overflow DEFAULT_SEND_QUEUE_OVERFLOW = Overflow.DROP_OLDEST;
+    private static final String ERROR_INVALID_SEND_QUEUE_MAX_SIZE =
+        "Context parameter '" + PARAM_SOCKET_SEND_QUEUE_MAX_SIZE + "' must be a positive integer, but is '%s'.";
+    private static final String ERROR_INVALID_SEND_QUEUE_OVERFLOW =
+        "Context parameter '" + PARAM_SOCKET_SEND_QUEUE_OVERFLOW + "' must be one of DROP_OLDEST, COALESCE or CLOSE,"
+            + " but is '%s'.";
+    private static final String ERROR_MESSAGE_BUS_START_FAILED =
+        "Socket message bus '%s' could not be started.";
 
     private static SocketSessionManager instance;
 
@@ -80,6 +98,78 @@ public class SocketSessionManager {
     @Inject
     private SocketUserManager socketUsers;
 
+    @Inject
+    private ServletContext servletContext;
+
+    @Inject
+    private SocketMetrics socketMetrics;
+
+    private int sendQueueMaxSize;
+    private Overflow sendQueueOverflow;
+    private final ConcurrentHashMap<String, Throttle> throttles = new ConcurrentHashMap<>();
+    private ScheduledExecutorService throttleScheduler;
+    private SocketMessageBus messageBus;
+    private boolean publishing;
+
+    // Init -----------------------------------------------------------------------------------------------------------
+
+    /**
+     * Read the send queue configuration from the context parameters.
+     */
+    @PostConstruct
+    public void init() {
+        var maxSize = servletContext.getInitParameter(PARAM_SOCKET_SEND_QUEUE_MAX_SIZE);
+        var overflow = servletContext.getInitParameter(PARAM_SOCKET_SEND_QUEUE_OVERFLOW);
+        var messageBusClassName = servletContext.getInitParameter(PARAM_SOCKET_MESSAGE_BUS);
+
+        try {
+            sendQueueMaxSize = isEmpty(maxSize) ? DEFAULT_SEND_QUEUE_MAX_SIZE : Integer.parseInt(maxSize.trim());
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(format(ERROR_INVALID_SEND_QUEUE_MAX_SIZE, maxSize), e);
+        }
+
+        if (sendQueueMaxSize < 1) {
+            throw new IllegalArgumentException(format(ERROR_INVALID_SEND_QUEUE_MAX_SIZE, maxSize));
+        }
+
+        try {
+            sendQueueOverflow = isEmpty(overflow)
+                ? DEFAULT_SEND_QUEUE_OVERFLOW
+                : Overflow.valueOf(overflow.trim().toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(format(ERROR_INVALID_SEND_QUEUE_OVERFLOW, overflow), e);
+        }
+
+        messageBus = isEmpty(messageBusClassName)
+            ? new LocalSocketMessageBus()
+            : Reflection.instance(messageBusClassName.trim());
+        publishing = !(messageBus instanceof LocalSocketMessageBus);
+
+        try {
+            messageBus.start(servletContext, this::receive);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(format(ERROR_MESSAGE_BUS_START_FAILED, messageBus.getClass().getName()), e);
+        }
+    }
+
+    /**
+     * Stop the throttle scheduler, if any, and the message bus.
+     */
+    @PreDestroy
+    public synchronized void destroy() {
+        if (throttleScheduler != null) {
+            throttleScheduler.shutdownNow();
+            throttleScheduler = null;
+        }
+
+        if (messageBus != null) {
+            messageBus.stop();
+        }
+    }
+
     // Actions --------------------------------------------------------------------------------------------------------
 
     /**
@@ -109,7 +199,16 @@ public class SocketSessionManager {
         var channelId = getChannelId(session);
         var sessions = socketSessions.get(channelId);
 
-        if (sessions != null && sessions.add(session)) {
+        if (sessions == null) {
+            return false;
+        }
+
+        var metrics = socketMetrics.getChannel(getChannel(session));
+        var queue = new SocketSessionQueue(session, sendQueueMaxSize, sendQueueOverflow, metrics);
+        session.getUserProperties().putIfAbsent(SEND_QUEUE, queue);
+
+        if (sessions.add(session)) {
+            metrics.opened();
             var user = socketUsers.getUser(getChannel(session), channelId);
 
             if (user != null) {
@@ -125,6 +224,7 @@ public class SocketSessionManager {
 
     /**
      * Send the given message to all open web socket sessions associated with given web socket channel identifier.
+     * The message is offered to the send queue of each web socket session, which sends at most one message at a time.
      * @param channelId The web socket channel identifier.
      * @param message The push message string.
      * @return The results of the send operation. If it returns an empty set, then there was no open session associated
@@ -137,65 +237,167 @@ public class SocketSessionManager {
         if (sessions != null) {
             return sessions.stream()
                     .filter(Session::isOpen)
-                    .map(session -> send(session, message, true))
+                    .map(SocketSessionManager::getSendQueue)
                     .filter(Objects::nonNull)
+                    .map(queue -> queue.offer(message))
                     .collect(toUnmodifiableSet());
         }
 
         return emptySet();
     }
 
-    private Future<Void> send(Session session, String text, boolean retrySendTomcatWebSocket) {
-        try {
-            return session.getAsyncRemote().sendText(text);
-        }
-        catch (IllegalStateException e) {
-            if (Hacks.isTomcatWebSocketBombed(session, e)) {
-                if (retrySendTomcatWebSocket) {
-                    return CompletableFuture.supplyAsync(() -> retrySendTomcatWebSocket(session, text));
-                }
-                else {
-                    return null;
+    /**
+     * Broadcast the given message to all open web socket sessions associated with given web socket channel identifiers.
+     * Unlike {@link #send(String, String)}, this doesn't create a future per web socket session, but only one for all.
+     * @param channelIds The web socket channel identifiers.
+     * @param message The push message string.
+     * @return The aggregate result of the broadcast operation. It will complete with <code>null</code> when the message
+     * has been successfully delivered to all open web socket sessions, also when there were none, and otherwise
+     * complete exceptionally with the first failure when all deliveries have completed.
+     * @since 4.6
+     */
+    protected CompletableFuture<Void> broadcast(Iterable<String> channelIds, String message) {
+        var broadcast = new Broadcast();
+
+        for (var channelId : channelIds) {
+            var sessions = channelId != null ? socketSessions.get(channelId) : null;
+
+            if (sessions != null) {
+                for (var session : sessions) {
+                    var queue = session.isOpen() ? getSendQueue(session) : null;
+
+                    if (queue != null) {
+                        queue.offer(message, broadcast.add());
+                    }
                 }
             }
-            else {
-                throw e;
-            }
         }
+
+        return broadcast.done();
     }
 
-    private Void retrySendTomcatWebSocket(Session session, String text) {
-        var retries = 0;
-        Exception cause = null;
+    /**
+     * Broadcast the given message to all open web socket sessions associated with given web socket channel identifier,
+     * but at most once per given window. The first message is sent immediately. Any message which is sent during the
+     * window replaces the previously pending one and only the latest pending one is sent when the window ends,
+     * whereafter a new window starts. All messages which are coalesced this way share the same result.
+     * @param channelId The web socket channel identifier.
+     * @param message The push message string.
+     * @param windowInMillis The window in milliseconds.
+     * @return The aggregate result of the broadcast operation, see {@link #broadcast(Iterable, String)}.
+     * @since 4.6
+     */
+    protected CompletableFuture<Void> broadcast(String channelId, String message, long windowInMillis) {
+        if (channelId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-        try {
-            while (++retries < TOMCAT_WEB_SOCKET_MAX_RETRIES) {
-                Thread.sleep(TOMCAT_WEB_SOCKET_RETRY_TIMEOUT);
+        var pendingResult = new AtomicReference<CompletableFuture<Void>>();
 
-                if (!session.isOpen()) {
-                    throw new IllegalStateException("Too bad, session is now closed");
-                }
+        throttles.compute(channelId, ($, throttle) -> {
+            if (throttle == null) {
+                return new Throttle(windowInMillis);
+            }
 
-                var result = send(session, text, false);
+            throttle.message = message; // Latest one wins.
 
-                if (result != null) {
-                    if (logger.isLoggable(WARNING)) {
-                        logger.log(WARNING, format(WARNING_TOMCAT_WEB_SOCKET_BOMBED, retries));
-                    }
+            if (throttle.result == null) {
+                throttle.result = new CompletableFuture<>();
+            }
 
-                    return result.get();
-                }
+            pendingResult.set(throttle.result);
+            return throttle;
+        });
+
+        if (pendingResult.get() != null) {
+            return pendingResult.get();
+        }
+
+        scheduleFlush(channelId, windowInMillis);
+        return broadcast(singleton(channelId), message);
+    }
+
+    /**
+     * Publish the given push message to the other nodes via the configured {@link SocketMessageBus}.
+     * @param message The push message.
+     * @since 4.6
+     */
+    protected void publish(SocketMessage message) {
+        messageBus.publish(message);
+    }
+
+    /**
+     * Returns whether push messages are to be published to the other nodes at all. This is not the case when the
+     * configured {@link SocketMessageBus} is the default {@link LocalSocketMessageBus}, so that the callers can skip
+     * creating the {@link SocketMessage}.
+     */
+    boolean isPublishing() {
+        return publishing;
+    }
+
+    /**
+     * Deliver the given push message which is published by another node to the open web socket sessions connected to
+     * this node. The users and the application scoped channel identifier are resolved by this node, because they are not
+     * shared across nodes.
+     */
+    private void receive(SocketMessage message) {
+        var channelIds = new HashSet<String>(1);
+
+        if (message.getUsers() != null) {
+            for (var user : message.getUsers()) {
+                channelIds.addAll(socketUsers.getChannelIds(user, message.getChannel()));
+            }
+        }
+        else if (message.getChannelId() != null) {
+            channelIds.add(message.getChannelId());
+        }
+        else {
+            var channelId = getApplicationScopedChannelId(message.getChannel());
+
+            if (channelId != null) {
+                channelIds.add(channelId);
             }
         }
-        catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            cause = e;
+
+        if (message.getWindowInMillis() > 0) {
+            channelIds.forEach(channelId -> broadcast(channelId, message.getJson(), message.getWindowInMillis()));
+        }
+        else {
+            broadcast(channelIds, message.getJson());
+        }
+    }
+
+    private void flush(String channelId) {
+        var flushed = new AtomicReference<Throttle>();
+
+        throttles.computeIfPresent(channelId, ($, throttle) -> {
+            if (throttle.message == null) {
+                return null; // Nothing has been sent during the window, so just close it.
+            }
+
+            flushed.set(throttle);
+            return new Throttle(throttle.windowInMillis);
+        });
+
+        var throttle = flushed.get();
+
+        if (throttle != null) {
+            scheduleFlush(channelId, throttle.windowInMillis);
+            broadcast(singleton(channelId), throttle.message)
+                .whenComplete((result, exception) -> complete(throttle.result, exception));
         }
-        catch (Exception e) {
-            cause = e;
+    }
+
+    private synchronized void scheduleFlush(String channelId, long windowInMillis) {
+        if (throttleScheduler == null) {
+            throttleScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, THREAD_NAME_THROTTLE);
+                thread.setDaemon(true);
+                return thread;
+            });
         }
 
-        throw new UnsupportedOperationException(format(ERROR_TOMCAT_WEB_SOCKET_BOMBED, retries), cause);
+        throttleScheduler.schedule(() -> flush(channelId), windowInMillis, MILLISECONDS);
     }
 
     /**
@@ -207,6 +409,13 @@ public class SocketSessionManager {
         var sessions = socketSessions.get(getChannelId(session));
 
         if (sessions != null && sessions.remove(session)) {
+            socketMetrics.getChannel(getChannel(session)).closed();
+            var queue = getSendQueue(session);
+
+            if (queue != null) {
+                queue.close();
+            }
+
             fireEvent(session, reason, Closed.LITERAL);
         }
     }
@@ -259,6 +468,19 @@ public class SocketSessionManager {
         return session.getPathParameters().get(PARAM_CHANNEL);
     }
 
+    private static SocketSessionQueue getSendQueue(Session session) {
+        return (SocketSessionQueue) session.getUserProperties().get(SEND_QUEUE);
+    }
+
+    private static void complete(CompletableFuture<Void> future, Throwable exception) {
+        if (exception == null) {
+            future.complete(null);
+        }
+        else {
+            future.completeExceptionally(exception);
+        }
+    }
+
     private static String getChannelId(Session session) {
         return getChannel(session) + "?" + session.getQueryString();
     }
@@ -268,4 +490,49 @@ public class SocketSessionManager {
         Beans.fireEvent(new SocketEvent(getChannel(session), user, null, reason != null ? reason.getCloseCode() : null), qualifier);
     }
 
-}
\ No newline at end of file
+    // Nested classes -------------------------------------------------------------------------------------------------
+
+    /**
+     * Tracks the completion of a broadcast to many web socket sessions with a single counter instead of a future per web
+     * socket session. The counter starts at 1 for the registration phase, which is released by {@link #done()}.
+     */
+    private static final class Broadcast {
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Consumer<Throwable> add() {
+            pending.incrementAndGet();
+            return this::complete;
+        }
+
+        CompletableFuture<Void> done() {
+            complete(null);
+            return result;
+        }
+
+        private void complete(Throwable exception) {
+            if (exception != null) {
+                failure.compareAndSet(null, exception);
+            }
+
+            if (pending.decrementAndGet() == 0) {
+                SocketSessionManager.complete(result, failure.get());
+            }
+        }
+    }
+
+    /**
+     * The state of a throttled channel during a window.
+     */
+    private static final class Throttle {
+        private final long windowInMillis;
+        private String message;
+        private CompletableFuture<Void> result;
+
+        Throttle(long windowInMillis) {
+            this.windowInMillis = windowInMillis;
+        }
+    }
+
+}
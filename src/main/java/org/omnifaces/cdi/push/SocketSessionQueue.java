@@ -0,0 +1,286 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.cdi.push;
+
+import static jakarta.websocket.CloseReason.CloseCodes.TRY_AGAIN_LATER;
+import static java.util.logging.Level.FINEST;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+
+import org.omnifaces.cdi.push.SocketMetrics.ChannelMetrics;
+
+/**
+ * <p>
+ * The outbound queue of a single web socket session. There is at most one outstanding send per web socket session at
+ * any time, so the container never sees concurrent sends on the same session. The next message is sent from the
+ * completion callback of the previous one, so no thread is blocked while waiting for a slow client. The amount of
+ * pending messages is bounded and the {@link Overflow} policy decides what happens when it's full.
+ *
+ * @author Bauke Scholtz
+ * @since 4.6
+ * @see SocketSessionManager
+ */
+public final class SocketSessionQueue {
+
+    // Constants ------------------------------------------------------------------------------------------------------
+
+    private static final Logger logger = Logger.getLogger(SocketSessionQueue.class.getName());
+
+    private static final CloseReason REASON_SLOW_CONSUMER = new CloseReason(TRY_AGAIN_LATER, "Slow consumer");
+
+    private static final String ERROR_DROPPED = "Push message has been dropped because the send queue was full.";
+    private static final String ERROR_CLOSED = "Push message could not be sent because the web socket session is closed.";
+
+    private static final int STATE_SENDING = 0;
+    private static final int STATE_COMPLETED = 1;
+    private static final int STATE_RETURNED = 2;
+
+    /**
+     * The policy when the send queue of a web socket session is full.
+     */
+    public enum Overflow {
+
+        /** Drop the oldest pending message. Its future will throw {@link java.util.concurrent.ExecutionException}. */
+        DROP_OLDEST,
+
+        /** Drop all pending messages in favor of the new one. Their futures will throw {@link java.util.concurrent.ExecutionException}. */
+        COALESCE,
+
+        /** Close the web socket session. The client will attempt to reconnect. */
+        CLOSE;
+    }
+
+    // Properties -----------------------------------------------------------------------------------------------------
+
+    private final Session session;
+    private final int maxSize;
+    private final Overflow overflow;
+    private final ChannelMetrics metrics;
+    private final ArrayDeque<Message> pending = new ArrayDeque<>();
+    private boolean sending;
+    private boolean closed;
+
+    // Constructors ---------------------------------------------------------------------------------------------------
+
+    /**
+     * Create the send queue of the given web socket session.
+     * @param session The web socket session.
+     * @param maxSize The maximum amount of pending messages.
+     * @param overflow The policy when the maximum amount of pending messages is reached.
+     * @param metrics The metrics of the push channel of the web socket session.
+     */
+    public SocketSessionQueue(Session session, int maxSize, Overflow overflow, ChannelMetrics metrics) {
+        this.session = session;
+        this.maxSize = maxSize;
+        this.overflow = overflow;
+        this.metrics = metrics;
+    }
+
+    // Actions --------------------------------------------------------------------------------------------------------
+
+    /**
+     * Offer the given text message to be sent to the web socket session.
+     * @param text The text message.
+     * @return The result of the send operation. The future will return <code>null</code> on {@link Future#get()} if
+     * the message was successfully delivered and otherwise throw {@link java.util.concurrent.ExecutionException}.
+     */
+    public Future<Void> offer(String text) {
+        var future = new CompletableFuture<Void>();
+        offer(text, exception -> {
+            if (exception == null) {
+                future.complete(null);
+            }
+            else {
+                future.completeExceptionally(exception);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Offer the given text message to be sent to the web socket session and invoke the given callback on completion.
+     * This saves creating a future per web socket session during a broadcast.
+     * @param text The text message.
+     * @param callback The callback which will be invoked with <code>null</code> if the message was successfully
+     * delivered and otherwise with the exception.
+     */
+    public void offer(String text, Consumer<Throwable> callback) {
+        var message = new Message(text, callback, metrics);
+        List<Message> dropped = new ArrayList<>(1);
+        Message next = null;
+        var close = false;
+
+        synchronized (this) {
+            if (!closed && pending.size() >= maxSize) {
+                switch (overflow) {
+                    case DROP_OLDEST:
+                        dropped.add(pending.poll());
+                        break;
+                    case COALESCE:
+                        dropped.addAll(pending);
+                        pending.clear();
+                        break;
+                    default:
+                        closed = close = true;
+                        dropped.addAll(pending);
+                        pending.clear();
+                        break;
+                }
+            }
+
+            if (closed) {
+                dropped.add(message);
+            }
+            else {
+                pending.add(message);
+
+                if (!sending) {
+                    sending = true;
+                    next = pending.poll();
+                }
+            }
+        }
+
+        var error = close || dropped.contains(message) ? ERROR_CLOSED : ERROR_DROPPED;
+        dropped.forEach(droppedMessage -> droppedMessage.drop(new IllegalStateException(error)));
+
+        if (close) {
+            closeSlowConsumer();
+        }
+
+        send(next);
+    }
+
+    /**
+     * Close this queue. All pending messages will fail.
+     */
+    public void close() {
+        List<Message> dropped;
+
+        synchronized (this) {
+            closed = true;
+            dropped = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        dropped.forEach(droppedMessage -> droppedMessage.drop(new IllegalStateException(ERROR_CLOSED)));
+    }
+
+    // Helpers --------------------------------------------------------------------------------------------------------
+
+    /**
+     * Send the given message and then all subsequent pending messages. When a send completes asynchronously, then the
+     * remainder is sent from its completion callback. When a send completes synchronously, then the remainder is sent
+     * in this loop instead of recursively, so that the stack doesn't grow with the amount of pending messages.
+     */
+    private void send(Message message) {
+        var next = message;
+
+        while (next != null) {
+            var current = next;
+            var state = new AtomicInteger(STATE_SENDING);
+
+            try {
+                session.getAsyncRemote().sendText(current.text, result -> {
+                    current.complete(result);
+
+                    if (!state.compareAndSet(STATE_SENDING, STATE_COMPLETED)) {
+                        send(poll());
+                    }
+                });
+            }
+            catch (Exception e) {
+                current.complete(e);
+                state.set(STATE_COMPLETED);
+            }
+
+            if (state.compareAndSet(STATE_SENDING, STATE_RETURNED)) {
+                return; // The completion callback will continue.
+            }
+
+            next = poll();
+        }
+    }
+
+    private synchronized Message poll() {
+        var next = pending.poll();
+
+        if (next == null) {
+            sending = false;
+        }
+
+        return next;
+    }
+
+    private void closeSlowConsumer() {
+        try {
+            session.close(REASON_SLOW_CONSUMER);
+        }
+        catch (IOException ignore) {
+            logger.log(FINEST, "Ignoring thrown exception; there is nothing more we could do here.", ignore);
+        }
+    }
+
+    // Nested classes -------------------------------------------------------------------------------------------------
+
+    private static final class Message {
+        private final String text;
+        private final Consumer<Throwable> callback;
+        private final ChannelMetrics metrics;
+        private final long offeredNanoTime;
+
+        private Message(String text, Consumer<Throwable> callback, ChannelMetrics metrics) {
+            this.text = text;
+            this.callback = callback;
+            this.metrics = metrics;
+            this.offeredNanoTime = System.nanoTime();
+            metrics.offered();
+        }
+
+        private void complete(SendResult result) {
+            complete(result.isOK() ? null : result.getException());
+        }
+
+        private void complete(Throwable exception) {
+            metrics.completed(offeredNanoTime, exception);
+            callback(exception);
+        }
+
+        private void drop(Throwable exception) {
+            metrics.dropped();
+            callback(exception);
+        }
+
+        private void callback(Throwable exception) {
+            try {
+                callback.accept(exception);
+            }
+            catch (Exception e) {
+                logger.log(FINEST, "Ignoring thrown exception; it should not stop the send queue.", e);
+            }
+        }
+    }
+
+}
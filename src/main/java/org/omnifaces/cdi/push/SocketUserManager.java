@@ -17,6 +17,7 @@ import static java.util.concurrent.ConcurrentHashMap.newKeySet;
 
 import java.io.Serializable;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -51,6 +52,8 @@ public class SocketUserManager {
 
     private final ConcurrentHashMap<String, ConcurrentHashMap<String, Set<String>>> userChannels = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<Serializable, Set<String>> applicationUsers = new ConcurrentHashMap<>(); // An user can have more than one session (multiple browsers, account sharing).
+    private final ConcurrentHashMap<String, Serializable> userIdUsers = new ConcurrentHashMap<>(); // Reverse index of applicationUsers.
+    private final ConcurrentHashMap<String, String> channelIdUserIds = new ConcurrentHashMap<>(); // Reverse index of userChannels.
 
     // Actions --------------------------------------------------------------------------------------------------------
 
@@ -61,6 +64,7 @@ public class SocketUserManager {
      */
     protected void register(Serializable user, String userId) {
         applicationUsers.computeIfAbsent(user, $ -> newKeySet(ESTIMATED_CHANNELS_IDS_PER_USER)).add(userId);
+        userIdUsers.put(userId, user);
     }
 
     /**
@@ -74,6 +78,7 @@ public class SocketUserManager {
                 .computeIfAbsent(userId, $ -> new ConcurrentHashMap<>(ESTIMATED_USER_CHANNELS_PER_APPLICATION))
                 .computeIfAbsent(channel, $ -> newKeySet(ESTIMATED_USER_CHANNELS_PER_SESSION))
                 .add(channelId);
+        channelIdUserIds.put(channelId, userId);
     }
 
     /**
@@ -83,15 +88,13 @@ public class SocketUserManager {
      * @return The user associated with given channel name and ID.
      */
     protected Serializable getUser(String channel, String channelId) {
-        for (var applicationUser : applicationUsers.entrySet()) {
-            for (var userId : applicationUser.getValue()) { // "Normally" this contains only 1 entry, so it isn't that inefficient as it looks like.
-                if (getApplicationUserChannelIds(userId, channel).contains(channelId)) {
-                    return applicationUser.getKey();
-                }
-            }
+        var userId = channelIdUserIds.get(channelId);
+
+        if (userId == null || !getApplicationUserChannelIds(userId, channel).contains(channelId)) {
+            return null;
         }
 
-        return null;
+        return userIdUsers.get(userId);
     }
 
     /**
@@ -119,7 +122,13 @@ public class SocketUserManager {
      * @param userId The session based user ID.
      */
     protected void deregister(Serializable user, String userId) {
-        userChannels.remove(userId);
+        var channels = userChannels.remove(userId);
+
+        if (channels != null) {
+            channels.values().forEach(channelIds -> channelIds.forEach(channelId -> channelIdUserIds.remove(channelId, userId)));
+        }
+
+        userIdUsers.remove(userId, user);
         applicationUsers.computeIfPresent(user, ($, userIds) -> {
             userIds.remove(userId);
             return userIds.isEmpty() ? null : userIds;
@@ -138,6 +147,26 @@ public class SocketUserManager {
         return userChannels;
     }
 
+    /**
+     * For internal usage only. This makes it possible to restore user specific channels during server restart/failover
+     * in {@link SocketChannelManager} while keeping the reverse index of {@link #getUser(String, String)} in sync.
+     * This should actually be package private, but package private methods in CDI beans are subject to memory leaks.
+     * @param userId The session based user ID.
+     * @param channels The user specific channels, mapped by channel name, as obtained from {@link #getUserChannels()}.
+     * @since 4.6
+     */
+    protected void restoreUserChannels(String userId, Map<String, Set<String>> channels) {
+        if (channels == null) {
+            return;
+        }
+
+        for (var channel : channels.entrySet()) {
+            for (var channelId : channel.getValue()) {
+                addChannelId(userId, channel.getKey(), channelId);
+            }
+        }
+    }
+
     // Helpers --------------------------------------------------------------------------------------------------------
 
     private Set<String> getApplicationUserChannelIds(String userId, String channel) {
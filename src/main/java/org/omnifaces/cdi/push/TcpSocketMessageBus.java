@@ -0,0 +1,726 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.cdi.push;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.FINEST;
+import static java.util.logging.Level.INFO;
+import static java.util.logging.Level.WARNING;
+import static java.util.stream.Collectors.toList;
+import static org.omnifaces.util.Utils.isEmpty;
+import static org.omnifaces.util.Utils.splitAndTrim;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import jakarta.servlet.ServletContext;
+
+/**
+ * <p>
+ * {@link SocketMessageBus} which publishes push messages to the other nodes via plain TCP connections. Each node listens
+ * on the address and port as specified by the {@value #PARAM_BIND_ADDRESS} and {@value #PARAM_PORT} context parameters
+ * and publishes to the peers as specified by the {@value #PARAM_PEERS} context parameter, which must be a comma
+ * separated string of <code>host:port</code> pairs of the other nodes. All nodes must share the same secret as
+ * specified by the {@value #PARAM_SECRET} context parameter.
+ * <pre>
+ * &lt;context-param&gt;
+ *     &lt;param-name&gt;org.omnifaces.SOCKET_MESSAGE_BUS&lt;/param-name&gt;
+ *     &lt;param-value&gt;org.omnifaces.cdi.push.TcpSocketMessageBus&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *     &lt;param-name&gt;org.omnifaces.SOCKET_MESSAGE_BUS_TCP_BIND_ADDRESS&lt;/param-name&gt;
+ *     &lt;param-value&gt;node1.internal&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *     &lt;param-name&gt;org.omnifaces.SOCKET_MESSAGE_BUS_TCP_PORT&lt;/param-name&gt;
+ *     &lt;param-value&gt;7800&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *     &lt;param-name&gt;org.omnifaces.SOCKET_MESSAGE_BUS_TCP_PEERS&lt;/param-name&gt;
+ *     &lt;param-value&gt;node2.internal:7800,node3.internal:7800&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *     &lt;param-name&gt;org.omnifaces.SOCKET_MESSAGE_BUS_TCP_SECRET&lt;/param-name&gt;
+ *     &lt;param-value&gt;${PUSH_SECRET}&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * <p>
+ * The bind address defaults to the loopback address, so that by default only nodes on the same host can connect. The
+ * secret is required when the bind address is not a loopback address. When the secret is in the form of
+ * <code>${name}</code>, then it's resolved from the system property with that name, or else from the environment
+ * variable with that name, so that it doesn't need to be hardcoded in <code>web.xml</code>. The bus refuses to start
+ * when it cannot be resolved. Without a secret, a well known default secret is used, which is only allowed on a
+ * loopback address and is logged as a warning. Each incoming connection must prove that it
+ * knows the secret by answering a random challenge with its HMAC-SHA256 before any push message is accepted. The
+ * secret itself is never sent over the network. The amount of incoming connections is limited to
+ * {@value #MAX_CONNECTIONS}.
+ * <p>
+ * Each peer has its own outbound queue and its own background thread which writes all push messages which are queued
+ * in the meanwhile as a single batch to the peer, so that a slow or unreachable peer does not hold up the others. When
+ * a peer is unreachable, or when writing a batch to it does not complete within a few seconds, then the batch is lost
+ * for that peer and a reconnect is attempted on the next batch. When the outbound queue of a peer is full, then new
+ * push messages for that peer are dropped. This is logged only once until the queue accepts push messages again.
+ * <p>
+ * The push messages are written in a simple binary format, not via Java serialization, so it's safe against
+ * deserialization attacks. Nonetheless, the port should only be reachable from within the trusted cluster network, as
+ * the push messages are not encrypted. Users as in <code>&lt;o:socket user&gt;</code> are only supported when they are
+ * of type {@link String}, {@link Long}, {@link Integer} or {@link UUID}.
+ *
+ * @author Bauke Scholtz
+ * @since 4.6
+ */
+public class TcpSocketMessageBus implements SocketMessageBus {
+
+    // Constants ------------------------------------------------------------------------------------------------------
+
+    /** The context parameter name to specify the host name or IP address to listen on. Defaults to loopback. */
+    public static final String PARAM_BIND_ADDRESS = "org.omnifaces.SOCKET_MESSAGE_BUS_TCP_BIND_ADDRESS";
+
+    /** The integer context parameter name to specify the TCP port to listen on for push messages from the other nodes. */
+    public static final String PARAM_PORT = "org.omnifaces.SOCKET_MESSAGE_BUS_TCP_PORT";
+
+    /** The context parameter name to specify the comma separated <code>host:port</code> pairs of the other nodes. */
+    public static final String PARAM_PEERS = "org.omnifaces.SOCKET_MESSAGE_BUS_TCP_PEERS";
+
+    /**
+     * The context parameter name to specify the secret shared by all nodes. Required for a non-loopback address. It may
+     * be in the form of <code>${name}</code> in order to resolve it from a system property or environment variable.
+     */
+    public static final String PARAM_SECRET = "org.omnifaces.SOCKET_MESSAGE_BUS_TCP_SECRET";
+
+    /** The maximum amount of incoming connections. */
+    public static final int MAX_CONNECTIONS = 64;
+
+    private static final Logger logger = Logger.getLogger(TcpSocketMessageBus.class.getName());
+
+    private static final int MAX_QUEUE_SIZE = 10_000;
+    private static final int MAX_BATCH_SIZE = 1_000;
+    private static final int MAX_JSON_LENGTH = 16 * 1024 * 1024;
+    private static final int CONNECT_TIMEOUT_IN_MILLIS = 1_000;
+    private static final int HANDSHAKE_TIMEOUT_IN_MILLIS = 5_000;
+    private static final int WRITE_TIMEOUT_IN_MILLIS = 5_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int CHALLENGE_LENGTH = 32;
+    private static final byte[] DEFAULT_SECRET = "OmniFaces".getBytes(UTF_8); // Only allowed on loopback.
+    private static final String SECRET_REFERENCE_PREFIX = "${";
+    private static final String SECRET_REFERENCE_SUFFIX = "}";
+
+    private static final byte USER_STRING = 'S';
+    private static final byte USER_LONG = 'L';
+    private static final byte USER_INTEGER = 'I';
+    private static final byte USER_UUID = 'U';
+    private static final int NO_USERS = -1;
+
+    private static final String THREAD_NAME_ACCEPTOR = "OmniFaces-TcpSocketMessageBus-Acceptor";
+    private static final String THREAD_NAME_RECEIVER = "OmniFaces-TcpSocketMessageBus-Receiver";
+    private static final String THREAD_NAME_PUBLISHER = "OmniFaces-TcpSocketMessageBus-Publisher-%s";
+    private static final String THREAD_NAME_WRITE_TIMEOUT = "OmniFaces-TcpSocketMessageBus-WriteTimeout";
+
+    private static final String ERROR_MISSING_PORT =
+        "TcpSocketMessageBus requires context parameter '" + PARAM_PORT + "'.";
+    private static final String ERROR_MISSING_SECRET =
+        "TcpSocketMessageBus requires context parameter '" + PARAM_SECRET + "' when bound to non-loopback address %s.";
+    private static final String ERROR_UNRESOLVED_SECRET =
+        "Context parameter '" + PARAM_SECRET + "' refers to '%s', but there is no such system property nor environment variable.";
+    private static final String ERROR_INVALID_PEER =
+        "Context parameter '" + PARAM_PEERS + "' must be a comma separated string of host:port pairs, but contains '%s'.";
+    private static final String ERROR_INVALID_FRAME =
+        "Invalid push message frame received; closing connection.";
+    private static final String ERROR_HANDSHAKE_FAILED =
+        "Peer %s has answered the challenge with a wrong secret; closing connection.";
+    private static final String WARNING_UNSUPPORTED_USER =
+        "Cannot publish push message to other nodes because user type %s is not supported.";
+    private static final String WARNING_DEFAULT_SECRET =
+        "TcpSocketMessageBus on %s has no secret and uses the well known default secret;"
+            + " any process on this host can publish push messages. Specify context parameter '" + PARAM_SECRET + "'.";
+    private static final String WARNING_QUEUE_FULL =
+        "Cannot publish push messages to peer %s because its outbound queue is full; dropping push messages until it has room.";
+    private static final String INFO_QUEUE_RESUMED =
+        "Resumed publishing push messages to peer %s after dropping %d push messages.";
+    private static final String WARNING_PEER_UNREACHABLE =
+        "Cannot publish push messages to peer %s; will retry on next batch.";
+    private static final String WARNING_CONNECTION_LIMIT =
+        "Refusing connection from %s because the maximum of " + MAX_CONNECTIONS + " connections has been reached.";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Properties -----------------------------------------------------------------------------------------------------
+
+    private InetAddress bindAddress;
+    private int port;
+    private byte[] secret;
+    private List<InetSocketAddress> peerAddresses;
+    private volatile List<Peer> peers = List.of();
+    private final Set<Closeable> connections = ConcurrentHashMap.newKeySet();
+    private final Set<Class<?>> unsupportedUserTypes = ConcurrentHashMap.newKeySet();
+    private ServerSocket serverSocket;
+    private ThreadPoolExecutor receivers;
+    private ScheduledThreadPoolExecutor writeTimeouts;
+    private volatile boolean running;
+
+    // Constructors ---------------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a TCP socket message bus which obtains its bind address, port, peers and secret from the context
+     * parameters.
+     */
+    public TcpSocketMessageBus() {
+        // NOOP.
+    }
+
+    /**
+     * Creates a TCP socket message bus listening on the loopback address with the given port and peers, without a
+     * secret. The context parameters are then ignored.
+     * @param port The TCP port to listen on. Use 0 to pick a free port, see also {@link #getPort()}.
+     * @param peers The addresses of the other nodes.
+     */
+    public TcpSocketMessageBus(int port, Collection<InetSocketAddress> peers) {
+        this(InetAddress.getLoopbackAddress(), port, peers, null);
+    }
+
+    /**
+     * Creates a TCP socket message bus with the given bind address, port, peers and secret. The context parameters are
+     * then ignored.
+     * @param bindAddress The address to listen on.
+     * @param port The TCP port to listen on. Use 0 to pick a free port, see also {@link #getPort()}.
+     * @param peers The addresses of the other nodes.
+     * @param secret The secret shared by all nodes. This may only be <code>null</code> when the bind address is a
+     * loopback address.
+     * @throws IllegalArgumentException When the secret is <code>null</code> while the bind address is not a loopback
+     * address.
+     */
+    public TcpSocketMessageBus(InetAddress bindAddress, int port, Collection<InetSocketAddress> peers, String secret) {
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.peerAddresses = new ArrayList<>(peers);
+        this.secret = toSecret(bindAddress, secret);
+    }
+
+    // Actions --------------------------------------------------------------------------------------------------------
+
+    @Override
+    public synchronized void start(ServletContext servletContext, Consumer<SocketMessage> receiver) throws IOException {
+        if (peerAddresses == null) {
+            configure(servletContext);
+        }
+
+        serverSocket = new ServerSocket(port, 0, bindAddress);
+        receivers = new ThreadPoolExecutor(0, MAX_CONNECTIONS, 60, SECONDS, new SynchronousQueue<>(), daemon(THREAD_NAME_RECEIVER));
+        writeTimeouts = new ScheduledThreadPoolExecutor(1, daemon(THREAD_NAME_WRITE_TIMEOUT));
+        writeTimeouts.setRemoveOnCancelPolicy(true);
+        running = true;
+        daemon(THREAD_NAME_ACCEPTOR).newThread(() -> accept(receiver)).start();
+        peerAddresses.forEach(this::startPeer);
+    }
+
+    @Override
+    public void publish(SocketMessage message) {
+        var currentPeers = peers;
+
+        if (currentPeers.isEmpty()) {
+            return;
+        }
+
+        if (message.getUsers() != null) {
+            for (var user : message.getUsers()) {
+                if (!(user instanceof String || user instanceof Long || user instanceof Integer || user instanceof UUID)) {
+                    if (unsupportedUserTypes.add(user.getClass())) { // Log only once per type, it'd otherwise flood.
+                        logger.log(WARNING, format(WARNING_UNSUPPORTED_USER, user.getClass().getName()));
+                    }
+
+                    return;
+                }
+            }
+        }
+
+        for (var peer : currentPeers) {
+            peer.offer(message);
+        }
+    }
+
+    /**
+     * Adds the given peer. This is useful when the port of the peer is only known after it has been started.
+     * @param peer The address of the other node.
+     */
+    public synchronized void addPeer(InetSocketAddress peer) {
+        peerAddresses.add(peer);
+
+        if (running) {
+            startPeer(peer);
+        }
+    }
+
+    /**
+     * Returns the TCP port this message bus is actually listening on.
+     * @return The TCP port this message bus is actually listening on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        close(serverSocket);
+        peers.forEach(Peer::stop);
+        peers = List.of();
+        connections.forEach(TcpSocketMessageBus::close);
+        connections.clear();
+
+        if (receivers != null) {
+            receivers.shutdownNow();
+        }
+
+        if (writeTimeouts != null) {
+            writeTimeouts.shutdownNow();
+        }
+    }
+
+    // Helpers --------------------------------------------------------------------------------------------------------
+
+    private void configure(ServletContext servletContext) throws IOException {
+        var bindAddressParam = servletContext.getInitParameter(PARAM_BIND_ADDRESS);
+        var portParam = servletContext.getInitParameter(PARAM_PORT);
+        var peersParam = servletContext.getInitParameter(PARAM_PEERS);
+
+        if (isEmpty(portParam)) {
+            throw new IllegalStateException(ERROR_MISSING_PORT);
+        }
+
+        bindAddress = isEmpty(bindAddressParam) ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bindAddressParam.trim());
+        port = Integer.parseInt(portParam.trim());
+        peerAddresses = isEmpty(peersParam) ? new ArrayList<>() : splitAndTrim(peersParam, ",").map(TcpSocketMessageBus::parsePeer).collect(toList());
+        secret = toSecret(bindAddress, resolveSecret(servletContext.getInitParameter(PARAM_SECRET)));
+    }
+
+    /**
+     * If the given secret is in the form of <code>${name}</code>, then resolve it from the system property or else the
+     * environment variable with that name.
+     */
+    private static String resolveSecret(String secret) {
+        if (isEmpty(secret)) {
+            return null;
+        }
+
+        var trimmedSecret = secret.trim();
+
+        if (!trimmedSecret.startsWith(SECRET_REFERENCE_PREFIX) || !trimmedSecret.endsWith(SECRET_REFERENCE_SUFFIX)) {
+            return secret;
+        }
+
+        var name = trimmedSecret.substring(SECRET_REFERENCE_PREFIX.length(), trimmedSecret.length() - SECRET_REFERENCE_SUFFIX.length()).trim();
+        var resolvedSecret = System.getProperty(name);
+
+        if (isEmpty(resolvedSecret)) {
+            resolvedSecret = System.getenv(name);
+        }
+
+        if (isEmpty(resolvedSecret)) {
+            throw new IllegalStateException(format(ERROR_UNRESOLVED_SECRET, name));
+        }
+
+        return resolvedSecret;
+    }
+
+    private static byte[] toSecret(InetAddress bindAddress, String secret) {
+        if (!isEmpty(secret)) {
+            return secret.getBytes(UTF_8);
+        }
+
+        if (!bindAddress.isLoopbackAddress()) {
+            throw new IllegalArgumentException(format(ERROR_MISSING_SECRET, bindAddress));
+        }
+
+        logger.log(WARNING, format(WARNING_DEFAULT_SECRET, bindAddress));
+        return DEFAULT_SECRET;
+    }
+
+    private static InetSocketAddress parsePeer(String peer) {
+        var separator = peer.lastIndexOf(':');
+
+        try {
+            return InetSocketAddress.createUnresolved(peer.substring(0, separator), Integer.parseInt(peer.substring(separator + 1)));
+        }
+        catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IllegalArgumentException(format(ERROR_INVALID_PEER, peer), e);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            var thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private void startPeer(InetSocketAddress address) {
+        var peer = new Peer(address);
+        var newPeers = new ArrayList<>(peers);
+        newPeers.add(peer);
+        peers = newPeers;
+        daemon(format(THREAD_NAME_PUBLISHER, address)).newThread(peer).start();
+    }
+
+    private void accept(Consumer<SocketMessage> receiver) {
+        while (running) {
+            try {
+                var connection = serverSocket.accept();
+
+                try {
+                    connections.add(connection);
+                    receivers.execute(() -> receive(connection, receiver));
+                }
+                catch (RejectedExecutionException e) {
+                    logger.log(running ? WARNING : FINEST, format(WARNING_CONNECTION_LIMIT, connection.getRemoteSocketAddress()), e);
+                    connections.remove(connection);
+                    close(connection);
+                }
+            }
+            catch (IOException e) {
+                logger.log(FINEST, "Ignoring thrown exception; server socket is most likely closed.", e);
+            }
+        }
+    }
+
+    private void receive(java.net.Socket connection, Consumer<SocketMessage> receiver) {
+        try (var input = new DataInputStream(new BufferedInputStream(connection.getInputStream(), BUFFER_SIZE))) {
+            challenge(connection, input);
+
+            while (running) {
+                var count = input.readInt();
+
+                if (count < 0 || count > MAX_BATCH_SIZE) {
+                    throw new IOException(ERROR_INVALID_FRAME);
+                }
+
+                for (var i = 0; i < count; i++) {
+                    receiver.accept(read(input));
+                }
+            }
+        }
+        catch (EOFException e) {
+            logger.log(FINEST, "Ignoring thrown exception; peer has closed the connection.", e);
+        }
+        catch (Exception e) {
+            logger.log(running ? FINE : FINEST, "Receiving push messages from peer has failed.", e);
+        }
+        finally {
+            connections.remove(connection);
+            close(connection);
+        }
+    }
+
+    /**
+     * Send a random challenge to the given incoming connection and verify that it answers with the HMAC of the
+     * challenge based on the shared secret.
+     */
+    private void challenge(java.net.Socket connection, DataInputStream input) throws IOException {
+        connection.setSoTimeout(HANDSHAKE_TIMEOUT_IN_MILLIS);
+        var challenge = new byte[CHALLENGE_LENGTH];
+        RANDOM.nextBytes(challenge);
+        var output = connection.getOutputStream();
+        output.write(challenge);
+        output.flush();
+        var expected = sign(challenge);
+        var answer = new byte[expected.length];
+        input.readFully(answer);
+
+        if (!MessageDigest.isEqual(expected, answer)) {
+            var message = format(ERROR_HANDSHAKE_FAILED, connection.getRemoteSocketAddress());
+            logger.log(WARNING, message);
+            throw new IOException(message);
+        }
+
+        connection.setSoTimeout(0);
+    }
+
+    /**
+     * Answer the challenge of the given outgoing connection with the HMAC of the challenge based on the shared secret.
+     */
+    private void answer(java.net.Socket connection, DataOutputStream output) throws IOException {
+        connection.setSoTimeout(HANDSHAKE_TIMEOUT_IN_MILLIS);
+        var challenge = new byte[CHALLENGE_LENGTH];
+        new DataInputStream(connection.getInputStream()).readFully(challenge);
+        output.write(sign(challenge));
+        output.flush();
+    }
+
+    private byte[] sign(byte[] challenge) throws IOException {
+        try {
+            var mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, HMAC_ALGORITHM));
+            return mac.doFinal(challenge);
+        }
+        catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void write(DataOutputStream output, SocketMessage message) throws IOException {
+        output.writeUTF(message.getChannel());
+        output.writeBoolean(message.getChannelId() != null);
+
+        if (message.getChannelId() != null) {
+            output.writeUTF(message.getChannelId());
+        }
+
+        var users = message.getUsers();
+        output.writeInt(users != null ? users.size() : NO_USERS);
+
+        if (users != null) {
+            for (var user : users) {
+                writeUser(output, user);
+            }
+        }
+
+        var json = message.getJson().getBytes(UTF_8);
+        output.writeInt(json.length);
+        output.write(json);
+        output.writeLong(message.getWindowInMillis());
+    }
+
+    private static SocketMessage read(DataInputStream input) throws IOException {
+        var channel = input.readUTF();
+        var channelId = input.readBoolean() ? input.readUTF() : null;
+        var userCount = input.readInt();
+        Set<Serializable> users = null;
+
+        if (userCount != NO_USERS) {
+            if (userCount < 0 || userCount > MAX_QUEUE_SIZE) {
+                throw new IOException(ERROR_INVALID_FRAME);
+            }
+
+            users = new HashSet<>(userCount);
+
+            for (var i = 0; i < userCount; i++) {
+                users.add(readUser(input));
+            }
+        }
+
+        var jsonLength = input.readInt();
+
+        if (jsonLength < 0 || jsonLength > MAX_JSON_LENGTH) {
+            throw new IOException(ERROR_INVALID_FRAME);
+        }
+
+        var json = new byte[jsonLength];
+        input.readFully(json);
+        return new SocketMessage(channel, channelId, users, new String(json, UTF_8), input.readLong());
+    }
+
+    private static void writeUser(DataOutputStream output, Serializable user) throws IOException {
+        if (user instanceof String) {
+            output.writeByte(USER_STRING);
+            output.writeUTF((String) user);
+        }
+        else if (user instanceof Long) {
+            output.writeByte(USER_LONG);
+            output.writeLong((Long) user);
+        }
+        else if (user instanceof Integer) {
+            output.writeByte(USER_INTEGER);
+            output.writeInt((Integer) user);
+        }
+        else {
+            var uuid = (UUID) user;
+            output.writeByte(USER_UUID);
+            output.writeLong(uuid.getMostSignificantBits());
+            output.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    private static Serializable readUser(DataInputStream input) throws IOException {
+        switch (input.readByte()) {
+            case USER_STRING: return input.readUTF();
+            case USER_LONG: return input.readLong();
+            case USER_INTEGER: return input.readInt();
+            case USER_UUID: return new UUID(input.readLong(), input.readLong());
+            default: throw new IOException(ERROR_INVALID_FRAME);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            }
+            catch (IOException ignore) {
+                logger.log(FINEST, "Ignoring thrown exception; there is nothing more we could do here.", ignore);
+            }
+        }
+    }
+
+    // Nested classes -------------------------------------------------------------------------------------------------
+
+    /**
+     * A peer with its own outbound queue, which is written by its own thread, so that a slow peer does not hold up the
+     * others. A write which does not complete within the write timeout is aborted by closing the connection.
+     */
+    private final class Peer implements Runnable {
+
+        private final InetSocketAddress address;
+        private final BlockingQueue<SocketMessage> queue = new ArrayBlockingQueue<>(MAX_QUEUE_SIZE);
+        private final AtomicLong droppedMessages = new AtomicLong();
+        private volatile java.net.Socket connection;
+        private DataOutputStream output;
+        private volatile Thread thread;
+
+        private Peer(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            List<SocketMessage> batch = new ArrayList<>(MAX_BATCH_SIZE);
+
+            while (running) {
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                    write(batch);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                finally {
+                    batch.clear();
+                }
+            }
+
+            disconnect();
+        }
+
+        /**
+         * Offer the given message to the outbound queue. When it's full, then the message is dropped. This is logged only
+         * once per full queue, it'd otherwise flood the log exactly when the peer is already in trouble.
+         */
+        private void offer(SocketMessage message) {
+            if (queue.offer(message)) {
+                if (droppedMessages.get() > 0) {
+                    var dropped = droppedMessages.getAndSet(0);
+
+                    if (dropped > 0) {
+                        logger.log(INFO, format(INFO_QUEUE_RESUMED, address, dropped));
+                    }
+                }
+            }
+            else if (droppedMessages.getAndIncrement() == 0) {
+                logger.log(WARNING, format(WARNING_QUEUE_FULL, address));
+            }
+        }
+
+        /**
+         * Write the given batch, if necessary after connecting. If this fails, then disconnect, so that it will
+         * reconnect on the next batch.
+         */
+        private void write(List<SocketMessage> batch) {
+            var reconnect = output == null;
+
+            try {
+                if (reconnect) {
+                    connect();
+                }
+
+                var currentConnection = connection;
+                var timeout = writeTimeouts.schedule(() -> close(currentConnection), WRITE_TIMEOUT_IN_MILLIS, MILLISECONDS);
+
+                try {
+                    output.writeInt(batch.size());
+
+                    for (var message : batch) {
+                        TcpSocketMessageBus.write(output, message);
+                    }
+
+                    output.flush();
+                }
+                finally {
+                    timeout.cancel(false);
+                }
+            }
+            catch (IOException | RejectedExecutionException e) {
+                if (running && (!reconnect || logger.isLoggable(FINE))) {
+                    logger.log(!reconnect ? WARNING : FINE, format(WARNING_PEER_UNREACHABLE, address), e);
+                }
+
+                disconnect();
+            }
+        }
+
+        private void connect() throws IOException {
+            var newConnection = new java.net.Socket();
+            connection = newConnection;
+            newConnection.setTcpNoDelay(true);
+            newConnection.connect(address.isUnresolved() ? new InetSocketAddress(address.getHostString(), address.getPort()) : address, CONNECT_TIMEOUT_IN_MILLIS);
+            output = new DataOutputStream(new BufferedOutputStream(newConnection.getOutputStream(), BUFFER_SIZE));
+            answer(newConnection, output);
+        }
+
+        private void disconnect() {
+            close(connection);
+            connection = null;
+            output = null;
+        }
+
+        private void stop() {
+            var currentThread = thread;
+
+            if (currentThread != null) {
+                currentThread.interrupt();
+            }
+
+            close(connection);
+        }
+    }
+
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.cdi.viewscope;
+
+import static java.lang.String.format;
+import static java.util.logging.Level.WARNING;
+import static org.omnifaces.cdi.viewscope.ViewScopeManager.PARAM_NAME_VIEW_STATE_COMPRESSION_THRESHOLD;
+import static org.omnifaces.cdi.viewscope.ViewScopeManager.PARAM_NAME_VIEW_STATE_WARNING_THRESHOLD;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import jakarta.faces.context.FacesContext;
+
+import org.omnifaces.cdi.BeanStorage;
+
+/**
+ * Holds a {@link BeanStorage} in Faces view state. Its serialized form is merely the amount of beans followed by the
+ * identifier and the bean itself of each bean, not the internals of the map and the lock holding them. This form is
+ * written straight to the Faces view state, unless it exceeds the configured compression threshold, in which case it's
+ * compressed with ZLIB. The compressed form may not be larger than {@value #MAX_COMPRESSED_SIZE} bytes, neither before
+ * nor after inflating, because it comes from the client.
+ *
+ * @author Bauke Scholtz
+ * @see ViewScopeStorageInViewState
+ * @since 4.6
+ */
+final class BeanStorageInViewState implements Externalizable {
+
+    // Private constants ----------------------------------------------------------------------------------------------
+
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_COMPRESSED_SIZE = 1_048_576;
+    private static final Logger logger = Logger.getLogger(BeanStorageInViewState.class.getName());
+
+    private static final String ERROR_THRESHOLD = "The '%s' init param must be a number."
+        + " Encountered an invalid value of '%s'.";
+    private static final String WARNING_THRESHOLD_EXCEEDED = "@ViewScoped(saveInViewState=true) beans %s"
+        + " take %d bytes in Faces view state, which exceeds the '" + PARAM_NAME_VIEW_STATE_WARNING_THRESHOLD + "'"
+        + " of %d bytes. Consider reducing the state of these beans.";
+    private static final String ERROR_MAX_COMPRESSED_SIZE_EXCEEDED = "Compressed @ViewScoped(saveInViewState=true) beans"
+        + " may not be larger than " + MAX_COMPRESSED_SIZE + " bytes.";
+
+    private static final Set<Set<String>> warnedBeans = ConcurrentHashMap.newKeySet();
+
+    // Static variables -----------------------------------------------------------------------------------------------
+
+    private static Integer compressionThreshold;
+    private static Integer warningThreshold;
+
+    // Variables ------------------------------------------------------------------------------------------------------
+
+    private BeanStorage beanStorage;
+
+    // Constructors ---------------------------------------------------------------------------------------------------
+
+    /**
+     * Used during deserialization.
+     */
+    public BeanStorageInViewState() {
+        // NOOP.
+    }
+
+    /**
+     * Hold the given bean storage in Faces view state.
+     * @param beanStorage The bean storage.
+     */
+    BeanStorageInViewState(BeanStorage beanStorage) {
+        this.beanStorage = beanStorage;
+    }
+
+    // Getters --------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the bean storage.
+     * @return The bean storage.
+     */
+    BeanStorage getBeanStorage() {
+        return beanStorage;
+    }
+
+    // Externalizable -------------------------------------------------------------------------------------------------
+
+    @Override
+    public void writeExternal(ObjectOutput output) throws IOException {
+        var beans = beanStorage.getBeans();
+        var compressionThreshold = getCompressionThreshold();
+        var warningThreshold = getWarningThreshold();
+
+        if (compressionThreshold >= 0 || warningThreshold > 0) {
+            var serialized = serialize(beans);
+
+            if (compressionThreshold >= 0 && serialized.length > compressionThreshold) {
+                var deflated = deflate(serialized);
+
+                if (deflated.length < serialized.length && serialized.length <= MAX_COMPRESSED_SIZE) {
+                    warnIfNecessary(beans, deflated.length, warningThreshold);
+                    output.writeBoolean(true);
+                    output.writeInt(deflated.length);
+                    output.write(deflated);
+                    return;
+                }
+            }
+
+            warnIfNecessary(beans, serialized.length, warningThreshold);
+        }
+
+        output.writeBoolean(false);
+        writeBeans(output, beans);
+    }
+
+    @Override
+    public void readExternal(ObjectInput input) throws IOException, ClassNotFoundException {
+        if (!input.readBoolean()) {
+            beanStorage = new BeanStorage(readBeans(input));
+            return;
+        }
+
+        var length = input.readInt();
+
+        if (length < 0 || length > MAX_COMPRESSED_SIZE) {
+            throw new InvalidObjectException(ERROR_MAX_COMPRESSED_SIZE_EXCEEDED);
+        }
+
+        var deflated = new byte[length];
+        input.readFully(deflated);
+        var inflated = new MaxSizeInputStream(new InflaterInputStream(new ByteArrayInputStream(deflated)));
+
+        try (var beans = new BeansInputStream(inflated)) {
+            if (input instanceof ObjectInputStream) {
+                var filter = ((ObjectInputStream) input).getObjectInputFilter();
+
+                if (filter != null) {
+                    beans.setObjectInputFilter(filter);
+                }
+            }
+
+            beanStorage = new BeanStorage(readBeans(beans));
+        }
+    }
+
+    // Helpers --------------------------------------------------------------------------------------------------------
+
+    private static void writeBeans(ObjectOutput output, Map<String, Serializable> beans) throws IOException {
+        output.writeInt(beans.size());
+
+        for (var entry : beans.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeObject(entry.getValue());
+        }
+    }
+
+    private static Map<String, Serializable> readBeans(ObjectInput input) throws IOException, ClassNotFoundException {
+        var size = input.readInt();
+        var beans = new HashMap<String, Serializable>();
+
+        for (var i = 0; i < size; i++) {
+            beans.put(input.readUTF(), (Serializable) input.readObject());
+        }
+
+        return beans;
+    }
+
+    private static byte[] serialize(Map<String, Serializable> beans) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+
+        try (var output = new ObjectOutputStream(bytes)) {
+            writeBeans(output, beans);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] bytes) throws IOException {
+        var deflated = new ByteArrayOutputStream(bytes.length / 2);
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+
+        try (var output = new DeflaterOutputStream(deflated, deflater)) {
+            output.write(bytes);
+        }
+        finally {
+            deflater.end();
+        }
+
+        return deflated.toByteArray();
+    }
+
+    private static void warnIfNecessary(Map<String, Serializable> beans, int size, int threshold) {
+        if (threshold > 0 && size > threshold && logger.isLoggable(WARNING)) {
+            var beanIds = Set.copyOf(beans.keySet());
+
+            if (warnedBeans.add(beanIds)) {
+                logger.log(WARNING, format(WARNING_THRESHOLD_EXCEEDED, beanIds, size, threshold));
+            }
+        }
+    }
+
+    /**
+     * Returns the compression threshold, or -1 if there is none. This will be calculated lazily once and re-returned
+     * everytime; the faces context is namely not necessarily available during serialization.
+     */
+    private static int getCompressionThreshold() {
+        if (compressionThreshold == null) {
+            var context = FacesContext.getCurrentInstance();
+
+            if (context == null) {
+                return -1;
+            }
+
+            compressionThreshold = getIntInitParameter(context, PARAM_NAME_VIEW_STATE_COMPRESSION_THRESHOLD, -1);
+        }
+
+        return compressionThreshold;
+    }
+
+    /**
+     * Returns the warning threshold, or 0 if there is none. This will be calculated lazily once and re-returned
+     * everytime, see also {@link #getCompressionThreshold()}.
+     */
+    private static int getWarningThreshold() {
+        if (warningThreshold == null) {
+            var context = FacesContext.getCurrentInstance();
+
+            if (context == null) {
+                return 0;
+            }
+
+            warningThreshold = getIntInitParameter(context, PARAM_NAME_VIEW_STATE_WARNING_THRESHOLD, 0);
+        }
+
+        return warningThreshold;
+    }
+
+    private static int getIntInitParameter(FacesContext context, String name, int defaultValue) {
+        var value = context.getExternalContext().getInitParameter(name);
+
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(format(ERROR_THRESHOLD, name, value), e);
+        }
+    }
+
+    // Nested classes -------------------------------------------------------------------------------------------------
+
+    /**
+     * Refuses to read more than {@value #MAX_COMPRESSED_SIZE} bytes, so that a small compressed form from the client
+     * can't be inflated into something huge.
+     */
+    private static final class MaxSizeInputStream extends FilterInputStream {
+
+        private int remaining = MAX_COMPRESSED_SIZE;
+
+        private MaxSizeInputStream(InputStream input) {
+            super(input);
+        }
+
+        @Override
+        public int read() throws IOException {
+            var read = super.read();
+
+            if (read != -1) {
+                count(1);
+            }
+
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            var read = super.read(bytes, offset, length);
+
+            if (read > 0) {
+                count(read);
+            }
+
+            return read;
+        }
+
+        private void count(int read) throws IOException {
+            remaining -= read;
+
+            if (remaining < 0) {
+                throw new InvalidObjectException(ERROR_MAX_COMPRESSED_SIZE_EXCEEDED);
+            }
+        }
+    }
+
+    /**
+     * Resolves the classes of the beans via the context class loader first, in case OmniFaces itself is loaded by a
+     * different class loader than the web application.
+     */
+    private static final class BeansInputStream extends ObjectInputStream {
+
+        private BeansInputStream(InputStream input) throws IOException {
+            super(input);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass descriptor) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(descriptor.getName(), false, Thread.currentThread().getContextClassLoader());
+            }
+            catch (ClassNotFoundException ignore) {
+                return super.resolveClass(descriptor);
+            }
+        }
+    }
+
+}
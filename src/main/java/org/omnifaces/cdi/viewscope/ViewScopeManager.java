@@ -81,6 +81,26 @@ public class ViewScopeManager {
     public static final String PARAM_NAME_MYFACES_NUMBER_OF_VIEWS =
         "org.apache.myfaces.NUMBER_OF_VIEWS_IN_SESSION";
 
+    /** OmniFaces specific context parameter name of whether to use a lock-free LRU map for active view scopes in session. @since 4.6 */
+    public static final String PARAM_NAME_CONCURRENT_LRU =
+        "org.omnifaces.VIEW_SCOPE_MANAGER_CONCURRENT_LRU";
+
+    /** OmniFaces specific context parameter name of idle timeout in minutes of active view scopes in session. @since 4.6 */
+    public static final String PARAM_NAME_IDLE_TIMEOUT =
+        "org.omnifaces.VIEW_SCOPE_MANAGER_IDLE_TIMEOUT";
+
+    /** OmniFaces specific context parameter name of maximum approximate serialized size in bytes of all active view scopes in session. @since 4.6 */
+    public static final String PARAM_NAME_MAX_SIZE_PER_SESSION =
+        "org.omnifaces.VIEW_SCOPE_MANAGER_MAX_SIZE_PER_SESSION";
+
+    /** OmniFaces specific context parameter name of minimum size in bytes of view scopes in view state before they are compressed. @since 4.6 */
+    public static final String PARAM_NAME_VIEW_STATE_COMPRESSION_THRESHOLD =
+        "org.omnifaces.VIEW_SCOPE_MANAGER_VIEW_STATE_COMPRESSION_THRESHOLD";
+
+    /** OmniFaces specific context parameter name of size in bytes of view scopes in view state above which a warning is logged. @since 4.6 */
+    public static final String PARAM_NAME_VIEW_STATE_WARNING_THRESHOLD =
+        "org.omnifaces.VIEW_SCOPE_MANAGER_VIEW_STATE_WARNING_THRESHOLD";
+
     /** Default value of maximum active view scopes in session. */
     public static final int DEFAULT_MAX_ACTIVE_VIEW_SCOPES = 20; // Mojarra's default is 15 and MyFaces' default is 20.
 
@@ -126,7 +146,11 @@ public class ViewScopeManager {
      */
     @Deprecated(since = "4.5", forRemoval = true)
     public <T> T createBean(Contextual<T> type, CreationalContext<T> context) {
-        return getBeanStorage(type).createBean(type, context);
+        var storage = getStorage(type);
+        var beanStorage = getBeanStorage(storage, type);
+        var bean = beanStorage.createBean(type, context);
+        markDirty(storage, beanStorage);
+        return bean;
     }
 
     /**
@@ -138,7 +162,16 @@ public class ViewScopeManager {
      * @since 4.5
      */
     public <T> T getBean(Contextual<T> type, CreationalContext<T> context) {
-        return getBeanStorage(type).getBean(type, context);
+        var storage = getStorage(type);
+        var beanStorage = getBeanStorage(storage, type);
+        var bean = beanStorage.getBean(type);
+
+        if (bean == null) {
+            bean = beanStorage.getBean(type, context);
+            markDirty(storage, beanStorage);
+        }
+
+        return bean;
     }
 
     /**
@@ -148,7 +181,7 @@ public class ViewScopeManager {
      * @return The CDI view scoped managed bean from the current Faces view scope, or <code>null</code> if there is none.
      */
     public <T> T getBean(Contextual<T> type) {
-        return getBeanStorage(type).getBean(type);
+        return getBeanStorage(getStorage(type), type).getBean(type);
     }
 
     /**
@@ -189,16 +222,20 @@ public class ViewScopeManager {
 
     // Helpers --------------------------------------------------------------------------------------------------------
 
-    private <T> BeanStorage getBeanStorage(Contextual<T> type) {
-        ViewScopeStorage storage = storageInSession;
+    private <T> ViewScopeStorage getStorage(Contextual<T> type) {
         var beanClass = ((Bean<T>) type).getBeanClass();
         var annotation = beanClass.getAnnotation(ViewScoped.class);
 
         if (annotation != null && annotation.saveInViewState()) { // Can be null when declared on producer method.
             checkStateSavingMethod(beanClass);
-            storage = storageInViewState;
+            return storageInViewState;
         }
 
+        return storageInSession;
+    }
+
+    private <T> BeanStorage getBeanStorage(ViewScopeStorage storage, Contextual<T> type) {
+        var beanClass = ((Bean<T>) type).getBeanClass();
         var beanStorageId = storage.getBeanStorageId();
 
         if (beanStorageId == null) {
@@ -232,6 +269,15 @@ public class ViewScopeManager {
         return beanStorage;
     }
 
+    /**
+     * A bean has been created in the given bean storage, so its size has to be re-weighed in case it's stored in session.
+     */
+    private static void markDirty(ViewScopeStorage storage, BeanStorage beanStorage) {
+        if (storage instanceof ViewScopeStorageInSession) {
+            ((ViewScopeStorageInSession) storage).markDirty(beanStorage);
+        }
+    }
+
     private static void checkStateSavingMethod(Class<?> beanClass) {
         var context = getContext();
 
@@ -270,4 +316,4 @@ public class ViewScopeManager {
         return "unload".equals(request.getParameter(OMNIFACES_EVENT_PARAM_NAME));
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -12,29 +12,55 @@
  */
 package org.omnifaces.cdi.viewscope;
 
+import static java.lang.Boolean.parseBoolean;
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.logging.Level.WARNING;
 import static org.omnifaces.cdi.viewscope.ViewScopeManager.DEFAULT_MAX_ACTIVE_VIEW_SCOPES;
+import static org.omnifaces.cdi.viewscope.ViewScopeManager.PARAM_NAME_CONCURRENT_LRU;
+import static org.omnifaces.cdi.viewscope.ViewScopeManager.PARAM_NAME_IDLE_TIMEOUT;
 import static org.omnifaces.cdi.viewscope.ViewScopeManager.PARAM_NAME_MAX_ACTIVE_VIEW_SCOPES;
+import static org.omnifaces.cdi.viewscope.ViewScopeManager.PARAM_NAME_MAX_SIZE_PER_SESSION;
 import static org.omnifaces.cdi.viewscope.ViewScopeManager.PARAM_NAME_MOJARRA_NUMBER_OF_VIEWS;
 import static org.omnifaces.cdi.viewscope.ViewScopeManager.PARAM_NAME_MYFACES_NUMBER_OF_VIEWS;
 import static org.omnifaces.util.Faces.getInitParameter;
+import static org.omnifaces.util.Faces.getServletContext;
 import static org.omnifaces.util.Faces.getViewAttribute;
 import static org.omnifaces.util.Faces.setViewAttribute;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.logging.Logger;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.SessionScoped;
+import jakarta.servlet.ServletContext;
 
 import org.omnifaces.cdi.BeanStorage;
 import org.omnifaces.cdi.ViewScoped;
+import org.omnifaces.util.FunctionalInterfaces.SerializableBiConsumer;
+import org.omnifaces.util.cache.ConcurrentLruCache;
+import org.omnifaces.util.cache.DefaultWeigher;
 import org.omnifaces.util.cache.LruCache;
+import org.omnifaces.util.cache.Weigher;
 
 /**
  * Stores view scoped bean instances in a LRU map in HTTP session.
+ * <p>
+ * Since 4.6, the active view scopes can additionally be destroyed when they're idle for too long. This is enforced by a
+ * single background thread per application which sweeps all HTTP sessions, so it doesn't add any work to the request.
+ * Additionally, the approximate serialized size of all active view scopes in the HTTP session can be capped. This is
+ * enforced by the LRU map itself, which weighs a view scope only when it's set or when a bean has been created in it.
  *
  * @author Bauke Scholtz
  * @see ViewScoped
@@ -47,19 +73,30 @@ public class ViewScopeStorageInSession implements ViewScopeStorage, Serializable
     // Private constants ----------------------------------------------------------------------------------------------
 
     private static final long serialVersionUID = 1L;
+    private static final Logger logger = Logger.getLogger(ViewScopeStorageInSession.class.getName());
     private static final String[] PARAM_NAMES_MAX_ACTIVE_VIEW_SCOPES = {
         PARAM_NAME_MAX_ACTIVE_VIEW_SCOPES, PARAM_NAME_MOJARRA_NUMBER_OF_VIEWS, PARAM_NAME_MYFACES_NUMBER_OF_VIEWS
     };
     private static final String ERROR_MAX_ACTIVE_VIEW_SCOPES = "The '%s' init param must be a number."
         + " Encountered an invalid value of '%s'.";
+    private static final String WARNING_SWEEP_FAILED = "Sweeping view scopes in session has failed.";
+    private static final String THREAD_NAME_SWEEPER = "OmniFaces-ViewScopeSweeper";
+    private static final String SWEEPER_ATTRIBUTE = Sweeper.class.getName();
+    private static final long SWEEP_INTERVAL_IN_MINUTES = 1;
+    private static final Weigher<Object, Object> WEIGHER = new DefaultWeigher();
 
     // Static variables -----------------------------------------------------------------------------------------------
 
     private static Integer maxActiveViewScopes;
+    private static Boolean concurrentLru;
+    private static Long idleTimeoutInMillis;
+    private static Long maxSizePerSession;
 
     // Variables ------------------------------------------------------------------------------------------------------
 
     private ConcurrentMap<UUID, BeanStorage> activeViewScopes;
+    private ConcurrentMap<UUID, Long> lastAccessTimes;
+    private transient volatile Sweeper sweeper;
 
     // Actions --------------------------------------------------------------------------------------------------------
 
@@ -69,7 +106,26 @@ public class ViewScopeStorageInSession implements ViewScopeStorage, Serializable
      */
     @PostConstruct
     public void postConstructSession() {
-        activeViewScopes = new LruCache<>(getMaxActiveViewScopes(), (uuid, storage) -> storage.destroyBeans());
+        var maxActiveViewScopes = getMaxActiveViewScopes();
+        var maxSize = getMaxSizePerSession();
+        SerializableBiConsumer<UUID, BeanStorage> evictionListener = (uuid, storage) -> storage.destroyBeans();
+
+        if (maxSize > 0) {
+            // Never let a single view scope exceed the max size, it'd otherwise be rejected. Rather evict all others.
+            Weigher<UUID, BeanStorage> weigher = (uuid, storage) -> Math.min(WEIGHER.weigh(uuid, storage), maxSize);
+            activeViewScopes = isConcurrentLru()
+                    ? new ConcurrentLruCache<>(maxActiveViewScopes, maxSize, weigher, evictionListener)
+                    : new LruCache<>(maxActiveViewScopes, maxSize, weigher, evictionListener);
+        }
+        else {
+            activeViewScopes = isConcurrentLru()
+                    ? new ConcurrentLruCache<>(maxActiveViewScopes, evictionListener)
+                    : new LruCache<>(maxActiveViewScopes, evictionListener);
+        }
+
+        if (getIdleTimeoutInMillis() > 0) {
+            lastAccessTimes = new ConcurrentHashMap<>();
+        }
     }
 
     @Override
@@ -80,15 +136,46 @@ public class ViewScopeStorageInSession implements ViewScopeStorage, Serializable
 
     @Override
     public BeanStorage getBeanStorage(UUID beanStorageId) {
-        return activeViewScopes.get(beanStorageId);
+        var storage = activeViewScopes.get(beanStorageId);
+
+        if (storage != null && lastAccessTimes != null) {
+            registerSweeperIfNecessary();
+
+            if (lastAccessTimes.replace(beanStorageId, System.currentTimeMillis()) == null) {
+                return null; // It's at this moment being destroyed by the sweeper.
+            }
+        }
+
+        return storage;
     }
 
     @Override
     public void setBeanStorage(UUID beanStorageId, BeanStorage beanStorage) {
         activeViewScopes.put(beanStorageId, beanStorage);
+
+        if (lastAccessTimes != null) {
+            registerSweeperIfNecessary();
+            lastAccessTimes.put(beanStorageId, System.currentTimeMillis());
+        }
+
         setViewAttribute(getClass().getName(), beanStorageId);
     }
 
+    /**
+     * Marks the given bean storage of the current view as dirty because a bean has been created in it. When the size of
+     * all active view scopes in session is capped, then it's put back, so that the LRU map re-weighs it and evicts the
+     * least recently used view scopes when necessary. The size is thus not recalculated on every request.
+     */
+    void markDirty(BeanStorage beanStorage) {
+        if (getMaxSizePerSession() > 0) {
+            var beanStorageId = getBeanStorageId();
+
+            if (beanStorageId != null) {
+                activeViewScopes.replace(beanStorageId, beanStorage, beanStorage);
+            }
+        }
+    }
+
     /**
      * Destroys all beans associated with given bean storage identifier.
      * @param beanStorageId The bean storage identifier.
@@ -100,6 +187,10 @@ public class ViewScopeStorageInSession implements ViewScopeStorage, Serializable
             storage.destroyBeans();
             activeViewScopes.remove(beanStorageId);
         }
+
+        if (lastAccessTimes != null) {
+            lastAccessTimes.remove(beanStorageId);
+        }
     }
 
     /**
@@ -107,11 +198,121 @@ public class ViewScopeStorageInSession implements ViewScopeStorage, Serializable
      */
     @PreDestroy
     public void preDestroySession() {
+        if (sweeper != null) {
+            sweeper.storages.remove(this);
+        }
+
         for (var storage : activeViewScopes.values()) {
             storage.destroyBeans();
         }
     }
 
+    // Sweeper --------------------------------------------------------------------------------------------------------
+
+    /**
+     * Stop sweeping the active view scopes in all HTTP sessions of the given servlet context. This is invoked by
+     * {@link org.omnifaces.ApplicationListener} when the servlet context is destroyed.
+     * @param servletContext The involved servlet context.
+     * @since 4.6
+     */
+    public static void stopSweeper(ServletContext servletContext) {
+        var sweeper = (Sweeper) servletContext.getAttribute(SWEEPER_ATTRIBUTE);
+
+        if (sweeper != null) {
+            servletContext.removeAttribute(SWEEPER_ATTRIBUTE);
+            sweeper.stop();
+        }
+    }
+
+    /**
+     * Register this HTTP session at the sweeper of the current servlet context. This is done lazily during the request,
+     * so that a HTTP session which is deserialized after e.g. a failover will also be swept once it's accessed again.
+     */
+    private void registerSweeperIfNecessary() {
+        if (sweeper == null) {
+            var servletContext = getServletContext();
+
+            synchronized (servletContext) {
+                var existingSweeper = (Sweeper) servletContext.getAttribute(SWEEPER_ATTRIBUTE);
+
+                if (existingSweeper == null) {
+                    existingSweeper = new Sweeper(getIdleTimeoutInMillis());
+                    servletContext.setAttribute(SWEEPER_ATTRIBUTE, existingSweeper);
+                }
+
+                existingSweeper.storages.add(this);
+                sweeper = existingSweeper;
+            }
+        }
+    }
+
+    /**
+     * Destroy the active view scopes which have been idle for too long. Any view scope which is accessed in the
+     * meanwhile is skipped. Any view scope which is accessed after it has been claimed by the sweeper is not returned by
+     * {@link #getBeanStorage(UUID)} anymore.
+     */
+    private void sweep(long now, long idleTimeout) {
+        lastAccessTimes.keySet().removeIf(beanStorageId -> !activeViewScopes.containsKey(beanStorageId)); // Evicted by LRU.
+        lastAccessTimes.forEach((beanStorageId, lastAccessTime) -> {
+            if (now - lastAccessTime > idleTimeout) {
+                var storage = activeViewScopes.get(beanStorageId);
+
+                if (storage != null && lastAccessTimes.remove(beanStorageId, lastAccessTime)) {
+                    activeViewScopes.remove(beanStorageId, storage);
+                    storage.destroyBeans();
+                }
+            }
+        });
+    }
+
+    /**
+     * Sweeps all registered HTTP sessions of a single servlet context once a minute. The HTTP sessions are weakly
+     * referenced, so that a HTTP session which is passivated or otherwise abandoned without being destroyed won't leak.
+     */
+    private static final class Sweeper implements Runnable {
+
+        private final Set<ViewScopeStorageInSession> storages = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+        private final long idleTimeout;
+        private final ScheduledExecutorService executor;
+
+        private Sweeper(long idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            var classLoader = Thread.currentThread().getContextClassLoader(); // So that CDI can be found when destroying beans.
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, THREAD_NAME_SWEEPER);
+                thread.setDaemon(true);
+                thread.setContextClassLoader(classLoader);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(this, SWEEP_INTERVAL_IN_MINUTES, SWEEP_INTERVAL_IN_MINUTES, MINUTES);
+        }
+
+        @Override
+        public void run() {
+            List<ViewScopeStorageInSession> currentStorages;
+
+            synchronized (storages) {
+                currentStorages = new ArrayList<>(storages);
+            }
+
+            var now = System.currentTimeMillis();
+
+            for (var storage : currentStorages) {
+                try {
+                    storage.sweep(now, idleTimeout);
+                }
+                catch (Exception e) {
+                    logger.log(WARNING, WARNING_SWEEP_FAILED, e); // Don't let it stop the sweeper.
+                }
+            }
+        }
+
+        private void stop() {
+            executor.shutdownNow();
+            storages.clear();
+        }
+    }
+
     // Helpers --------------------------------------------------------------------------------------------------------
 
     /**
@@ -142,4 +343,51 @@ public class ViewScopeStorageInSession implements ViewScopeStorage, Serializable
         return maxActiveViewScopes;
     }
 
-}
\ No newline at end of file
+    /**
+     * Returns whether a {@link ConcurrentLruCache} must be used instead of a {@link LruCache} for the active view scopes.
+     * This will be calculated lazily once and re-returned everytime, see also {@link #getMaxActiveViewScopes()}.
+     */
+    private static boolean isConcurrentLru() {
+        if (concurrentLru == null) {
+            concurrentLru = parseBoolean(getInitParameter(PARAM_NAME_CONCURRENT_LRU));
+        }
+
+        return concurrentLru;
+    }
+
+    /**
+     * Returns the idle timeout of active view scopes in milliseconds, or 0 if there is none. This will be calculated
+     * lazily once and re-returned everytime, see also {@link #getMaxActiveViewScopes()}.
+     */
+    private static long getIdleTimeoutInMillis() {
+        if (idleTimeoutInMillis == null) {
+            idleTimeoutInMillis = MINUTES.toMillis(getLongInitParameter(PARAM_NAME_IDLE_TIMEOUT));
+        }
+
+        return idleTimeoutInMillis;
+    }
+
+    /**
+     * Returns the max approximate serialized size in bytes of all active view scopes in session, or 0 if there is none.
+     * This will be calculated lazily once and re-returned everytime, see also {@link #getMaxActiveViewScopes()}.
+     */
+    private static long getMaxSizePerSession() {
+        if (maxSizePerSession == null) {
+            maxSizePerSession = getLongInitParameter(PARAM_NAME_MAX_SIZE_PER_SESSION);
+        }
+
+        return maxSizePerSession;
+    }
+
+    private static long getLongInitParameter(String name) {
+        var value = getInitParameter(name);
+
+        try {
+            return value == null ? 0 : Long.parseLong(value.trim());
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(format(ERROR_MAX_ACTIVE_VIEW_SCOPES, name, value), e);
+        }
+    }
+
+}
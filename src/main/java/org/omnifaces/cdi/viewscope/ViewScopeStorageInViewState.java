@@ -25,6 +25,10 @@ import org.omnifaces.cdi.ViewScoped;
 
 /**
  * Stores view scoped bean instances in Faces view state itself.
+ * <p>
+ * Since 4.6, the bean storage is wrapped in a {@link BeanStorageInViewState}, which takes care of a compact and
+ * optionally compressed serialized form. A plain bean storage in a view state which was saved by an older version is
+ * wrapped as well once it's accessed.
  *
  * @author Bauke Scholtz
  * @see ViewScoped
@@ -43,7 +47,18 @@ public class ViewScopeStorageInViewState implements ViewScopeStorage {
 
     @Override
     public BeanStorage getBeanStorage(UUID id) {
-        return (BeanStorage) getViewRoot().getAttributes().get(id.toString());
+        Map<String, Object> viewState = getViewRoot().getAttributes();
+        var beanStorage = viewState.get(id.toString());
+
+        if (beanStorage instanceof BeanStorageInViewState) {
+            return ((BeanStorageInViewState) beanStorage).getBeanStorage();
+        }
+        else if (beanStorage instanceof BeanStorage) { // Saved by an older version.
+            viewState.put(id.toString(), new BeanStorageInViewState((BeanStorage) beanStorage));
+            return (BeanStorage) beanStorage;
+        }
+
+        return null;
     }
 
     @Override
@@ -56,7 +71,7 @@ public class ViewScopeStorageInViewState implements ViewScopeStorage {
 
         Map<String, Object> viewState = viewRoot.getAttributes();
         viewState.put(getClass().getName(), beanStorageId);
-        viewState.put(beanStorageId.toString(), beanStorage);
+        viewState.put(beanStorageId.toString(), new BeanStorageInViewState(beanStorage));
     }
 
 }
\ No newline at end of file
@@ -16,10 +16,14 @@ import static jakarta.faces.event.PhaseId.RENDER_RESPONSE;
 import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
 import static java.lang.String.format;
+import static org.omnifaces.component.output.Cache.PropertyKeys.compressionThreshold;
 import static org.omnifaces.component.output.Cache.PropertyKeys.disabled;
 import static org.omnifaces.component.output.Cache.PropertyKeys.key;
 import static org.omnifaces.component.output.Cache.PropertyKeys.reset;
 import static org.omnifaces.component.output.Cache.PropertyKeys.scope;
+import static org.omnifaces.component.output.Cache.PropertyKeys.singleFlight;
+import static org.omnifaces.component.output.Cache.PropertyKeys.staleWhileRevalidate;
+import static org.omnifaces.component.output.Cache.PropertyKeys.storeAsBytes;
 import static org.omnifaces.component.output.Cache.PropertyKeys.time;
 import static org.omnifaces.component.output.Cache.PropertyKeys.useBuffer;
 import static org.omnifaces.filter.OnDemandResponseBufferFilter.BUFFERED_RESPONSE;
@@ -30,7 +34,9 @@ import static org.omnifaces.util.Faces.getRequestAttribute;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.util.function.Function;
 
 import jakarta.faces.component.FacesComponent;
 import jakarta.faces.component.visit.VisitContext;
@@ -54,6 +60,7 @@ import org.omnifaces.util.cache.CacheInstancePerScopeProvider;
 import org.omnifaces.util.cache.CacheProvider;
 import org.omnifaces.util.cache.DefaultCache;
 import org.omnifaces.util.cache.DefaultCacheProvider;
+import org.omnifaces.util.cache.EncodedContent;
 import org.omnifaces.util.cache.LruCache;
 import org.omnifaces.util.cache.TimeToLiveCache;
 
@@ -125,6 +132,51 @@ import org.omnifaces.util.cache.TimeToLiveCache;
  * Default: no limit.
  * </td></tr>
  * <tr><td class="colFirst">
+ * <code>org.omnifaces.CACHE_SETTING_CONCURRENT</code>
+ * </td><td>
+ * Boolean that when <code>true</code> uses a {@link org.omnifaces.util.cache.ConcurrentLruCache} instead of
+ * {@link LruCache} for the scopes having a maximum capacity. Reads then don't take any lock, at the expense of a slightly
+ * less exact LRU eviction order under high concurrency. This is only used by the default provider.
+ * Default: <code>false</code>.
+ * </td></tr>
+ * <tr><td class="colFirst">
+ * <code>org.omnifaces.CACHE_SETTING_STORE_AS_BYTES</code>
+ * </td><td>
+ * Boolean that when <code>true</code> stores all cached content as UTF-8 encoded bytes instead of as string. See also
+ * the <code>storeAsBytes</code> attribute of this component. This is only used by the default provider.
+ * Default: <code>false</code>.
+ * </td></tr>
+ * <tr><td class="colFirst">
+ * <code>org.omnifaces.CACHE_SETTING_COMPRESSION_THRESHOLD</code>
+ * </td><td>
+ * Sets the minimum amount of encoded bytes before the cached content stored as bytes is compressed as well.
+ * This is only used by the default provider.
+ * Default: <code>-1</code> (never compress).
+ * </td></tr>
+ * <tr><td class="colFirst">
+ * <code>org.omnifaces.CACHE_SETTING_APPLICATION_MAX_WEIGHT</code>
+ * </td><td>
+ * Sets the maximum total weight of all entries in the application scoped cache, in approximate bytes when the default
+ * weigher is used. The least recently used entries are evicted when the total weight would exceed this value.
+ * This is only used by the default provider.
+ * Default: unbounded.
+ * </td></tr>
+ * <tr><td class="colFirst">
+ * <code>org.omnifaces.CACHE_SETTING_SESSION_MAX_WEIGHT</code>
+ * </td><td>
+ * Sets the maximum total weight of all entries in the session scoped cache, in approximate bytes when the default
+ * weigher is used. The least recently used entries are evicted when the total weight would exceed this value.
+ * This is only used by the default provider.
+ * Default: unbounded.
+ * </td></tr>
+ * <tr><td class="colFirst">
+ * <code>org.omnifaces.CACHE_SETTING_WEIGHER</code>
+ * </td><td>
+ * Sets the fully qualified class name of the {@link org.omnifaces.util.cache.Weigher} implementation to calculate the
+ * weight of each cache entry when a maximum weight is set. This is only used by the default provider.
+ * Default: <code>org.omnifaces.util.cache.DefaultWeigher</code>.
+ * </td></tr>
+ * <tr><td class="colFirst">
  * <code>org.omnifaces.CACHE_INSTALL_BUFFER_FILTER</code>
  * </td><td>
  * Boolean that when <code>true</code> installs a Servlet Filter (Servlet 3.0+ only) that works in conjunction with the
@@ -147,6 +199,7 @@ import org.omnifaces.util.cache.TimeToLiveCache;
  * @see CacheProvider
  * @see DefaultCache
  * @see DefaultCacheProvider
+ * @see EncodedContent
  * @see LruCache
  * @see TimeToLiveCache
  * @see CacheValue
@@ -181,7 +234,7 @@ public class Cache extends OutputFamily {
     private final State state = new State(getStateHelper());
 
     enum PropertyKeys {
-        key, scope, time, useBuffer, reset, disabled
+        key, scope, time, useBuffer, reset, disabled, singleFlight, staleWhileRevalidate, storeAsBytes, compressionThreshold
     }
 
     /**
@@ -216,7 +269,7 @@ public class Cache extends OutputFamily {
         String content = null;
 
         try {
-            content = getContentFromBuffer(bufferedResponse.getBufferAsString());
+            content = bufferedResponse.getBufferAsString(getStartContentMarker(), getEndContentMarker());
         }
         catch (IOException e) {
             throw new IllegalStateException(e);
@@ -244,35 +297,93 @@ public class Cache extends OutputFamily {
             scopedCache.remove(key);
         }
 
-        var childRendering = scopedCache.get(key);
+        var childRendering = isStaleWhileRevalidate() ? null : getCachedContent(scopedCache, key);
 
         if (childRendering == null) {
-            Writer bufferWriter = new StringWriter();
+            if (isSingleFlight() || isStaleWhileRevalidate()) {
+                childRendering = computeContent(context, scopedCache, key);
+            }
+            else {
+                var content = encodeChildrenToString(context);
+                cacheContent(context, scopedCache, key, content);
+                childRendering = content;
+            }
+        }
 
-            var bufferedResponseWriter = responseWriter.cloneWithWriter(bufferWriter);
+        if (childRendering instanceof EncodedContent) {
+            ((EncodedContent) childRendering).writeTo(responseWriter);
+        }
+        else {
+            responseWriter.write(childRendering.toString());
+        }
+    }
 
-            context.setResponseWriter(bufferedResponseWriter);
+    private Serializable getCachedContent(org.omnifaces.util.cache.Cache scopedCache, String key) {
+        return isStoreAsBytes() ? scopedCache.getObject(key) : scopedCache.get(key);
+    }
 
-            try {
-                if (isUseBuffer()) {
-                    bufferedResponseWriter.write(getStartContentMarker());
-                }
+    private String encodeChildrenToString(FacesContext context) throws IOException {
+        var responseWriter = context.getResponseWriter();
+        Writer bufferWriter = new StringWriter();
 
-                super.encodeChildren(context);
+        var bufferedResponseWriter = responseWriter.cloneWithWriter(bufferWriter);
 
-                if (isUseBuffer()) {
-                    bufferedResponseWriter.write(getEndContentMarker());
-                }
-            } finally {
-                context.setResponseWriter(responseWriter);
+        context.setResponseWriter(bufferedResponseWriter);
+
+        try {
+            if (isUseBuffer()) {
+                bufferedResponseWriter.write(getStartContentMarker());
             }
 
-            childRendering = bufferWriter.toString();
+            super.encodeChildren(context);
 
-            cacheContent(context, scopedCache, key, childRendering);
+            if (isUseBuffer()) {
+                bufferedResponseWriter.write(getEndContentMarker());
+            }
+        } finally {
+            context.setResponseWriter(responseWriter);
         }
 
-        responseWriter.write(childRendering);
+        return bufferWriter.toString();
+    }
+
+    private Serializable computeContent(FacesContext context, org.omnifaces.util.cache.Cache scopedCache, String key) throws IOException {
+        Function<String, String> renderer = k -> {
+            try {
+                var content = encodeChildrenToString(context);
+
+                // Marker to register we added a value to the cache during this request
+                context.getExternalContext().getRequestMap().put(VALUE_SET, TRUE);
+                return content;
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        int time = getTime();
+
+        try {
+            if (isStoreAsBytes()) {
+                Function<String, EncodedContent> encoder = renderer.andThen(content -> EncodedContent.of(content, getCompressionThreshold()));
+
+                if (isStaleWhileRevalidate()) {
+                    return time > 0 ? scopedCache.computeObjectIfAbsentOrStale(key, encoder, time) : scopedCache.computeObjectIfAbsentOrStale(key, encoder);
+                }
+                else {
+                    return time > 0 ? scopedCache.computeObjectIfAbsent(key, encoder, time) : scopedCache.computeObjectIfAbsent(key, encoder);
+                }
+            }
+            else if (isStaleWhileRevalidate()) {
+                return time > 0 ? scopedCache.computeIfAbsentOrStale(key, renderer, time) : scopedCache.computeIfAbsentOrStale(key, renderer);
+            }
+            else {
+                return time > 0 ? scopedCache.computeIfAbsent(key, renderer, time) : scopedCache.computeIfAbsent(key, renderer);
+            }
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     /**
@@ -317,7 +428,14 @@ public class Cache extends OutputFamily {
 
     private void cacheContent(FacesContext context, org.omnifaces.util.cache.Cache scopedCache, String key, String content) {
         int time = getTime();
-        if (time > 0) {
+        if (isStoreAsBytes()) {
+            var encodedContent = EncodedContent.of(content, getCompressionThreshold());
+            if (time > 0) {
+                scopedCache.putObject(key, encodedContent, time);
+            } else {
+                scopedCache.putObject(key, encodedContent);
+            }
+        } else if (time > 0) {
             scopedCache.put(key, content, time);
         } else {
             scopedCache.put(key, content);
@@ -355,7 +473,7 @@ public class Cache extends OutputFamily {
      * @return true if there is a value in the cache corresponding to this component, false otherwise
      */
     private boolean hasCachedValue(FacesContext context) {
-        return CacheFactory.getCache(context, getScope()).get(getKeyWithDefault(context)) != null;
+        return getCachedContent(CacheFactory.getCache(context, getScope()), getKeyWithDefault(context)) != null;
     }
 
     private String getStartContentMarker() {
@@ -366,24 +484,6 @@ public class Cache extends OutputFamily {
         return format(END_CONTENT_MARKER, getClientId());
     }
 
-    private String getContentFromBuffer(String buffer) {
-        var startMarker = getStartContentMarker();
-        var startIndex = buffer.indexOf(startMarker);
-
-        if (startIndex != -1) {
-
-            var endMarker = getEndContentMarker();
-            var endIndex = buffer.indexOf(endMarker);
-
-            if (endIndex != -1) {
-
-                return buffer.substring(startIndex + startMarker.length(), endIndex);
-            }
-        }
-
-        return null;
-    }
-
 
     // Attribute getters/setters --------------------------------------------------------------------------------------
 
@@ -455,8 +555,9 @@ public class Cache extends OutputFamily {
      * Following the above, new content will only be inserted into the cache following a page request. A time of e.g. <code>30</code>
      * <strong>will not</strong> cause new content to be inserted into the cache at <code>30</code> seconds intervals.
      * <p>
-     * Note that this component <strong>does not</strong> support a cache loader and locking mechanism. This means after content times out,
+     * Note that this component by default <strong>does not</strong> support a cache loader and locking mechanism. This means after content times out,
      * several simultaneous page requests may render the same content and it's undetermined which of those will end up being cached.
+     * Use <code>singleFlight</code> or <code>staleWhileRevalidate</code> to change this.
      * @param timeValue Amount of time in seconds for which the cached content is valid (TTL).
      */
     public void setTime(Integer timeValue) {
@@ -541,4 +642,99 @@ public class Cache extends OutputFamily {
         state.put(disabled, disabledValue);
     }
 
+    /**
+     * Returns whether only one request may render the content at a time. Default is <code>false</code>.
+     * @return Whether only one request may render the content at a time.
+     * @since 4.6
+     */
+    public boolean isSingleFlight() {
+        return state.get(singleFlight, FALSE);
+    }
+
+    /**
+     * Sets whether only one request may render the content at a time. Default is <code>false</code>.
+     * <p>
+     * When set to <code>true</code>, then only one request will render the children when there's no content in the
+     * cache, and any other request for the same key arriving during that rendering will wait for its result instead of
+     * rendering the same content in parallel. This is particularly useful for expensive content in application scope
+     * on a popular page. This requires a cache provider which supports
+     * {@link org.omnifaces.util.cache.Cache#computeIfAbsent(String, Function)} atomically, such as the default one.
+     * @param singleFlightValue Whether only one request may render the content at a time.
+     * @since 4.6
+     */
+    public void setSingleFlight(boolean singleFlightValue) {
+        state.put(singleFlight, singleFlightValue);
+    }
+
+    /**
+     * Returns whether expired content may still be served while it's being rendered again. Default is <code>false</code>.
+     * @return Whether expired content may still be served while it's being rendered again.
+     * @since 4.6
+     */
+    public boolean isStaleWhileRevalidate() {
+        return state.get(staleWhileRevalidate, FALSE);
+    }
+
+    /**
+     * Sets whether expired content may still be served while it's being rendered again. Default is <code>false</code>.
+     * <p>
+     * When set to <code>true</code>, then the first request encountering expired content will render the children
+     * again, and any other request for the same key arriving during that rendering will get the expired content instead
+     * of waiting. This implies <code>singleFlight</code> when there's no content in the cache at all. Note that the
+     * expired content is only available as long as it has not been removed from the cache for other reasons, e.g.
+     * because it was evicted by the LRU policy. This requires a cache provider which supports
+     * {@link org.omnifaces.util.cache.Cache#computeIfAbsentOrStale(String, Function)} atomically, such as the default
+     * one.
+     * @param staleWhileRevalidateValue Whether expired content may still be served while it's being rendered again.
+     * @since 4.6
+     */
+    public void setStaleWhileRevalidate(boolean staleWhileRevalidateValue) {
+        state.put(staleWhileRevalidate, staleWhileRevalidateValue);
+    }
+
+    /**
+     * Returns whether the content must be stored as UTF-8 encoded bytes. Default is <code>false</code>.
+     * @return Whether the content must be stored as UTF-8 encoded bytes.
+     * @since 4.6
+     */
+    public boolean isStoreAsBytes() {
+        return state.get(storeAsBytes, FALSE);
+    }
+
+    /**
+     * Sets whether the content must be stored as UTF-8 encoded bytes instead of as string. Default is
+     * <code>false</code>.
+     * <p>
+     * When set to <code>true</code>, then the content will be stored as {@link EncodedContent}, which may take less
+     * memory when the content contains non-Latin-1 characters, and which can be compressed as well by setting the
+     * <code>compressionThreshold</code> attribute. On a cache hit the content will be decoded straight into the response
+     * writer. This requires a cache provider which supports storing any {@link Serializable} value via
+     * {@link org.omnifaces.util.cache.Cache#putObject(String, Serializable, int)}, such as the default one.
+     * @param storeAsBytesValue Whether the content must be stored as UTF-8 encoded bytes.
+     * @since 4.6
+     */
+    public void setStoreAsBytes(boolean storeAsBytesValue) {
+        state.put(storeAsBytes, storeAsBytesValue);
+    }
+
+    /**
+     * Returns the minimum amount of encoded bytes before the content is compressed. Default is <code>-1</code>.
+     * @return The minimum amount of encoded bytes before the content is compressed.
+     * @since 4.6
+     */
+    public int getCompressionThreshold() {
+        return state.get(compressionThreshold, -1);
+    }
+
+    /**
+     * Sets the minimum amount of encoded bytes before the content is compressed. This is only used when
+     * <code>storeAsBytes</code> is <code>true</code>. Default is <code>-1</code>, meaning that the content is never
+     * compressed.
+     * @param compressionThresholdValue The minimum amount of encoded bytes before the content is compressed.
+     * @since 4.6
+     */
+    public void setCompressionThreshold(int compressionThresholdValue) {
+        state.put(compressionThreshold, compressionThresholdValue);
+    }
+
 }
\ No newline at end of file
@@ -141,6 +141,23 @@ import org.omnifaces.util.State;
  * When unspecified, then the "default resource maximum age" as set in either the Mojarra specific context parameter
  * <code>com.sun.faces.defaultResourceMaxAge</code> or MyFaces specific context parameter
  * <code>org.apache.myfaces.RESOURCE_MAX_TIME_EXPIRES</code> will be used, else a default of 1 week will be assumed.
+ * <p>
+ * Since 4.6, images with a "last modified" property can also be cached server side, so that the image bean method isn't
+ * invoked again for the same method arguments and "last modified" timestamp. This is useful for e.g. thumbnails which are
+ * obtained from a database or generated by resizing. It is disabled by default and can be enabled by setting the
+ * {@value org.omnifaces.resourcehandler.GraphicResource#PARAM_NAME_CACHE_SIZE} context parameter to the maximum size of
+ * the cache in bytes. Optionally, you can set the
+ * {@value org.omnifaces.resourcehandler.GraphicResource#PARAM_NAME_CACHE_DIRECTORY} context parameter to a directory
+ * where images evicted from memory are spilled to. This directory is cleaned on startup. The cache is held per
+ * application and a single image may not exceed one tenth of its size. Concurrent requests for the same uncached image
+ * will invoke the image bean method only once. When the cache is enabled, the <code>If-None-Match</code> request header
+ * is also checked against the <code>ETag</code>, without invoking the image bean method.
+ * <pre>
+ * &lt;context-param&gt;
+ *     &lt;param-name&gt;org.omnifaces.GRAPHIC_IMAGE_CACHE_SIZE&lt;/param-name&gt;
+ *     &lt;param-value&gt;52428800&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
  *
  * <h2>Image types</h2>
  * <p>
@@ -72,12 +72,14 @@ public class ResourceInclude extends OutputFamily {
 
         try {
             request.getRequestDispatcher((String) getAttributes().get("path")).include(request, bufferedResponse);
+            bufferedResponse.writeBufferTo(context.getResponseWriter());
         }
         catch (ServletException e) {
             throw new FacesException(e);
         }
-
-        context.getResponseWriter().write(bufferedResponse.getBufferAsString());
+        finally {
+            bufferedResponse.release();
+        }
     }
 
 }
\ No newline at end of file
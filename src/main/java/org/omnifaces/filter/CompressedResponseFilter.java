@@ -14,7 +14,10 @@ package org.omnifaces.filter;
 
 import static java.lang.String.format;
 import static java.util.stream.Collectors.toSet;
+import static org.omnifaces.servlet.CompressedHttpServletResponse.DEFAULT;
 import static org.omnifaces.servlet.CompressedHttpServletResponse.Algorithm.BROTLI;
+import static org.omnifaces.util.Servlets.getRequestURIWithQueryString;
+import static org.omnifaces.util.Servlets.isFacesResourceRequest;
 import static org.omnifaces.util.Utils.splitAndTrim;
 import static org.omnifaces.util.Utils.unmodifiableSet;
 
@@ -37,6 +40,9 @@ import org.omnifaces.io.ResettableBufferedWriter;
 import org.omnifaces.servlet.CompressedHttpServletResponse;
 import org.omnifaces.servlet.CompressedHttpServletResponse.Algorithm;
 import org.omnifaces.servlet.HttpServletResponseOutputWrapper;
+import org.omnifaces.util.cache.Cache;
+import org.omnifaces.util.cache.CacheEntry;
+import org.omnifaces.util.cache.DefaultCache;
 
 /**
  * <p>
@@ -94,7 +100,7 @@ import org.omnifaces.servlet.HttpServletResponseOutputWrapper;
  *
  * <h2>Configuration (optional)</h2>
  * <p>
- * This filter supports three initialization parameters which needs to be placed in <code>&lt;filter&gt;</code> element
+ * This filter supports eight initialization parameters which needs to be placed in <code>&lt;filter&gt;</code> element
  * as follows:
  * <pre>
  * &lt;init-param&gt;
@@ -116,6 +122,31 @@ import org.omnifaces.servlet.HttpServletResponseOutputWrapper;
  *         image/svg+xml
  *     &lt;/param-value&gt;
  * &lt;/init-param&gt;
+ * &lt;init-param&gt;
+ *     &lt;description&gt;The compression level. Must be a number between 0 and 11. Defaults to the default of the algorithm.&lt;/description&gt;
+ *     &lt;param-name&gt;level&lt;/param-name&gt;
+ *     &lt;param-value&gt;1&lt;/param-value&gt;
+ * &lt;/init-param&gt;
+ * &lt;init-param&gt;
+ *     &lt;description&gt;The compression level of Faces resources. Must be a number between 0 and 11. Defaults to the level.&lt;/description&gt;
+ *     &lt;param-name&gt;resourceLevel&lt;/param-name&gt;
+ *     &lt;param-value&gt;9&lt;/param-value&gt;
+ * &lt;/init-param&gt;
+ * &lt;init-param&gt;
+ *     &lt;description&gt;The Brotli compression window. Must be a number between 10 and 24. Defaults to the default of the algorithm.&lt;/description&gt;
+ *     &lt;param-name&gt;window&lt;/param-name&gt;
+ *     &lt;param-value&gt;22&lt;/param-value&gt;
+ * &lt;/init-param&gt;
+ * &lt;init-param&gt;
+ *     &lt;description&gt;The memory budget in bytes of the compressed response cache. Defaults to 0, which disables the cache.&lt;/description&gt;
+ *     &lt;param-name&gt;cacheSize&lt;/param-name&gt;
+ *     &lt;param-value&gt;10485760&lt;/param-value&gt;
+ * &lt;/init-param&gt;
+ * &lt;init-param&gt;
+ *     &lt;description&gt;The time to live in seconds of compressed response cache entries. Defaults to until evicted.&lt;/description&gt;
+ *     &lt;param-name&gt;cacheTimeToLive&lt;/param-name&gt;
+ *     &lt;param-value&gt;3600&lt;/param-value&gt;
+ * &lt;/init-param&gt;
  * </pre>
  * <p>
  * The default <code>algorithm</code> is thus automatic. It will then find the best matching algorithm depending on
@@ -134,6 +165,40 @@ import org.omnifaces.servlet.HttpServletResponseOutputWrapper;
  * mentioned mime types are already the default values. Note that HTTP response compression does not have any benefit
  * when applied on binary mimetypes like images, office documents, PDF files, etcetera. So setting it for them is not
  * recommended.
+ * <p>
+ * The <code>level</code> represents the compression level. A higher level results in a smaller response at the cost
+ * of more CPU time. GZIP and Deflate support levels 0 to 9 and default to 6, Brotli supports levels 0 to 11 and defaults
+ * to the default of the Brotli library. A level higher than supported by the algorithm will be lowered to its maximum
+ * level. For dynamic responses such as HTML pages, a fast level such as 1 to 4 is usually the better trade off.
+ * <p>
+ * The <code>resourceLevel</code> represents the compression level of Faces resource requests, i.e. requests whose URI
+ * starts with <code>/jakarta.faces.resource/</code>. Those are usually cacheable by the client and proxies and can
+ * therefore justify a higher level. It defaults to the value of <code>level</code>.
+ * <p>
+ * The <code>window</code> represents the base two logarithm of the Brotli compression window size. A larger window may
+ * result in a smaller response at the cost of more memory. It's ignored by GZIP and Deflate, as the JDK does not
+ * support configuring their window size.
+ * <p>
+ * Since 4.6, the native compressors of GZIP and Deflate are pooled and reused across responses. See also
+ * {@link CompressedHttpServletResponse}.
+ *
+ * <h2>Compressed response cache</h2>
+ * <p>
+ * When the <code>cacheSize</code> is set, then the compressed bodies of responses which explicitly declare themselves
+ * cacheable will be kept in a bounded in-memory cache, so that later responses with the same request URI, the same
+ * <code>ETag</code> or <code>Last-Modified</code> header and the same algorithm are served from the cache without
+ * being compressed once again. This is useful for e.g. dynamic resources, <code>&lt;o:graphicImage&gt;</code> SVG images
+ * and <code>WebAppManifest</code> JSON. A response declares itself cacheable when it has status 200, an
+ * <code>ETag</code> or <code>Last-Modified</code> header, a <code>Cache-Control</code> header with <code>public</code>,
+ * <code>immutable</code> or a positive <code>max-age</code> and without <code>private</code>, <code>no-cache</code> or
+ * <code>no-store</code>, no <code>Set-Cookie</code> header and no <code>Vary</code> header other than
+ * <code>Accept-Encoding</code>. Such a response must produce the same body for the same <code>ETag</code> or
+ * <code>Last-Modified</code> header.
+ * <p>
+ * The <code>cacheSize</code> represents the memory budget in bytes of all cached compressed bodies together. When it's
+ * exceeded, then the least recently used entries will be evicted. A compressed body larger than one tenth of the
+ * <code>cacheSize</code> will not be cached. The <code>cacheTimeToLive</code> represents the time in seconds after which
+ * a cached compressed body expires. It defaults to never, i.e. until evicted.
  *
  * @author Bauke Scholtz
  * @since 4.5
@@ -157,6 +222,11 @@ public class CompressedResponseFilter extends HttpFilter {
     private static final String INIT_PARAM_ALGORITHM = "algorithm";
     private static final String INIT_PARAM_THRESHOLD = "threshold";
     private static final String INIT_PARAM_MIMETYPES = "mimetypes";
+    private static final String INIT_PARAM_LEVEL = "level";
+    private static final String INIT_PARAM_RESOURCE_LEVEL = "resourceLevel";
+    private static final String INIT_PARAM_WINDOW = "window";
+    private static final String INIT_PARAM_CACHE_SIZE = "cacheSize";
+    private static final String INIT_PARAM_CACHE_TIME_TO_LIVE = "cacheTimeToLive";
 
     private static final int DEFAULT_THRESHOLD = 150;
     private static final Set<String> DEFAULT_MIMETYPES = unmodifiableSet(
@@ -169,6 +239,14 @@ public class CompressedResponseFilter extends HttpFilter {
         + " (case insensitive). Encountered an invalid value of '%s'.";
     private static final String ERROR_THRESHOLD = "The 'threshold' init param must be a number between 0 and 9999."
         + " Encountered an invalid value of '%s'.";
+    private static final String ERROR_LEVEL = "The '%s' init param must be a number between 0 and 11."
+        + " Encountered an invalid value of '%s'.";
+    private static final String ERROR_WINDOW = "The 'window' init param must be a number between 10 and 24."
+        + " Encountered an invalid value of '%s'.";
+    private static final String ERROR_CACHE_SIZE = "The 'cacheSize' init param must be a positive number."
+        + " Encountered an invalid value of '%s'.";
+    private static final String ERROR_CACHE_TIME_TO_LIVE = "The 'cacheTimeToLive' init param must be a positive"
+        + " number. Encountered an invalid value of '%s'.";
     private static final String ERROR_BROTLI_UNAVAILABLE = "CompressedResponseFilter: Brotli is unavailable;"
         + " Please make sure that at least one of the supported Brotli libraries is installed.";
 
@@ -177,6 +255,11 @@ public class CompressedResponseFilter extends HttpFilter {
     private Algorithm algorithm;
     private Set<String> mimetypes = DEFAULT_MIMETYPES;
     private int threshold = DEFAULT_THRESHOLD;
+    private int level = DEFAULT;
+    private int resourceLevel = DEFAULT;
+    private int window = DEFAULT;
+    private Cache cache;
+    private long cacheMaxEntrySize;
 
     // Actions --------------------------------------------------------------------------------------------------------
 
@@ -224,6 +307,61 @@ public class CompressedResponseFilter extends HttpFilter {
         if (mimetypesParam != null) {
             mimetypes = splitAndTrim(mimetypesParam, ",").collect(toSet());
         }
+
+        level = getLevelInitParameter(INIT_PARAM_LEVEL, DEFAULT);
+        resourceLevel = getLevelInitParameter(INIT_PARAM_RESOURCE_LEVEL, level);
+        String windowParam = getInitParameter(INIT_PARAM_WINDOW);
+
+        if (windowParam != null) {
+            if (!windowParam.matches("[0-9]{2}") || Integer.parseInt(windowParam) < 10 || Integer.parseInt(windowParam) > 24) {
+                throw new ServletException(format(ERROR_WINDOW, windowParam));
+            }
+            else {
+                window = Integer.parseInt(windowParam);
+            }
+        }
+
+        initCache();
+    }
+
+    private void initCache() throws ServletException {
+        String cacheSizeParam = getInitParameter(INIT_PARAM_CACHE_SIZE);
+
+        if (cacheSizeParam == null || "0".equals(cacheSizeParam)) {
+            return;
+        }
+        else if (!cacheSizeParam.matches("[0-9]{1,18}")) {
+            throw new ServletException(format(ERROR_CACHE_SIZE, cacheSizeParam));
+        }
+
+        String cacheTimeToLiveParam = getInitParameter(INIT_PARAM_CACHE_TIME_TO_LIVE);
+
+        if (cacheTimeToLiveParam != null && !cacheTimeToLiveParam.matches("[0-9]{1,9}")) {
+            throw new ServletException(format(ERROR_CACHE_TIME_TO_LIVE, cacheTimeToLiveParam));
+        }
+
+        long cacheSize = Long.parseLong(cacheSizeParam);
+        Integer cacheTimeToLive = cacheTimeToLiveParam != null ? Integer.valueOf(cacheTimeToLiveParam) : null;
+        cache = new DefaultCache(cacheTimeToLive, null, cacheSize, CompressedResponseFilter::weigh, true);
+        cacheMaxEntrySize = cacheSize / 10;
+    }
+
+    private static long weigh(String key, CacheEntry entry) {
+        return key.length() * 2L + ((byte[]) entry.getValue()).length;
+    }
+
+    private int getLevelInitParameter(String name, int defaultLevel) throws ServletException {
+        String levelParam = getInitParameter(name);
+
+        if (levelParam == null) {
+            return defaultLevel;
+        }
+        else if (!levelParam.matches("[0-9]{1,2}") || Integer.parseInt(levelParam) > 11) {
+            throw new ServletException(format(ERROR_LEVEL, name, levelParam));
+        }
+        else {
+            return Integer.parseInt(levelParam);
+        }
     }
 
     /**
@@ -238,7 +376,13 @@ public class CompressedResponseFilter extends HttpFilter {
         Algorithm acceptedAlgorithm = (algorithm == null) ? Algorithm.find(request).orElse(null) : algorithm.accepts(request) ? algorithm : null;
 
         if (acceptedAlgorithm != null) {
-            CompressedHttpServletResponse compressedResponse = new CompressedHttpServletResponse(response, acceptedAlgorithm, threshold, mimetypes);
+            int acceptedLevel = isFacesResourceRequest(request) ? resourceLevel : level;
+            CompressedHttpServletResponse compressedResponse = new CompressedHttpServletResponse(response, acceptedAlgorithm, threshold, mimetypes, acceptedLevel, window);
+
+            if (cache != null) {
+                compressedResponse.setCache(cache, getRequestURIWithQueryString(request), cacheMaxEntrySize);
+            }
+
             chain.doFilter(request, compressedResponse);
             compressedResponse.close(); // Mandatory for the case the threshold limit hasn't been reached.
         }
@@ -247,4 +391,16 @@ public class CompressedResponseFilter extends HttpFilter {
         }
     }
 
+    /**
+     * Clears the compressed response cache, if any.
+     */
+    @Override
+    public void destroy() {
+        if (cache != null) {
+            cache.clear();
+        }
+
+        super.destroy();
+    }
+
 }
\ No newline at end of file
@@ -62,9 +62,10 @@ public class OnDemandResponseBufferFilter extends HttpFilter {
             chain.doFilter(request, bufferedResponse);
         } finally {
             if (!bufferedResponse.isPassThrough()) {
-                // TODO: output stream support
-                response.getWriter().write(bufferedResponse.getBufferAsString());
+                bufferedResponse.writeBufferTo(response.getWriter());
             }
+
+            bufferedResponse.release();
         }
 
     }
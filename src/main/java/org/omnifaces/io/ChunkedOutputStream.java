@@ -0,0 +1,276 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.io;
+
+import static java.nio.charset.CodingErrorAction.REPLACE;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This output stream buffers everything in fixed size chunks of {@value #CHUNK_SIZE} bytes which are drawn from a
+ * bounded application wide pool. Contrary to {@link java.io.ByteArrayOutputStream}, growing the buffer never copies the
+ * so far written bytes. The buffered bytes can be searched by {@link #indexOf(byte[], int)} and a part of them can be
+ * extracted by {@link #toString(int, int, Charset)} without materializing the entire buffer. The buffered bytes can
+ * be decoded chunk by chunk to a writer by {@link #writeTo(Writer, Charset)}.
+ * <p>
+ * The buffer remains available after {@link #close()}. Invoke {@link #release()} when the buffer is not needed anymore,
+ * e.g. at the end of the request, so that the chunks are returned to the pool.
+ *
+ * @author Bauke Scholtz
+ * @since 4.6
+ */
+public class ChunkedOutputStream extends OutputStream {
+
+    // Constants ------------------------------------------------------------------------------------------------------
+
+    /** The size of a single chunk in bytes. */
+    public static final int CHUNK_SIZE = 8192;
+
+    private static final int MAX_POOLED_CHUNKS = Runtime.getRuntime().availableProcessors() * 16;
+    private static final BlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(MAX_POOLED_CHUNKS);
+
+    // Variables ------------------------------------------------------------------------------------------------------
+
+    private final List<byte[]> chunks = new ArrayList<>();
+    private int size;
+
+    // Actions --------------------------------------------------------------------------------------------------------
+
+    @Override
+    public void write(int b) {
+        var offset = size % CHUNK_SIZE;
+
+        if (offset == 0 && size / CHUNK_SIZE == chunks.size()) {
+            chunks.add(acquire());
+        }
+
+        chunks.get(size / CHUNK_SIZE)[offset] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            var chunkOffset = size % CHUNK_SIZE;
+
+            if (chunkOffset == 0 && size / CHUNK_SIZE == chunks.size()) {
+                chunks.add(acquire());
+            }
+
+            var count = Math.min(length, CHUNK_SIZE - chunkOffset);
+            System.arraycopy(bytes, offset, chunks.get(size / CHUNK_SIZE), chunkOffset, count);
+            size += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Returns the amount of so far written bytes.
+     * @return The amount of so far written bytes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes the buffered bytes to the given output stream.
+     * @param output The output stream to write to.
+     * @throws IOException When an I/O error occurs.
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        for (int i = 0, remaining = size; remaining > 0; i++, remaining -= CHUNK_SIZE) {
+            output.write(chunks.get(i), 0, Math.min(remaining, CHUNK_SIZE));
+        }
+    }
+
+    /**
+     * Writes the buffered bytes decoded with the given character encoding to the given writer. The bytes are decoded
+     * chunk by chunk, so the buffered bytes are never materialized as a whole.
+     * @param writer The writer to write to.
+     * @param charset The character encoding.
+     * @throws IOException When an I/O error occurs.
+     */
+    public void writeTo(Writer writer, Charset charset) throws IOException {
+        var decoder = charset.newDecoder().onMalformedInput(REPLACE).onUnmappableCharacter(REPLACE);
+        var input = ByteBuffer.allocate(CHUNK_SIZE);
+        var output = CharBuffer.allocate(CHUNK_SIZE);
+
+        for (int i = 0, remaining = size; remaining > 0; i++, remaining -= CHUNK_SIZE) {
+            var chunk = chunks.get(i);
+            var length = Math.min(remaining, CHUNK_SIZE);
+
+            for (var offset = 0; offset < length;) {
+                var count = Math.min(input.remaining(), length - offset);
+                input.put(chunk, offset, count).flip();
+                offset += count;
+                decode(decoder, input, output, writer, false);
+                input.compact(); // Keeps any incomplete character at end of chunk for next round.
+            }
+        }
+
+        decode(decoder, input.flip(), output, writer, true);
+
+        while (decoder.flush(output).isOverflow()) {
+            drain(output, writer);
+        }
+
+        drain(output, writer);
+    }
+
+    /**
+     * Returns a copy of the buffered bytes.
+     * @return A copy of the buffered bytes.
+     */
+    public byte[] toByteArray() {
+        return copy(0, size);
+    }
+
+    /**
+     * Returns the buffered bytes as a string decoded with the given character encoding.
+     * @param charset The character encoding.
+     * @return The buffered bytes as a string.
+     */
+    public String toString(Charset charset) {
+        return toString(0, size, charset);
+    }
+
+    /**
+     * Returns the buffered bytes in the given range as a string decoded with the given character encoding. When the
+     * range fits in a single chunk, then it's decoded straight from that chunk.
+     * @param beginIndex The begin index, inclusive.
+     * @param endIndex The end index, exclusive.
+     * @param charset The character encoding.
+     * @return The buffered bytes in the given range as a string.
+     * @throws IndexOutOfBoundsException When the range is out of bounds of the buffered bytes.
+     */
+    public String toString(int beginIndex, int endIndex, Charset charset) {
+        checkRange(beginIndex, endIndex);
+
+        if (beginIndex == endIndex) {
+            return "";
+        }
+
+        if (beginIndex / CHUNK_SIZE == (endIndex - 1) / CHUNK_SIZE) {
+            return new String(chunks.get(beginIndex / CHUNK_SIZE), beginIndex % CHUNK_SIZE, endIndex - beginIndex, charset);
+        }
+
+        return new String(copy(beginIndex, endIndex), charset);
+    }
+
+    /**
+     * Returns the index of the first occurrence of the given bytes in the buffered bytes, starting at the given index.
+     * @param bytes The bytes to search for.
+     * @param fromIndex The index to start searching from.
+     * @return The index of the first occurrence of the given bytes, or -1 if there is none.
+     */
+    public int indexOf(byte[] bytes, int fromIndex) {
+        if (bytes.length == 0) {
+            return Math.min(Math.max(fromIndex, 0), size);
+        }
+
+        var first = bytes[0];
+        var last = size - bytes.length;
+
+        for (var index = Math.max(fromIndex, 0); index <= last;) {
+            var chunk = chunks.get(index / CHUNK_SIZE);
+            var chunkStart = index - index % CHUNK_SIZE;
+            var chunkEnd = Math.min(CHUNK_SIZE, last - chunkStart + 1);
+
+            for (var offset = index - chunkStart; offset < chunkEnd; offset++) {
+                if (chunk[offset] == first && matches(bytes, chunkStart + offset)) {
+                    return chunkStart + offset;
+                }
+            }
+
+            index = chunkStart + CHUNK_SIZE;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns all chunks to the pool and empties this buffer. It can be reused for writing afterwards.
+     */
+    public void release() {
+        for (var chunk : chunks) {
+            POOL.offer(chunk);
+        }
+
+        chunks.clear();
+        size = 0;
+    }
+
+    // Helpers --------------------------------------------------------------------------------------------------------
+
+    private static byte[] acquire() {
+        var chunk = POOL.poll();
+        return chunk != null ? chunk : new byte[CHUNK_SIZE];
+    }
+
+    private static void decode(CharsetDecoder decoder, ByteBuffer input, CharBuffer output, Writer writer, boolean endOfInput) throws IOException {
+        while (decoder.decode(input, output, endOfInput).isOverflow()) {
+            drain(output, writer);
+        }
+
+        drain(output, writer);
+    }
+
+    private static void drain(CharBuffer output, Writer writer) throws IOException {
+        writer.write(output.array(), 0, output.position());
+        output.clear();
+    }
+
+    private boolean matches(byte[] bytes, int index) {
+        for (var i = 1; i < bytes.length; i++) {
+            var position = index + i;
+
+            if (chunks.get(position / CHUNK_SIZE)[position % CHUNK_SIZE] != bytes[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private byte[] copy(int beginIndex, int endIndex) {
+        checkRange(beginIndex, endIndex);
+        var copy = new byte[endIndex - beginIndex];
+
+        for (var position = beginIndex; position < endIndex;) {
+            var offset = position % CHUNK_SIZE;
+            var count = Math.min(CHUNK_SIZE - offset, endIndex - position);
+            System.arraycopy(chunks.get(position / CHUNK_SIZE), offset, copy, position - beginIndex, count);
+            position += count;
+        }
+
+        return copy;
+    }
+
+    private void checkRange(int beginIndex, int endIndex) {
+        if (beginIndex < 0 || beginIndex > endIndex || endIndex > size) {
+            throw new IndexOutOfBoundsException("begin " + beginIndex + ", end " + endIndex + ", size " + size);
+        }
+    }
+
+}
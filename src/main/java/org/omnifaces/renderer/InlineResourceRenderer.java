@@ -13,10 +13,18 @@
 package org.omnifaces.renderer;
 
 import static org.omnifaces.util.FacesLocal.createResource;
+import static org.omnifaces.util.FacesLocal.getApplicationAttribute;
+import static org.omnifaces.util.FacesLocal.isDevelopment;
+import static org.omnifaces.util.Utils.openConnection;
 
+import java.io.BufferedReader;
+import java.io.CharArrayWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.net.URLConnection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import jakarta.faces.application.Resource;
 import jakarta.faces.component.UIComponent;
@@ -25,9 +33,19 @@ import jakarta.faces.context.ResponseWriter;
 import jakarta.faces.render.Renderer;
 
 import org.omnifaces.resourcehandler.CombinedResourceHandler;
+import org.omnifaces.resourcehandler.DynamicResource;
+import org.omnifaces.util.cache.ConcurrentLruCache;
 
 /**
  * Base renderer which is to be shared between inline CSS and JS renderers.
+ * <p>
+ * Since 4.6, the inline payload as written by {@link #writeResource(Reader, ResponseWriter)} is cached in application
+ * scope per renderer, resource library, resource name and character encoding, along with the last modified timestamp
+ * of the resource, so that it can be rendered with a single bulk write on subsequent renders. The last modified
+ * timestamp is obtained from {@link DynamicResource#getLastModified()} on every render when the resource is a dynamic
+ * resource, such as a combined resource, or else from the connection to its URL at most once per
+ * 10 seconds, so that a changed resource is not served from a stale cache entry
+ * for long. The cache is bypassed altogether when the Faces project stage is <code>Development</code>.
  *
  * @author Bauke Scholtz
  * @since 1.2
@@ -35,6 +53,14 @@ import org.omnifaces.resourcehandler.CombinedResourceHandler;
  */
 public abstract class InlineResourceRenderer extends Renderer {
 
+    // Constants ------------------------------------------------------------------------------------------------------
+
+    private static final String PAYLOADS_ATTRIBUTE = "org.omnifaces.inline_resource_payloads";
+    private static final int MAX_CACHED_PAYLOADS = 100;
+    private static final long MAX_CACHED_PAYLOADS_WEIGHT = 16 * 1024 * 1024;
+    private static final long REVALIDATE_INTERVAL_IN_SECONDS = 10;
+    private static final long REVALIDATE_INTERVAL_IN_MILLIS = TimeUnit.SECONDS.toMillis(REVALIDATE_INTERVAL_IN_SECONDS);
+
     // Actions --------------------------------------------------------------------------------------------------------
 
     /**
@@ -48,7 +74,8 @@ public abstract class InlineResourceRenderer extends Renderer {
     /**
      * Obtain the resource, construct a {@link Reader} around it using the character encoding as obtained from the
      * response writer and then invoke {@link #startElement(ResponseWriter, UIComponent)},
-     * {@link #writeResource(Reader, ResponseWriter)} and {@link #endElement(ResponseWriter)} in sequence.
+     * {@link #writeResource(Reader, ResponseWriter)} and {@link #endElement(ResponseWriter)} in sequence. When not in
+     * development stage, the payload written by {@link #writeResource(Reader, ResponseWriter)} is cached.
      */
     @Override
     public void encodeChildren(FacesContext context, UIComponent component) throws IOException {
@@ -59,13 +86,66 @@ public abstract class InlineResourceRenderer extends Renderer {
 
         startElement(writer, component);
 
-        try (Reader reader = new InputStreamReader(resource.getInputStream(), writer.getCharacterEncoding())) {
-            writeResource(reader, writer);
+        if (isDevelopment(context)) {
+            try (Reader reader = createReader(resource, writer)) {
+                writeResource(reader, writer);
+            }
+        }
+        else {
+            writer.write(getPayload(context, resource, writer));
         }
 
         endElement(writer);
     }
 
+    private char[] getPayload(FacesContext context, Resource resource, ResponseWriter writer) throws IOException {
+        Map<String, Payload> payloads = getApplicationAttribute(context, PAYLOADS_ATTRIBUTE, InlineResourceRenderer::createPayloadsCache);
+        String key = getClass().getName() + ":" + resource.getLibraryName() + ":" + resource.getResourceName()
+            + ":" + writer.getCharacterEncoding();
+        Payload payload = payloads.get(key);
+        long now = System.currentTimeMillis();
+
+        if (payload != null && !(resource instanceof DynamicResource) && now - payload.validated < REVALIDATE_INTERVAL_IN_MILLIS) {
+            return payload.content;
+        }
+
+        long lastModified = getLastModified(context, resource);
+
+        if (payload != null && payload.lastModified == lastModified) {
+            payload.validated = now;
+            return payload.content;
+        }
+
+        CharArrayWriter buffer = new CharArrayWriter();
+        ResponseWriter bufferedWriter = writer.cloneWithWriter(buffer);
+
+        try (Reader reader = createReader(resource, writer)) {
+            writeResource(reader, bufferedWriter);
+        }
+
+        bufferedWriter.flush();
+        payload = new Payload(buffer.toCharArray(), lastModified, now);
+        payloads.put(key, payload);
+        return payload.content;
+    }
+
+    private static Map<String, Payload> createPayloadsCache() {
+        return new ConcurrentLruCache<>(MAX_CACHED_PAYLOADS, MAX_CACHED_PAYLOADS_WEIGHT, (key, payload) -> payload.content.length * 2L, (key, payload) -> {});
+    }
+
+    private static long getLastModified(FacesContext context, Resource resource) {
+        if (resource instanceof DynamicResource) {
+            return ((DynamicResource) resource).getLastModified();
+        }
+
+        URLConnection connection = openConnection(context, resource);
+        return (connection != null) ? connection.getLastModified() : 0;
+    }
+
+    private static Reader createReader(Resource resource, ResponseWriter writer) throws IOException {
+        return new BufferedReader(new InputStreamReader(resource.getInputStream(), writer.getCharacterEncoding()));
+    }
+
     /**
      * Start the element.
      * @param writer The response writer.
@@ -89,4 +169,23 @@ public abstract class InlineResourceRenderer extends Renderer {
      */
     public abstract void endElement(ResponseWriter writer) throws IOException;
 
+    // Nested classes -------------------------------------------------------------------------------------------------
+
+    /**
+     * The cached payload along with the last modified timestamp of the resource it was written from and the time it was
+     * last validated against the resource.
+     */
+    private static final class Payload {
+
+        private final char[] content;
+        private final long lastModified;
+        private volatile long validated;
+
+        private Payload(char[] content, long lastModified, long validated) {
+            this.content = content;
+            this.lastModified = lastModified;
+            this.validated = validated;
+        }
+    }
+
 }
\ No newline at end of file
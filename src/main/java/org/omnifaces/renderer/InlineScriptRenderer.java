@@ -39,6 +39,7 @@ public class InlineScriptRenderer extends InlineResourceRenderer {
     public static final String RENDERER_TYPE = "org.omnifaces.InlineScript";
 
     private static final char[] END_SCRIPT = "/script>".toCharArray();
+    private static final int BUFFER_SIZE = 10240;
 
     // Actions --------------------------------------------------------------------------------------------------------
 
@@ -49,38 +50,58 @@ public class InlineScriptRenderer extends InlineResourceRenderer {
         writer.write("//<![CDATA[\n");
     }
 
+    /**
+     * Write the resource in chunks and escape any closing script tag which may occur in JS literals as
+     * <code>&lt;\/script&gt;</code>. The tail of each chunk which may hold the start of a closing script tag is
+     * carried over to the next chunk.
+     */
     @Override
     public void writeResource(Reader reader, ResponseWriter writer) throws IOException {
-        for (var c = reader.read(); c != -1; c = reader.read()) {
-            writer.write(c);
+        var buffer = new char[BUFFER_SIZE];
+        var length = 0;
+        var eof = false;
+
+        while (!eof || length > 0) {
+            if (!eof) {
+                var read = reader.read(buffer, length, buffer.length - length);
 
-            if (c == '<') {
-                escapeEndScriptIfNecessary(reader, writer);
+                if (read == -1) {
+                    eof = true;
+                }
+                else {
+                    length += read;
+                }
             }
-        }
-    }
 
-    private static void escapeEndScriptIfNecessary(Reader reader, ResponseWriter writer) throws IOException {
-        var length = 0;
+            var limit = eof ? length : Math.max(0, length - END_SCRIPT.length);
+            var start = 0;
 
-        for (var ch = reader.read(); ch != -1; ch = reader.read()) {
-            if (Character.toLowerCase(ch) != END_SCRIPT[length]) {
-                if (length > 0) {
-                    writer.write(END_SCRIPT, 0, length);
+            for (var i = 0; i < limit; i++) {
+                if (buffer[i] == '<' && isEndScript(buffer, i + 1, length)) {
+                    writer.write(buffer, start, i + 1 - start);
+                    writer.write('\\');
+                    start = i + 1;
                 }
-
-                writer.write(ch);
-                return;
             }
 
-            length++;
+            writer.write(buffer, start, limit - start);
+            System.arraycopy(buffer, limit, buffer, 0, length - limit);
+            length -= limit;
+        }
+    }
+
+    private static boolean isEndScript(char[] buffer, int offset, int length) {
+        if (offset + END_SCRIPT.length > length) {
+            return false;
+        }
 
-            if (length == END_SCRIPT.length) {
-                writer.write('\\'); // Escape closing script tags which may occur in JS literals.
-                writer.write(END_SCRIPT);
-                return;
+        for (var i = 0; i < END_SCRIPT.length; i++) {
+            if (Character.toLowerCase(buffer[offset + i]) != END_SCRIPT[i]) {
+                return false;
             }
         }
+
+        return true;
     }
 
     @Override
@@ -25,6 +25,8 @@ import jakarta.faces.application.Resource;
 import jakarta.faces.application.ResourceDependency;
 import jakarta.faces.application.ResourceHandler;
 
+import org.omnifaces.util.cache.ConcurrentLruCache;
+
 /**
  * <p>
  * This {@link ResourceHandler} implementation allows the developer to provide external (CDN) URLs instead of the
@@ -133,7 +135,9 @@ import jakarta.faces.application.ResourceHandler;
  *     &lt;param-value&gt;jquery-cdn:*=https://#{settings.jqueryCDN}/*&lt;/param-value&gt;
  * &lt;/context-param&gt;
  * </pre>
- * <p>The EL expression is resolved on a per-request basis.</p>
+ * <p>The EL expression is resolved on a per-request basis, unless the context parameter
+ * {@value org.omnifaces.resourcehandler.CDNResourceHandler#PARAM_NAME_CDN_FREEZE_EXPRESSIONS} is set to
+ * <code>true</code>, see below.</p>
  *
  * <h2>Conditionally disable CDN resource handler</h2>
  * <p>
@@ -155,7 +159,26 @@ import jakarta.faces.application.ResourceHandler;
  *     &lt;param-value&gt;#{someBean.someBooleanProperty}&lt;/param-value&gt;
  * &lt;/context-param&gt;
  * </pre>
- * <p>The EL expression is resolved on a per-request basis.</p>
+ * <p>The EL expression is resolved on a per-request basis, unless the context parameter
+ * {@value org.omnifaces.resourcehandler.CDNResourceHandler#PARAM_NAME_CDN_FREEZE_EXPRESSIONS} is set to
+ * <code>true</code>, see below.</p>
+ *
+ * <h2>Freeze EL expressions</h2>
+ * <p>
+ * If all EL expressions in the above context parameters always resolve to the same value during the lifetime of the
+ * application, e.g. because they only reference <code>#{initParam}</code> or properties of an
+ * <code>@ApplicationScoped</code> bean which never change, then you can set the context parameter
+ * {@value org.omnifaces.resourcehandler.CDNResourceHandler#PARAM_NAME_CDN_FREEZE_EXPRESSIONS} to <code>true</code>.
+ * The EL expressions will then be resolved only once, on first use, and the remapped resources will be reused across
+ * requests.
+ * <pre>
+ * &lt;context-param&gt;
+ *     &lt;param-name&gt;org.omnifaces.CDN_RESOURCE_HANDLER_FREEZE_EXPRESSIONS&lt;/param-name&gt;
+ *     &lt;param-value&gt;true&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * <p>Defaults to <code>false</code>. Resources whose CDN URL doesn't contain any EL expression are always reused
+ * across requests, regardless of this setting.</p>
  *
  * <h2>CombinedResourceHandler</h2>
  * <p>
@@ -178,6 +201,9 @@ public class CDNResourceHandler extends DefaultResourceHandler {
     /** The context parameter name to conditionally disable CDN resource handler. @since 2.0 */
     public static final String PARAM_NAME_CDN_DISABLED = "org.omnifaces.CDN_RESOURCE_HANDLER_DISABLED";
 
+    /** The context parameter name to resolve EL expressions in the other context parameters only once. @since 4.6 */
+    public static final String PARAM_NAME_CDN_FREEZE_EXPRESSIONS = "org.omnifaces.CDN_RESOURCE_HANDLER_FREEZE_EXPRESSIONS";
+
     private static final String ERROR_MISSING_INIT_PARAM =
         "Context parameter '" + PARAM_NAME_CDN_RESOURCES + "' is missing in web.xml or web-fragment.xml.";
     private static final String ERROR_INVALID_INIT_PARAM =
@@ -188,10 +214,12 @@ public class CDNResourceHandler extends DefaultResourceHandler {
             + " Wildcard can only represent entire resource name '*' and URL suffix '/*' as in"
             + " 'libraryName:*=https://cdn.example.com/*'.";
 
+    private static final int MAX_REMAPPED_WILDCARD_RESOURCES = 1000;
+
     // Properties -----------------------------------------------------------------------------------------------------
 
-    private String disabledParam;
-    private Map<ResourceIdentifier, String> cdnResources;
+    private final Expression disabled;
+    private final Map<String, Map<String, Mapping>> mappings = new HashMap<>();
 
     // Constructors ---------------------------------------------------------------------------------------------------
 
@@ -204,12 +232,17 @@ public class CDNResourceHandler extends DefaultResourceHandler {
      */
     public CDNResourceHandler(ResourceHandler wrapped) {
         super(wrapped);
-        disabledParam = getInitParameter(PARAM_NAME_CDN_DISABLED);
-        cdnResources = initCDNResources();
+        boolean freezeExpressions = parseBoolean(getInitParameter(PARAM_NAME_CDN_FREEZE_EXPRESSIONS));
+        String disabledParam = getInitParameter(PARAM_NAME_CDN_DISABLED);
+        disabled = disabledParam != null ? new Expression(disabledParam, freezeExpressions) : null;
+        Map<ResourceIdentifier, String> cdnResources = initCDNResources();
 
         if (cdnResources == null) {
             throw new IllegalArgumentException(ERROR_MISSING_INIT_PARAM);
         }
+
+        cdnResources.forEach((id, url) -> mappings.computeIfAbsent(id.getLibrary(), library -> new HashMap<>())
+            .put(id.getName(), new Mapping(url, freezeExpressions)));
     }
 
     // Actions --------------------------------------------------------------------------------------------------------
@@ -222,32 +255,28 @@ public class CDNResourceHandler extends DefaultResourceHandler {
      * {@value org.omnifaces.resourcehandler.CDNResourceHandler#PARAM_NAME_CDN_RESOURCES} context parameter.
      */
     @Override
-    @SuppressWarnings("cast")
     public Resource decorateResource(Resource resource, String resourceName, String libraryName) {
-        if (disabledParam != null && parseBoolean(String.valueOf((Object) evaluateExpressionGet(disabledParam)))) {
+        if (disabled != null && parseBoolean(disabled.evaluate())) {
             return resource;
         }
 
-        String requestPath = null;
+        Map<String, Mapping> library = mappings.get(libraryName);
 
-        if (cdnResources != null) {
-            requestPath = cdnResources.get(new ResourceIdentifier(libraryName, resourceName));
+        if (library == null) {
+            return resource;
+        }
 
-            if (requestPath == null) {
-                requestPath = cdnResources.get(new ResourceIdentifier(libraryName, "*"));
+        Mapping mapping = library.get(resourceName);
 
-                if (requestPath != null) {
-                    requestPath = requestPath.substring(0, requestPath.length() - 1) + resourceName;
-                }
-            }
+        if (mapping == null) {
+            mapping = library.get("*");
         }
 
-        if (requestPath == null) {
+        if (mapping == null) {
             return resource;
         }
 
-        String evaluatedRequestPath = evaluateExpressionGet(requestPath);
-        return new RemappedResource(resourceName, libraryName, evaluatedRequestPath);
+        return mapping.remap(resourceName, libraryName);
     }
 
     // Helpers --------------------------------------------------------------------------------------------------------
@@ -285,4 +314,90 @@ public class CDNResourceHandler extends DefaultResourceHandler {
         return cdnResources;
     }
 
+    // Nested classes -------------------------------------------------------------------------------------------------
+
+    /**
+     * A context parameter value which is evaluated as EL expression only when necessary. Plain values are returned as
+     * is and EL expressions are evaluated on every request, or only once when they are frozen.
+     */
+    private static final class Expression {
+
+        private final String expression;
+        private final boolean requestDependent;
+        private volatile String value;
+
+        private Expression(String expression, boolean freeze) {
+            this.expression = expression;
+            boolean literal = !expression.contains("#{") && !expression.contains("${");
+            requestDependent = !literal && !freeze;
+
+            if (literal) {
+                value = expression;
+            }
+        }
+
+        private boolean isRequestDependent() {
+            return requestDependent;
+        }
+
+        @SuppressWarnings("cast")
+        private String evaluate() {
+            String evaluated = value;
+
+            if (evaluated == null) {
+                Object result = (Object) evaluateExpressionGet(expression);
+                evaluated = result != null ? result.toString() : null;
+
+                if (!requestDependent) {
+                    value = evaluated;
+                }
+            }
+
+            return evaluated;
+        }
+    }
+
+    /**
+     * A CDN URL mapping of a resource identifier. The remapped resources are reused across requests when the CDN URL
+     * is not request dependent.
+     */
+    private static final class Mapping {
+
+        private final Expression url;
+        private final boolean wildcard;
+        private final Map<String, RemappedResource> remappedWildcardResources;
+        private volatile RemappedResource remappedResource;
+
+        private Mapping(String url, boolean freezeExpressions) {
+            wildcard = url.endsWith("*");
+            this.url = new Expression(wildcard ? url.substring(0, url.length() - 1) : url, freezeExpressions);
+            remappedWildcardResources = wildcard ? new ConcurrentLruCache<>(MAX_REMAPPED_WILDCARD_RESOURCES) : null;
+        }
+
+        private RemappedResource remap(String resourceName, String libraryName) {
+            if (url.isRequestDependent()) {
+                return new RemappedResource(resourceName, libraryName, getRequestPath(resourceName));
+            }
+
+            if (wildcard) {
+                return remappedWildcardResources.computeIfAbsent(resourceName,
+                    name -> new RemappedResource(name, libraryName, getRequestPath(name)));
+            }
+
+            RemappedResource remapped = remappedResource;
+
+            if (remapped == null) {
+                remapped = new RemappedResource(resourceName, libraryName, getRequestPath(resourceName));
+                remappedResource = remapped;
+            }
+
+            return remapped;
+        }
+
+        private String getRequestPath(String resourceName) {
+            String requestPath = url.evaluate();
+            return wildcard ? requestPath + resourceName : requestPath;
+        }
+    }
+
 }
\ No newline at end of file
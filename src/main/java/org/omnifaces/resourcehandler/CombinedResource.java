@@ -13,15 +13,19 @@
 package org.omnifaces.resourcehandler;
 
 import static org.omnifaces.util.Faces.getMimeType;
-import static org.omnifaces.util.Utils.toByteArray;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
 
 import jakarta.faces.application.Resource;
 import jakarta.faces.context.FacesContext;
+import jakarta.servlet.http.HttpServletRequest;
 
+import org.omnifaces.servlet.CompressedHttpServletResponse.Algorithm;
 import org.omnifaces.util.cache.Cache;
 import org.omnifaces.util.cache.CacheFactory;
 
@@ -44,6 +48,9 @@ public class CombinedResource extends DynamicResource {
     private String resourceId;
     private CombinedResourceInfo info;
     private Integer cacheTTL;
+    private boolean prebuilt;
+    private Algorithm algorithm;
+    private boolean negotiated;
 
     // Constructors ---------------------------------------------------------------------------------------------------
 
@@ -54,11 +61,25 @@ public class CombinedResource extends DynamicResource {
      * @param cacheTTL The combined resource content cache TTL.
      */
     public CombinedResource(String resourceName, Integer cacheTTL) {
+        this(resourceName, cacheTTL, false);
+    }
+
+    /**
+     * Constructs a new combined resource based on the given resource name. This constructor is only used by
+     * {@link CombinedResourceHandler#createResource(String, String)}.
+     * @param resourceName The resource name of the combined resource.
+     * @param cacheTTL The combined resource content cache TTL. This is ignored when prebuilt is <code>true</code>.
+     * @param prebuilt Whether to serve the prebuilt and precompressed content of the combined resource. This is only
+     * effective when the combined resource was created by {@link CombinedResourceInfo.Builder} during rendering.
+     * @since 4.6
+     */
+    public CombinedResource(String resourceName, Integer cacheTTL, boolean prebuilt) {
         super(resourceName, CombinedResourceHandler.LIBRARY_NAME, getMimeType(resourceName));
         String[] resourcePathParts = resourceName.split("\\.", 2)[0].split("/");
         resourceId = resourcePathParts[resourcePathParts.length - 1];
         info = CombinedResourceInfo.get(resourceId);
         this.cacheTTL = cacheTTL;
+        this.prebuilt = prebuilt;
     }
 
     // Actions --------------------------------------------------------------------------------------------------------
@@ -71,7 +92,10 @@ public class CombinedResource extends DynamicResource {
     @Override
     public InputStream getInputStream() throws IOException {
         if (info != null && !info.getResources().isEmpty()) {
-            if (cacheTTL == null) {
+            if (isPrebuilt()) {
+                return new ByteArrayInputStream(info.getContent().getContent(getAlgorithm()));
+            }
+            else if (cacheTTL == null) {
                 return new CombinedResourceInputStream(info.getResources());
             }
             else {
@@ -83,6 +107,74 @@ public class CombinedResource extends DynamicResource {
         }
     }
 
+    /**
+     * When prebuilt, returns the strong ETag of the prebuilt content and, if the prebuilt content is compressed for the
+     * current request, the <code>Content-Encoding</code> header. Otherwise, returns the default dynamic resource headers.
+     */
+    @Override
+    public Map<String, String> getResponseHeaders() {
+        Map<String, String> responseHeaders = super.getResponseHeaders();
+
+        if (isPrebuilt()) {
+            var algorithm = getAlgorithm();
+            responseHeaders.put("Etag", getPrebuiltContent().getETag(algorithm));
+            responseHeaders.put("Vary", "Accept-Encoding");
+
+            if (algorithm != null) {
+                responseHeaders.put("Content-Encoding", algorithm.getEncodingDirective());
+            }
+        }
+
+        return responseHeaders;
+    }
+
+    /**
+     * When prebuilt and the request has an <code>If-None-Match</code> header, returns whether it doesn't match the
+     * ETag of the prebuilt content. Otherwise, checks the <code>If-Modified-Since</code> header.
+     */
+    @Override
+    public boolean userAgentNeedsUpdate(FacesContext context) {
+        String ifNoneMatch = context.getExternalContext().getRequestHeaderMap().get("If-None-Match");
+
+        if (ifNoneMatch != null && isPrebuilt()) {
+            return !ifNoneMatch.contains(getPrebuiltContent().getETag(getAlgorithm()));
+        }
+
+        return super.userAgentNeedsUpdate(context);
+    }
+
+    private boolean isPrebuilt() {
+        return prebuilt && info != null && info.isPinned() && !info.getResources().isEmpty();
+    }
+
+    private CombinedResourceContent getPrebuiltContent() {
+        try {
+            return info.getContent();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the compression algorithm of the prebuilt content to serve for the current request. This is only
+     * negotiated when the current request is a resource request, because in other requests, such as the one computing
+     * the integrity of the combined resource during rendering, the uncompressed content is needed.
+     */
+    private Algorithm getAlgorithm() {
+        if (!negotiated) {
+            var context = FacesContext.getCurrentInstance();
+
+            if (context.getApplication().getResourceHandler().isResourceRequest(context)) {
+                algorithm = getPrebuiltContent().negotiate((HttpServletRequest) context.getExternalContext().getRequest());
+            }
+
+            negotiated = true;
+        }
+
+        return algorithm;
+    }
+
     /**
      * Returns the cached input stream, or if there is none, then create one.
      */
@@ -95,7 +187,13 @@ public class CombinedResource extends DynamicResource {
         }
 
         if (cachedCombinedResource == null) {
-            cachedCombinedResource = toByteArray(new CombinedResourceInputStream(info.getResources()));
+            var output = new ByteArrayOutputStream();
+
+            try (var input = new CombinedResourceInputStream(info.getResources())) {
+                input.transferTo(output);
+            }
+
+            cachedCombinedResource = output.toByteArray();
 
             synchronized (CombinedResourceHandler.class) {
                 if (combinedResourceCache.getObject(resourceId) == null) {
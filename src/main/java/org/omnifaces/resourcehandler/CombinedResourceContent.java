@@ -0,0 +1,192 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.resourcehandler;
+
+import static java.lang.String.format;
+import static org.omnifaces.servlet.CompressedHttpServletResponse.Algorithm.BROTLI;
+import static org.omnifaces.servlet.CompressedHttpServletResponse.Algorithm.GZIP;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.faces.application.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.omnifaces.servlet.CompressedHttpServletResponse.Algorithm;
+
+/**
+ * <p>
+ * This class holds the prebuilt content of a combined resource as immutable byte arrays, along with its Brotli and
+ * GZIP compressed variants, if available, and a strong ETag based on the content hash. This way the combined resource
+ * doesn't need to be concatenated and compressed again on every request.
+ *
+ * @author Bauke Scholtz
+ * @since 4.6
+ * @see CombinedResourceInfo
+ */
+final class CombinedResourceContent {
+
+    // Constants ------------------------------------------------------------------------------------------------------
+
+    private static final Algorithm[] ALGORITHMS = { BROTLI, GZIP };
+    private static final byte[] CRLF = { '\r', '\n' };
+
+    // Properties -----------------------------------------------------------------------------------------------------
+
+    private final byte[] content;
+    private final Map<Algorithm, byte[]> compressedContents;
+    private final String hash;
+    private final long lastModified;
+
+    // Constructors ---------------------------------------------------------------------------------------------------
+
+    private CombinedResourceContent(byte[] content, Map<Algorithm, byte[]> compressedContents, String hash, long lastModified) {
+        this.content = content;
+        this.compressedContents = compressedContents;
+        this.hash = hash;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Build the content of the given combined resources. The content is compressed with every available algorithm of
+     * {@link #ALGORITHMS}, but only kept when it's actually smaller than the uncompressed content.
+     * @param resources The resources to be combined.
+     * @param lastModified The last modified timestamp of the combined resources.
+     * @return The prebuilt content of the given combined resources.
+     * @throws IOException If something fails at I/O level.
+     */
+    static CombinedResourceContent build(Set<Resource> resources, long lastModified) throws IOException {
+        var output = new ByteArrayOutputStream();
+
+        try (var input = new CombinedResourceInputStream(resources)) {
+            input.transferTo(output);
+        }
+
+        return build(output.toByteArray(), lastModified);
+    }
+
+    /**
+     * Build the content of the combined resources at the given URLs, combined the same way as
+     * {@link CombinedResourceInputStream} does. Contrary to {@link #build(Set, long)}, this doesn't need a faces context
+     * and can thus run in a background thread.
+     * @param urls The URLs of the resources to be combined.
+     * @param lastModified The last modified timestamp of the combined resources.
+     * @return The prebuilt content of the combined resources at the given URLs.
+     * @throws IOException If something fails at I/O level.
+     */
+    static CombinedResourceContent build(List<URL> urls, long lastModified) throws IOException {
+        var output = new ByteArrayOutputStream();
+
+        for (var url : urls) {
+            try (var input = url.openStream()) {
+                input.transferTo(output);
+            }
+
+            output.write(CRLF);
+        }
+
+        return build(output.toByteArray(), lastModified);
+    }
+
+    private static CombinedResourceContent build(byte[] content, long lastModified) throws IOException {
+        Map<Algorithm, byte[]> compressedContents = new EnumMap<>(Algorithm.class);
+
+        for (var algorithm : ALGORITHMS) {
+            if (algorithm.isAvailable()) {
+                var compressedContent = compress(content, algorithm);
+
+                if (compressedContent.length < content.length) {
+                    compressedContents.put(algorithm, compressedContent);
+                }
+            }
+        }
+
+        return new CombinedResourceContent(content, compressedContents, hash(content), lastModified);
+    }
+
+    // Actions --------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the best available compression algorithm for the given request, or <code>null</code> if the content
+     * must not be compressed for the given request.
+     * @param request The HTTP servlet request.
+     * @return The best available compression algorithm for the given request.
+     */
+    Algorithm negotiate(HttpServletRequest request) {
+        for (var algorithm : compressedContents.keySet()) {
+            if (algorithm.accepts(request)) {
+                return algorithm;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the content compressed with the given algorithm.
+     * @param algorithm The compression algorithm as obtained by {@link #negotiate(HttpServletRequest)}.
+     * @return The content compressed with the given algorithm, or the uncompressed content if it is <code>null</code>.
+     */
+    byte[] getContent(Algorithm algorithm) {
+        return algorithm != null ? compressedContents.get(algorithm) : content;
+    }
+
+    /**
+     * Returns the strong ETag of the content compressed with the given algorithm. Each compression algorithm gets its
+     * own ETag, because they represent different bytes.
+     * @param algorithm The compression algorithm as obtained by {@link #negotiate(HttpServletRequest)}.
+     * @return The strong ETag of the content compressed with the given algorithm.
+     */
+    String getETag(Algorithm algorithm) {
+        return algorithm != null ? format("\"%s-%s\"", hash, algorithm.getEncodingDirective()) : format("\"%s\"", hash);
+    }
+
+    /**
+     * Returns the last modified timestamp of the combined resources this content was built from.
+     * @return The last modified timestamp of the combined resources this content was built from.
+     */
+    long getLastModified() {
+        return lastModified;
+    }
+
+    // Helpers --------------------------------------------------------------------------------------------------------
+
+    private static byte[] compress(byte[] content, Algorithm algorithm) throws IOException {
+        var compressed = new ByteArrayOutputStream(content.length / 4);
+
+        try (var output = algorithm.createOutputStream(compressed)) {
+            output.write(content);
+        }
+
+        return compressed.toByteArray();
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            var sha256 = MessageDigest.getInstance("SHA-256").digest(content);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(sha256);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 is guaranteed to be available.
+        }
+    }
+
+}
@@ -172,6 +172,25 @@ import org.omnifaces.util.cache.Cache;
  * The default value is 0 (i.e. not cached). For global cache settings refer {@link Cache} javadoc.
  * </td></tr>
  * <tr><td class="colFirst">
+ * <code>{@value org.omnifaces.resourcehandler.CombinedResourceHandler#PARAM_NAME_PREBUILD}</code>
+ * </td><td>
+ * Set to <code>true</code> if you want the combined resource files to be built only once, when they are created during
+ * rendering, instead of on every request. They are then kept in memory as immutable byte arrays along with their
+ * Brotli (only if available, see {@link org.omnifaces.filter.CompressedResponseFilter}) and GZIP compressed variants,
+ * which are served directly based on the <code>Accept-Encoding</code> request header, with a strong
+ * <code>ETag</code> based on the SHA-256 hash of the content. This is only effective when the Faces project stage is
+ * <strong>not</strong> set to <code>Development</code> as per {@link Faces#isDevelopment()}, and it takes precedence
+ * over {@value org.omnifaces.resourcehandler.CombinedResourceHandler#PARAM_NAME_CACHE_TTL}. Only combined resources
+ * which are created during rendering are prebuilt; combined resource IDs which are first seen in a request are served
+ * the usual way. Since 4.6.
+ * </td></tr>
+ * <tr><td class="colFirst">
+ * <code>{@value org.omnifaces.resourcehandler.CombinedResourceHandler#PARAM_NAME_MAX_ADMITTED}</code>
+ * </td><td>
+ * Set the maximum amount of combined resource IDs which are first seen in a request, i.e. not created during rendering,
+ * to keep in an LRU cache once all of their resources are verified to exist. The default value is 1000. Since 4.6.
+ * </td></tr>
+ * <tr><td class="colFirst">
  * <code>{@value org.omnifaces.resourcehandler.CombinedResourceHandler#PARAM_NAME_CROSSORIGIN}</code>
  * </td><td>
  * Set the desired value of <code>crossorigin</code> attribute of combined script resources. Supported values are
@@ -279,6 +298,14 @@ public class CombinedResourceHandler extends DefaultResourceHandler implements S
     public static final String PARAM_NAME_CACHE_TTL =
         "org.omnifaces.COMBINED_RESOURCE_HANDLER_CACHE_TTL";
 
+    /** The context parameter name to enable prebuilding and precompressing combined resources. @since 4.6 */
+    public static final String PARAM_NAME_PREBUILD =
+        "org.omnifaces.COMBINED_RESOURCE_HANDLER_PREBUILD";
+
+    /** The context parameter name to specify the maximum amount of admitted combined resource IDs. @since 4.6 */
+    public static final String PARAM_NAME_MAX_ADMITTED =
+        "org.omnifaces.COMBINED_RESOURCE_HANDLER_MAX_ADMITTED";
+
     /** The context parameter name to specify 'crossorigin' attribute of combined resources. @since 3.5 */
     public static final String PARAM_NAME_CROSSORIGIN =
         "org.omnifaces.COMBINED_RESOURCE_HANDLER_CROSSORIGIN";
@@ -288,6 +315,11 @@ public class CombinedResourceHandler extends DefaultResourceHandler implements S
             + " It must represent a valid time in seconds between 0 and " + Integer.MAX_VALUE + "."
             + " Encountered an invalid value of '%s'.";
 
+    private static final String ERROR_INVALID_MAX_ADMITTED_PARAM =
+        "Context parameter '" + PARAM_NAME_MAX_ADMITTED + "' is in invalid syntax."
+            + " It must represent a valid number between 1 and " + Integer.MAX_VALUE + "."
+            + " Encountered an invalid value of '%s'.";
+
     private static final String TARGET_HEAD = "head";
     private static final String TARGET_BODY = "body";
     private static final String COMPONENT_ADDED = "jakarta.faces.component.UIComponentBase.ADDED";
@@ -301,6 +333,7 @@ public class CombinedResourceHandler extends DefaultResourceHandler implements S
     private boolean inlineCSS;
     private boolean inlineJS;
     private Integer cacheTTL;
+    private boolean prebuild;
     private String crossorigin;
     private boolean needsIntegrity;
 
@@ -322,6 +355,8 @@ public class CombinedResourceHandler extends DefaultResourceHandler implements S
         inlineCSS = parseBoolean(getInitParameter(PARAM_NAME_INLINE_CSS));
         inlineJS = parseBoolean(getInitParameter(PARAM_NAME_INLINE_JS));
         cacheTTL = initCacheTTL(getInitParameter(PARAM_NAME_CACHE_TTL));
+        prebuild = !isDevelopment() && parseBoolean(getInitParameter(PARAM_NAME_PREBUILD));
+        CombinedResourceInfo.setMaxAdmitted(initMaxAdmitted(getInitParameter(PARAM_NAME_MAX_ADMITTED)));
         crossorigin = coalesce(getInitParameter(PARAM_NAME_CROSSORIGIN), DEFAULT_CROSSORIGIN);
         needsIntegrity = DEFAULT_CROSSORIGIN.equals(crossorigin);
         subscribeToApplicationEvent(PreRenderViewEvent.class, this);
@@ -391,7 +426,7 @@ public class CombinedResourceHandler extends DefaultResourceHandler implements S
      */
     @Override
     public Resource createResourceFromLibrary(String resourceName, String contentType) {
-        return new CombinedResource(resourceName, cacheTTL);
+        return new CombinedResource(resourceName, cacheTTL, prebuild);
     }
 
     // Helpers --------------------------------------------------------------------------------------------------------
@@ -442,6 +477,22 @@ public class CombinedResourceHandler extends DefaultResourceHandler implements S
         }
     }
 
+    private static int initMaxAdmitted(String maxAdmittedParam) {
+        if (maxAdmittedParam == null) {
+            return CombinedResourceInfo.DEFAULT_MAX_ADMITTED;
+        }
+
+        if (isNumber(maxAdmittedParam)) {
+            int maxAdmitted = Integer.parseInt(maxAdmittedParam);
+
+            if (maxAdmitted > 0) {
+                return maxAdmitted;
+            }
+        }
+
+        throw new IllegalArgumentException(format(ERROR_INVALID_MAX_ADMITTED_PARAM, maxAdmittedParam));
+    }
+
     private static void removeComponentResources(FacesContext context, List<UIComponent> componentResourcesToRemove, String target) {
         UIViewRoot view = context.getViewRoot();
 
@@ -648,7 +699,13 @@ public class CombinedResourceHandler extends DefaultResourceHandler implements S
                     componentResource.getAttributes().remove(COMPONENT_ADDED);
                 }
 
-                String resourceName = infoBuilder.create() + extension;
+                String id = infoBuilder.create();
+                String resourceName = id + extension;
+
+                if (prebuild) {
+                    CombinedResourceInfo.get(id).prebuild();
+                }
+
                 componentResource.getAttributes().put("library", LIBRARY_NAME);
                 componentResource.getAttributes().put("name", resourceName);
                 componentResource.setRendererType(rendererType);
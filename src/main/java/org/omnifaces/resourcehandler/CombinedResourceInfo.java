@@ -13,6 +13,7 @@
 package org.omnifaces.resourcehandler;
 
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.logging.Level.FINEST;
 import static java.util.logging.Level.WARNING;
 import static org.omnifaces.resourcehandler.CombinedResourceHandler.LIBRARY_NAME;
@@ -23,11 +24,20 @@ import static org.omnifaces.util.Utils.openConnection;
 import static org.omnifaces.util.Utils.serializeURLSafe;
 import static org.omnifaces.util.Utils.unserializeURLSafe;
 
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
 
 import jakarta.faces.application.Resource;
@@ -35,11 +45,19 @@ import jakarta.faces.context.FacesContext;
 
 import org.omnifaces.el.functions.Converters;
 import org.omnifaces.util.Utils;
+import org.omnifaces.util.cache.ConcurrentLruCache;
 
 /**
  * <p>
  * This class is a wrapper which collects all combined resources and stores it in the cache. A builder has been provided
  * to create an instance of combined resource info and put it in the cache if absent.
+ * <p>
+ * Since 4.6, the combined resource infos created by the builder during rendering are pinned in the cache, while those
+ * created based on an ID which is first seen in a request are only admitted in a bounded LRU cache after all of their
+ * resources are verified to exist. This prevents the cache from growing unbounded when clients request arbitrary IDs.
+ * The hit, miss and eviction counts of the cache are available via {@link #getHitCount()}, {@link #getMissCount()}
+ * and {@link #getEvictionCount()}. The maximum amount of admitted combined resource infos can be configured via
+ * {@link CombinedResourceHandler#PARAM_NAME_MAX_ADMITTED}.
  *
  * @author Bauke Scholtz
  */
@@ -49,10 +67,24 @@ public final class CombinedResourceInfo {
 
     private static final Logger logger = Logger.getLogger(CombinedResourceInfo.class.getName());
 
+    /** The default maximum amount of combined resource infos admitted based on an ID which is first seen in a request. */
+    static final int DEFAULT_MAX_ADMITTED = 1000;
+
+    private static final long PREBUILD_KEEP_ALIVE_IN_SECONDS = 10;
+    private static final String PREBUILD_THREAD_NAME = "OmniFaces-CombinedResourceHandler-Prebuild";
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+
     private static final Map<String, CombinedResourceInfo> CACHE = new ConcurrentHashMap<>();
+    private static volatile Map<String, CombinedResourceInfo> admitted = createAdmitted(DEFAULT_MAX_ADMITTED);
+    private static final Executor PREBUILDER = createPrebuilder();
 
     private static final String LOG_RESOURCE_NOT_FOUND = "CombinedResourceHandler: The resource %s cannot be found"
             + " and therefore a 404 will be returned for the combined resource ID %s";
+    private static final String LOG_PREBUILD_FAILED = "CombinedResourceHandler: The combined resource ID %s cannot be"
+            + " prebuilt and therefore it will be built on first request";
 
     // Properties -----------------------------------------------------------------------------------------------------
 
@@ -61,6 +93,8 @@ public final class CombinedResourceInfo {
     private Set<Resource> resources;
     private int contentLength;
     private long lastModified;
+    private volatile CombinedResourceContent content;
+    private final AtomicBoolean prebuildScheduled = new AtomicBoolean();
 
     // Constructors ---------------------------------------------------------------------------------------------------
 
@@ -111,7 +145,8 @@ public final class CombinedResourceInfo {
         }
 
         /**
-         * Creates the CombinedResourceInfo instance in cache if absent and return its ID.
+         * Creates the CombinedResourceInfo instance in cache if absent and return its ID. The instance is pinned in the
+         * cache, also when it was previously admitted via {@link CombinedResourceInfo#get(String)}.
          * @return The ID of the CombinedResourceInfo instance.
          * @throws IllegalStateException If there are no resources been added. So, to prevent it beforehand, use
          * the {@link #isEmpty()} method to check if there are any resources been added.
@@ -124,7 +159,10 @@ public final class CombinedResourceInfo {
             var id = toUniqueId(resourceIdentifiers);
 
             if (!CACHE.containsKey(id)) {
-                CombinedResourceInfo.create(id, resourceIdentifiers);
+                CACHE.computeIfAbsent(id, k -> {
+                    var admittedInfo = admitted.remove(k);
+                    return admittedInfo != null ? admittedInfo : new CombinedResourceInfo(k, Collections.unmodifiableSet(resourceIdentifiers));
+                });
             }
 
             return id;
@@ -134,34 +172,66 @@ public final class CombinedResourceInfo {
 
     /**
      * Returns the combined resource info identified by the given ID from the cache. A new one will be created based on
-     * the given ID if absent in cache.
+     * the given ID if absent in cache. It will only be admitted in the cache when all of its resources exist.
      * @param id The ID of the combined resource info to be returned from the cache.
-     * @return The combined resource info identified by the given ID from the cache.
+     * @return The combined resource info identified by the given ID from the cache, or <code>null</code> if the ID is
+     * not valid.
      */
     public static CombinedResourceInfo get(String id) {
         var info = CACHE.get(id);
 
         if (info == null) {
-            var resourceIdentifiers = fromUniqueId(id);
+            info = admitted.get(id);
+        }
 
-            if (resourceIdentifiers != null) {
-                info = create(id, resourceIdentifiers);
-            }
+        if (info != null) {
+            HITS.increment();
+            return info;
+        }
+
+        MISSES.increment();
+        var resourceIdentifiers = fromUniqueId(id);
+
+        if (resourceIdentifiers == null) {
+            return null;
         }
 
-        return info;
+        info = new CombinedResourceInfo(id, Collections.unmodifiableSet(resourceIdentifiers));
+
+        if (info.getResources().isEmpty()) {
+            return info; // Not admitted; the combined resource will return a 404 anyway.
+        }
+
+        var existingInfo = admitted.putIfAbsent(id, info);
+        return existingInfo != null ? existingInfo : info;
+    }
+
+    /**
+     * Returns the amount of times {@link #get(String)} has found the combined resource info in the cache.
+     * @return The amount of cache hits.
+     * @since 4.6
+     */
+    public static long getHitCount() {
+        return HITS.sum();
     }
 
     /**
-     * Create new combined resource info identified by given ID in the cache.
-     * @param id The ID of the combined resource info to be created in the cache.
-     * @param resourceIdentifiers The set of resource identifiers to create combined resource info for.
-     * @return New combined resource info identified by given ID.
+     * Returns the amount of times {@link #get(String)} has not found the combined resource info in the cache.
+     * @return The amount of cache misses.
+     * @since 4.6
      */
-    private static CombinedResourceInfo create(String id, Set<ResourceIdentifier> resourceIdentifiers) {
-        var info = new CombinedResourceInfo(id, Collections.unmodifiableSet(resourceIdentifiers));
-        CACHE.put(id, info);
-        return info;
+    public static long getMissCount() {
+        return MISSES.sum();
+    }
+
+    /**
+     * Returns the amount of combined resource infos which have been evicted from the cache of admitted IDs because it
+     * exceeded its maximum capacity.
+     * @return The amount of cache evictions.
+     * @since 4.6
+     */
+    public static long getEvictionCount() {
+        return EVICTIONS.sum();
     }
 
     // Actions --------------------------------------------------------------------------------------------------------
@@ -216,6 +286,50 @@ public final class CombinedResourceInfo {
         }
     }
 
+    /**
+     * Eagerly build the content of this combined resource info in a background thread, so that neither the current
+     * rendering nor the first request for it need to do that. The URLs of the resources are resolved in the current
+     * thread, because that needs the faces context. If this fails, then this will log a WARNING and leave it to the
+     * first request. This does nothing when this combined resource info is not {@link #isPinned() pinned} or when its
+     * prebuild has already been scheduled.
+     */
+    void prebuild() {
+        if (!isPinned() || !prebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        List<URL> urls;
+        long currentLastModified;
+
+        try {
+            urls = getURLs();
+            currentLastModified = getLastModified();
+        }
+        catch (RuntimeException e) {
+            logger.log(WARNING, format(LOG_PREBUILD_FAILED, id), e);
+            return;
+        }
+
+        if (urls == null) {
+            return;
+        }
+
+        PREBUILDER.execute(() -> {
+            try {
+                var prebuiltContent = CombinedResourceContent.build(urls, currentLastModified);
+
+                synchronized (this) {
+                    if (content == null) {
+                        content = prebuiltContent;
+                    }
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                logger.log(WARNING, format(LOG_PREBUILD_FAILED, id), e);
+            }
+        });
+    }
+
     /**
      * Returns true if the given object is also an instance of {@link CombinedResourceInfo} and its ID equals to the
      * ID of the current combined resource info instance.
@@ -281,8 +395,92 @@ public final class CombinedResourceInfo {
         return lastModified;
     }
 
+    /**
+     * Returns whether this combined resource info is pinned in the cache, i.e. whether it was created by the
+     * {@link Builder} during rendering. Only pinned combined resource infos may be prebuilt, so that clients cannot
+     * make the server hold prebuilt content for arbitrary IDs.
+     * @return Whether this combined resource info is pinned in the cache.
+     */
+    boolean isPinned() {
+        return CACHE.get(id) == this;
+    }
+
+    /**
+     * Returns the prebuilt content of this combined resource info. It is built on first access, and rebuilt when the
+     * last modified timestamp has changed since.
+     * @return The prebuilt content of this combined resource info.
+     * @throws IOException If something fails at I/O level.
+     */
+    CombinedResourceContent getContent() throws IOException {
+        var currentLastModified = getLastModified();
+        var currentContent = content;
+
+        if (currentContent == null || currentContent.getLastModified() != currentLastModified) {
+            synchronized (this) {
+                currentContent = content;
+
+                if (currentContent == null || currentContent.getLastModified() != currentLastModified) {
+                    currentContent = CombinedResourceContent.build(getResources(), currentLastModified);
+                    content = currentContent;
+                }
+            }
+        }
+
+        return currentContent;
+    }
+
+    /**
+     * Set the maximum amount of combined resource infos admitted based on an ID which is first seen in a request. The
+     * currently admitted ones are discarded.
+     * @param maxAdmitted The maximum amount of admitted combined resource infos.
+     */
+    static void setMaxAdmitted(int maxAdmitted) {
+        admitted = createAdmitted(maxAdmitted);
+    }
+
     // Helpers ----------------------------------------------------------------------------------------------------
 
+    private static Map<String, CombinedResourceInfo> createAdmitted(int maxAdmitted) {
+        return new ConcurrentLruCache<>(maxAdmitted, (id, info) -> EVICTIONS.increment());
+    }
+
+    private static Executor createPrebuilder() {
+        var executor = new ThreadPoolExecutor(1, 1, PREBUILD_KEEP_ALIVE_IN_SECONDS, SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            var thread = new Thread(runnable, PREBUILD_THREAD_NAME);
+            thread.setDaemon(true);
+            thread.setContextClassLoader(null); // Don't pin the class loader of the application.
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Returns the URLs of the resources of this combined resource info, or <code>null</code> if there are no resources
+     * or if one of them has no URL.
+     */
+    private List<URL> getURLs() {
+        var currentResources = getResources();
+
+        if (currentResources.isEmpty()) {
+            return null;
+        }
+
+        var urls = new ArrayList<URL>(currentResources.size());
+
+        for (var resource : currentResources) {
+            var url = resource.getURL();
+
+            if (url == null) {
+                return null;
+            }
+
+            urls.add(url);
+        }
+
+        return urls;
+    }
+
     /**
      * Create an unique ID based on the given set of resource identifiers. The current implementation converts the
      * set to a <code>|</code>-delimited string which is serialized using {@link Utils#serialize(String)}.
@@ -320,4 +518,4 @@ public final class CombinedResourceInfo {
         return resourceIdentifiers;
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -12,27 +12,27 @@
  */
 package org.omnifaces.resourcehandler;
 
+import static java.util.Collections.emptyIterator;
+import static java.util.Objects.checkFromIndexSize;
+import static java.util.Objects.requireNonNull;
 import static java.util.logging.Level.FINEST;
 import static org.omnifaces.util.Faces.getRequestDomainURL;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Set;
 import java.util.logging.Logger;
 
 import jakarta.faces.application.Resource;
 
-import org.omnifaces.util.Utils;
-
 /**
  * <p>
  * This {@link InputStream} implementation takes care that all in the constructor given resources are been read in
- * sequence.
+ * sequence. Since 4.6, the {@link InputStream} of each resource is only opened when the previous one is exhausted and
+ * it is closed immediately afterwards, so that at most one resource is open at any time.
  *
  * @author Bauke Scholtz
  */
@@ -46,106 +46,156 @@ public final class CombinedResourceInputStream extends InputStream {
 
     // Properties -----------------------------------------------------------------------------------------------------
 
-    private List<InputStream> streams;
-    private Iterator<InputStream> streamIterator;
+    private Iterator<Resource> resources;
+    private String domainURL;
     private InputStream currentStream;
+    private int crlfIndex = CRLF.length;
 
     // Constructors ---------------------------------------------------------------------------------------------------
 
     /**
-     * Creates an instance of {@link CombinedResourceInputStream} based on the given resources. For each resource, the
-     * {@link InputStream} will be obtained and hold in an iterable collection.
+     * Creates an instance of {@link CombinedResourceInputStream} based on the given resources. The {@link InputStream}
+     * of each resource will only be obtained when the previous one is exhausted.
      * @param resources The resources to be read.
      * @throws IOException If something fails at I/O level.
      */
     public CombinedResourceInputStream(Set<Resource> resources) throws IOException {
-        streams = new ArrayList<>();
-        String domainURL = getRequestDomainURL();
+        this.resources = resources.iterator();
+        domainURL = getRequestDomainURL();
+    }
 
-        for (Resource resource : resources) {
-            InputStream stream;
+    // Actions --------------------------------------------------------------------------------------------------------
 
-            try {
-                stream = resource.getInputStream();
+    /**
+     * For each resource, read until its {@link InputStream#read()} returns <code>-1</code>, then close it and open the
+     * {@link InputStream} of the next resource, if any available, else return <code>-1</code>.
+     */
+    @Override
+    public int read() throws IOException {
+        while (true) {
+            if (crlfIndex < CRLF.length) {
+                return CRLF[crlfIndex++];
             }
-            catch (Exception richFacesDoesNotSupportThis) {
-                logger.log(FINEST, "Ignoring thrown exception; this can only be caused by a buggy component library.", richFacesDoesNotSupportThis);
-                stream = new URL(domainURL + resource.getRequestPath()).openStream();
+
+            if (currentStream == null && !openNextStream()) {
+                return -1;
             }
 
-            streams.add(stream);
-            streams.add(new ByteArrayInputStream(CRLF));
-        }
+            int read = currentStream.read();
 
-        streamIterator = streams.iterator();
+            if (read != -1) {
+                return read;
+            }
 
-        if (streamIterator.hasNext()) {
-            currentStream = streamIterator.next();
+            closeCurrentStream();
         }
     }
 
-    // Actions --------------------------------------------------------------------------------------------------------
-
     /**
-     * For each resource, read until its {@link InputStream#read()} returns <code>-1</code> and then iterate to the
+     * For each resource, read until its {@link InputStream#read()} returns <code>-1</code>, then close it and open the
      * {@link InputStream} of the next resource, if any available, else return <code>-1</code>.
      */
     @Override
-    public int read() throws IOException {
-        int read;
+    public int read(byte[] b, int offset, int length) throws IOException {
+        checkFromIndexSize(offset, length, b.length);
 
-        while ((read = currentStream.read()) == -1) {
-            if (streamIterator.hasNext()) {
-                currentStream = streamIterator.next();
+        if (length == 0) {
+            return 0;
+        }
+
+        while (true) {
+            if (crlfIndex < CRLF.length) {
+                int read = Math.min(length, CRLF.length - crlfIndex);
+                System.arraycopy(CRLF, crlfIndex, b, offset, read);
+                crlfIndex += read;
+                return read;
             }
-            else {
-                break;
+
+            if (currentStream == null && !openNextStream()) {
+                return -1;
             }
-        }
 
-        return read;
+            int read = currentStream.read(b, offset, length);
+
+            if (read != -1) {
+                return read;
+            }
+
+            closeCurrentStream();
+        }
     }
 
     /**
-     * For each resource, read until its {@link InputStream#read()} returns <code>-1</code> and then iterate to the
-     * {@link InputStream} of the next resource, if any available, else return <code>-1</code>.
+     * Transfer all remaining resources to the given output stream via {@link InputStream#transferTo(OutputStream)} of
+     * their own {@link InputStream}. The given output stream is not closed.
+     * @since 4.6
      */
     @Override
-    public int read(byte[] b, int offset, int length) throws IOException {
-        int read;
+    public long transferTo(OutputStream output) throws IOException {
+        requireNonNull(output, "output");
+        var transferred = 0L;
+
+        while (true) {
+            if (crlfIndex < CRLF.length) {
+                output.write(CRLF, crlfIndex, CRLF.length - crlfIndex);
+                transferred += CRLF.length - crlfIndex;
+                crlfIndex = CRLF.length;
+            }
 
-        while ((read = currentStream.read(b, offset, length)) == -1) {
-            if (streamIterator.hasNext()) {
-                currentStream = streamIterator.next();
+            if (currentStream != null) {
+                transferred += currentStream.transferTo(output);
+                closeCurrentStream();
+                continue;
             }
-            else {
-                break;
+
+            if (!openNextStream()) {
+                return transferred;
             }
         }
-
-        return read;
     }
 
     /**
-     * Closes the {@link InputStream} of each resource. Whenever the {@link InputStream#close()} throws an
-     * {@link IOException} for the first time, it will be caught and be thrown after all resources have been closed.
-     * Any {@link IOException} which is thrown by a subsequent close will be ignored by design.
+     * Closes the {@link InputStream} of the currently opened resource, if any. The remaining resources are not been
+     * opened at all.
      */
     @Override
     public void close() throws IOException {
-        IOException caught = null;
+        resources = emptyIterator();
+        crlfIndex = CRLF.length;
 
-        for (InputStream stream : streams) {
-            IOException e = Utils.close(stream);
+        if (currentStream != null) {
+            var stream = currentStream;
+            currentStream = null;
+            stream.close();
+        }
+    }
 
-            if (caught == null) {
-                caught = e; // Don't throw it yet. We have to continue closing all other streams.
-            }
+    // Helpers --------------------------------------------------------------------------------------------------------
+
+    private boolean openNextStream() throws IOException {
+        if (!resources.hasNext()) {
+            return false;
         }
 
-        if (caught != null) {
-            throw caught;
+        currentStream = openStream(resources.next());
+        return true;
+    }
+
+    private void closeCurrentStream() throws IOException {
+        var stream = currentStream;
+        currentStream = null;
+        crlfIndex = 0;
+        stream.close();
+    }
+
+    private InputStream openStream(Resource resource) throws IOException {
+        try {
+            return resource.getInputStream();
+        }
+        catch (Exception richFacesDoesNotSupportThis) {
+            logger.log(FINEST, "Ignoring thrown exception; this can only be caused by a buggy component library.", richFacesDoesNotSupportThis);
+            return new URL(domainURL + resource.getRequestPath()).openStream();
         }
     }
 
-}
\ No newline at end of file
+}
@@ -20,6 +20,7 @@ import static java.util.Collections.unmodifiableMap;
 import static java.util.logging.Level.FINEST;
 import static org.omnifaces.util.Beans.getManager;
 import static org.omnifaces.util.BeansLocal.getReference;
+import static org.omnifaces.util.Faces.getApplicationAttribute;
 import static org.omnifaces.util.Faces.getContext;
 import static org.omnifaces.util.Faces.getExternalContext;
 import static org.omnifaces.util.FacesLocal.createConverter;
@@ -37,6 +38,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Date;
@@ -56,6 +58,7 @@ import jakarta.faces.component.UIComponent;
 import jakarta.faces.component.UIOutput;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.convert.Converter;
+import jakarta.servlet.ServletContext;
 
 import org.omnifaces.cdi.GraphicImageBean;
 import org.omnifaces.el.ExpressionInspector;
@@ -72,12 +75,27 @@ public class GraphicResource extends DynamicResource {
 
     // Constants ------------------------------------------------------------------------------------------------------
 
+    /**
+     * The context parameter name to specify the maximum size in bytes of the server side cache of graphic images which
+     * are streamed with a <code>lastModified</code>. Defaults to 0, which means that the cache is disabled.
+     * @since 4.6
+     */
+    public static final String PARAM_NAME_CACHE_SIZE = "org.omnifaces.GRAPHIC_IMAGE_CACHE_SIZE";
+
+    /**
+     * The context parameter name to specify the directory to spill the server side cache of graphic images to when
+     * it exceeds {@link #PARAM_NAME_CACHE_SIZE}. Defaults to none, which means that evicted images are discarded.
+     * @since 4.6
+     */
+    public static final String PARAM_NAME_CACHE_DIRECTORY = "org.omnifaces.GRAPHIC_IMAGE_CACHE_DIRECTORY";
+
     private static final Logger logger = Logger.getLogger(GraphicResource.class.getName());
 
     private static final String DEFAULT_CONTENT_TYPE = "image";
     private static final Map<String, String> CONTENT_TYPES_BY_BASE64_HEADER = createContentTypesByBase64Header();
     private static final Map<String, MethodReference> ALLOWED_METHODS = new ConcurrentHashMap<>();
     private static final String[] EMPTY_PARAMS = {};
+    private static final String CACHE_ATTRIBUTE = GraphicResourceCache.class.getName();
 
     @SuppressWarnings({ "unchecked" })
     private static final Class<? extends Annotation>[] REQUIRED_ANNOTATION_TYPES = new Class[] {
@@ -115,6 +133,9 @@ public class GraphicResource extends DynamicResource {
     private static final String ERROR_INVALID_PARAMS =
         "o:graphicImage 'value' attribute must specify valid method parameters."
             + " Encountered invalid method parameters '%s'.";
+    private static final String ERROR_INVALID_CACHE_SIZE =
+        "Context parameter '" + PARAM_NAME_CACHE_SIZE + "' must be a number."
+            + " Encountered an invalid value of '%s'.";
 
     // Variables ------------------------------------------------------------------------------------------------------
 
@@ -228,8 +249,39 @@ public class GraphicResource extends DynamicResource {
         }
     }
 
+    /**
+     * An override which, when the server side cache is applicable, also checks the <code>If-None-Match</code> header
+     * against the ETag. The ETag is derived from the resource name and "last modified" timestamp, so this doesn't
+     * require the graphic image bean method to be invoked.
+     */
+    @Override
+    public boolean userAgentNeedsUpdate(FacesContext context) {
+        var ifNoneMatch = context.getExternalContext().getRequestHeaderMap().get("If-None-Match");
+
+        if (ifNoneMatch != null && getCache() != null) {
+            return !matchesETag(ifNoneMatch, getResponseHeaders().get("Etag"));
+        }
+
+        return super.userAgentNeedsUpdate(context);
+    }
+
+    /**
+     * An override which returns the content from the server side cache, if applicable, else invokes the graphic image
+     * bean method.
+     */
     @Override
     public InputStream getInputStream() throws IOException {
+        var cache = getCache();
+
+        if (cache == null) {
+            return invoke();
+        }
+
+        var key = getResourceName() + '\0' + getLastModified() + '\0' + String.join("\0", params);
+        return cache.get(key, this::invoke);
+    }
+
+    private InputStream invoke() {
         var methodReference = ALLOWED_METHODS.get(getResourceName().split("\\.", 2)[0]);
 
         Method method;
@@ -266,6 +318,36 @@ public class GraphicResource extends DynamicResource {
 
     // Helpers --------------------------------------------------------------------------------------------------------
 
+    /**
+     * Returns the server side cache of the current application, or <code>null</code> if this graphic resource is not
+     * eligible for it. That's only the case when the cache is enabled and a "last modified" timestamp is available;
+     * without it there's no way to tell when the content has changed.
+     */
+    private GraphicResourceCache getCache() {
+        return (base64 == null && getLastModified() > 0) ? getApplicationAttribute(CACHE_ATTRIBUTE) : null;
+    }
+
+    /**
+     * Returns true if the given If-None-Match header value matches the given ETag, using weak comparison.
+     */
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        var opaqueETag = stripWeakETagPrefix(etag);
+
+        for (var candidate : ifNoneMatch.split(",")) {
+            var trimmed = candidate.trim();
+
+            if ("*".equals(trimmed) || stripWeakETagPrefix(trimmed).equals(opaqueETag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String stripWeakETagPrefix(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
     /**
      * Create mapping of content types by base64 header.
      */
@@ -315,6 +397,36 @@ public class GraphicResource extends DynamicResource {
         }
     }
 
+    /**
+     * Create the server side cache of graphic images of the given servlet context, if enabled by the
+     * {@value #PARAM_NAME_CACHE_SIZE} context parameter. This is invoked by {@link org.omnifaces.ApplicationListener}
+     * when the servlet context is initialized.
+     * @param servletContext The involved servlet context.
+     * @throws IllegalArgumentException When the cache size is not a number, or when the cache directory cannot be used.
+     * @since 4.6
+     */
+    public static void createCacheIfNecessary(ServletContext servletContext) {
+        var size = servletContext.getInitParameter(PARAM_NAME_CACHE_SIZE);
+
+        if (isEmpty(size)) {
+            return;
+        }
+
+        long maxSize;
+
+        try {
+            maxSize = Long.parseLong(size.trim());
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(format(ERROR_INVALID_CACHE_SIZE, size), e);
+        }
+
+        if (maxSize > 0) {
+            var directory = servletContext.getInitParameter(PARAM_NAME_CACHE_DIRECTORY);
+            servletContext.setAttribute(CACHE_ATTRIBUTE, new GraphicResourceCache(maxSize, isEmpty(directory) ? null : Path.of(directory.trim())));
+        }
+    }
+
     /**
      * This must return an unique and URL-safe identifier of the bean+method without any periods.
      */
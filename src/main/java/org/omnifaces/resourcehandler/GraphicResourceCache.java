@@ -0,0 +1,364 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.resourcehandler;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.logging.Level.FINEST;
+import static java.util.logging.Level.WARNING;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.logging.Logger;
+
+import org.omnifaces.util.cache.ConcurrentLruCache;
+
+/**
+ * Server side cache of the content of {@link GraphicResource}s, so that the <code>@GraphicImageBean</code> method
+ * doesn't need to be invoked again for the same bean method, method parameters and "last modified" timestamp. The
+ * content is held in memory up to the given size in bytes, whereby a single content may not exceed one tenth of it.
+ * When a directory is given, then content which is evicted from memory is spilled to that directory, up to
+ * {@value #DISK_SIZE_FACTOR} times the given size. Spilling and deleting spilled content happens in the background, so
+ * that it doesn't block the request which happened to cause the eviction. Concurrent loads of the same key are
+ * collapsed into a single invocation of the bean method.
+ *
+ * @author Bauke Scholtz
+ * @since 4.6
+ * @see GraphicResource
+ */
+public final class GraphicResourceCache {
+
+    // Constants ------------------------------------------------------------------------------------------------------
+
+    private static final Logger logger = Logger.getLogger(GraphicResourceCache.class.getName());
+
+    private static final int MAX_ENTRIES = 10_000;
+    private static final int MAX_ENTRY_SIZE_DIVISOR = 10;
+    private static final int DISK_SIZE_FACTOR = 10;
+    private static final long KEEP_ALIVE_IN_SECONDS = 10;
+    private static final String FILE_EXTENSION = ".rendition";
+    private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+    private static final String THREAD_NAME = "OmniFaces-GraphicResourceCache";
+
+    private static final String ERROR_INVALID_DIRECTORY = "Cannot use '%s' as graphic image cache directory.";
+    private static final String WARNING_SPILL_FAILED = "Cannot spill graphic image to '%s'.";
+
+    // Properties -----------------------------------------------------------------------------------------------------
+
+    private final long maxEntrySize;
+    private final Map<String, byte[]> memory;
+    private final Path directory;
+    private final Executor executor;
+    private final Map<String, Spilled> disk;
+    private final ConcurrentMap<String, byte[]> spilling = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<byte[]>> loads = new ConcurrentHashMap<>();
+
+    // Constructors ---------------------------------------------------------------------------------------------------
+
+    /**
+     * Construct a graphic resource cache of the given size in bytes, optionally spilling to the given directory in a
+     * background thread which terminates itself when idle.
+     * @param size The maximum size of the memory cache in bytes.
+     * @param directory The directory to spill to, or <code>null</code> if there is none. Any previously spilled content
+     * in this directory will be deleted.
+     * @throws IllegalArgumentException When the directory cannot be created or cleaned.
+     */
+    public GraphicResourceCache(long size, Path directory) {
+        this(size, directory, directory != null ? createExecutor() : null);
+    }
+
+    /**
+     * Construct a graphic resource cache of the given size in bytes, optionally spilling to the given directory via the
+     * given executor.
+     * @param size The maximum size of the memory cache in bytes.
+     * @param directory The directory to spill to, or <code>null</code> if there is none. Any previously spilled content
+     * in this directory will be deleted.
+     * @param executor The executor to spill with. It must execute the tasks in order.
+     * @throws IllegalArgumentException When the directory cannot be created or cleaned.
+     */
+    public GraphicResourceCache(long size, Path directory, Executor executor) {
+        maxEntrySize = size / MAX_ENTRY_SIZE_DIVISOR;
+        memory = new ConcurrentLruCache<>(MAX_ENTRIES, size, (key, content) -> content.length, this::spill);
+        this.directory = directory;
+        this.executor = executor;
+
+        if (directory == null) {
+            disk = null;
+            return;
+        }
+
+        try {
+            Files.createDirectories(directory);
+
+            // Also delete temporary files which were left behind by a spill interrupted by a crash or shutdown.
+            try (var files = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION + "{,*" + TEMPORARY_FILE_EXTENSION + "}")) {
+                for (var file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(format(ERROR_INVALID_DIRECTORY, directory), e);
+        }
+
+        disk = new ConcurrentLruCache<>(MAX_ENTRIES * DISK_SIZE_FACTOR, size * DISK_SIZE_FACTOR, (key, spilled) -> spilled.length, this::delete);
+    }
+
+    private static Executor createExecutor() {
+        var executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_IN_SECONDS, SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            var thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            thread.setContextClassLoader(null); // Don't pin the class loader of the application.
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // Actions --------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the cached content of the given key, or loads it via the given loader when absent. When another thread
+     * is already loading the same key, then wait for it instead.
+     * @param key The key.
+     * @param loader The loader of the content.
+     * @return The content, or <code>null</code> if the loader returned <code>null</code>.
+     * @throws IOException When an I/O error occurs.
+     */
+    public InputStream get(String key, Loader loader) throws IOException {
+        while (true) {
+            var content = memory.get(key);
+
+            if (content != null) {
+                return new ByteArrayInputStream(content);
+            }
+
+            var load = new CompletableFuture<byte[]>();
+            var runningLoad = loads.putIfAbsent(key, load);
+
+            if (runningLoad == null) {
+                return load(key, loader, load);
+            }
+
+            try {
+                content = runningLoad.join();
+            }
+            catch (CompletionException e) {
+                continue; // Running load has failed, so try to load it ourselves.
+            }
+
+            if (content == null) {
+                return new Rendition(loader.load(), maxEntrySize).getInputStream(); // Running load was not cacheable, so load it ourselves.
+            }
+        }
+    }
+
+    private InputStream load(String key, Loader loader, CompletableFuture<byte[]> load) throws IOException {
+        try {
+            var content = memory.get(key); // Running load may have just finished before ours was registered.
+
+            if (content == null) {
+                content = readSpilled(key);
+            }
+
+            if (content == null) {
+                var rendition = new Rendition(loader.load(), maxEntrySize);
+
+                if (!rendition.isCacheable()) {
+                    load.complete(null);
+                    return rendition.getInputStream();
+                }
+
+                content = rendition.content;
+            }
+
+            memory.put(key, content);
+            load.complete(content);
+            return new ByteArrayInputStream(content);
+        }
+        catch (IOException | RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            loads.remove(key, load);
+        }
+    }
+
+    // Helpers --------------------------------------------------------------------------------------------------------
+
+    private byte[] readSpilled(String key) {
+        if (disk == null) {
+            return null;
+        }
+
+        var content = spilling.get(key);
+
+        if (content != null) {
+            return content;
+        }
+
+        var spilled = disk.get(key);
+
+        if (spilled == null) {
+            return null;
+        }
+
+        try {
+            return Files.readAllBytes(spilled.path);
+        }
+        catch (IOException ignore) {
+            logger.log(FINEST, "Ignoring thrown exception; spilled file has just been evicted.", ignore);
+            return null;
+        }
+    }
+
+    private void spill(String key, byte[] content) {
+        if (disk != null && spilling.putIfAbsent(key, content) == null) {
+            executor.execute(() -> write(key, content));
+        }
+    }
+
+    private void write(String key, byte[] content) {
+        try {
+            if (!disk.containsKey(key)) {
+                var path = directory.resolve(Base64.getUrlEncoder().withoutPadding().encodeToString(digest(key)) + FILE_EXTENSION);
+
+                try {
+                    var temporaryPath = Files.createTempFile(directory, path.getFileName().toString(), TEMPORARY_FILE_EXTENSION);
+
+                    try {
+                        Files.write(temporaryPath, content);
+                        Files.move(temporaryPath, path, REPLACE_EXISTING, ATOMIC_MOVE);
+                    }
+                    finally {
+                        Files.deleteIfExists(temporaryPath);
+                    }
+
+                    disk.put(key, new Spilled(path, content.length));
+                }
+                catch (IOException e) {
+                    logger.log(WARNING, format(WARNING_SPILL_FAILED, path), e);
+                }
+            }
+        }
+        finally {
+            spilling.remove(key, content);
+        }
+    }
+
+    private void delete(String key, Spilled spilled) {
+        try {
+            Files.deleteIfExists(spilled.path);
+        }
+        catch (IOException ignore) {
+            logger.log(FINEST, "Ignoring thrown exception; there is nothing more we could do here.", ignore);
+        }
+    }
+
+    private static byte[] digest(String key) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(key.getBytes(UTF_8));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Nested classes -------------------------------------------------------------------------------------------------
+
+    /**
+     * Loads the content of a graphic resource.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        /**
+         * Returns the content of the graphic resource.
+         * @return The content of the graphic resource, or <code>null</code> if there is none.
+         * @throws IOException When an I/O error occurs.
+         */
+        InputStream load() throws IOException;
+    }
+
+    /**
+     * The loaded content of a graphic resource. If the content exceeded the maximum entry size of the cache, then it's
+     * not cacheable and only available once as input stream.
+     */
+    private static final class Rendition {
+
+        private final byte[] content;
+        private final InputStream overflow;
+
+        private Rendition(InputStream input, long maxSize) throws IOException {
+            if (input == null) {
+                content = null;
+                overflow = null;
+                return;
+            }
+
+            var bytes = input.readNBytes((int) Math.min(maxSize + 1, Integer.MAX_VALUE - 8));
+
+            if (bytes.length > maxSize) {
+                content = null;
+                overflow = new SequenceInputStream(new ByteArrayInputStream(bytes), input);
+            }
+            else {
+                input.close();
+                content = bytes;
+                overflow = null;
+            }
+        }
+
+        private boolean isCacheable() {
+            return content != null;
+        }
+
+        private InputStream getInputStream() {
+            return content != null ? new ByteArrayInputStream(content) : overflow;
+        }
+    }
+
+    /**
+     * The path and length of a spilled content.
+     */
+    private static final class Spilled {
+
+        private final Path path;
+        private final long length;
+
+        private Spilled(Path path, long length) {
+            this.path = path;
+            this.length = length;
+        }
+    }
+
+}
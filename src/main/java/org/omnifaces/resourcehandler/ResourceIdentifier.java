@@ -17,7 +17,9 @@ import static java.util.logging.Level.WARNING;
 import static org.omnifaces.util.FacesLocal.createResource;
 import static org.omnifaces.util.Utils.toByteArray;
 
+import java.io.IOException;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.Map;
 import java.util.Objects;
@@ -159,9 +161,7 @@ public class ResourceIdentifier {
 
     private static String computeIntegrity(FacesContext context, ResourceIdentifier id) {
         try {
-            var content = toByteArray(createResource(context, id).getInputStream());
-            var sha384 = MessageDigest.getInstance("SHA-384").digest(content);
-            return "sha384-" + Base64.getEncoder().encodeToString(sha384);
+            return "sha384-" + Base64.getEncoder().encodeToString(digest(createResource(context, id)));
         }
         catch (Exception e) {
             logger.log(WARNING, format(WARNING_CANNOT_COMPUTE_INTEGRITY, id), e);
@@ -169,6 +169,18 @@ public class ResourceIdentifier {
         }
     }
 
+    /**
+     * Returns the SHA-384 digest of the content of the given resource.
+     * @param resource The resource to digest.
+     * @return The SHA-384 digest of the content of the given resource.
+     * @throws IOException When the content of the given resource cannot be read.
+     * @throws NoSuchAlgorithmException When SHA-384 is not available.
+     * @since 4.6
+     */
+    static byte[] digest(Resource resource) throws IOException, NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-384").digest(toByteArray(resource.getInputStream()));
+    }
+
     static void clearIntegrity(Predicate<String> keyPredicate) {
         INTEGRITIES.keySet().removeIf(keyPredicate::test);
     }
@@ -12,16 +12,32 @@
  */
 package org.omnifaces.resourcehandler;
 
+import static java.lang.Boolean.parseBoolean;
+import static java.lang.String.format;
 import static java.util.Optional.ofNullable;
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.logging.Level.WARNING;
 import static org.omnifaces.util.Faces.evaluateExpressionGet;
 import static org.omnifaces.util.Faces.getInitParameter;
+import static org.omnifaces.util.Faces.isDevelopment;
+import static org.omnifaces.util.FacesLocal.getRequestParameter;
+import static org.omnifaces.util.Utils.formatRFC1123;
 import static org.omnifaces.util.Utils.isBlank;
 
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
 import jakarta.faces.application.Resource;
 import jakarta.faces.application.ResourceHandler;
+import jakarta.faces.component.UIViewRoot;
+import jakarta.faces.context.FacesContext;
 
 import org.omnifaces.util.Lazy;
 import org.omnifaces.util.Utils;
+import org.omnifaces.util.cache.ConcurrentLruCache;
 
 /**
  * Automatically adds version parameter with query string name <code>v</code> to all resource URLs so that the browser
@@ -53,6 +69,27 @@ import org.omnifaces.util.Utils;
  * <p>
  * <a href="https://github.com/flowlogix/flowlogix/blob/master/jakarta-ee/jee-examples/src/main/java/com/flowlogix/examples/ui/EnvironmentInfo.java"
  * target="_blank">Example Code (GitHub)</a>
+ * <h2>Fingerprint mode</h2>
+ * <p>
+ * Since 4.6, the version parameter can instead be a fingerprint of the content of each individual resource, so that
+ * only the resources which have actually changed get a new URL after a deploy. This can be enabled as follows in
+ * <code>web.xml</code>, in which case the version parameter is ignored:
+ * <pre>
+ * {@code
+ * <context-param>
+ *     <param-name>org.omnifaces.VERSIONED_RESOURCE_HANDLER_FINGERPRINT</param-name>
+ *     <param-value>true</param-value>
+ * </context-param>
+ * }
+ * </pre>
+ * <p>
+ * The fingerprint is derived from the SHA-384 hash of the resource content, the same as used in
+ * {@link ResourceIdentifier#getIntegrity(FacesContext)}. It's computed lazily on first use and cached in a bounded
+ * cache. A resource request whose version parameter matches the current fingerprint of the resource will be served
+ * with a <code>Cache-Control: public, max-age=31536000, immutable</code> header, because its content will never change
+ * under the same URL. When the Faces project stage is <code>Development</code>, then the resources are not
+ * fingerprinted, so that changes are not stuck in the browser cache. When the fingerprint of a resource cannot be
+ * computed, then the version parameter is used instead, if any, and the fingerprint is retried on next use.
  *
  * @author Lenny Primak
  * @since 3.9
@@ -62,9 +99,27 @@ public class VersionedResourceHandler extends DefaultResourceHandler {
     /** The context parameter name to specify value of the version to be appended to the resource URL. */
     public static final String PARAM_NAME_VERSION = "org.omnifaces.VERSIONED_RESOURCE_HANDLER_VERSION";
 
+    /**
+     * The boolean context parameter name to specify whether the version must be a fingerprint of the resource content.
+     * @since 4.6
+     */
+    public static final String PARAM_NAME_FINGERPRINT = "org.omnifaces.VERSIONED_RESOURCE_HANDLER_FINGERPRINT";
+
+    private static final Logger logger = Logger.getLogger(VersionedResourceHandler.class.getName());
+
     private static final String XHTML_EXTENSION = ".xhtml";
     private static final String VERSION_SUFFIX = "v=";
+    private static final int FINGERPRINT_LENGTH = 16;
+    private static final int MAX_FINGERPRINTS = 1000;
+    private static final long IMMUTABLE_MAX_AGE_IN_SECONDS = DAYS.toSeconds(365);
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=" + IMMUTABLE_MAX_AGE_IN_SECONDS + ", immutable";
+
+    private static final String WARNING_CANNOT_COMPUTE_FINGERPRINT =
+        "Cannot compute fingerprint for %s; falling back to version parameter, if any";
+
     private final Lazy<String> versionString;
+    private final Lazy<Boolean> fingerprint;
+    private final Map<String, String> fingerprints = new ConcurrentLruCache<>(MAX_FINGERPRINTS);
 
     /**
      * Creates a new instance of this versioned resource handler which wraps the given resource handler.
@@ -74,11 +129,12 @@ public class VersionedResourceHandler extends DefaultResourceHandler {
     public VersionedResourceHandler(ResourceHandler wrapped) {
         super(wrapped);
         versionString = new Lazy<>(() -> ofNullable(evaluateExpressionGet(getInitParameter(PARAM_NAME_VERSION))).map(String::valueOf).map(Utils::encodeURL).orElse(null));
+        fingerprint = new Lazy<>(() -> parseBoolean(getInitParameter(PARAM_NAME_FINGERPRINT)) && !isDevelopment());
     }
 
     @Override
     public Resource decorateResource(Resource resource) {
-        if (resource == null || isBlank(versionString.get())) {
+        if (resource == null || (!fingerprint.get() && isBlank(versionString.get()))) {
             return resource;
         }
 
@@ -96,9 +152,83 @@ public class VersionedResourceHandler extends DefaultResourceHandler {
             // do not touch XHTML resources
             return resource;
         }
-        else {
-            requestPath += (requestPath.contains("?") ? '&' : '?') + VERSION_SUFFIX + versionString.get();
-            return new RemappedResource(resource, requestPath);
+        else if (fingerprint.get()) {
+            String version = getFingerprint(resource);
+
+            if (version != null) {
+                requestPath += (requestPath.contains("?") ? '&' : '?') + VERSION_SUFFIX + version;
+                return new FingerprintedResource(resource, requestPath);
+            }
+        }
+
+        if (isBlank(versionString.get())) {
+            return resource;
+        }
+
+        requestPath += (requestPath.contains("?") ? '&' : '?') + VERSION_SUFFIX + versionString.get();
+        return new RemappedResource(resource, requestPath);
+    }
+
+    /**
+     * Returns the fingerprint of the given resource, or <code>null</code> if it cannot be computed. A failure is not
+     * cached, so that it's retried next time. The cache key also covers the locale and the resource library contracts
+     * of the current request, because these may select a different resource under the same name.
+     */
+    private String getFingerprint(Resource resource) {
+        String key = resource.getLibraryName() + ":" + resource.getResourceName();
+        FacesContext context = FacesContext.getCurrentInstance();
+
+        if (context != null) {
+            UIViewRoot viewRoot = context.getViewRoot();
+            key += ":" + (viewRoot != null ? viewRoot.getLocale() : "") + ":" + context.getResourceLibraryContracts();
+        }
+
+        return fingerprints.computeIfAbsent(key, k -> computeFingerprint(resource));
+    }
+
+    private static String computeFingerprint(Resource resource) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(ResourceIdentifier.digest(resource)).substring(0, FINGERPRINT_LENGTH);
+        }
+        catch (Exception e) {
+            logger.log(WARNING, format(WARNING_CANNOT_COMPUTE_FINGERPRINT, resource), e);
+            return null;
+        }
+    }
+
+    // Nested classes -------------------------------------------------------------------------------------------------
+
+    /**
+     * Fingerprinted resource which adds immutable caching headers when the version parameter of the current resource
+     * request matches the fingerprint in the request path.
+     */
+    private static final class FingerprintedResource extends RemappedResource {
+
+        /**
+         * Used during deserialization.
+         */
+        public FingerprintedResource() {
+            // Keep default c'tor alive for Externalizable.
+        }
+
+        FingerprintedResource(Resource resource, String requestPath) {
+            super(resource, requestPath);
+        }
+
+        @Override
+        public Map<String, String> getResponseHeaders() {
+            Map<String, String> responseHeaders = super.getResponseHeaders();
+            FacesContext context = FacesContext.getCurrentInstance();
+            String version = (context != null) ? getRequestParameter(context, "v") : null;
+
+            if (version == null || !getRequestPath().endsWith(VERSION_SUFFIX + version)) {
+                return responseHeaders;
+            }
+
+            Map<String, String> immutableResponseHeaders = new HashMap<>(responseHeaders);
+            immutableResponseHeaders.put("Cache-Control", IMMUTABLE_CACHE_CONTROL);
+            immutableResponseHeaders.put("Expires", formatRFC1123(new Date(System.currentTimeMillis() + IMMUTABLE_MAX_AGE_IN_SECONDS * 1000)));
+            return immutableResponseHeaders;
         }
     }
 
@@ -12,18 +12,25 @@
  */
 package org.omnifaces.servlet;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
 
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletResponse;
 
+import org.omnifaces.io.ChunkedOutputStream;
+
 /**
  * This HTTP servlet response implementation buffers the entire response body. The buffered response body is available
  * as a byte array via the {@link #getBuffer()} method. Note that the buffered response writer will use same character
  * encoding as is been set on the response supplied to the constructor and that this way any
  * {@link ServletResponse#setCharacterEncoding(String)} calls on the included JSP/Servlet resource have thus no effect.
+ * <p>
+ * Since 4.6, the response body is buffered in pooled chunks by {@link ChunkedOutputStream}. A part of the buffered
+ * response between two markers can be obtained by {@link #getBufferAsString(String, String)} without materializing the
+ * entire buffered response as string. Invoke {@link #release()} when the buffered response is not needed anymore.
  *
  * @author Bauke Scholtz
  * @since 1.1
@@ -32,7 +39,7 @@ public class BufferedHttpServletResponse extends HttpServletResponseOutputWrappe
 
     // Properties -----------------------------------------------------------------------------------------------------
 
-    private final ByteArrayOutputStream buffer;
+    private final ChunkedOutputStream buffer;
 
     // Constructors ---------------------------------------------------------------------------------------------------
 
@@ -42,7 +49,7 @@ public class BufferedHttpServletResponse extends HttpServletResponseOutputWrappe
      */
     public BufferedHttpServletResponse(HttpServletResponse response) {
         super(response);
-        buffer = new ByteArrayOutputStream(response.getBufferSize());
+        buffer = new ChunkedOutputStream();
     }
 
     // Actions --------------------------------------------------------------------------------------------------------
@@ -69,7 +76,60 @@ public class BufferedHttpServletResponse extends HttpServletResponseOutputWrappe
      * @throws IOException When an I/O error occurs.
      */
     public String getBufferAsString() throws IOException {
-        return new String(getBuffer(), getCharacterEncoding());
+        close();
+        return buffer.toString(Charset.forName(getCharacterEncoding()));
+    }
+
+    /**
+     * Flushes and writes the buffered response to the given writer, decoded using the character encoding provided by
+     * {@link #getCharacterEncoding()}. Contrary to {@link #getBufferAsString()}, the buffered response is never
+     * materialized as a whole.
+     * @param writer The writer to write the buffered response to.
+     * @throws IOException When an I/O error occurs.
+     * @since 4.6
+     */
+    public void writeBufferTo(Writer writer) throws IOException {
+        close();
+        buffer.writeTo(writer, Charset.forName(getCharacterEncoding()));
+    }
+
+    /**
+     * Flushes and returns the part of the buffered response between the first occurrence of the given start marker and
+     * the first subsequent occurrence of the given end marker as a string which is encoded using the character encoding
+     * provided by {@link #getCharacterEncoding()}. The markers themselves are excluded.
+     * @param startMarker The start marker.
+     * @param endMarker The end marker.
+     * @return The part of the buffered response between the given markers, or <code>null</code> if either marker is
+     * not found.
+     * @throws IOException When an I/O error occurs.
+     * @since 4.6
+     */
+    public String getBufferAsString(String startMarker, String endMarker) throws IOException {
+        close();
+        var charset = Charset.forName(getCharacterEncoding());
+        var start = startMarker.getBytes(charset);
+        var startIndex = buffer.indexOf(start, 0);
+
+        if (startIndex == -1) {
+            return null;
+        }
+
+        var beginIndex = startIndex + start.length;
+        var endIndex = buffer.indexOf(endMarker.getBytes(charset), beginIndex);
+
+        if (endIndex == -1) {
+            return null;
+        }
+
+        return buffer.toString(beginIndex, endIndex, charset);
+    }
+
+    /**
+     * Returns the buffered response to the pool. The buffered response is empty afterwards.
+     * @since 4.6
+     */
+    public void release() {
+        buffer.release();
     }
 
 }
\ No newline at end of file
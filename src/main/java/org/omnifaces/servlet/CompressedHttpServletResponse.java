@@ -14,18 +14,27 @@ package org.omnifaces.servlet;
 
 import static java.lang.Boolean.FALSE;
 import static java.util.Arrays.stream;
+import static java.lang.invoke.MethodType.methodType;
 import static java.util.Collections.list;
 import static java.util.Optional.ofNullable;
+import static jakarta.servlet.http.HttpServletResponse.SC_OK;
 import static org.omnifaces.util.Reflection.invokeStaticMethod;
 import static org.omnifaces.util.Reflection.toClassOrNull;
 import static org.omnifaces.util.Utils.isOneOf;
 import static org.omnifaces.util.Utils.splitAndTrim;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -33,10 +42,15 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import org.omnifaces.io.ResettableBufferedOutputStream;
+import org.omnifaces.util.Lazy;
+import org.omnifaces.util.cache.Cache;
 
 /**
  * This HTTP servlet response wrapper will compress the response with the given algorithm when the given threshold has
  * exceeded and the response content type matches one of the given mimetypes.
+ * <p>
+ * Since 4.6, the {@link Deflater} instances of GZIP and Deflate compression output streams are pooled per compression
+ * level, so that their native memory doesn't need to be allocated and released on every compressed response.
  *
  * @author Bauke Scholtz
  * @since 4.5
@@ -45,6 +59,12 @@ public class CompressedHttpServletResponse extends HttpServletResponseOutputWrap
 
     // Public constants -----------------------------------------------------------------------------------------------
 
+    /**
+     * The compression level or window size representing the default of the compression algorithm.
+     * @since 4.6
+     */
+    public static final int DEFAULT = -1;
+
     /**
      * Available compression algorithms.
      */
@@ -64,21 +84,25 @@ public class CompressedHttpServletResponse extends HttpServletResponseOutputWrap
         ),
 
         /**
-         * It will use {@link GZIPOutputStream} as compression output stream.
+         * It will use {@link GZIPOutputStream} format as compression output stream. Since 4.6, it's a
+         * {@link DeflaterOutputStream} with a pooled {@link Deflater} which writes the GZIP header and trailer itself.
          */
         GZIP("gzip", GZIPOutputStream.class),
 
         /**
-         * It will use {@link DeflaterOutputStream} as compression output stream.
+         * It will use {@link DeflaterOutputStream} as compression output stream. Since 4.6, with a pooled
+         * {@link Deflater}.
          */
         DEFLATE("deflate", DeflaterOutputStream.class);
 
         private final String encodingDirective;
         private final Optional<Class<? extends OutputStream>> outputStreamClass;
+        private final Lazy<BrotliOutputStreamFactory> brotliOutputStreamFactory;
 
         private Algorithm(String encodingDirective, Class<? extends OutputStream>... outputStreamClasses) {
             this.encodingDirective = encodingDirective;
             this.outputStreamClass = stream(outputStreamClasses).filter(Objects::nonNull).findFirst();
+            this.brotliOutputStreamFactory = new Lazy<>(() -> new BrotliOutputStreamFactory(getOutputStreamClass()));
         }
 
         /**
@@ -106,6 +130,15 @@ public class CompressedHttpServletResponse extends HttpServletResponseOutputWrap
             return outputStreamClass.isPresent();
         }
 
+        /**
+         * Returns the highest supported compression level of this algorithm. That's 11 for Brotli and 9 for the others.
+         * @return The highest supported compression level of this algorithm.
+         * @since 4.6
+         */
+        public int getMaxLevel() {
+            return this == BROTLI ? 11 : Deflater.BEST_COMPRESSION;
+        }
+
         /**
          * Returns {@code true} if the given request accepts this algorithm.
          * @param request The involved HTTP servlet request.
@@ -125,8 +158,50 @@ public class CompressedHttpServletResponse extends HttpServletResponseOutputWrap
          */
         public OutputStream createOutputStream(HttpServletResponse response) {
             try {
-                return getOutputStreamClass().getConstructor(OutputStream.class).newInstance(response.getOutputStream());
-            } catch (Exception e) {
+                return createOutputStream(response.getOutputStream());
+            } catch (IOException e) {
+                throw new UnsupportedOperationException(e);
+            }
+        }
+
+        /**
+         * Returns an output stream which compresses using this algorithm into the given output stream.
+         * @param output The output stream to write the compressed bytes to.
+         * @return An output stream which is compressed using this algorithm.
+         * @throws UnsupportedOperationException When the output stream cannot be constructed for some reason.
+         * @since 4.6
+         */
+        public OutputStream createOutputStream(OutputStream output) {
+            return createOutputStream(output, DEFAULT, DEFAULT);
+        }
+
+        /**
+         * Returns an output stream which compresses using this algorithm with the given level and window into the given
+         * output stream.
+         * @param output The output stream to write the compressed bytes to.
+         * @param level The compression level, or {@link CompressedHttpServletResponse#DEFAULT} for the default of this
+         * algorithm. When it's higher than {@link #getMaxLevel()}, then the max level will be used.
+         * @param window The base two logarithm of the compression window size, or
+         * {@link CompressedHttpServletResponse#DEFAULT} for the default of this algorithm. This is only supported by
+         * Brotli and ignored by the others.
+         * @return An output stream which is compressed using this algorithm.
+         * @throws UnsupportedOperationException When the output stream cannot be constructed for some reason.
+         * @since 4.6
+         */
+        public OutputStream createOutputStream(OutputStream output, int level, int window) {
+            var supportedLevel = Math.max(DEFAULT, Math.min(level, getMaxLevel()));
+
+            try {
+                switch (this) {
+                    case GZIP: return new PooledGzipOutputStream(output, supportedLevel);
+                    case DEFLATE: return new PooledDeflaterOutputStream(output, supportedLevel, false);
+                    default: return brotliOutputStreamFactory.get().create(output, supportedLevel, window);
+                }
+            }
+            catch (Error e) {
+                throw e;
+            }
+            catch (Throwable e) {
                 throw new UnsupportedOperationException(e);
             }
         }
@@ -158,11 +233,16 @@ public class CompressedHttpServletResponse extends HttpServletResponseOutputWrap
     private final Algorithm algorithm;
     private final int threshold;
     private final Set<String> mimetypes;
+    private final int level;
+    private final int window;
     private long contentLength;
     private String vary;
     private boolean dontCompress;
     private boolean closing;
     private CompressThresholdOutputStream output;
+    private Cache cache;
+    private String cacheKeyPrefix;
+    private long cacheMaxEntrySize;
 
     // Constructors ---------------------------------------------------------------------------------------------------
 
@@ -174,14 +254,56 @@ public class CompressedHttpServletResponse extends HttpServletResponseOutputWrap
      * @param mimetypes The mimetypes which needs to be compressed.
      */
     public CompressedHttpServletResponse(HttpServletResponse response, Algorithm algorithm, int threshold, Set<String> mimetypes) {
+        this(response, algorithm, threshold, mimetypes, DEFAULT, DEFAULT);
+    }
+
+    /**
+     * Construct a new compressed HTTP servlet response based on the given response, algorithm, threshold, mimetypes,
+     * compression level and compression window.
+     * @param response The HTTP servlet response.
+     * @param algorithm The compression algorithm to use.
+     * @param threshold The compression buffer threshold.
+     * @param mimetypes The mimetypes which needs to be compressed.
+     * @param level The compression level, or {@link #DEFAULT} for the default of the algorithm.
+     * @param window The base two logarithm of the compression window size, or {@link #DEFAULT} for the default of the
+     * algorithm. This is only supported by Brotli.
+     * @since 4.6
+     * @see Algorithm#createOutputStream(OutputStream, int, int)
+     */
+    public CompressedHttpServletResponse(HttpServletResponse response, Algorithm algorithm, int threshold, Set<String> mimetypes, int level, int window) {
         super(response);
         this.algorithm = algorithm;
         this.threshold = threshold;
         this.mimetypes = mimetypes;
+        this.level = level;
+        this.window = window;
     }
 
     // Actions --------------------------------------------------------------------------------------------------------
 
+    /**
+     * Cache the compressed body of this response in the given cache when the response explicitly declares itself
+     * cacheable, and serve the compressed body from the given cache when it's already present in there. The response
+     * declares itself cacheable when it has a status of 200, a <code>Cache-Control</code> header with
+     * <code>public</code>, <code>immutable</code> or a positive <code>max-age</code> and without <code>private</code>,
+     * <code>no-cache</code> or <code>no-store</code>, an <code>ETag</code> or <code>Last-Modified</code> header, no
+     * <code>Set-Cookie</code> header and no <code>Vary</code> header other than <code>Accept-Encoding</code>.
+     * <p>
+     * The cache key is composed of the given request URI, the <code>ETag</code> or else the <code>Last-Modified</code>
+     * header, and the algorithm. The application is responsible for changing the <code>ETag</code> or
+     * <code>Last-Modified</code> header whenever the response body changes. When the compressed body is served from
+     * the cache, the compression is skipped and the body written by the application is discarded.
+     * @param cache The cache to store the compressed bodies in.
+     * @param requestURI The request URI, including the query string, if any.
+     * @param maxEntrySize The maximum size in bytes of a compressed body in order to be cached.
+     * @since 4.6
+     */
+    public void setCache(Cache cache, String requestURI, long maxEntrySize) {
+        this.cache = cache;
+        this.cacheKeyPrefix = requestURI + " ";
+        this.cacheMaxEntrySize = maxEntrySize;
+    }
+
     @Override
     public void setContentLength(int contentLength) {
         setContentLengthLong(contentLength);
@@ -209,6 +331,9 @@ public class CompressedHttpServletResponse extends HttpServletResponseOutputWrap
             else if ("cache-control".equals(lowerCasedName)) {
                 dontCompress = (value != null && isCacheControlNoTransform(value));
             }
+            else if ("content-encoding".equals(lowerCasedName)) {
+                dontCompress = (value != null); // Already compressed by the application itself.
+            }
         }
     }
 
@@ -228,6 +353,9 @@ public class CompressedHttpServletResponse extends HttpServletResponseOutputWrap
             else if ("cache-control".equals(lowerCasedName)) {
                 dontCompress = (dontCompress || isCacheControlNoTransform(value));
             }
+            else if ("content-encoding".equals(lowerCasedName)) {
+                dontCompress = true;
+            }
         }
     }
 
@@ -235,6 +363,32 @@ public class CompressedHttpServletResponse extends HttpServletResponseOutputWrap
         return splitAndTrim(value.toLowerCase(), ",").anyMatch("no-transform"::equals);
     }
 
+    /**
+     * Returns the cache key of the compressed body, or <code>null</code> if the response may not be cached.
+     */
+    private String getCacheKey() {
+        if (cache == null || getStatus() != SC_OK || getHeader("Set-Cookie") != null) {
+            return null;
+        }
+
+        if (vary != null && !splitAndTrim(vary.toLowerCase(), ",").allMatch("accept-encoding"::equals)) {
+            return null;
+        }
+
+        var cacheControl = getHeaders("Cache-Control").stream()
+                .flatMap(value -> splitAndTrim(value.toLowerCase(), ","))
+                .toArray(String[]::new);
+
+        if (stream(cacheControl).anyMatch(directive -> directive.startsWith("private") || directive.startsWith("no-cache") || "no-store".equals(directive))
+            || stream(cacheControl).noneMatch(directive -> isOneOf(directive, "public", "immutable") || directive.matches("(s-)?max-age=0*[1-9][0-9]*")))
+        {
+            return null;
+        }
+
+        var validator = ofNullable(getHeader("ETag")).orElseGet(() -> getHeader("Last-Modified"));
+        return validator != null ? cacheKeyPrefix + validator + " " + algorithm.getEncodingDirective() : null;
+    }
+
     @Override
     public void flushBuffer() throws IOException {
         if (isCommitted()) {
@@ -292,9 +446,9 @@ public class CompressedHttpServletResponse extends HttpServletResponseOutputWrap
 
         /**
          * Create compressed output stream if necessary. That is, when the given <code>doCompress</code> argument is
-         * <code>true</code>, the current response does not have the <code>Cache-Control: no-transform</code> or
-         * <code>Content-Range</code> headers, the current response is not committed, the content type is not
-         * <code>null</code> and the content type matches one of the mimetypes.
+         * <code>true</code>, the current response does not have the <code>Cache-Control: no-transform</code>,
+         * <code>Content-Range</code> or <code>Content-Encoding</code> headers, the current response is not committed,
+         * the content type is not <code>null</code> and the content type matches one of the mimetypes.
          */
         @Override
         public OutputStream createOutputStream(boolean doCompress) throws IOException {
@@ -304,9 +458,23 @@ public class CompressedHttpServletResponse extends HttpServletResponseOutputWrap
                 String contentType = getContentType();
 
                 if (contentType != null && mimetypes.contains(contentType.split(";", 2)[0])) {
+                    String cacheKey = getCacheKey();
                     addHeader("Content-Encoding", algorithm.getEncodingDirective());
                     setHeader("Vary", (!isOneOf(vary, null, "*") ? (vary + ",") : "") + "Accept-Encoding");
-                    return algorithm.createOutputStream(originalResponse);
+
+                    if (cacheKey == null) {
+                        return algorithm.createOutputStream(originalResponse.getOutputStream(), level, window);
+                    }
+
+                    byte[] cached = (byte[]) cache.getObject(cacheKey);
+
+                    if (cached == null) {
+                        return new CachingOutputStream(originalResponse.getOutputStream(), cacheKey);
+                    }
+
+                    originalResponse.setContentLengthLong(cached.length);
+                    originalResponse.getOutputStream().write(cached);
+                    return new DiscardingOutputStream(originalResponse.getOutputStream());
                 }
             }
 
@@ -321,4 +489,328 @@ public class CompressedHttpServletResponse extends HttpServletResponseOutputWrap
             return originalResponse.getOutputStream();
         }
     }
+
+    /**
+     * This output stream compresses the body and writes the compressed body to both the response and a buffer. The
+     * buffer is only put in the cache when the compressed body has been completely finished and closed without any
+     * failure, and when it didn't exceed the maximum entry size. Any failure along the way discards the buffer, so
+     * that a truncated body never ends up in the cache.
+     *
+     * @author Bauke Scholtz
+     * @since 4.6
+     */
+    private class CachingOutputStream extends OutputStream {
+
+        private final String cacheKey;
+        private final OutputStream compressed;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        public CachingOutputStream(OutputStream output, String cacheKey) throws IOException {
+            this.cacheKey = cacheKey;
+            compressed = algorithm.createOutputStream(new BufferingOutputStream(output), level, window);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            try {
+                compressed.write(bytes, offset, length);
+            }
+            catch (IOException | RuntimeException e) {
+                buffer = null;
+                throw e;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                compressed.flush();
+            }
+            catch (IOException | RuntimeException e) {
+                buffer = null;
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                compressed.close();
+            }
+            catch (IOException | RuntimeException e) {
+                buffer = null;
+                throw e;
+            }
+
+            if (buffer != null) {
+                cache.putObject(cacheKey, buffer.toByteArray());
+                buffer = null;
+            }
+        }
+
+        /**
+         * This output stream writes the compressed body to both the response and the buffer, until the buffer would
+         * exceed the maximum entry size.
+         */
+        private class BufferingOutputStream extends OutputStream {
+
+            private final OutputStream output;
+
+            public BufferingOutputStream(OutputStream output) {
+                this.output = output;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                output.write(bytes, offset, length);
+
+                if (buffer != null) {
+                    if (buffer.size() + length > cacheMaxEntrySize) {
+                        buffer = null;
+                    }
+                    else {
+                        buffer.write(bytes, offset, length);
+                    }
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                output.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * This output stream discards the body written by the application, because the compressed body is already served
+     * from the cache.
+     *
+     * @author Bauke Scholtz
+     * @since 4.6
+     */
+    private static class DiscardingOutputStream extends OutputStream {
+
+        private final OutputStream output;
+
+        public DiscardingOutputStream(OutputStream output) {
+            this.output = output;
+        }
+
+        @Override
+        public void write(int b) {
+            // NOOP.
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            // NOOP.
+        }
+
+        @Override
+        public void flush() throws IOException {
+            output.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+    }
+
+    // Nested classes -------------------------------------------------------------------------------------------------
+
+    /**
+     * Pool of {@link Deflater} instances per compression level and format. The amount of pooled instances per level and
+     * format is limited to twice the amount of available processors, any excess will be ended immediately.
+     */
+    private static final class DeflaterPool {
+
+        private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+        private static final BlockingQueue<?>[] POOLS = new BlockingQueue<?>[(Deflater.BEST_COMPRESSION + 2) * 2];
+
+        static {
+            for (var i = 0; i < POOLS.length; i++) {
+                POOLS[i] = new ArrayBlockingQueue<Deflater>(POOL_SIZE);
+            }
+        }
+
+        private DeflaterPool() {
+            // Hide constructor.
+        }
+
+        static Deflater borrow(int level, boolean nowrap) {
+            var deflater = getPool(level, nowrap).poll();
+            return deflater != null ? deflater : new Deflater(level, nowrap);
+        }
+
+        static void release(Deflater deflater, int level, boolean nowrap) {
+            deflater.reset();
+
+            if (!getPool(level, nowrap).offer(deflater)) {
+                deflater.end();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static BlockingQueue<Deflater> getPool(int level, boolean nowrap) {
+            return (BlockingQueue<Deflater>) POOLS[(level - Deflater.DEFAULT_COMPRESSION) * 2 + (nowrap ? 1 : 0)];
+        }
+    }
+
+    /**
+     * Deflater output stream which borrows its {@link Deflater} from the {@link DeflaterPool} and releases it on close.
+     * Any attempt to write after close will throw an {@link IOException}, as the deflater may then already be in use by
+     * another stream.
+     */
+    private static class PooledDeflaterOutputStream extends DeflaterOutputStream {
+
+        private static final String ERROR_CLOSED = "Stream is already closed.";
+
+        private final int level;
+        private final boolean nowrap;
+        private boolean released;
+
+        PooledDeflaterOutputStream(OutputStream output, int level, boolean nowrap) {
+            super(output, DeflaterPool.borrow(level, nowrap));
+            this.level = level;
+            this.nowrap = nowrap;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            checkReleased();
+            super.write(bytes, offset, length);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            checkReleased();
+            super.finish();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (released) {
+                return;
+            }
+
+            try {
+                super.close();
+            }
+            finally {
+                released = true;
+                DeflaterPool.release(def, level, nowrap);
+            }
+        }
+
+        private void checkReleased() throws IOException {
+            if (released) {
+                throw new IOException(ERROR_CLOSED);
+            }
+        }
+    }
+
+    /**
+     * Pooled deflater output stream which writes the same GZIP header and trailer as {@link GZIPOutputStream} around
+     * the raw deflated bytes.
+     */
+    private static final class PooledGzipOutputStream extends PooledDeflaterOutputStream {
+
+        private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+        private final CRC32 crc = new CRC32();
+
+        PooledGzipOutputStream(OutputStream output, int level) throws IOException {
+            super(output, level, true);
+            out.write(HEADER);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            super.write(bytes, offset, length);
+            crc.update(bytes, offset, length);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!def.finished()) {
+                super.finish();
+                var crcValue = (int) crc.getValue();
+                var size = (int) def.getBytesRead();
+                out.write(new byte[] {
+                    (byte) crcValue, (byte) (crcValue >> 8), (byte) (crcValue >> 16), (byte) (crcValue >> 24),
+                    (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24)
+                });
+            }
+        }
+    }
+
+    /**
+     * Creates Brotli output streams via cached constructor handles, as the Brotli libraries are optional. The level
+     * and window are set via the <code>Encoder.Parameters</code> class of the Brotli library, if it's available.
+     */
+    private static final class BrotliOutputStreamFactory {
+
+        private final MethodHandle constructor;
+        private MethodHandle parametersConstructor;
+        private MethodHandle setQuality;
+        private MethodHandle setWindow;
+        private MethodHandle constructorWithParameters;
+
+        BrotliOutputStreamFactory(Class<? extends OutputStream> outputStreamClass) {
+            var lookup = MethodHandles.publicLookup();
+
+            try {
+                constructor = lookup.findConstructor(outputStreamClass, methodType(void.class, OutputStream.class))
+                    .asType(methodType(OutputStream.class, OutputStream.class));
+            }
+            catch (ReflectiveOperationException e) {
+                throw new UnsupportedOperationException(e);
+            }
+
+            try {
+                var parametersClass = Class.forName(outputStreamClass.getPackageName() + ".Encoder$Parameters", true, outputStreamClass.getClassLoader());
+                parametersConstructor = lookup.findConstructor(parametersClass, methodType(void.class));
+                setQuality = lookup.findVirtual(parametersClass, "setQuality", methodType(parametersClass, int.class));
+                setWindow = lookup.findVirtual(parametersClass, "setWindow", methodType(parametersClass, int.class));
+                constructorWithParameters = lookup.findConstructor(outputStreamClass, methodType(void.class, OutputStream.class, parametersClass));
+            }
+            catch (ReflectiveOperationException | LinkageError ignore) {
+                constructorWithParameters = null; // Level and window are then not supported by this Brotli library.
+            }
+        }
+
+        OutputStream create(OutputStream output, int level, int window) throws Throwable {
+            if (constructorWithParameters == null || (level == DEFAULT && window == DEFAULT)) {
+                return (OutputStream) constructor.invokeExact(output);
+            }
+
+            var parameters = parametersConstructor.invoke();
+
+            if (level != DEFAULT) {
+                setQuality.invoke(parameters, level);
+            }
+
+            if (window != DEFAULT) {
+                setWindow.invoke(parameters, window);
+            }
+
+            return (OutputStream) constructorWithParameters.invoke(output, parameters);
+        }
+    }
 }
\ No newline at end of file
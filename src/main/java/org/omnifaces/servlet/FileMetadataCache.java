@@ -0,0 +1,225 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.servlet;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.logging.Level.FINEST;
+import static java.util.logging.Level.WARNING;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import org.omnifaces.util.cache.ConcurrentLruCache;
+
+/**
+ * <p>
+ * Bounded cache of file metadata which is kept up to date by a {@link WatchService} on the parent directories of the
+ * cached files. Any create, modify or delete event in such directory invalidates the cached metadata of the affected
+ * file. If the file system does not support watching, then nothing is cached at all, because there would be no way to
+ * find out whether the cached metadata is stale.
+ * <p>
+ * The amount of watched directories is bounded by the maximum size of the cache as well. When a directory is evicted
+ * as least recently used, then its registration at the {@link WatchService} is cancelled and the cached metadata of
+ * all files in that directory is forgotten.
+ * <p>
+ * The watcher thread is a daemon thread which is lazily started on the first cached file and stopped by
+ * {@link #close()}.
+ *
+ * @author Bauke Scholtz
+ * @param <V> The generic metadata type.
+ * @since 4.6
+ * @see FileServlet#getMetadataCacheSize()
+ */
+final class FileMetadataCache<V> implements Closeable {
+
+    // Constants ------------------------------------------------------------------------------------------------------
+
+    private static final Logger logger = Logger.getLogger(FileMetadataCache.class.getName());
+
+    private static final String THREAD_NAME = "OmniFaces-FileMetadataCache";
+    private static final String WARNING_WATCH_SERVICE_UNAVAILABLE =
+        "Cannot watch directory '%s' for changes; file metadata in this directory will not be cached.";
+
+    // Properties -----------------------------------------------------------------------------------------------------
+
+    private final ConcurrentLruCache<String, V> entries;
+    private final ConcurrentLruCache<Path, Optional<WatchKey>> watchedDirectories; // Empty when it cannot be watched.
+    private final AtomicLong invalidations = new AtomicLong();
+    private WatchService watchService;
+    private boolean closed;
+
+    // Constructors ---------------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a file metadata cache with the given maximum size.
+     * @param maximumSize The maximum amount of files whose metadata is cached.
+     * @throws IllegalArgumentException When maximum size is less than 2.
+     */
+    FileMetadataCache(int maximumSize) {
+        entries = new ConcurrentLruCache<>(maximumSize);
+        watchedDirectories = new ConcurrentLruCache<>(maximumSize, this::unwatch);
+    }
+
+    // Actions --------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the cached metadata of the given file, or loads it via the given loader if not cached. The loaded
+     * metadata is only cached when it's not <code>null</code> and the parent directory of the file could be watched.
+     * @param file The file.
+     * @param loader The loader of the metadata of the file, which may return <code>null</code> when the file does not
+     * exist. Such result is never cached.
+     * @return The cached or loaded metadata of the given file.
+     */
+    V get(Path file, Function<Path, V> loader) {
+        var path = file.toAbsolutePath().normalize();
+        var key = path.toString();
+        var value = entries.get(key);
+
+        if (value != null) {
+            watchedDirectories.get(path.getParent()); // Keep the watch of a frequently used directory alive.
+            return value;
+        }
+
+        var watched = watch(path.getParent());
+        var version = invalidations.get();
+        value = loader.apply(path);
+
+        if (value != null && watched && invalidations.get() == version) {
+            entries.put(key, value); // Only if no change was reported while loading, else it's possibly already stale.
+        }
+
+        return value;
+    }
+
+    /**
+     * Stop the watcher thread and forget all cached metadata.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+
+        if (watchService != null) {
+            try {
+                watchService.close();
+            }
+            catch (IOException ignore) {
+                logger.log(FINEST, "Ignoring thrown exception; it is closing anyway.", ignore);
+            }
+
+            watchService = null;
+        }
+
+        watchedDirectories.clear(); // The keys are already cancelled by closing the watch service.
+        entries.clear();
+    }
+
+    // Helpers --------------------------------------------------------------------------------------------------------
+
+    /**
+     * Start watching the given directory if not already done. Returns false if it cannot be watched.
+     */
+    private boolean watch(Path directory) {
+        if (directory == null) {
+            return false;
+        }
+
+        var watched = watchedDirectories.get(directory);
+
+        if (watched != null) {
+            return watched.isPresent();
+        }
+
+        synchronized (this) {
+            return !closed && watchedDirectories.computeIfAbsent(directory, this::register).isPresent();
+        }
+    }
+
+    private Optional<WatchKey> register(Path directory) {
+        try {
+            if (watchService == null) {
+                var service = directory.getFileSystem().newWatchService();
+                var thread = new Thread(() -> processEvents(service), THREAD_NAME);
+                thread.setDaemon(true);
+                thread.start();
+                watchService = service;
+            }
+
+            return Optional.of(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+        }
+        catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            logger.log(WARNING, format(WARNING_WATCH_SERVICE_UNAVAILABLE, directory), e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stop watching the given evicted directory and forget the cached metadata of all files in it, because changes
+     * to them will not be reported anymore.
+     */
+    private void unwatch(Path directory, Optional<WatchKey> watchKey) {
+        watchKey.ifPresent(WatchKey::cancel);
+        invalidations.incrementAndGet(); // Must be done before removal, see get().
+        forget(directory);
+    }
+
+    private void forget(Path directory) {
+        entries.keySet().stream().filter(path -> directory.equals(Path.of(path).getParent())).forEach(entries::remove);
+    }
+
+    private void processEvents(WatchService service) {
+        while (true) {
+            try {
+                var key = service.take();
+                var directory = (Path) key.watchable();
+
+                for (var event : key.pollEvents()) {
+                    invalidations.incrementAndGet(); // Must be done before removal, see get().
+
+                    if (event.kind() == OVERFLOW) {
+                        entries.clear();
+                    }
+                    else {
+                        entries.remove(directory.resolve((Path) event.context()).toString());
+                    }
+                }
+
+                if (!key.reset()) { // Directory is not accessible anymore, or its key has been cancelled.
+                    invalidations.incrementAndGet();
+                    watchedDirectories.remove(directory, Optional.of(key)); // Not a new key of the same directory.
+                    forget(directory);
+                }
+            }
+            catch (ClosedWatchServiceException ignore) {
+                logger.log(FINEST, "Ignoring thrown exception; it is closed.", ignore);
+                return;
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+}
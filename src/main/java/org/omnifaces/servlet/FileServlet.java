@@ -13,7 +13,13 @@
 package org.omnifaces.servlet;
 
 import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.FINEST;
+import static java.util.logging.Level.WARNING;
+import static org.omnifaces.servlet.CompressedHttpServletResponse.Algorithm.BROTLI;
+import static org.omnifaces.servlet.CompressedHttpServletResponse.Algorithm.GZIP;
 import static org.omnifaces.util.Servlets.formatContentDispositionHeader;
 import static org.omnifaces.util.Utils.coalesce;
 import static org.omnifaces.util.Utils.encodeURL;
@@ -24,21 +30,32 @@ import static org.omnifaces.util.Utils.stream;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequestWrapper;
+import jakarta.servlet.ServletResponseWrapper;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import org.omnifaces.filter.CompressedResponseFilter;
+import org.omnifaces.servlet.CompressedHttpServletResponse.Algorithm;
 import org.omnifaces.util.Servlets;
+import org.omnifaces.util.cache.ConcurrentLruCache;
 
 /**
  * <p>
@@ -102,8 +119,42 @@ import org.omnifaces.util.Servlets;
  * <li>{@link #getContentType(HttpServletRequest, File)}
  * <li>{@link #isAttachment(HttpServletRequest, String)}
  * <li>{@link #getAttachmentName(HttpServletRequest, File)}
+ * <li>{@link #getMetadataCacheSize()}
+ * <li>{@link #isPrecompressed(HttpServletRequest, File)}
+ * <li>{@link #isGeneratePrecompressed(HttpServletRequest, String)}
  * </ul>
  *
+ * <h2>Precompressed files</h2>
+ * <p>
+ * When {@link #isPrecompressed(HttpServletRequest, File)} is overridden to return <code>true</code>, then the servlet
+ * will serve the sibling file with the <code>.br</code> or <code>.gz</code> extension, e.g. <code>foo.js.br</code> or
+ * <code>foo.js.gz</code> for <code>foo.js</code>, with the appropriate <code>Content-Encoding</code> header, provided
+ * that the client accepts the encoding and that the sibling file is not older than the original file. The
+ * <code>Content-Type</code> and the <code>Content-Disposition</code> are still based on the original file. The ETag is
+ * based on the sibling file, so every encoding gets its own ETag, and ranging requests are applied on the encoded bytes.
+ * The {@link CompressedResponseFilter} will then not compress it once again.
+ * <p>
+ * When {@link #isGeneratePrecompressed(HttpServletRequest, String)} is additionally overridden to return
+ * <code>true</code> for the content type of the original file, then the missing or stale sibling files will be generated
+ * in a background thread the first time the file is requested with an accepted encoding. Brotli sibling files can only
+ * be generated when Brotli is available as per {@link Algorithm#isAvailable()}. Sibling files which turn out to be not
+ * smaller than the original file are not written. This requires write access to the directory of the original file.
+ *
+ * <h2>High throughput mode</h2>
+ * <p>
+ * By default, the metadata of the file (existence, length and last modified timestamp) is obtained from the file system
+ * on every request. When {@link #getMetadataCacheSize()} is overridden to return a value greater than 1, then the
+ * servlet runs in "high throughput" mode. The metadata and the ETag of the most recently served files will then be
+ * cached in a bounded LRU cache. The cache is kept up to date by a {@link java.nio.file.WatchService} on the parent
+ * directories of the served files. Beware that on some platforms the watch service is implemented by polling and may
+ * thus report changes with a delay of several seconds. Files in directories which cannot be watched are never cached.
+ *
+ * <h2>Sendfile</h2>
+ * <p>
+ * When the servlet container is Tomcat and its connector supports sendfile, then a single range of at least 48 KB is
+ * handed over to the container, which transfers it straight from the file system to the socket. Otherwise, or when the
+ * request or response is wrapped, e.g. by {@link CompressedResponseFilter}, the file is streamed via a pooled buffer.
+ *
  * <p><strong>See also</strong>:
  * <ul>
  * <li><a href="https://stackoverflow.com/q/13588149/157882">How to stream audio/video files such as MP3, MP4, AVI, etc using a Servlet</a>
@@ -125,6 +176,23 @@ public abstract class FileServlet extends HttpServlet {
     private static final String ETAG = "W/\"%s-%s\"";
     private static final Pattern RANGE_PATTERN = Pattern.compile("^bytes=[0-9]*-[0-9]*(,[0-9]*-[0-9]*)*+$");
     private static final String MULTIPART_BOUNDARY = UUID.randomUUID().toString();
+    private static final Map<Algorithm, String> PRECOMPRESSED_EXTENSIONS = Map.of(BROTLI, ".br", GZIP, ".gz");
+    private static final Algorithm[] PRECOMPRESSED_ALGORITHMS = { BROTLI, GZIP };
+    private static final int MAX_GENERATE_PRECOMPRESSED_ATTEMPTS = 1000;
+    private static final String ATTRIBUTE_SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String ATTRIBUTE_SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String ATTRIBUTE_SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String ATTRIBUTE_SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final long MIN_SENDFILE_LENGTH = 48 * 1024L; // Same as default sendfileSize of Tomcat's DefaultServlet.
+    private static final String THREAD_NAME_GENERATE_PRECOMPRESSED = "OmniFaces-FileServlet-GeneratePrecompressed";
+    private static final String WARNING_GENERATE_PRECOMPRESSED_FAILED = "Generating precompressed file '%s' has failed.";
+
+    // Properties -----------------------------------------------------------------------------------------------------
+
+    private transient volatile FileMetadataCache<Resource> metadataCache;
+    private transient volatile boolean metadataCacheInitialized;
+    private transient volatile ExecutorService precompressedGenerator;
+    private transient volatile ConcurrentLruCache<String, Long> precompressedGenerateAttempts;
 
     // Actions --------------------------------------------------------------------------------------------------------
 
@@ -140,10 +208,10 @@ public abstract class FileServlet extends HttpServlet {
 
     private void doRequest(HttpServletRequest request, HttpServletResponse response, boolean head) throws IOException {
         response.reset();
-        Resource resource;
+        Resource identity;
 
         try {
-            resource = new Resource(getFile(request));
+            identity = getResource(getFile(request));
         }
         catch (IllegalArgumentException e) {
             logger.log(FINE, "Got an IllegalArgumentException from user code; interpreting it as 400 Bad Request.", e);
@@ -151,17 +219,25 @@ public abstract class FileServlet extends HttpServlet {
             return;
         }
 
-        if (resource.file == null) {
+        if (identity.file == null) {
             handleFileNotFound(request, response);
             return;
         }
 
+        var file = identity.file;
+        var resource = identity;
+
+        if (isPrecompressed(request, file)) {
+            response.setHeader("Vary", "Accept-Encoding");
+            resource = getPrecompressedResource(request, identity);
+        }
+
         if (preconditionFailed(request, resource)) {
             response.sendError(HttpServletResponse.SC_PRECONDITION_FAILED);
             return;
         }
 
-        setCacheHeaders(response, resource, getExpireTime(request, resource.file));
+        setCacheHeaders(response, resource, getExpireTime(request, file));
 
         if (notModified(request, resource)) {
             response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
@@ -183,13 +259,34 @@ public abstract class FileServlet extends HttpServlet {
             ranges.add(new Range(0, resource.length - 1)); // Full content.
         }
 
-        var contentType = setContentHeaders(request, response, resource, ranges);
+        var contentType = setContentHeaders(request, response, file, resource, ranges);
 
         if (head) {
             return;
         }
 
-        writeContent(response, resource, ranges, contentType);
+        writeContent(request, response, resource, ranges, contentType);
+    }
+
+    /**
+     * Stops watching the served directories and generating precompressed files, if any.
+     * @since 4.6
+     */
+    @Override
+    public void destroy() {
+        var cache = metadataCache;
+
+        if (cache != null) {
+            cache.close();
+        }
+
+        var generator = precompressedGenerator;
+
+        if (generator != null) {
+            generator.shutdownNow();
+        }
+
+        super.destroy();
     }
 
     /**
@@ -273,8 +370,147 @@ public abstract class FileServlet extends HttpServlet {
         return file.getName();
     }
 
+    /**
+     * Returns the maximum amount of files whose metadata must be cached. When this returns a value greater than 1, then
+     * the servlet runs in "high throughput" mode as described in the class documentation. This method is invoked only
+     * once, during the first request.
+     * <p>
+     * The default implementation returns 0, meaning that the servlet does not run in "high throughput" mode.
+     * @return The maximum amount of files whose metadata must be cached.
+     * @since 4.6
+     */
+    protected int getMetadataCacheSize() {
+        return 0;
+    }
+
+    /**
+     * Returns <code>true</code> if a precompressed sibling file of the given file must be served when available, as
+     * described in the class documentation.
+     * <p>
+     * The default implementation returns <code>false</code>.
+     * @param request The involved HTTP servlet request.
+     * @param file The involved file.
+     * @return <code>true</code> if a precompressed sibling file of the given file must be served when available.
+     * @since 4.6
+     */
+    protected boolean isPrecompressed(HttpServletRequest request, File file) {
+        return false;
+    }
+
+    /**
+     * Returns <code>true</code> if a missing or stale precompressed sibling file must be generated in background for a
+     * file with the given content type as obtained from {@link #getContentType(HttpServletRequest, File)}. This is only
+     * invoked when {@link #isPrecompressed(HttpServletRequest, File)} returns <code>true</code>. Generally, you'd only
+     * want to return <code>true</code> for textual content types, such as <code>text/*</code>,
+     * <code>application/javascript</code>, <code>application/json</code> and <code>image/svg+xml</code>, because other
+     * content types are usually already compressed.
+     * <p>
+     * The default implementation returns <code>false</code>.
+     * @param request The involved HTTP servlet request.
+     * @param contentType The content type of the involved file.
+     * @return <code>true</code> if a missing or stale precompressed sibling file must be generated in background.
+     * @since 4.6
+     */
+    protected boolean isGeneratePrecompressed(HttpServletRequest request, String contentType) {
+        return false;
+    }
+
     // Sub-actions ----------------------------------------------------------------------------------------------------
 
+    /**
+     * Returns the resource of the given file, if necessary from the metadata cache.
+     */
+    private Resource getResource(File file) {
+        var cache = getMetadataCache();
+
+        if (file == null || cache == null) {
+            return new Resource(file);
+        }
+
+        var resource = cache.get(file.toPath(), Resource::load);
+        return resource != null ? resource : new Resource(null);
+    }
+
+    /**
+     * Returns the resource of the precompressed sibling file of the given identity resource which is accepted by the
+     * given request and is not older than the identity resource, else the identity resource itself. If a sibling file
+     * is missing or stale, then generate it in background if necessary.
+     */
+    private Resource getPrecompressedResource(HttpServletRequest request, Resource identity) {
+        Boolean generate = null;
+
+        for (var algorithm : PRECOMPRESSED_ALGORITHMS) {
+            if (!acceptsEncoding(request, algorithm.getEncodingDirective())) {
+                continue;
+            }
+
+            var precompressed = getResource(getPrecompressedFile(identity.file, algorithm));
+
+            if (precompressed.file != null && precompressed.lastModified >= identity.lastModified) {
+                return new Resource(precompressed, algorithm);
+            }
+
+            if (generate == null) {
+                generate = isGeneratePrecompressed(request, getContentType(request, identity.file));
+            }
+
+            if (generate && algorithm.isAvailable()) {
+                generatePrecompressed(identity, algorithm);
+            }
+        }
+
+        return identity;
+    }
+
+    /**
+     * Generate the precompressed sibling file of the given identity resource with the given algorithm in background,
+     * unless it has already been attempted for the current version of the identity resource.
+     */
+    private void generatePrecompressed(Resource identity, Algorithm algorithm) {
+        synchronized (this) {
+            if (precompressedGenerator == null) {
+                precompressedGenerateAttempts = new ConcurrentLruCache<>(MAX_GENERATE_PRECOMPRESSED_ATTEMPTS);
+                precompressedGenerator = Executors.newSingleThreadExecutor(runnable -> {
+                    var thread = new Thread(runnable, THREAD_NAME_GENERATE_PRECOMPRESSED);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+
+        var precompressedFile = getPrecompressedFile(identity.file, algorithm);
+
+        if (Objects.equals(precompressedGenerateAttempts.put(precompressedFile.getPath(), identity.lastModified), identity.lastModified)) {
+            return; // Already attempted for this version, e.g. because it turned out to be not smaller.
+        }
+
+        precompressedGenerator.execute(() -> {
+            try {
+                writePrecompressedFile(identity.file, precompressedFile, algorithm);
+            }
+            catch (Exception e) {
+                logger.log(WARNING, format(WARNING_GENERATE_PRECOMPRESSED_FAILED, precompressedFile), e);
+            }
+        });
+    }
+
+    /**
+     * Returns the metadata cache, or null if not in high throughput mode.
+     */
+    private FileMetadataCache<Resource> getMetadataCache() {
+        if (!metadataCacheInitialized) {
+            synchronized (this) {
+                if (!metadataCacheInitialized) {
+                    var size = getMetadataCacheSize();
+                    metadataCache = size > 1 ? new FileMetadataCache<>(size) : null;
+                    metadataCacheInitialized = true;
+                }
+            }
+        }
+
+        return metadataCache;
+    }
+
     /**
      * Returns true if it's a conditional request which must return 412.
      */
@@ -370,13 +606,17 @@ public abstract class FileServlet extends HttpServlet {
     /**
      * Set content headers.
      */
-    private String setContentHeaders(HttpServletRequest request, HttpServletResponse response, Resource resource, List<Range> ranges) {
-        var contentType = getContentType(request, resource.file);
-        var filename = getAttachmentName(request, resource.file);
+    private String setContentHeaders(HttpServletRequest request, HttpServletResponse response, File file, Resource resource, List<Range> ranges) {
+        var contentType = getContentType(request, file);
+        var filename = getAttachmentName(request, file);
         var attachment = isAttachment(request, contentType);
         response.setHeader("Content-Disposition", formatContentDispositionHeader(filename, attachment));
         response.setHeader("Accept-Ranges", "bytes");
 
+        if (resource.encoding != null) {
+            response.setHeader("Content-Encoding", resource.encoding.getEncodingDirective());
+        }
+
         if (ranges.size() == 1) {
             var range = ranges.get(0);
             response.setContentType(contentType);
@@ -396,7 +636,11 @@ public abstract class FileServlet extends HttpServlet {
     /**
      * Write given file to response with given content type and ranges.
      */
-    private static void writeContent(HttpServletResponse response, Resource resource, List<Range> ranges, String contentType) throws IOException {
+    private static void writeContent(HttpServletRequest request, HttpServletResponse response, Resource resource, List<Range> ranges, String contentType) throws IOException {
+        if (ranges.size() == 1 && sendfile(request, response, resource.file, ranges.get(0))) {
+            return;
+        }
+
         var output = response.getOutputStream();
 
         if (ranges.size() == 1) {
@@ -419,6 +663,66 @@ public abstract class FileServlet extends HttpServlet {
 
     // Helpers --------------------------------------------------------------------------------------------------------
 
+    /**
+     * Hand over the given range of the given file to the sendfile support of Tomcat, if available, so that the container
+     * transfers it straight from the file system to the socket after the servlet has returned. This is skipped for small
+     * ranges and for wrapped requests or responses, such as the one of {@link CompressedResponseFilter}, as the
+     * container would then bypass the wrapper.
+     */
+    private static boolean sendfile(HttpServletRequest request, HttpServletResponse response, File file, Range range) throws IOException {
+        if (range.length < MIN_SENDFILE_LENGTH
+            || !Boolean.TRUE.equals(request.getAttribute(ATTRIBUTE_SENDFILE_SUPPORT))
+            || request instanceof ServletRequestWrapper
+            || response instanceof ServletResponseWrapper)
+        {
+            return false;
+        }
+
+        request.setAttribute(ATTRIBUTE_SENDFILE_FILENAME, file.getCanonicalPath());
+        request.setAttribute(ATTRIBUTE_SENDFILE_START, range.start);
+        request.setAttribute(ATTRIBUTE_SENDFILE_END, range.end + 1); // Tomcat expects it exclusive.
+        return true;
+    }
+
+    /**
+     * Returns the precompressed sibling file of the given file for the given algorithm.
+     */
+    private static File getPrecompressedFile(File file, Algorithm algorithm) {
+        return new File(file.getPath() + PRECOMPRESSED_EXTENSIONS.get(algorithm));
+    }
+
+    /**
+     * Write the given file compressed with the given algorithm to the given precompressed file, but only if it's
+     * actually smaller. It's first written to a temporary file in the same directory and then atomically moved, so that
+     * a concurrent request never sees a half-written precompressed file.
+     */
+    private static void writePrecompressedFile(File file, File precompressedFile, Algorithm algorithm) throws IOException {
+        var precompressedPath = precompressedFile.toPath();
+        var temporaryPath = Files.createTempFile(precompressedPath.getParent(), precompressedFile.getName(), ".tmp");
+
+        try {
+            try (var output = algorithm.createOutputStream(Files.newOutputStream(temporaryPath))) {
+                Files.copy(file.toPath(), output);
+            }
+
+            if (Files.size(temporaryPath) < file.length()) {
+                Files.move(temporaryPath, precompressedPath, REPLACE_EXISTING, ATOMIC_MOVE);
+            }
+        }
+        finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+
+    /**
+     * Returns true if the Accept-Encoding header of the given request accepts the given encoding.
+     */
+    private static boolean acceptsEncoding(HttpServletRequest request, String encoding) {
+        var acceptEncoding = request.getHeader("Accept-Encoding");
+        return acceptEncoding != null && splitAndTrim(acceptEncoding, ",").map(acceptValue -> splitAndTrim(acceptValue, ";", 2))
+            .anyMatch(acceptValue -> acceptValue[0].equalsIgnoreCase(encoding) && (acceptValue.length == 1 || !acceptValue[1].matches("q=0(\\.0*)?")));
+    }
+
     /**
      * Returns true if the given match header matches the given ETag value.
      */
@@ -461,6 +765,7 @@ public abstract class FileServlet extends HttpServlet {
         private final long length;
         private final long lastModified;
         private final String eTag;
+        private final Algorithm encoding;
 
         public Resource(File file) {
             if (file != null && file.isFile()) {
@@ -475,6 +780,38 @@ public abstract class FileServlet extends HttpServlet {
                 lastModified = 0;
                 eTag = null;
             }
+
+            encoding = null;
+        }
+
+        private Resource(Resource resource, Algorithm encoding) {
+            file = resource.file;
+            length = resource.length;
+            lastModified = resource.lastModified;
+            eTag = resource.eTag; // It's based on the file name, which already differs per encoding.
+            this.encoding = encoding;
+        }
+
+        private Resource(File file, BasicFileAttributes attributes) {
+            this.file = file;
+            length = attributes.size();
+            lastModified = attributes.lastModifiedTime().toMillis();
+            eTag = format(ETAG, encodeURL(file.getName()), lastModified);
+            encoding = null;
+        }
+
+        /**
+         * Load the resource of the given path with a single file system call, or return null if it's not a file.
+         */
+        static Resource load(Path path) {
+            try {
+                var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return attributes.isRegularFile() ? new Resource(path.toFile(), attributes) : null;
+            }
+            catch (IOException ignore) {
+                logger.log(FINEST, "Ignoring thrown exception; interpreting it as file not found.", ignore);
+                return null;
+            }
         }
 
     }
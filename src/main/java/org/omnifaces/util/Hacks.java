@@ -52,7 +52,6 @@ import jakarta.faces.component.UIViewRoot;
 import jakarta.faces.component.behavior.ClientBehaviorHolder;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.render.ResponseStateManager;
-import jakarta.websocket.Session;
 
 /**
  * <p>
@@ -470,20 +469,4 @@ public final class Hacks {
         return dialogs.size() == 1 && dialogs.iterator().next() != null;
     }
 
-    // Tomcat related -------------------------------------------------------------------------------------------------
-
-    /**
-     * Returns true if the given WS session is from Tomcat and given illegal state exception is caused by a push bomb
-     * which Tomcat couldn't handle. See also https://bz.apache.org/bugzilla/show_bug.cgi?id=56026 and
-     * https://github.com/omnifaces/omnifaces/issues/234
-     * @param session The WS session.
-     * @param illegalStateException The illegal state exception.
-     * @return Whether it was Tomcat who couldn't handle the push bomb.
-     * @since 2.5
-     */
-    public static boolean isTomcatWebSocketBombed(Session session, IllegalStateException illegalStateException) {
-        return session.getClass().getName().startsWith("org.apache.tomcat.websocket.")
-            && illegalStateException.getMessage().contains("[TEXT_FULL_WRITING]");
-    }
-
 }
\ No newline at end of file
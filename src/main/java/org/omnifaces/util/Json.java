@@ -15,14 +15,20 @@ package org.omnifaces.util;
 import static java.lang.String.format;
 import static java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME;
 
-import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
+import java.lang.reflect.Method;
 import java.time.temporal.Temporal;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.function.UnaryOperator;
@@ -48,6 +54,18 @@ public final class Json {
 
     private static final String ERROR_INVALID_BEAN = "Cannot introspect object of type '%s' as bean.";
     private static final String ERROR_INVALID_GETTER = "Cannot invoke getter of property '%s' of bean '%s'.";
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * The bean encoders are computed once per class, because introspecting a class is relatively expensive. This is
+     * only used for classes which can't outlive OmniFaces, see {@link #getBeanEncoder(Class)}.
+     */
+    private static final ClassValue<BeanEncoder> BEAN_ENCODERS = new ClassValue<>() {
+        @Override
+        protected BeanEncoder computeValue(Class<?> type) {
+            return new BeanEncoder(type);
+        }
+    };
 
     // Constructors ---------------------------------------------------------------------------------------------------
 
@@ -83,162 +101,275 @@ public final class Json {
      * @since 3.6
      */
     public static String encode(Object object, UnaryOperator<String> propertyNameFormatter) {
-        StringBuilder builder = new StringBuilder();
-        encode(object, builder, propertyNameFormatter);
+        var builder = new StringBuilder();
+
+        try {
+            encodeTo(object, builder, propertyNameFormatter);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e); // Not expected to happen with a StringBuilder.
+        }
+
         return builder.toString();
     }
 
     /**
-     * Method allowing tail recursion (prevents potential stack overflow on deeply nested structures).
+     * Does the same as {@link #encode(Object)} but then writes the JSON directly to the given output, such as a
+     * {@link java.io.Writer}, instead of building a string first.
+     * @param object The object to be encoded as JSON.
+     * @param output The output to write the JSON-encoded representation of the given object to.
+     * @throws IOException When the given output throws it.
+     * @throws IllegalArgumentException When the given object or one of its properties cannot be inspected as a bean.
+     * @since 4.6
      */
-    private static void encode(Object object, StringBuilder builder, UnaryOperator<String> propertyNameFormatter) {
+    public static void encodeTo(Object object, Appendable output) throws IOException {
+        encodeTo(object, output, null);
+    }
+
+    /**
+     * Does the same as {@link #encode(Object, UnaryOperator)} but then writes the JSON directly to the given output,
+     * such as a {@link java.io.Writer}, instead of building a string first.
+     * @param object The object to be encoded as JSON.
+     * @param output The output to write the JSON-encoded representation of the given object to.
+     * @param propertyNameFormatter The property name formatter. When this is null, then the property names are not
+     * adjusted.
+     * @throws IOException When the given output throws it.
+     * @throws IllegalArgumentException When the given object or one of its properties cannot be inspected as a bean.
+     * @since 4.6
+     */
+    public static void encodeTo(Object object, Appendable output, UnaryOperator<String> propertyNameFormatter) throws IOException {
         if (object == null) {
-            builder.append("null");
+            output.append("null");
         }
         else if (object instanceof Boolean || object instanceof Number) {
-            builder.append(object.toString());
+            output.append(object.toString());
         }
         else if (object instanceof CharSequence || object instanceof Enum<?>) {
-            encodeString(object.toString(), builder);
+            encodeString(object.toString(), output);
         }
         else if (object instanceof Date) {
-            builder.append('"').append(Utils.formatRFC1123((Date) object)).append('"');
+            output.append('"').append(Utils.formatRFC1123((Date) object)).append('"');
         }
         else if (object instanceof Temporal) {
-            builder.append('"').append(Utils.toZonedDateTime(object).format(RFC_1123_DATE_TIME)).append('"');
+            output.append('"').append(Utils.toZonedDateTime(object).format(RFC_1123_DATE_TIME)).append('"');
         }
         else if (object instanceof Collection<?>) {
-            encodeCollection((Collection<?>) object, builder, propertyNameFormatter);
+            encodeCollection((Collection<?>) object, output, propertyNameFormatter);
         }
         else if (object.getClass().isArray()) {
-            encodeArray(object, builder, propertyNameFormatter);
+            encodeArray(object, output, propertyNameFormatter);
         }
         else if (object instanceof Map<?, ?>) {
-            encodeMap((Map<?, ?>) object, builder, propertyNameFormatter);
+            encodeMap((Map<?, ?>) object, output, propertyNameFormatter);
         }
         else if (object instanceof Class<?>) {
-            encodeString(((Class<?>) object).getName(), builder);
+            encodeString(((Class<?>) object).getName(), output);
         }
         else {
-            encodeBean(object, builder, propertyNameFormatter);
+            getBeanEncoder(object.getClass()).encode(object, output, propertyNameFormatter);
+        }
+    }
+
+    /**
+     * Returns the bean encoder of the given type. It's only cached in the type itself when the type is loaded by the
+     * class loader of OmniFaces or by a child of it. A type loaded by a parent class loader, such as the one of the
+     * server, would otherwise keep the bean encoder and thereby the class loader of OmniFaces alive after undeploy.
+     */
+    private static BeanEncoder getBeanEncoder(Class<?> type) {
+        var omnifacesClassLoader = Json.class.getClassLoader();
+
+        for (var classLoader = type.getClassLoader(); classLoader != null; classLoader = classLoader.getParent()) {
+            if (classLoader == omnifacesClassLoader) {
+                return BEAN_ENCODERS.get(type);
+            }
         }
+
+        return new BeanEncoder(type);
     }
 
     /**
      * Encode a Java string as JS string.
      */
-    private static void encodeString(String string, StringBuilder builder) {
-        builder.append('"').append(Utils.escapeJS(string, false)).append('"');
+    private static void encodeString(String string, Appendable output) throws IOException {
+        output.append('"').append(Utils.escapeJS(string, false)).append('"');
     }
 
     /**
      * Encode a Java collection as JS array.
      */
-    private static void encodeCollection(Collection<?> collection, StringBuilder builder, UnaryOperator<String> propertyNameFormatter) {
-        builder.append('[');
+    private static void encodeCollection(Collection<?> collection, Appendable output, UnaryOperator<String> propertyNameFormatter) throws IOException {
+        output.append('[');
         int i = 0;
 
         for (Object element : collection) {
             if (i++ > 0) {
-                builder.append(',');
+                output.append(',');
             }
 
-            encode(element, builder, propertyNameFormatter);
+            encodeTo(element, output, propertyNameFormatter);
         }
 
-        builder.append(']');
+        output.append(']');
     }
 
     /**
      * Encode a Java array as JS array.
      */
-    private static void encodeArray(Object array, StringBuilder builder, UnaryOperator<String> propertyNameFormatter) {
-        builder.append('[');
+    private static void encodeArray(Object array, Appendable output, UnaryOperator<String> propertyNameFormatter) throws IOException {
+        output.append('[');
         int length = Array.getLength(array);
 
         for (int i = 0; i < length; i++) {
             if (i > 0) {
-                builder.append(',');
+                output.append(',');
             }
 
-            encode(Array.get(array, i), builder, propertyNameFormatter);
+            encodeTo(Array.get(array, i), output, propertyNameFormatter);
         }
 
-        builder.append(']');
+        output.append(']');
     }
 
     /**
      * Encode a Java map as JS object.
      */
-    private static void encodeMap(Map<?, ?> map, StringBuilder builder, UnaryOperator<String> propertyNameFormatter) {
-        builder.append('{');
+    private static void encodeMap(Map<?, ?> map, Appendable output, UnaryOperator<String> propertyNameFormatter) throws IOException {
+        output.append('{');
         int i = 0;
 
         for (Entry<?, ?> entry : map.entrySet()) {
             if (i++ > 0) {
-                builder.append(',');
+                output.append(',');
             }
 
-            encodePropertyName(String.valueOf(entry.getKey()), builder, propertyNameFormatter);
-            builder.append(':');
-            encode(entry.getValue(), builder, propertyNameFormatter);
+            output.append(encodePropertyName(String.valueOf(entry.getKey()), propertyNameFormatter));
+            encodeTo(entry.getValue(), output, propertyNameFormatter);
         }
 
-        builder.append('}');
+        output.append('}');
     }
 
     /**
-     * Encode a Java bean as JS object.
+     * Encode a Java String as JS object property name, including the colon.
      */
-    private static void encodeBean(Object bean, StringBuilder builder, UnaryOperator<String> propertyNameFormatter) {
-        BeanInfo beanInfo;
+    private static String encodePropertyName(String string, UnaryOperator<String> propertyNameFormatter) {
+        return '"' + Utils.escapeJS(propertyNameFormatter == null ? string : propertyNameFormatter.apply(string), false) + "\":";
+    }
 
-        try {
-            beanInfo = Introspector.getBeanInfo(bean.getClass());
-        }
-        catch (IntrospectionException e) {
-            throw new IllegalArgumentException(
-                format(ERROR_INVALID_BEAN, bean.getClass()), e);
-        }
+    // Nested classes -------------------------------------------------------------------------------------------------
 
-        builder.append('{');
-        int i = 0;
+    /**
+     * Encodes a Java bean as JS object. The public properties, their getters and their encoded names are resolved once
+     * per bean class. The encoded names are also remembered for the last used property name formatter.
+     */
+    private static final class BeanEncoder {
 
-        for (PropertyDescriptor property : beanInfo.getPropertyDescriptors()) {
-            if (property.getReadMethod() == null || "class".equals(property.getName())) {
-                continue;
-            }
+        private final Class<?> type;
+        private final String[] names;
+        private final MethodHandle[] getters;
+        private final String[] encodedNames;
+        private volatile FormattedNames formattedNames;
 
-            Object value;
+        private BeanEncoder(Class<?> type) {
+            this.type = type;
+            List<String> propertyNames = new ArrayList<>();
+            List<MethodHandle> propertyGetters = new ArrayList<>();
 
             try {
-                value = property.getReadMethod().invoke(bean);
+                for (var property : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+                    if (property.getReadMethod() != null && !"class".equals(property.getName())) {
+                        propertyNames.add(property.getName());
+                        propertyGetters.add(toGetter(property.getReadMethod()));
+                    }
+                }
             }
-            catch (Exception e) {
-                throw new IllegalArgumentException(
-                    format(ERROR_INVALID_GETTER, property.getName(), bean.getClass()), e);
+            catch (IntrospectionException e) {
+                throw new IllegalArgumentException(format(ERROR_INVALID_BEAN, type), e);
             }
 
-            if (value != null) {
-                if (i++ > 0) {
-                    builder.append(',');
+            names = propertyNames.toArray(new String[0]);
+            getters = propertyGetters.toArray(new MethodHandle[0]);
+            encodedNames = encodePropertyNames(null);
+        }
+
+        private void encode(Object bean, Appendable output, UnaryOperator<String> propertyNameFormatter) throws IOException {
+            var beanEncodedNames = getEncodedNames(propertyNameFormatter);
+            output.append('{');
+            int i = 0;
+
+            for (int p = 0; p < getters.length; p++) {
+                Object value;
+
+                try {
+                    value = getters[p].invokeExact(bean);
+                }
+                catch (Throwable e) {
+                    throw new IllegalArgumentException(format(ERROR_INVALID_GETTER, names[p], type), e);
+                }
+
+                if (value != null) {
+                    if (i++ > 0) {
+                        output.append(',');
+                    }
+
+                    output.append(beanEncodedNames[p]);
+                    encodeTo(value, output, propertyNameFormatter);
                 }
+            }
+
+            output.append('}');
+        }
+
+        private String[] getEncodedNames(UnaryOperator<String> propertyNameFormatter) {
+            if (propertyNameFormatter == null) {
+                return encodedNames;
+            }
 
-                encodePropertyName(property.getName(), builder, propertyNameFormatter);
-                builder.append(':');
-                encode(value, builder, propertyNameFormatter);
+            var lastFormattedNames = formattedNames;
+
+            if (lastFormattedNames == null || lastFormattedNames.formatter != propertyNameFormatter) {
+                lastFormattedNames = new FormattedNames(propertyNameFormatter, encodePropertyNames(propertyNameFormatter));
+                formattedNames = lastFormattedNames;
+            }
+
+            return lastFormattedNames.encodedNames;
+        }
+
+        private String[] encodePropertyNames(UnaryOperator<String> propertyNameFormatter) {
+            var encoded = new String[names.length];
+
+            for (int p = 0; p < names.length; p++) {
+                encoded[p] = encodePropertyName(names[p], propertyNameFormatter);
             }
+
+            return encoded;
         }
 
-        builder.append('}');
+        /**
+         * Returns a method handle of type <code>(Object)Object</code> for the given getter, so that it can be invoked
+         * exactly. If the getter is not accessible, e.g. because it's declared in a non-public class, then return a
+         * method handle which throws the access exception, so that it fails the same way as reflection always did.
+         */
+        private static MethodHandle toGetter(Method method) {
+            try {
+                return MethodHandles.publicLookup().unreflect(method).asType(GETTER_TYPE);
+            }
+            catch (IllegalAccessException e) {
+                var thrower = MethodHandles.throwException(Object.class, IllegalAccessException.class).bindTo(e);
+                return MethodHandles.dropArguments(thrower, 0, Object.class);
+            }
+        }
     }
 
-    /**
-     * Encode a Java String as JS object property name.
-     */
-    private static void encodePropertyName(String string, StringBuilder builder, UnaryOperator<String> propertyNameFormatter)
-    {
-        encodeString(propertyNameFormatter == null ? string : propertyNameFormatter.apply(string), builder);
+    private static final class FormattedNames {
+
+        private final UnaryOperator<String> formatter;
+        private final String[] encodedNames;
+
+        private FormattedNames(UnaryOperator<String> formatter, String[] encodedNames) {
+            this.formatter = formatter;
+            this.encodedNames = encodedNames;
+        }
     }
 
 }
\ No newline at end of file
@@ -40,9 +40,7 @@ import java.net.URLConnection;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
-import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -73,6 +71,8 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -113,6 +113,7 @@ public final class Utils {
     private static final Logger logger = Logger.getLogger(Utils.class.getName());
 
     private static final int DEFAULT_STREAM_BUFFER_SIZE = 10240;
+    private static final BlockingQueue<byte[]> STREAM_BUFFER_POOL = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 4);
     private static final String PATTERN_RFC1123_DATE = "EEE, dd MMM yyyy HH:mm:ss zzz";
     private static final TimeZone TIMEZONE_GMT = TimeZone.getTimeZone("GMT");
     private static final Pattern PATTERN_ISO639_ISO3166_LOCALE = Pattern.compile("[a-z]{2,3}(_[A-Z]{2})?");
@@ -435,35 +436,35 @@ public final class Utils {
     // I/O ------------------------------------------------------------------------------------------------------------
 
     /**
-     * Stream the given input to the given output via NIO {@link Channels} and a directly allocated NIO
-     * {@link ByteBuffer}. Both the input and output streams will implicitly be closed after streaming,
-     * regardless of whether an exception is been thrown or not.
+     * Stream the given input to the given output via a pooled buffer. Both the input and output streams will implicitly
+     * be closed after streaming, regardless of whether an exception is been thrown or not.
      * @param input The input stream.
      * @param output The output stream.
      * @return The length of the written bytes.
      * @throws IOException When an I/O error occurs.
      */
     public static long stream(InputStream input, OutputStream output) throws IOException {
-        try (var inputChannel = Channels.newChannel(input);
-            var outputChannel = Channels.newChannel(output))
-        {
-            var buffer = ByteBuffer.allocateDirect(DEFAULT_STREAM_BUFFER_SIZE);
+        var buffer = acquireStreamBuffer();
+
+        try (input; output) {
             var size = 0L;
 
-            while (inputChannel.read(buffer) != -1) {
-                buffer.flip();
-                size += outputChannel.write(buffer);
-                buffer.clear();
+            for (int length; (length = input.read(buffer)) != -1;) {
+                output.write(buffer, 0, length);
+                size += length;
             }
 
             return size;
         }
+        finally {
+            releaseStreamBuffer(buffer);
+        }
     }
 
     /**
-     * Stream a specified range of the given file to the given output via NIO {@link Channels} and a directly allocated
-     * NIO {@link ByteBuffer}. The output stream will only implicitly be closed after streaming when the specified range
-     * represents the whole file, regardless of whether an exception is been thrown or not.
+     * Stream a specified range of the given file to the given output via a NIO {@link FileChannel} and a pooled buffer.
+     * The output stream will only implicitly be closed after streaming when the specified range represents the whole
+     * file, regardless of whether an exception is been thrown or not.
      * @param file The file.
      * @param output The output stream.
      * @param start The start position (offset).
@@ -477,30 +478,38 @@ public final class Utils {
             return stream(new FileInputStream(file), output);
         }
 
-        try (var fileChannel = (FileChannel) Files.newByteChannel(file.toPath(), StandardOpenOption.READ);
-            var outputChannel = Channels.newChannel(output))
-        {
-            var buffer = ByteBuffer.allocateDirect(DEFAULT_STREAM_BUFFER_SIZE);
-            var size = 0L;
-
-            while (fileChannel.read(buffer, start + size) != -1) {
-                buffer.flip();
+        var bytes = acquireStreamBuffer();
 
-                if (size + buffer.limit() > length) {
-                    buffer.limit((int) (length - size));
-                }
+        try (var fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            var buffer = ByteBuffer.wrap(bytes);
+            var size = 0L;
 
-                size += outputChannel.write(buffer);
+            while (size < length) {
+                buffer.clear().limit((int) Math.min(bytes.length, length - size));
+                var read = fileChannel.read(buffer, start + size);
 
-                if (size >= length) {
+                if (read == -1) {
                     break;
                 }
 
-                buffer.clear();
+                output.write(bytes, 0, read);
+                size += read;
             }
 
             return size;
         }
+        finally {
+            releaseStreamBuffer(bytes);
+        }
+    }
+
+    private static byte[] acquireStreamBuffer() {
+        var buffer = STREAM_BUFFER_POOL.poll();
+        return buffer != null ? buffer : new byte[DEFAULT_STREAM_BUFFER_SIZE];
+    }
+
+    private static void releaseStreamBuffer(byte[] buffer) {
+        STREAM_BUFFER_POOL.offer(buffer);
     }
 
     /**
@@ -13,6 +13,7 @@
 package org.omnifaces.util.cache;
 
 import java.io.Serializable;
+import java.util.function.Function;
 
 /**
  * Interface that abstracts a simple get and put operation for a concrete cache implementation.
@@ -70,6 +71,20 @@ public interface Cache extends Serializable {
      */
     void putObject(String key, Serializable value, int timeToLive);
 
+    /**
+     * Stores a value in the cache with the default time to live of the cache, if any. The default implementation
+     * delegates to {@link #putObject(String, Serializable, int)} with a time to live of <code>-1</code>.
+     *
+     * @param key
+     *            the key under which a value is to be stored
+     * @param value
+     *            the value that is to be stored
+     * @since 4.6
+     */
+    default void putObject(String key, Serializable value) {
+        putObject(key, value, -1);
+    }
+
     /**
      * Stores a value in the cache
      *
@@ -86,6 +101,190 @@ public interface Cache extends Serializable {
      */
     void put(String key, String value, int timeToLive);
 
+    /**
+     * Gets a value from the cache, or computes it via the given mapping function and stores it in the cache when no
+     * such value exists.
+     * <p>
+     * Implementations are encouraged to guarantee that the mapping function is for the same key invoked by at most one
+     * thread at a time, and that concurrent invocations for the same key wait for the result of that one thread instead
+     * of computing the value themselves. This is also known as "single-flight" and prevents a cache stampede. The
+     * default implementation does not guarantee this and simply combines {@link #get(String)} and
+     * {@link #put(String, String)}.
+     *
+     * @param key
+     *            the key under which a value is to be stored
+     * @param mappingFunction
+     *            the function to compute the value with; when it returns null, then nothing will be stored
+     * @return The previously stored value, or the computed value if no such value exists
+     * @since 4.6
+     */
+    default String computeIfAbsent(String key, Function<String, String> mappingFunction) {
+        var value = get(key);
+
+        if (value == null) {
+            value = mappingFunction.apply(key);
+
+            if (value != null) {
+                put(key, value);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Gets a value from the cache, or computes it via the given mapping function and stores it in the cache with the
+     * given time to live when no such value exists. See {@link #computeIfAbsent(String, Function)} for the concurrency
+     * considerations.
+     *
+     * @param key
+     *            the key under which a value is to be stored
+     * @param mappingFunction
+     *            the function to compute the value with; when it returns null, then nothing will be stored
+     * @param timeToLive
+     *            the amount of time in seconds for which the computed value is valid from the time it's being added to
+     *            the cache. See {@link #put(String, String, int)}.
+     * @return The previously stored value, or the computed value if no such value exists
+     * @since 4.6
+     */
+    default String computeIfAbsent(String key, Function<String, String> mappingFunction, int timeToLive) {
+        var value = get(key);
+
+        if (value == null) {
+            value = mappingFunction.apply(key);
+
+            if (value != null) {
+                put(key, value, timeToLive);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Does the same as {@link #computeIfAbsent(String, Function)}, but with "stale-while-revalidate" semantics: when
+     * the value has expired while it's still present in the cache, then only one thread will recompute it via the
+     * given mapping function while all other threads will keep getting the expired value until the recomputed value
+     * is stored. The default implementation does not support this and simply delegates to
+     * {@link #computeIfAbsent(String, Function)}.
+     *
+     * @param key
+     *            the key under which a value is to be stored
+     * @param mappingFunction
+     *            the function to compute the value with; when it returns null, then nothing will be stored
+     * @return The previously stored value, possibly expired, or the computed value if no such value exists
+     * @since 4.6
+     */
+    default String computeIfAbsentOrStale(String key, Function<String, String> mappingFunction) {
+        return computeIfAbsent(key, mappingFunction);
+    }
+
+    /**
+     * Does the same as {@link #computeIfAbsent(String, Function, int)}, but with "stale-while-revalidate" semantics.
+     * See {@link #computeIfAbsentOrStale(String, Function)}. The default implementation does not support this and
+     * simply delegates to {@link #computeIfAbsent(String, Function, int)}.
+     *
+     * @param key
+     *            the key under which a value is to be stored
+     * @param mappingFunction
+     *            the function to compute the value with; when it returns null, then nothing will be stored
+     * @param timeToLive
+     *            the amount of time in seconds for which the computed value is valid from the time it's being added to
+     *            the cache. See {@link #put(String, String, int)}.
+     * @return The previously stored value, possibly expired, or the computed value if no such value exists
+     * @since 4.6
+     */
+    default String computeIfAbsentOrStale(String key, Function<String, String> mappingFunction, int timeToLive) {
+        return computeIfAbsent(key, mappingFunction, timeToLive);
+    }
+
+    /**
+     * Does the same as {@link #computeIfAbsent(String, Function)}, but for an arbitrary value which is stored via
+     * {@link #putObject(String, Serializable)} and obtained via {@link #getObject(String)}.
+     *
+     * @param key
+     *            the key under which a value is to be stored
+     * @param mappingFunction
+     *            the function to compute the value with; when it returns null, then nothing will be stored
+     * @return The previously stored value, or the computed value if no such value exists
+     * @since 4.6
+     */
+    default Serializable computeObjectIfAbsent(String key, Function<String, ? extends Serializable> mappingFunction) {
+        var value = getObject(key);
+
+        if (value == null) {
+            value = mappingFunction.apply(key);
+
+            if (value != null) {
+                putObject(key, value);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Does the same as {@link #computeIfAbsent(String, Function, int)}, but for an arbitrary value which is stored via
+     * {@link #putObject(String, Serializable, int)} and obtained via {@link #getObject(String)}.
+     *
+     * @param key
+     *            the key under which a value is to be stored
+     * @param mappingFunction
+     *            the function to compute the value with; when it returns null, then nothing will be stored
+     * @param timeToLive
+     *            the amount of time in seconds for which the computed value is valid from the time it's being added to
+     *            the cache. See {@link #put(String, String, int)}.
+     * @return The previously stored value, or the computed value if no such value exists
+     * @since 4.6
+     */
+    default Serializable computeObjectIfAbsent(String key, Function<String, ? extends Serializable> mappingFunction, int timeToLive) {
+        var value = getObject(key);
+
+        if (value == null) {
+            value = mappingFunction.apply(key);
+
+            if (value != null) {
+                putObject(key, value, timeToLive);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Does the same as {@link #computeIfAbsentOrStale(String, Function)}, but for an arbitrary value. The default
+     * implementation does not support this and simply delegates to {@link #computeObjectIfAbsent(String, Function)}.
+     *
+     * @param key
+     *            the key under which a value is to be stored
+     * @param mappingFunction
+     *            the function to compute the value with; when it returns null, then nothing will be stored
+     * @return The previously stored value, possibly expired, or the computed value if no such value exists
+     * @since 4.6
+     */
+    default Serializable computeObjectIfAbsentOrStale(String key, Function<String, ? extends Serializable> mappingFunction) {
+        return computeObjectIfAbsent(key, mappingFunction);
+    }
+
+    /**
+     * Does the same as {@link #computeIfAbsentOrStale(String, Function, int)}, but for an arbitrary value. The default
+     * implementation does not support this and simply delegates to
+     * {@link #computeObjectIfAbsent(String, Function, int)}.
+     *
+     * @param key
+     *            the key under which a value is to be stored
+     * @param mappingFunction
+     *            the function to compute the value with; when it returns null, then nothing will be stored
+     * @param timeToLive
+     *            the amount of time in seconds for which the computed value is valid from the time it's being added to
+     *            the cache. See {@link #put(String, String, int)}.
+     * @return The previously stored value, possibly expired, or the computed value if no such value exists
+     * @since 4.6
+     */
+    default Serializable computeObjectIfAbsentOrStale(String key, Function<String, ? extends Serializable> mappingFunction, int timeToLive) {
+        return computeObjectIfAbsent(key, mappingFunction, timeToLive);
+    }
+
     /**
      * Gets a named attribute from the cache entry identified by the key parameter.
      * <p>
@@ -117,6 +316,26 @@ public interface Cache extends Serializable {
      */
     void putAttribute(String key, String name, Serializable value, int timeToLive);
 
+    /**
+     * Returns the amount of entries currently in the cache, including any expired entries which are not yet evicted.
+     * The default implementation returns <code>-1</code>, which means that the size is unknown.
+     * @return The amount of entries currently in the cache, or <code>-1</code> if unknown.
+     * @since 4.6
+     */
+    default int getSize() {
+        return -1;
+    }
+
+    /**
+     * Returns the total weight of all entries currently in the cache, usually in approximate bytes. The default
+     * implementation returns <code>-1</code>, which means that the weight is unknown.
+     * @return The total weight of all entries currently in the cache, or <code>-1</code> if unknown.
+     * @since 4.6
+     */
+    default long getWeight() {
+        return -1;
+    }
+
     /**
      * Removes a value from the cache
      *
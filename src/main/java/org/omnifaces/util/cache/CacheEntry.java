@@ -12,6 +12,12 @@
  */
 package org.omnifaces.util.cache;
 
+import static java.lang.System.currentTimeMillis;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.HashMap;
@@ -23,6 +29,11 @@ import java.util.Map;
  * <p>
  * Since OmniFaces 3.0 the <code>Object value</code> and <code>Map&lt;String, Object&gt; attributes</code> have been reworked to
  * <code>Serializable value</code> and <code>Map&lt;String, Serializable&gt; attributes</code> in order to explicitly set the expected type.
+ * <p>
+ * Since OmniFaces 4.6 the validity is internally kept as epoch milliseconds instead of as {@link Date}, so that no
+ * {@link Date} instance needs to be created for every entry. The serialized form is still the one with {@link Date},
+ * so that entries serialized by an older version can still be deserialized and vice versa. Additionally, an expired
+ * entry can be retained for a while so that its stale value can still be served while a fresh value is being computed.
  *
  * @since 1.1
  * @author Arjan Tijms
@@ -32,14 +43,37 @@ public class CacheEntry implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
-    private Serializable value;
-    private Date validTill;
-    private Map<String, Serializable> attributes;
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("value", Serializable.class),
+        new ObjectStreamField("validTill", Date.class),
+        new ObjectStreamField("attributes", Map.class),
+    };
+
+    /**
+     * The value of {@link #getValidTillMillis()} when the entry never expires.
+     * @since 4.6
+     */
+    public static final long NEVER_EXPIRES = Long.MAX_VALUE;
+
+    private transient Serializable value;
+    private transient long validTillMillis;
+    private transient long staleTillMillis;
+    private transient Map<String, Serializable> attributes;
 
     public CacheEntry(Serializable value, Date validTill) {
-        super();
+        this(value, validTill != null ? validTill.getTime() : NEVER_EXPIRES);
+    }
+
+    /**
+     * Create cache entry with given value and the last moment in epoch milliseconds the value is valid.
+     * @param value The value for which meta data is kept.
+     * @param validTillMillis The last moment in epoch milliseconds the value is valid, or {@link #NEVER_EXPIRES}.
+     * @since 4.6
+     */
+    public CacheEntry(Serializable value, long validTillMillis) {
         this.value = value;
-        this.validTill = validTill;
+        this.validTillMillis = validTillMillis;
+        this.staleTillMillis = validTillMillis;
     }
 
     /**
@@ -68,7 +102,7 @@ public class CacheEntry implements Serializable {
      * @return date indicating last moment value hold by this object is valid.
      */
     public Date getValidTill() {
-        return validTill;
+        return validTillMillis != NEVER_EXPIRES ? new Date(validTillMillis) : null;
     }
 
     /**
@@ -80,7 +114,45 @@ public class CacheEntry implements Serializable {
      * @since 1.2
      */
     public void setValidTill(Date validTill) {
-        this.validTill = validTill;
+        setValidTillMillis(validTill != null ? validTill.getTime() : NEVER_EXPIRES);
+    }
+
+    /**
+     * Returns the last moment in epoch milliseconds the value obtained via getValue() is valid.
+     *
+     * @return last moment in epoch milliseconds the value is valid, or {@link #NEVER_EXPIRES}.
+     * @since 4.6
+     */
+    public long getValidTillMillis() {
+        return validTillMillis;
+    }
+
+    /**
+     * Sets the last moment in epoch milliseconds the value obtained via getValue() is valid.
+     *
+     * @param validTillMillis
+     *            last moment in epoch milliseconds the value is valid, or {@link #NEVER_EXPIRES}.
+     * @since 4.6
+     */
+    public void setValidTillMillis(long validTillMillis) {
+        this.validTillMillis = validTillMillis;
+        this.staleTillMillis = validTillMillis;
+    }
+
+    /**
+     * Returns the last moment in epoch milliseconds the expired value may still be served as stale value while a fresh
+     * value is being computed. This is by default the same as {@link #getValidTillMillis()}.
+     */
+    long getStaleTillMillis() {
+        return staleTillMillis;
+    }
+
+    /**
+     * Sets the last moment in epoch milliseconds the expired value may still be served as stale value while a fresh
+     * value is being computed. This must be invoked after {@link #setValidTillMillis(long)}.
+     */
+    void setStaleTillMillis(long staleTillMillis) {
+        this.staleTillMillis = staleTillMillis;
     }
 
     /**
@@ -90,7 +162,26 @@ public class CacheEntry implements Serializable {
      * @return true if this entry is still valid, false otherwise.
      */
     public boolean isValid() {
-        return validTill == null || new Date().before(validTill);
+        return isValid(currentTimeMillis());
+    }
+
+    /**
+     * Returns whether this entry holds a valid value at the given moment in epoch milliseconds.
+     *
+     * @param currentTimeMillis the moment in epoch milliseconds to check the validity against.
+     * @return true if this entry is valid at the given moment, false otherwise.
+     * @since 4.6
+     */
+    public boolean isValid(long currentTimeMillis) {
+        return validTillMillis == NEVER_EXPIRES || currentTimeMillis < validTillMillis;
+    }
+
+    /**
+     * Returns whether this entry may at the given moment in epoch milliseconds still be retained in the cache, either
+     * because it's still valid, or because it's expired but its stale value may still be served.
+     */
+    boolean isRetainable(long currentTimeMillis) {
+        return staleTillMillis == NEVER_EXPIRES || currentTimeMillis < staleTillMillis;
     }
 
     /**
@@ -115,4 +206,27 @@ public class CacheEntry implements Serializable {
         return attributes;
     }
 
+    /**
+     * Returns whether this entry has any attributes map, without lazily creating it.
+     */
+    boolean hasAttributes() {
+        return attributes != null;
+    }
+
+    private void writeObject(ObjectOutputStream output) throws IOException {
+        var fields = output.putFields();
+        fields.put("value", value);
+        fields.put("validTill", getValidTill());
+        fields.put("attributes", attributes);
+        output.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        var fields = input.readFields();
+        value = (Serializable) fields.get("value", null);
+        setValidTill((Date) fields.get("validTill", null));
+        attributes = (Map<String, Serializable>) fields.get("attributes", null);
+    }
+
 }
\ No newline at end of file
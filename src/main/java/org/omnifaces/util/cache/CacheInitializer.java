@@ -65,6 +65,21 @@ public final class CacheInitializer {
         }
     }
 
+    /**
+     * Stop any background activity of the application scoped cache of the given servlet context, such as the sweeping
+     * of expired cache entries. This is invoked when the servlet context is destroyed. Session scoped caches don't need
+     * this as they are only weakly referenced by the background activity.
+     * @param context The involved servlet context.
+     * @since 4.6
+     */
+    public static void destroy(ServletContext context) {
+        var cache = context.getAttribute(CacheInstancePerScopeProvider.DEFAULT_CACHE_PARAM_NAME);
+
+        if (cache instanceof TimeToLiveCache) {
+            ((TimeToLiveCache) cache).stopSweeping();
+        }
+    }
+
     private static CacheProvider getCacheProvider(ServletContext context) {
         CacheProvider cacheProvider;
 
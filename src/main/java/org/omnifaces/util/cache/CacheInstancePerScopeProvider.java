@@ -38,12 +38,27 @@ public abstract class CacheInstancePerScopeProvider implements CacheProvider {
     public static final String APP_MAX_CAP_PARAM_NAME = "APPLICATION_MAX_CAPACITY";
     public static final String SESSION_MAX_CAP_PARAM_NAME = "SESSION_MAX_CAPACITY";
 
+    /**
+     * The setting name of the maximum total weight of the application scoped cache.
+     * @since 4.6
+     */
+    public static final String APP_MAX_WEIGHT_PARAM_NAME = "APPLICATION_MAX_WEIGHT";
+
+    /**
+     * The setting name of the maximum total weight of the session scoped cache.
+     * @since 4.6
+     */
+    public static final String SESSION_MAX_WEIGHT_PARAM_NAME = "SESSION_MAX_WEIGHT";
+
     private Integer appDefaultTimeToLive;
     private Integer sessionDefaultTimeToLive;
 
     private Integer appMaxCapacity;
     private Integer sessionMaxCapacity;
 
+    private Long appMaxWeight;
+    private Long sessionMaxWeight;
+
     private Map<String, String> parameters;
 
     @Override
@@ -74,6 +89,12 @@ public abstract class CacheInstancePerScopeProvider implements CacheProvider {
         if (parameters.containsKey(SESSION_MAX_CAP_PARAM_NAME)) {
             sessionMaxCapacity = Integer.valueOf(parameters.get(SESSION_MAX_CAP_PARAM_NAME));
         }
+        if (parameters.containsKey(APP_MAX_WEIGHT_PARAM_NAME)) {
+            appMaxWeight = Long.valueOf(parameters.get(APP_MAX_WEIGHT_PARAM_NAME));
+        }
+        if (parameters.containsKey(SESSION_MAX_WEIGHT_PARAM_NAME)) {
+            sessionMaxWeight = Long.valueOf(parameters.get(SESSION_MAX_WEIGHT_PARAM_NAME));
+        }
     }
 
     public Map<String, String> getParameters() {
@@ -86,7 +107,7 @@ public abstract class CacheInstancePerScopeProvider implements CacheProvider {
         if (!applicationMap.containsKey(DEFAULT_CACHE_PARAM_NAME)) {
             synchronized (DefaultCacheProvider.class) {
                 if (!applicationMap.containsKey(DEFAULT_CACHE_PARAM_NAME)) {
-                    applicationMap.put(DEFAULT_CACHE_PARAM_NAME, createCache(appDefaultTimeToLive, appMaxCapacity));
+                    applicationMap.put(DEFAULT_CACHE_PARAM_NAME, createCache(appDefaultTimeToLive, appMaxCapacity, appMaxWeight));
                 }
 
             }
@@ -102,7 +123,7 @@ public abstract class CacheInstancePerScopeProvider implements CacheProvider {
             Object session = context.getExternalContext().getSession(true);
             synchronized (session) {
                 if (!sessionMap.containsKey(DEFAULT_CACHE_PARAM_NAME)) {
-                    sessionMap.put(DEFAULT_CACHE_PARAM_NAME, createCache(sessionDefaultTimeToLive, sessionMaxCapacity));
+                    sessionMap.put(DEFAULT_CACHE_PARAM_NAME, createCache(sessionDefaultTimeToLive, sessionMaxCapacity, sessionMaxWeight));
                 }
             }
         }
@@ -112,4 +133,17 @@ public abstract class CacheInstancePerScopeProvider implements CacheProvider {
 
     protected abstract Cache createCache(Integer timeToLive, Integer maxCapacity);
 
+    /**
+     * Create cache with given time to live, maximum capacity and maximum weight. The default implementation ignores
+     * the maximum weight and delegates to {@link #createCache(Integer, Integer)}.
+     * @param timeToLive The default time to live in seconds, may be <code>null</code>.
+     * @param maxCapacity The maximum capacity, may be <code>null</code>.
+     * @param maxWeight The maximum total weight, may be <code>null</code>.
+     * @return The created cache.
+     * @since 4.6
+     */
+    protected Cache createCache(Integer timeToLive, Integer maxCapacity, Long maxWeight) {
+        return createCache(timeToLive, maxCapacity);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,383 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.util.cache;
+
+import static java.util.Objects.requireNonNull;
+import static org.omnifaces.util.Utils.executeAtomically;
+
+import java.io.Serializable;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.omnifaces.util.FunctionalInterfaces.SerializableBiConsumer;
+
+/**
+ * Thread safe LRU cache with support for eviction listener whose reads do not take any lock.
+ * <p>
+ * This has the same contract as {@link LruCache}, but the entries are held in a {@link ConcurrentHashMap} and the
+ * recency of a read is not applied immediately. Instead, the key is recorded in one of a few striped and lossy read
+ * buffers which are drained into the access order whenever a write takes the lock, or whenever a read buffer is full
+ * and the lock happens to be available. The eviction order is therefore an approximation of the true LRU order under
+ * high concurrency. Writes are serialized on a single lock exactly like in {@link LruCache}. Like {@link LruCache}, the
+ * cache can also be bounded by a maximum weight in addition to the maximum capacity, and a value whose weight alone
+ * exceeds the maximum weight is not stored, while any existing value of the same key is removed and passed to the
+ * eviction listener.
+ * <p>
+ * Unlike {@link LruCache}, the keys and values are not required to be {@link Serializable}, so that it can also be used
+ * as an application wide cache of e.g. resource metadata. The cache itself is only serializable when its keys and
+ * values are.
+ * <p>
+ * Inspired by <a href="https://github.com/ben-manes/caffeine">Caffeine</a>.
+ *
+ * @author Bauke Scholtz
+ * @param <K> The generic map key type.
+ * @param <V> The generic map value type.
+ * @since 4.6
+ * @see LruCache
+ */
+public class ConcurrentLruCache<K, V> implements ConcurrentMap<K, V>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String ERROR_NULL_KEY_DISALLOWED = "key may not be null";
+    private static final String ERROR_NULL_VALUE_DISALLOWED = "value may not be null";
+
+    private static final int READ_BUFFER_SIZE = 64;
+    private static final int MAX_READ_BUFFERS = 16;
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+
+    private final int maximumCapacity;
+    private final long maximumWeight;
+    private final Weigher<? super K, ? super V> weigher;
+    private final SerializableBiConsumer<K, V> evictionListener;
+    private final ConcurrentHashMap<K, V> entries;
+    private final LinkedHashMap<K, Long> accessOrder; // Value represents weight.
+    private final ReadBuffer<K>[] readBuffers;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long totalWeight;
+
+    // Constructors ---------------------------------------------------------------------------------------------------
+
+    /**
+     * Construct concurrent LRU cache with given maximum capacity.
+     * @param maximumCapacity The maximum capacity.
+     * @throws IllegalArgumentException when maximum capacity is less than 2.
+     */
+    public ConcurrentLruCache(int maximumCapacity) {
+        this(maximumCapacity, (key, value) -> {});
+    }
+
+    /**
+     * Construct concurrent LRU cache with given maximum capacity and eviction listener.
+     * @param maximumCapacity The maximum capacity.
+     * @param evictionListener The eviction listener.
+     * @throws IllegalArgumentException when maximum capacity is less than 2.
+     */
+    public ConcurrentLruCache(int maximumCapacity, SerializableBiConsumer<K, V> evictionListener) {
+        this(maximumCapacity, Long.MAX_VALUE, null, evictionListener);
+    }
+
+    /**
+     * Construct concurrent LRU cache with given maximum capacity, maximum weight, weigher and eviction listener.
+     * @param maximumCapacity The maximum capacity. Use {@link Integer#MAX_VALUE} if only the weight is relevant.
+     * @param maximumWeight The maximum total weight of all entries as calculated by the given weigher.
+     * @param weigher The weigher.
+     * @param evictionListener The eviction listener.
+     * @throws IllegalArgumentException when maximum capacity is less than 2 or maximum weight is less than 1.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLruCache(int maximumCapacity, long maximumWeight, Weigher<? super K, ? super V> weigher, SerializableBiConsumer<K, V> evictionListener) {
+        if (maximumCapacity < 2) {
+            throw new IllegalArgumentException("It does not make sense having a maximum capacity less than 2.");
+        }
+
+        if (maximumWeight < 1) {
+            throw new IllegalArgumentException("It does not make sense having a maximum weight less than 1.");
+        }
+
+        requireNonNull(evictionListener, "Use the other constructor when you do not have an eviction listener.");
+
+        this.maximumCapacity = maximumCapacity;
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.evictionListener = evictionListener;
+        this.entries = new ConcurrentHashMap<>(Math.min(maximumCapacity, MAX_INITIAL_CAPACITY));
+        this.accessOrder = new LinkedHashMap<>(Math.min(maximumCapacity, MAX_INITIAL_CAPACITY), 0.75f, true);
+        this.readBuffers = new ReadBuffer[getNumberOfReadBuffers()];
+
+        for (var i = 0; i < readBuffers.length; i++) {
+            readBuffers[i] = new ReadBuffer<>();
+        }
+    }
+
+    private static int getNumberOfReadBuffers() {
+        var processors = Runtime.getRuntime().availableProcessors();
+        return Math.min(MAX_READ_BUFFERS, Integer.highestOneBit(Math.max(1, processors - 1)) << 1);
+    }
+
+    // Mutation methods -----------------------------------------------------------------------------------------------
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        requireNonNull(key, ERROR_NULL_KEY_DISALLOWED);
+        var value = entries.get(key);
+
+        if (value != null) {
+            recordRead((K) key);
+        }
+
+        return value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, weigh(key, value), false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, weigh(key, value), true);
+    }
+
+    /**
+     * Weigh the given entry. This must be invoked before taking the lock, as weighing may be expensive.
+     */
+    private long weigh(K key, V value) {
+        requireNonNull(key, ERROR_NULL_KEY_DISALLOWED);
+        requireNonNull(value, ERROR_NULL_VALUE_DISALLOWED);
+        return weigher != null ? weigher.weigh(key, value) : 0;
+    }
+
+    private V put(K key, V value, long valueWeight, boolean onlyIfAbsent) {
+        List<Entry<K, V>> evictedEntries = new ArrayList<>(1);
+        var previousValue = executeAtomically(lock, () -> {
+            drainReadBuffers();
+            var existingValue = entries.get(key);
+            var existingWeight = accessOrder.get(key);
+            var newValue = onlyIfAbsent && existingValue != null ? existingValue : value;
+            long weight = newValue == value || existingWeight == null ? valueWeight : existingWeight;
+
+            if (weight > maximumWeight) { // Reject new value, but do not keep existing value as it's been replaced.
+                if (existingValue != null) {
+                    removeEntry(key);
+                    evictedEntries.add(new SimpleEntry<>(key, existingValue));
+                }
+
+                return existingValue;
+            }
+
+            var otherWeight = totalWeight - (existingWeight != null ? existingWeight : 0);
+
+            while (!accessOrder.isEmpty() && (entries.size() >= maximumCapacity && existingValue == null || otherWeight + weight > maximumWeight)) {
+                var leastRecentlyUsedKey = accessOrder.keySet().iterator().next();
+
+                if (leastRecentlyUsedKey.equals(key)) {
+                    break; // The accessOrder.get() above moved it to the end, so all others are already evicted.
+                }
+
+                otherWeight -= accessOrder.get(leastRecentlyUsedKey);
+                evictedEntries.add(new SimpleEntry<>(leastRecentlyUsedKey, removeEntry(leastRecentlyUsedKey)));
+            }
+
+            entries.put(key, newValue);
+            accessOrder.put(key, weight);
+            totalWeight = otherWeight + weight;
+            return existingValue;
+        });
+
+        evictedEntries.forEach(evictedEntry -> evictionListener.accept(evictedEntry.getKey(), evictedEntry.getValue()));
+        return previousValue;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        map.forEach(this::put);
+    }
+
+    @Override
+    public V remove(Object key) {
+        requireNonNull(key, ERROR_NULL_KEY_DISALLOWED);
+        return executeAtomically(lock, () -> removeEntry(key));
+    }
+
+    private V removeEntry(Object key) {
+        var weight = accessOrder.remove(key);
+
+        if (weight != null) {
+            totalWeight -= weight;
+        }
+
+        return entries.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        requireNonNull(key, ERROR_NULL_KEY_DISALLOWED);
+        requireNonNull(value, ERROR_NULL_VALUE_DISALLOWED);
+        return executeAtomically(lock, () -> value.equals(entries.get(key)) && remove(key) != null);
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        var weight = weigh(key, value);
+        return executeAtomically(lock, () -> entries.containsKey(key) ? put(key, value, weight, false) : null);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        requireNonNull(key, ERROR_NULL_KEY_DISALLOWED);
+        requireNonNull(oldValue, ERROR_NULL_VALUE_DISALLOWED);
+        var weight = weigh(key, newValue);
+        return executeAtomically(lock, () -> oldValue.equals(entries.get(key)) && put(key, newValue, weight, false) != null);
+    }
+
+    @Override
+    public void clear() {
+        executeAtomically(lock, () -> {
+            drainReadBuffers();
+            accessOrder.clear();
+            entries.clear();
+            totalWeight = 0;
+        });
+    }
+
+    // Readonly methods -----------------------------------------------------------------------------------------------
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total weight of all entries as calculated by the weigher.
+     * @return The total weight of all entries, or <code>-1</code> if there is no weigher.
+     */
+    public long getWeight() {
+        return weigher != null ? totalWeight : -1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return entries.containsValue(value);
+    }
+
+    // Readonly views -------------------------------------------------------------------------------------------------
+
+    @Override
+    public Set<K> keySet() {
+        return Set.copyOf(entries.keySet());
+    }
+
+    @Override
+    public Collection<V> values() {
+        return List.copyOf(entries.values());
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return Set.copyOf(entries.entrySet());
+    }
+
+    // Read buffers ---------------------------------------------------------------------------------------------------
+
+    /**
+     * Record the read of the given key in the read buffer of the current thread. When the read buffer is full, then
+     * try to drain all read buffers. If the lock is not available, the read is simply not recorded.
+     */
+    private void recordRead(K key) {
+        var readBuffer = readBuffers[(int) Thread.currentThread().getId() & (readBuffers.length - 1)];
+
+        if (!readBuffer.offer(key) && lock.tryLock()) {
+            try {
+                drainReadBuffers();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Apply all recorded reads to the access order. This must be invoked while holding the lock.
+     */
+    private void drainReadBuffers() {
+        for (var readBuffer : readBuffers) {
+            readBuffer.drainTo(accessOrder::get);
+        }
+    }
+
+    /**
+     * A lossy bounded buffer of recently read keys.
+     */
+    private static final class ReadBuffer<K> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicReferenceArray<K> keys = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        private final AtomicInteger writeIndex = new AtomicInteger();
+
+        /**
+         * Returns false when the buffer is full and the key is thus not recorded.
+         */
+        boolean offer(K key) {
+            if (writeIndex.get() >= READ_BUFFER_SIZE) {
+                return false;
+            }
+
+            var index = writeIndex.getAndIncrement();
+
+            if (index >= READ_BUFFER_SIZE) {
+                return false;
+            }
+
+            keys.lazySet(index, key);
+            return true;
+        }
+
+        void drainTo(Consumer<K> consumer) {
+            var size = Math.min(writeIndex.get(), READ_BUFFER_SIZE);
+
+            for (var i = 0; i < size; i++) {
+                var key = keys.getAndSet(i, null);
+
+                if (key != null) {
+                    consumer.accept(key);
+                }
+            }
+
+            writeIndex.set(0);
+        }
+    }
+}
@@ -15,11 +15,15 @@ package org.omnifaces.util.cache;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.omnifaces.util.FunctionalInterfaces.SerializableBiConsumer;
+
 /**
  * An in-memory cache implementation that's used if the user did not configure an explicit caching provider.
  * <p>
- * For the actual implementation, a {@link LruCache} is used if a maximum capacity is requested,
- * otherwise a plain {@link ConcurrentHashMap} is used.
+ * For the actual implementation, a {@link LruCache} is used if a maximum capacity or maximum weight is requested,
+ * otherwise a plain {@link ConcurrentHashMap} is used. If a maximum capacity or maximum weight is requested and
+ * <code>concurrent</code> is <code>true</code>, then a {@link ConcurrentLruCache} is used instead of {@link LruCache}.
+ * When a maximum weight is requested without an explicit {@link Weigher}, then the {@link DefaultWeigher} is used.
  *
  * @since 1.1
  * @author Arjan Tijms
@@ -30,16 +34,67 @@ public class DefaultCache extends TimeToLiveCache {
     private static final long serialVersionUID = 1L;
 
     public DefaultCache(Integer defaultTimeToLive, Integer maxCapacity) {
+        this(defaultTimeToLive, maxCapacity, false);
+    }
+
+    /**
+     * Construct default cache with given default time to live, maximum capacity and whether the store must be
+     * optimized for concurrent reads.
+     * @param defaultTimeToLive The default time to live in seconds, may be <code>null</code>.
+     * @param maxCapacity The maximum capacity, may be <code>null</code>.
+     * @param concurrent Whether to use {@link ConcurrentLruCache} instead of {@link LruCache} when a maximum capacity
+     * is requested.
+     * @since 4.6
+     */
+    public DefaultCache(Integer defaultTimeToLive, Integer maxCapacity, boolean concurrent) {
+        this(defaultTimeToLive, maxCapacity, null, null, concurrent);
+    }
+
+    /**
+     * Construct default cache with given default time to live, maximum capacity, maximum weight, weigher and whether
+     * the store must be optimized for concurrent reads.
+     * @param defaultTimeToLive The default time to live in seconds, may be <code>null</code>.
+     * @param maxCapacity The maximum capacity, may be <code>null</code>.
+     * @param maxWeight The maximum total weight of all entries, may be <code>null</code>.
+     * @param weigher The weigher, may be <code>null</code>, in which case the {@link DefaultWeigher} is used when a
+     * maximum weight is requested.
+     * @param concurrent Whether to use {@link ConcurrentLruCache} instead of {@link LruCache} when a maximum capacity
+     * or maximum weight is requested.
+     * @since 4.6
+     */
+    public DefaultCache(Integer defaultTimeToLive, Integer maxCapacity, Long maxWeight, Weigher<? super String, ? super CacheEntry> weigher, boolean concurrent) {
         super(defaultTimeToLive);
-        setCacheStore(createCacheStore(maxCapacity));
+        setCacheStore(createCacheStore(maxCapacity, maxWeight, weigher, concurrent, this::evicted));
     }
 
-    private static Map<String, CacheEntry> createCacheStore(Integer maxCapacity) {
-        if (maxCapacity != null) {
-            return new LruCache<>(maxCapacity);
+    private static Map<String, CacheEntry> createCacheStore(Integer maxCapacity, Long maxWeight, Weigher<? super String, ? super CacheEntry> weigher, boolean concurrent, SerializableBiConsumer<String, CacheEntry> evictionListener) {
+        if (maxWeight != null) {
+            var capacity = maxCapacity != null ? maxCapacity : Integer.MAX_VALUE;
+            Weigher<? super String, ? super CacheEntry> entryWeigher = weigher != null ? weigher : new DefaultWeigher();
+            return concurrent
+                    ? new ConcurrentLruCache<>(capacity, maxWeight, entryWeigher, evictionListener)
+                    : new LruCache<>(capacity, maxWeight, entryWeigher, evictionListener);
+        }
+        else if (maxCapacity != null) {
+            return concurrent ? new ConcurrentLruCache<>(maxCapacity, evictionListener) : new LruCache<>(maxCapacity, evictionListener);
         } else {
             return new ConcurrentHashMap<>();
         }
     }
 
+    @Override
+    public long getWeight() {
+        var cacheStore = getCacheStore();
+
+        if (cacheStore instanceof LruCache) {
+            return ((LruCache<?, ?>) cacheStore).getWeight();
+        }
+        else if (cacheStore instanceof ConcurrentLruCache) {
+            return ((ConcurrentLruCache<?, ?>) cacheStore).getWeight();
+        }
+        else {
+            return -1;
+        }
+    }
+
 }
\ No newline at end of file
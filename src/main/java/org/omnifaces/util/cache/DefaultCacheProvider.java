@@ -12,11 +12,23 @@
  */
 package org.omnifaces.util.cache;
 
+import static java.lang.Boolean.parseBoolean;
+import static org.omnifaces.util.Reflection.instance;
+
+import java.util.Map;
+
 /**
  * A default cache provider that will be used by the OmniFaces Cache component if no explicit provider has been
  * configured.
  * <p>
- * This will create a Cache instance that uses a {@link LruCache} for the actual implementation.
+ * This will create a Cache instance that uses a {@link LruCache} for the actual implementation. When the
+ * {@value #CONCURRENT_PARAM_NAME} setting is <code>true</code>, then a {@link ConcurrentLruCache} will be used instead.
+ * When the {@value #STORE_AS_BYTES_PARAM_NAME} setting is <code>true</code>, then string values will be stored as
+ * {@link EncodedContent}, compressed when larger than the {@value #COMPRESSION_THRESHOLD_PARAM_NAME} setting in bytes.
+ * When the {@value #APP_MAX_WEIGHT_PARAM_NAME} or {@value #SESSION_MAX_WEIGHT_PARAM_NAME} setting is specified, then
+ * the cache will be bounded by the total weight of its entries as calculated by the {@link Weigher} whose fully
+ * qualified class name is specified by the {@value #WEIGHER_PARAM_NAME} setting, which defaults to
+ * {@link DefaultWeigher}.
  *
  * @since 1.1
  * @author Arjan Tijms
@@ -24,9 +36,47 @@ package org.omnifaces.util.cache;
  */
 public class DefaultCacheProvider extends CacheInstancePerScopeProvider {
 
+    /**
+     * The setting name of whether the cache store must be optimized for concurrent reads.
+     * @since 4.6
+     */
+    public static final String CONCURRENT_PARAM_NAME = "CONCURRENT";
+
+    /**
+     * The setting name of whether string values must be stored as UTF-8 encoded bytes.
+     * @since 4.6
+     */
+    public static final String STORE_AS_BYTES_PARAM_NAME = "STORE_AS_BYTES";
+
+    /**
+     * The setting name of the minimum amount of encoded bytes before they are compressed as well.
+     * @since 4.6
+     */
+    public static final String COMPRESSION_THRESHOLD_PARAM_NAME = "COMPRESSION_THRESHOLD";
+
+    /**
+     * The setting name of the fully qualified class name of the {@link Weigher} to use when a maximum weight is set.
+     * @since 4.6
+     */
+    public static final String WEIGHER_PARAM_NAME = "WEIGHER";
+
     @Override
     protected Cache createCache(Integer timeToLive, Integer maxCapacity) {
-        return new DefaultCache(timeToLive, maxCapacity);
+        return createCache(timeToLive, maxCapacity, null);
+    }
+
+    @Override
+    protected Cache createCache(Integer timeToLive, Integer maxCapacity, Long maxWeight) {
+        var weigher = getParameter(WEIGHER_PARAM_NAME);
+        var cache = new DefaultCache(timeToLive, maxCapacity, maxWeight, weigher != null ? instance(weigher) : null, parseBoolean(getParameter(CONCURRENT_PARAM_NAME)));
+        var compressionThreshold = getParameter(COMPRESSION_THRESHOLD_PARAM_NAME);
+        cache.setStoreAsBytes(parseBoolean(getParameter(STORE_AS_BYTES_PARAM_NAME)), compressionThreshold != null ? Integer.parseInt(compressionThreshold) : -1);
+        return cache;
+    }
+
+    private String getParameter(String name) {
+        Map<String, String> parameters = getParameters();
+        return parameters != null ? parameters.get(name) : null;
     }
 
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.util.cache;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ConcurrentModificationException;
+
+/**
+ * Default {@link Weigher} which calculates the approximate weight in bytes of both the key and the value as follows:
+ * <ul>
+ * <li>{@link String}: two bytes per character.
+ * <li><code>byte[]</code>: one byte per element.
+ * <li>{@link EncodedContent}: its {@link EncodedContent#getSize()}.
+ * <li>{@link CacheEntry}: the weight of its {@link CacheEntry#getValue()} plus the weight of the names and values of
+ * its {@link CacheEntry#getAttributes()}.
+ * <li>Any other {@link Serializable}: the size of its Java serialization output.
+ * <li>Anything else: zero.
+ * </ul>
+ *
+ * @author Bauke Scholtz
+ * @since 4.6
+ * @see Weigher
+ */
+public class DefaultWeigher implements Weigher<Object, Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public long weigh(Object key, Object value) {
+        return weightOf(key) + weightOf(value);
+    }
+
+    /**
+     * Returns the approximate weight in bytes of the given object.
+     * @param object The object to calculate the approximate weight in bytes for.
+     * @return The approximate weight in bytes of the given object.
+     */
+    protected long weightOf(Object object) {
+        if (object instanceof String) {
+            return 2L * ((String) object).length();
+        }
+        else if (object instanceof byte[]) {
+            return ((byte[]) object).length;
+        }
+        else if (object instanceof EncodedContent) {
+            return ((EncodedContent) object).getSize();
+        }
+        else if (object instanceof CacheEntry) {
+            return weightOf((CacheEntry) object);
+        }
+        else if (object instanceof Serializable) {
+            return serializedSizeOf(object);
+        }
+        else {
+            return 0;
+        }
+    }
+
+    private long weightOf(CacheEntry entry) {
+        var weight = weightOf(entry.getValue());
+
+        if (entry.hasAttributes()) {
+            try {
+                for (var attribute : entry.getAttributes().entrySet()) {
+                    weight += weightOf(attribute.getKey()) + weightOf(attribute.getValue());
+                }
+            }
+            catch (ConcurrentModificationException ignore) {
+                // Attribute was concurrently put, which will re-weigh the entry anyway.
+            }
+        }
+
+        return weight;
+    }
+
+    private static long serializedSizeOf(Object object) {
+        var counter = new CountingOutputStream();
+
+        try (var output = new ObjectOutputStream(counter)) {
+            output.writeObject(object);
+        }
+        catch (IOException e) {
+            return 0; // Apparently not serializable after all, e.g. because of a non-serializable field.
+        }
+
+        return counter.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+}
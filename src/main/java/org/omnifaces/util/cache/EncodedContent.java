@@ -0,0 +1,142 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.util.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.omnifaces.util.Utils.toByteArray;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Holds a string value as UTF-8 encoded bytes, optionally compressed with ZLIB when the encoded bytes exceed a certain
+ * threshold. This is to be used as cache value for large strings such as rendered fragments, which would otherwise end
+ * up in heap as UTF-16 whenever they contain a non-Latin-1 character. The decoded string is not retained, as it would
+ * otherwise end up in heap next to the bytes. Use {@link #writeTo(Writer)} to decode the content straight into a
+ * writer without materializing it as string.
+ *
+ * @author Bauke Scholtz
+ * @since 4.6
+ * @see TimeToLiveCache#setStoreAsBytes(boolean, int)
+ */
+public final class EncodedContent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] bytes;
+    private final boolean compressed;
+
+    private EncodedContent(byte[] bytes, boolean compressed) {
+        this.bytes = bytes;
+        this.compressed = compressed;
+    }
+
+    /**
+     * Encode the given string as UTF-8 and compress it with ZLIB when the encoded bytes are larger than the given
+     * compression threshold.
+     * @param content The string to be encoded.
+     * @param compressionThreshold The minimum amount of encoded bytes before compression is applied. Use
+     * <code>-1</code> to never compress.
+     * @return The encoded content.
+     */
+    public static EncodedContent of(String content, int compressionThreshold) {
+        var bytes = content.getBytes(UTF_8);
+
+        if (compressionThreshold < 0 || bytes.length <= compressionThreshold) {
+            return new EncodedContent(bytes, false);
+        }
+
+        var deflated = new ByteArrayOutputStream(bytes.length / 4);
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+
+        try (var output = new DeflaterOutputStream(deflated, deflater)) {
+            output.write(bytes);
+        }
+        catch (IOException e) {
+            // This will occur when ZLIB is not supported, but this is not to be expected these days.
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            deflater.end();
+        }
+
+        var deflatedBytes = deflated.toByteArray();
+        return deflatedBytes.length < bytes.length ? new EncodedContent(deflatedBytes, true) : new EncodedContent(bytes, false);
+    }
+
+    /**
+     * Returns the size of the encoded and possibly compressed content in bytes.
+     * @return The size of the encoded and possibly compressed content in bytes.
+     */
+    public int getSize() {
+        return bytes.length;
+    }
+
+    /**
+     * Returns whether the content is compressed.
+     * @return Whether the content is compressed.
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Write the decoded content to the given writer. The content is decoded in chunks straight into the writer, without
+     * materializing it as string.
+     * @param writer The writer to write the decoded content to.
+     * @throws IOException When an I/O error occurs.
+     */
+    public void writeTo(Writer writer) throws IOException {
+        var input = new ByteArrayInputStream(bytes);
+
+        try (var reader = new InputStreamReader(compressed ? new InflaterInputStream(input) : input, UTF_8)) {
+            reader.transferTo(writer);
+        }
+    }
+
+    /**
+     * Returns the decoded content as string. This is decoded on every call, so prefer {@link #writeTo(Writer)} when
+     * the content merely needs to be written.
+     * @return The decoded content as string.
+     */
+    public String getContent() {
+        if (!compressed) {
+            return new String(bytes, UTF_8);
+        }
+
+        try (var input = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(toByteArray(input), UTF_8);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the decoded content as string.
+     * @see #getContent()
+     */
+    @Override
+    public String toString() {
+        return getContent();
+    }
+
+}
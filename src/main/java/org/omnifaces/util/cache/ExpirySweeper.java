@@ -0,0 +1,116 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.util.cache;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.logging.Level.WARNING;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.logging.Logger;
+
+/**
+ * Background sweeper which periodically invokes {@link TimeToLiveCache#sweep()} on a single cache so that expired
+ * entries are removed even when their keys are never accessed again. Each cache has its own sweeping task, so that
+ * stopping the sweeping of one cache, e.g. the application scoped cache of an application which is being undeployed,
+ * does not affect any other cache. The cache is only weakly referenced by its task, so e.g. session scoped caches can
+ * still be garbage collected when the session is destroyed, whereupon the task cancels itself.
+ * <p>
+ * All tasks share a single daemon thread which is lazily started and which terminates itself once there are no tasks
+ * anymore, so that it does not keep the class loader of an undeployed application alive.
+ *
+ * @author Bauke Scholtz
+ * @since 4.6
+ * @see TimeToLiveCache
+ * @see CacheInitializer#destroy(jakarta.servlet.ServletContext)
+ */
+final class ExpirySweeper implements Runnable {
+
+    // Constants ------------------------------------------------------------------------------------------------------
+
+    private static final Logger logger = Logger.getLogger(ExpirySweeper.class.getName());
+
+    private static final long SWEEP_INTERVAL_IN_SECONDS = 1;
+    private static final long KEEP_ALIVE_IN_SECONDS = 10;
+    private static final String THREAD_NAME = "OmniFaces-ExpirySweeper";
+    private static final String WARNING_SWEEP_FAILED = "Sweeping expired cache entries has failed.";
+
+    private static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+
+    // Properties -----------------------------------------------------------------------------------------------------
+
+    private final WeakReference<TimeToLiveCache> cache;
+    private volatile ScheduledFuture<?> task;
+
+    // Constructors ---------------------------------------------------------------------------------------------------
+
+    private ExpirySweeper(TimeToLiveCache cache) {
+        this.cache = new WeakReference<>(cache);
+    }
+
+    private static ScheduledThreadPoolExecutor createExecutor() {
+        var executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            var thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            thread.setContextClassLoader(null); // Don't pin the class loader of whatever application happened to start it.
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setKeepAliveTime(KEEP_ALIVE_IN_SECONDS, SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // Actions --------------------------------------------------------------------------------------------------------
+
+    /**
+     * Start periodically sweeping the given cache.
+     * @param cache The cache to be swept periodically.
+     * @return The sweeper, which should be {@link #stop() stopped} when the cache is not used anymore.
+     */
+    static ExpirySweeper start(TimeToLiveCache cache) {
+        var sweeper = new ExpirySweeper(cache);
+        sweeper.task = EXECUTOR.scheduleWithFixedDelay(sweeper, SWEEP_INTERVAL_IN_SECONDS, SWEEP_INTERVAL_IN_SECONDS, SECONDS);
+        return sweeper;
+    }
+
+    /**
+     * Stop periodically sweeping the cache.
+     */
+    void stop() {
+        var currentTask = task;
+
+        if (currentTask != null) {
+            currentTask.cancel(false);
+        }
+    }
+
+    @Override
+    public void run() {
+        var currentCache = cache.get();
+
+        if (currentCache == null) {
+            stop();
+            return;
+        }
+
+        try {
+            currentCache.sweep();
+        }
+        catch (Exception e) {
+            logger.log(WARNING, WARNING_SWEEP_FAILED, e); // Don't let a single failure kill the scheduled task.
+        }
+    }
+
+}
@@ -18,6 +18,7 @@ import static org.omnifaces.util.Utils.executeAtomically;
 import java.io.Serializable;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -30,6 +31,11 @@ import org.omnifaces.util.FunctionalInterfaces.SerializableBiConsumer;
 
 /**
  * Minimal implementation of thread safe LRU cache with support for eviction listener.
+ * <p>
+ * Since 4.6, the cache can also be bounded by a maximum weight in addition to the maximum capacity. The weight of each
+ * entry is then calculated by the given {@link Weigher} when it's being put. A value whose weight alone exceeds the
+ * maximum weight is not stored at all. Any existing value of the same key is then removed and passed to the eviction
+ * listener, but the rejected value itself is not.
  * Inspired by <a href="https://github.com/ben-manes/concurrentlinkedhashmap">ConcurrentLinkedHashMap</a>.
  *
  * @author Bauke Scholtz
@@ -43,11 +49,16 @@ public class LruCache<K extends Serializable, V extends Serializable> implements
 
     private static final String ERROR_NULL_KEY_DISALLOWED = "key may not be null";
     private static final String ERROR_NULL_VALUE_DISALLOWED = "value may not be null";
+    private static final int MAX_INITIAL_CAPACITY = 1024;
 
     private final int maximumCapacity;
+    private final long maximumWeight;
+    private final Weigher<? super K, ? super V> weigher;
     private final SerializableBiConsumer<K, V> evictionListener;
     private final LinkedHashMap<K, V> entries;
+    private final HashMap<K, Long> weights;
     private final ReentrantLock lock = new ReentrantLock();
+    private volatile long totalWeight;
 
     // Constructors ---------------------------------------------------------------------------------------------------
 
@@ -67,15 +78,35 @@ public class LruCache<K extends Serializable, V extends Serializable> implements
      * @throws IllegalArgumentException when maximum capacity is less than 2.
      */
     public LruCache(int maximumCapacity, SerializableBiConsumer<K, V> evictionListener) {
+        this(maximumCapacity, Long.MAX_VALUE, null, evictionListener);
+    }
+
+    /**
+     * Construct LRU cache with given maximum capacity, maximum weight, weigher and eviction listener.
+     * @param maximumCapacity The maximum capacity. Use {@link Integer#MAX_VALUE} if only the weight is relevant.
+     * @param maximumWeight The maximum total weight of all entries as calculated by the given weigher.
+     * @param weigher The weigher.
+     * @param evictionListener The eviction listener.
+     * @throws IllegalArgumentException when maximum capacity is less than 2 or maximum weight is less than 1.
+     * @since 4.6
+     */
+    public LruCache(int maximumCapacity, long maximumWeight, Weigher<? super K, ? super V> weigher, SerializableBiConsumer<K, V> evictionListener) {
         if (maximumCapacity < 2) {
             throw new IllegalArgumentException("It does not make sense having a maximum capacity less than 2.");
         }
 
+        if (maximumWeight < 1) {
+            throw new IllegalArgumentException("It does not make sense having a maximum weight less than 1.");
+        }
+
         requireNonNull(evictionListener, "Use the other constructor when you do not have an eviction listener.");
 
         this.maximumCapacity = maximumCapacity;
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
         this.evictionListener = evictionListener;
-        this.entries = new LinkedHashMap<>(maximumCapacity);
+        this.entries = new LinkedHashMap<>(Math.min(maximumCapacity, MAX_INITIAL_CAPACITY));
+        this.weights = weigher != null ? new HashMap<>() : null;
     }
 
     // Mutation methods -----------------------------------------------------------------------------------------------
@@ -96,27 +127,51 @@ public class LruCache<K extends Serializable, V extends Serializable> implements
 
     @Override
     public V put(K key, V value) {
-        return put(key, value, false);
+        return put(key, value, weigh(key, value), false);
     }
 
     @Override
     public V putIfAbsent(K key, V value) {
-        return put(key, value, true);
+        return put(key, value, weigh(key, value), true);
     }
 
-    private V put(K key, V value, boolean onlyIfAbsent) {
+    /**
+     * Weigh the given entry. This must be invoked before taking the lock, as weighing may be expensive.
+     */
+    private long weigh(K key, V value) {
         requireNonNull(key, ERROR_NULL_KEY_DISALLOWED);
         requireNonNull(value, ERROR_NULL_VALUE_DISALLOWED);
+        return weigher != null ? weigher.weigh(key, value) : 0;
+    }
+
+    private V put(K key, V value, long valueWeight, boolean onlyIfAbsent) {
         Set<Entry<K, V>> evictedEntries = new HashSet<>(1);
         var previousValue = executeAtomically(lock, () -> {
-            var existingValue = entries.remove(key);
+            var existingWeight = weigher != null ? weights.get(key) : null;
+            var existingValue = removeEntry(key);
+            var newValue = onlyIfAbsent && existingValue != null ? existingValue : value;
+            var weight = newValue == value || existingWeight == null ? valueWeight : existingWeight;
+
+            if (weight > maximumWeight) { // Reject new value, but do not keep existing value as it's been replaced.
+                if (existingValue != null) {
+                    evictedEntries.add(new SimpleEntry<>(key, existingValue));
+                }
 
-            while (entries.size() >= maximumCapacity) {
+                return existingValue;
+            }
+
+            while (entries.size() >= maximumCapacity || totalWeight + weight > maximumWeight) {
                 var leastRecentlyUsedKey = entries.keySet().iterator().next();
-                evictedEntries.add(new SimpleEntry<>(leastRecentlyUsedKey, entries.remove(leastRecentlyUsedKey)));
+                evictedEntries.add(new SimpleEntry<>(leastRecentlyUsedKey, removeEntry(leastRecentlyUsedKey)));
+            }
+
+            entries.put(key, newValue);
+
+            if (weigher != null) {
+                weights.put(key, weight);
+                totalWeight += weight;
             }
 
-            entries.put(key, onlyIfAbsent && existingValue != null ? existingValue : value);
             return existingValue;
         });
 
@@ -132,34 +187,50 @@ public class LruCache<K extends Serializable, V extends Serializable> implements
     @Override
     public V remove(Object key) {
         requireNonNull(key, ERROR_NULL_KEY_DISALLOWED);
-        return executeAtomically(lock, () -> entries.remove(key));
+        return executeAtomically(lock, () -> removeEntry(key));
+    }
+
+    private V removeEntry(Object key) {
+        var value = entries.remove(key);
+
+        if (value != null && weigher != null) {
+            totalWeight -= weights.remove(key);
+        }
+
+        return value;
     }
 
     @Override
     public boolean remove(Object key, Object value) {
         requireNonNull(key, ERROR_NULL_KEY_DISALLOWED);
         requireNonNull(value, ERROR_NULL_VALUE_DISALLOWED);
-        return executeAtomically(lock, () -> value.equals(entries.get(key)) && entries.remove(key) != null);
+        return executeAtomically(lock, () -> value.equals(entries.get(key)) && removeEntry(key) != null);
     }
 
     @Override
     public V replace(K key, V value) {
-        requireNonNull(key, ERROR_NULL_KEY_DISALLOWED);
-        requireNonNull(value, ERROR_NULL_VALUE_DISALLOWED);
-        return executeAtomically(lock, () -> entries.containsKey(key) ? put(key, value, false) : null);
+        var weight = weigh(key, value);
+        return executeAtomically(lock, () -> entries.containsKey(key) ? put(key, value, weight, false) : null);
     }
 
     @Override
     public boolean replace(K key, V oldValue, V newValue) {
         requireNonNull(key, ERROR_NULL_KEY_DISALLOWED);
         requireNonNull(oldValue, ERROR_NULL_VALUE_DISALLOWED);
-        requireNonNull(newValue, ERROR_NULL_VALUE_DISALLOWED);
-        return executeAtomically(lock, () -> oldValue.equals(entries.get(key)) && put(key, newValue, false) != null);
+        var weight = weigh(key, newValue);
+        return executeAtomically(lock, () -> oldValue.equals(entries.get(key)) && put(key, newValue, weight, false) != null);
     }
 
     @Override
     public void clear() {
-        executeAtomically(lock, entries::clear);
+        executeAtomically(lock, () -> {
+            entries.clear();
+
+            if (weigher != null) {
+                weights.clear();
+                totalWeight = 0;
+            }
+        });
     }
 
     // Readonly methods -----------------------------------------------------------------------------------------------
@@ -169,6 +240,15 @@ public class LruCache<K extends Serializable, V extends Serializable> implements
         return entries.size();
     }
 
+    /**
+     * Returns the total weight of all entries as calculated by the weigher.
+     * @return The total weight of all entries, or <code>-1</code> if there is no weigher.
+     * @since 4.6
+     */
+    public long getWeight() {
+        return weigher != null ? totalWeight : -1;
+    }
+
     @Override
     public boolean isEmpty() {
         return entries.isEmpty();
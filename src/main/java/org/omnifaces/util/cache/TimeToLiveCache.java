@@ -13,14 +13,40 @@
 package org.omnifaces.util.cache;
 
 import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.omnifaces.util.cache.CacheEntry.NEVER_EXPIRES;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.Date;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
 
 /**
  * Base class that can be used by Map based caches that don't support time to live semantics and arbitrary attributes natively.
+ * <p>
+ * Since 4.6, the {@link #computeIfAbsent(String, Function)} and {@link #computeIfAbsentOrStale(String, Function)}
+ * methods and their overloads guarantee that the mapping function is for the same key invoked by at most one thread at
+ * a time. When the mapping function of the same thread in turn computes the same key, e.g. by a nested
+ * <code>&lt;o:cache&gt;</code> with the same key, then it will compute the value directly instead of waiting on itself.
+ * <p>
+ * Since 4.6, string values can be stored as UTF-8 encoded and optionally compressed bytes by
+ * {@link #setStoreAsBytes(boolean, int)}.
+ * <p>
+ * Since 4.6, an expired entry which was computed by {@link #computeIfAbsentOrStale(String, Function)} or its overloads
+ * is retained for another time to live, during which its stale value can still be served by it while a fresh value is
+ * being computed. Any other entry is not retained beyond its time to live. After that, expired entries
+ * are not only removed when they are accessed, but also proactively by a background sweeper. For this, the keys of
+ * entries having a time to live are indexed by the second in which their retention ends, so that the sweeper only needs
+ * to visit the entries which are actually due. This prevents expired entries whose keys are never accessed again from
+ * staying in memory forever.
  *
  * @since 1.1
  * @author Arjan Tijms
@@ -32,6 +58,11 @@ public abstract class TimeToLiveCache implements Cache {
 
     private final Integer defaultTimeToLive;
     private Map<String, CacheEntry> cacheStore;
+    private transient ConcurrentMap<String, Computation> computations = new ConcurrentHashMap<>();
+    private transient ConcurrentSkipListMap<Long, Set<String>> expiryIndex = new ConcurrentSkipListMap<>();
+    private transient volatile ExpirySweeper sweeper;
+    private boolean storeAsBytes;
+    private int compressionThreshold = -1;
 
     protected TimeToLiveCache(Integer defaultTimeToLive) {
         this.defaultTimeToLive = defaultTimeToLive;
@@ -39,7 +70,7 @@ public abstract class TimeToLiveCache implements Cache {
 
     @Override
     public String get(String key) {
-        return (String) getObject(key);
+        return toString(getObject(key));
     }
 
     @Override
@@ -47,10 +78,12 @@ public abstract class TimeToLiveCache implements Cache {
         var entry = cacheStore.get(key);
 
         if (entry != null) {
-            if (entry.isValid()) {
+            var now = getCurrentTimeMillis();
+
+            if (entry.isValid(now)) {
                 return entry.getValue();
             } else {
-                cacheStore.remove(key);
+                removeExpiredIfNotRetainable(key, entry, now);
             }
         }
 
@@ -68,33 +101,176 @@ public abstract class TimeToLiveCache implements Cache {
 
     @Override
     public void put(String key, String value, int timeToLive) {
-        putObject(key, value, timeToLive);
+        putObject(key, toStoredValue(value), timeToLive);
+    }
+
+    @Override
+    public void putObject(String key, Serializable value) {
+        if (defaultTimeToLive != null) {
+            putObject(key, value, defaultTimeToLive);
+        } else {
+            putObject(key, value, -1);
+        }
     }
 
     @Override
     public void putObject(String key, Serializable value, int timeToLive) {
+        putObject(key, value, timeToLive, false);
+    }
+
+    private void putObject(String key, Serializable value, int timeToLive, boolean retainStale) {
         var entry = cacheStore.get(key);
 
-        if (entry == null || !entry.isValid()) {
-            cacheStore.put(key, new CacheEntry(value,
-                    timeToLiveToDate(timeToLive)));
+        if (entry != null) {
+            unscheduleExpiry(key, entry);
+        }
+
+        if (entry == null || !entry.isValid(getCurrentTimeMillis())) {
+            entry = new CacheEntry(value, NEVER_EXPIRES);
         } else {
             entry.setValue(value);
-            entry.setValidTill(timeToLiveToDate(timeToLive));
         }
+
+        setTimeToLive(entry, timeToLive, retainStale);
+        cacheStore.put(key, entry); // Explicitly put back so that a weighted cache store can re-weigh it.
+        scheduleExpiry(key, entry);
+    }
+
+    @Override
+    public String computeIfAbsent(String key, Function<String, String> mappingFunction) {
+        return (String) compute(key, mappingFunction, getDefaultTimeToLive(), false, true);
+    }
+
+    @Override
+    public String computeIfAbsent(String key, Function<String, String> mappingFunction, int timeToLive) {
+        return (String) compute(key, mappingFunction, timeToLive, false, true);
+    }
+
+    @Override
+    public String computeIfAbsentOrStale(String key, Function<String, String> mappingFunction) {
+        return (String) compute(key, mappingFunction, getDefaultTimeToLive(), true, true);
+    }
+
+    @Override
+    public String computeIfAbsentOrStale(String key, Function<String, String> mappingFunction, int timeToLive) {
+        return (String) compute(key, mappingFunction, timeToLive, true, true);
+    }
+
+    @Override
+    public Serializable computeObjectIfAbsent(String key, Function<String, ? extends Serializable> mappingFunction) {
+        return compute(key, mappingFunction, getDefaultTimeToLive(), false, false);
+    }
+
+    @Override
+    public Serializable computeObjectIfAbsent(String key, Function<String, ? extends Serializable> mappingFunction, int timeToLive) {
+        return compute(key, mappingFunction, timeToLive, false, false);
+    }
+
+    @Override
+    public Serializable computeObjectIfAbsentOrStale(String key, Function<String, ? extends Serializable> mappingFunction) {
+        return compute(key, mappingFunction, getDefaultTimeToLive(), true, false);
+    }
+
+    @Override
+    public Serializable computeObjectIfAbsentOrStale(String key, Function<String, ? extends Serializable> mappingFunction, int timeToLive) {
+        return compute(key, mappingFunction, timeToLive, true, false);
+    }
+
+    private int getDefaultTimeToLive() {
+        return defaultTimeToLive != null ? defaultTimeToLive : -1;
+    }
+
+    /**
+     * When <code>asString</code> is <code>true</code>, then the value is stored via {@link #put(String, String, int)}
+     * and returned as {@link String}, else it's stored via {@link #putObject(String, Serializable, int)} as-is.
+     */
+    private Serializable compute(String key, Function<String, ? extends Serializable> mappingFunction, int timeToLive, boolean staleWhileRevalidate, boolean asString) {
+        while (true) {
+            var entry = cacheStore.get(key);
+            var now = getCurrentTimeMillis();
+            var value = entry != null && entry.isRetainable(now) ? toValue(entry.getValue(), asString) : null;
+
+            if (value != null && entry.isValid(now)) {
+                return value;
+            }
+
+            var computation = new Computation();
+            var runningComputation = computations.putIfAbsent(key, computation);
+
+            if (runningComputation == null) {
+                return compute(key, mappingFunction, timeToLive, staleWhileRevalidate, asString, computation);
+            }
+            else if (value != null && staleWhileRevalidate) {
+                return value;
+            }
+            else if (runningComputation.isOwnedByCurrentThread()) {
+                return computeDirectly(key, mappingFunction, timeToLive, staleWhileRevalidate, asString); // Waiting on ourselves would deadlock.
+            }
+
+            try {
+                return toValue(runningComputation.join(), asString);
+            }
+            catch (CompletionException e) {
+                continue; // Running computation has failed, so try to compute it ourselves.
+            }
+        }
+    }
+
+    private Serializable compute(String key, Function<String, ? extends Serializable> mappingFunction, int timeToLive, boolean staleWhileRevalidate, boolean asString, Computation computation) {
+        try {
+            var entry = cacheStore.get(key); // Running computation may have just finished before ours was registered.
+            var value = entry != null && entry.isValid(getCurrentTimeMillis()) ? toValue(entry.getValue(), asString) : null;
+
+            if (value == null) {
+                value = computeDirectly(key, mappingFunction, timeToLive, staleWhileRevalidate, asString);
+            }
+
+            computation.complete(value);
+            return value;
+        }
+        catch (RuntimeException | Error e) {
+            computation.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            computations.remove(key, computation);
+        }
+    }
+
+    private Serializable computeDirectly(String key, Function<String, ? extends Serializable> mappingFunction, int timeToLive, boolean staleWhileRevalidate, boolean asString) {
+        Serializable value = mappingFunction.apply(key);
+
+        if (value != null) {
+            putObject(key, asString ? toStoredValue((String) value) : value, timeToLive, staleWhileRevalidate);
+        }
+
+        return value;
+    }
+
+    private Serializable toStoredValue(String value) {
+        return storeAsBytes && value != null ? EncodedContent.of(value, compressionThreshold) : value;
     }
 
     @Override
     public void putAttribute(String key, String name, Serializable value, int timeToLive) {
         var entry = cacheStore.get(key);
 
-        if (entry == null || !entry.isValid()) {
+        if (entry == null || !entry.isValid(getCurrentTimeMillis())) {
+            if (entry != null) {
+                unscheduleExpiry(key, entry);
+            }
+
             // NOTE: timeToLive is only used when a new entry is created
-            entry = new CacheEntry(null, timeToLiveToDate(timeToLive));
+            entry = new CacheEntry(null, NEVER_EXPIRES);
+            setTimeToLive(entry, timeToLive, false);
+            entry.getAttributes().put(name, value);
             cacheStore.put(key, entry);
+            scheduleExpiry(key, entry);
+        }
+        else {
+            entry.getAttributes().put(name, value);
+            cacheStore.put(key, entry); // Explicitly put back so that a weighted cache store can re-weigh it.
         }
-
-        entry.getAttributes().put(name, value);
     }
 
     @Override
@@ -102,10 +278,12 @@ public abstract class TimeToLiveCache implements Cache {
         var entry = cacheStore.get(key);
 
         if (entry != null) {
-            if (entry.isValid()) {
+            var now = getCurrentTimeMillis();
+
+            if (entry.isValid(now)) {
                 return entry.getAttributes().get(name);
             } else {
-                cacheStore.remove(key);
+                removeExpiredIfNotRetainable(key, entry, now);
             }
         }
 
@@ -114,24 +292,203 @@ public abstract class TimeToLiveCache implements Cache {
 
     @Override
     public void remove(String key) {
-        cacheStore.remove(key);
+        var entry = cacheStore.remove(key);
+
+        if (entry != null) {
+            unscheduleExpiry(key, entry);
+        }
     }
 
     @Override
     public void clear() {
         cacheStore.clear();
+        expiryIndex.clear();
+    }
+
+    @Override
+    public int getSize() {
+        return cacheStore.size();
+    }
+
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        computations = new ConcurrentHashMap<>();
+        expiryIndex = new ConcurrentSkipListMap<>();
+        cacheStore.forEach(this::scheduleExpiry);
+    }
+
+    /**
+     * Sets the validity of the given entry based on the given time to live. When <code>retainStale</code> is
+     * <code>true</code>, then retain it for another time to live once it's expired, so that its stale value can still
+     * be served by {@link #computeIfAbsentOrStale(String, Function)}.
+     */
+    private void setTimeToLive(CacheEntry entry, int timeToLive, boolean retainStale) {
+        if (timeToLive != -1) {
+            var timeToLiveInMillis = SECONDS.toMillis(timeToLive);
+            var validTillMillis = getCurrentTimeMillis() + timeToLiveInMillis;
+            entry.setValidTillMillis(validTillMillis);
+
+            if (retainStale) {
+                entry.setStaleTillMillis(validTillMillis + timeToLiveInMillis);
+            }
+        }
+        else {
+            entry.setValidTillMillis(NEVER_EXPIRES);
+        }
+    }
+
+    /**
+     * Remove the given expired entry, but only if it's not retainable anymore, because its stale value may still be
+     * needed by {@link #computeIfAbsentOrStale(String, Function)} while a fresh value is being computed.
+     */
+    private void removeExpiredIfNotRetainable(String key, CacheEntry entry, long now) {
+        if (!entry.isRetainable(now) && cacheStore.remove(key, entry)) {
+            unscheduleExpiry(key, entry);
+        }
+    }
+
+    private void scheduleExpiry(String key, CacheEntry entry) {
+        var staleTillMillis = entry.getStaleTillMillis();
+
+        if (staleTillMillis == NEVER_EXPIRES) {
+            return;
+        }
+
+        if (sweeper == null) {
+            synchronized (this) {
+                if (sweeper == null) {
+                    sweeper = ExpirySweeper.start(this);
+                }
+            }
+        }
+
+        expiryIndex.computeIfAbsent(toExpirySecond(staleTillMillis), second -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    private void unscheduleExpiry(String key, CacheEntry entry) {
+        var staleTillMillis = entry.getStaleTillMillis();
+
+        if (staleTillMillis == NEVER_EXPIRES) {
+            return;
+        }
+
+        var second = toExpirySecond(staleTillMillis);
+        var keys = expiryIndex.get(second);
+
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            // If a concurrent scheduleExpiry() just added a key to this bucket, it will not be swept but just be removed
+            // on access or by eviction, exactly like before the sweeper existed. This is cheaper than locking.
+            expiryIndex.remove(second, keys);
+        }
+    }
+
+    /**
+     * Index by the first whole second after the end of retention, so that all entries in a due bucket are guaranteed
+     * to be not retainable anymore.
+     */
+    private static long toExpirySecond(long staleTillMillis) {
+        return MILLISECONDS.toSeconds(staleTillMillis) + 1;
+    }
+
+    /**
+     * Invoked when the given entry has been evicted from the cache store, e.g. by LRU, so that it can be unscheduled.
+     * @param key The key of the evicted entry.
+     * @param entry The evicted entry.
+     */
+    void evicted(String key, CacheEntry entry) {
+        unscheduleExpiry(key, entry);
+    }
+
+    /**
+     * Remove all entries which are not retainable anymore at this moment. This is periodically invoked by the
+     * {@link ExpirySweeper}. Entries which are still in their stale window, or which have been updated with a later
+     * expiry in the meanwhile, are left alone.
+     */
+    void sweep() {
+        var now = getCurrentTimeMillis();
+        var currentSecond = MILLISECONDS.toSeconds(now);
+
+        for (var bucket = expiryIndex.firstEntry(); bucket != null && bucket.getKey() <= currentSecond; bucket = expiryIndex.firstEntry()) {
+            expiryIndex.remove(bucket.getKey());
+
+            for (var key : bucket.getValue()) {
+                var entry = cacheStore.get(key);
+
+                if (entry != null && !entry.isRetainable(now)) {
+                    cacheStore.remove(key, entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the background sweeping of this cache. Expired entries are then only removed when they are accessed. This
+     * is invoked when the servlet context is destroyed.
+     */
+    void stopSweeping() {
+        var currentSweeper = sweeper;
+
+        if (currentSweeper != null) {
+            currentSweeper.stop();
+        }
+    }
+
+    /**
+     * Sets whether string values must be stored as UTF-8 encoded bytes via {@link EncodedContent} instead of as
+     * {@link String}, and the minimum amount of encoded bytes before the bytes are compressed as well. The
+     * {@link #get(String)} will transparently decode them back. This does not affect values stored via
+     * {@link #putObject(String, Serializable, int)}.
+     * @param storeAsBytes Whether string values must be stored as UTF-8 encoded bytes.
+     * @param compressionThreshold The minimum amount of encoded bytes before compression is applied. Use
+     * <code>-1</code> to never compress.
+     * @since 4.6
+     */
+    public void setStoreAsBytes(boolean storeAsBytes, int compressionThreshold) {
+        this.storeAsBytes = storeAsBytes;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * Returns the current moment in epoch milliseconds which is used to determine the validity of the entries. The
+     * default implementation returns {@link System#currentTimeMillis()}. This can be overridden for testing purposes.
+     * @return The current moment in epoch milliseconds.
+     * @since 4.6
+     */
+    protected long getCurrentTimeMillis() {
+        return currentTimeMillis();
     }
 
     protected void setCacheStore(Map<String, CacheEntry> cacheStore) {
         this.cacheStore = cacheStore;
     }
 
-    private static Date timeToLiveToDate(int timeToLive) {
-        if (timeToLive != -1) {
-            return new Date(currentTimeMillis() + SECONDS.toMillis(timeToLive));
-        } else {
-            return null;
+    /**
+     * Returns the underlying cache store.
+     * @return The underlying cache store.
+     * @since 4.6
+     */
+    protected Map<String, CacheEntry> getCacheStore() {
+        return cacheStore;
+    }
+
+    /**
+     * A running computation of a value, which remembers the thread computing it in order to detect re-entrancy.
+     */
+    private static final class Computation extends CompletableFuture<Serializable> {
+
+        private final Thread owner = Thread.currentThread();
+
+        boolean isOwnedByCurrentThread() {
+            return owner == Thread.currentThread();
         }
     }
 
+    private static Serializable toValue(Serializable value, boolean asString) {
+        return asString ? toString(value) : value;
+    }
+
+    private static String toString(Serializable value) {
+        return value instanceof EncodedContent ? ((EncodedContent) value).getContent() : (String) value;
+    }
+
 }
\ No newline at end of file
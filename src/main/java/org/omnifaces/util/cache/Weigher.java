@@ -0,0 +1,40 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.util.cache;
+
+import java.io.Serializable;
+
+/**
+ * Calculates the approximate weight in bytes of a cache entry. This is used by {@link LruCache} and
+ * {@link ConcurrentLruCache} in order to evict entries when the total weight of all entries exceeds the maximum weight.
+ * The weight of an entry is calculated once when it's being put in the cache and must therefore not depend on any
+ * mutable state of the value.
+ *
+ * @author Bauke Scholtz
+ * @param <K> The generic map key type.
+ * @param <V> The generic map value type.
+ * @since 4.6
+ * @see DefaultWeigher
+ */
+@FunctionalInterface
+public interface Weigher<K, V> extends Serializable {
+
+    /**
+     * Returns the approximate weight in bytes of the given cache entry.
+     * @param key The cache key.
+     * @param value The cache value.
+     * @return The approximate weight in bytes of the given cache entry. May not be negative.
+     */
+    long weigh(K key, V value);
+
+}
@@ -345,6 +345,7 @@ public abstract class OmniFacesIT {
         withFacesViewsLowercasedRequestURI,
         withMultiViews,
         withThreeViewsInSession,
+        withThreeViewScopesInConcurrentLru,
         withSocket,
         withClientStateSaving,
         withCDNResources,
@@ -0,0 +1,98 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.test.cdi.viewscoped.concurrentlru;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.omnifaces.test.OmniFacesIT.WebXml.withThreeViewScopesInConcurrentLru;
+
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.omnifaces.test.OmniFacesIT;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.FindBy;
+
+public class ViewScopedConcurrentLruIT extends OmniFacesIT {
+
+    @FindBy(id="bean")
+    private WebElement bean;
+
+    @FindBy(id="messages")
+    private WebElement messages;
+
+    @FindBy(id="newtab")
+    private WebElement newtab;
+
+    @FindBy(id="ajax:submit")
+    private WebElement ajaxSubmit;
+
+    @Deployment(testable=false)
+    public static WebArchive createDeployment() {
+        return buildWebArchive(ViewScopedConcurrentLruIT.class)
+            .withWebXml(withThreeViewScopesInConcurrentLru)
+            .createDeployment();
+    }
+
+    @BeforeEach
+    void resetBrowser() {
+        // Make sure browser is crisp clean before starting each test.
+        teardown();
+        setup();
+    }
+
+    @Test
+    void evictLeastRecentlyUsedViewScope() {
+        init();
+        assertEquals("init", getMessagesText());
+        var firstBean = bean.getText();
+        var firstTab = browser.getWindowHandle();
+
+        // Open second tab and keep it open.
+        openNewTab(newtab);
+        assertEquals("init", getMessagesText());
+        var secondBean = bean.getText();
+        var secondTab = browser.getWindowHandle();
+
+        // Use first tab so that second tab becomes least recently used.
+        browser.switchTo().window(firstTab);
+        guardAjax(ajaxSubmit::click);
+        assertEquals(firstBean, bean.getText());
+        assertEquals("submit", getMessagesText());
+
+        // Open third tab and keep it open.
+        openNewTab(newtab);
+        assertEquals("init", getMessagesText());
+
+        // Open fourth tab. As OmniFaces is instructed to store only 3 view scopes in session,
+        // the view scope of the least recently used second tab should be destroyed.
+        openNewTab(newtab);
+        assertEquals("destroy init", getMessagesText());
+
+        // Submit form in first tab. Its view scope should still be there.
+        browser.switchTo().window(firstTab);
+        guardAjax(ajaxSubmit::click);
+        assertEquals(firstBean, bean.getText());
+        assertEquals("submit", getMessagesText());
+
+        // Submit form in second tab. Its view scope should be recreated.
+        browser.switchTo().window(secondTab);
+        guardAjax(ajaxSubmit::click);
+        assertNotEquals(secondBean, bean.getText());
+    }
+
+    private String getMessagesText() {
+        return messages.getText().replaceAll("\\s+", " ");
+    }
+}
\ No newline at end of file
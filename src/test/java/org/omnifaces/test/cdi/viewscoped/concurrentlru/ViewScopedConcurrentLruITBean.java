@@ -0,0 +1,56 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.test.cdi.viewscoped.concurrentlru;
+
+import static org.omnifaces.util.Messages.addGlobalInfo;
+
+import java.io.Serializable;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Named;
+
+import org.omnifaces.cdi.ViewScoped;
+
+@Named
+@ViewScoped
+public class ViewScopedConcurrentLruITBean implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static boolean destroyed;
+
+    @PostConstruct
+    public void init() {
+        checkDestroyed();
+        addGlobalInfo("init ");
+    }
+
+    public void checkDestroyed() {
+        if (destroyed) {
+            addGlobalInfo("destroy ");
+            destroyed = false;
+        }
+    }
+
+    public void submit() {
+        checkDestroyed();
+        addGlobalInfo("submit ");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        destroyed = true;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,129 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.test.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.omnifaces.io.ChunkedOutputStream.CHUNK_SIZE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+import org.omnifaces.io.ChunkedOutputStream;
+
+/**
+ * Tests the chunked output stream and compares its marker search against {@link String#indexOf(String)}.
+ *
+ * @author Bauke Scholtz
+ */
+class TestChunkedOutputStream {
+
+    private static final String START_MARKER = "<!-- START CACHE FOR form:cache -->";
+    private static final String END_MARKER = "<!-- END CACHE FOR form:cache -->";
+    private static final String PAGE = createPage();
+
+    @Test
+    void testWrite() throws IOException {
+        var bytes = PAGE.getBytes(UTF_8);
+        var output = new ChunkedOutputStream();
+        output.write(bytes, 0, 100);
+        output.write(bytes[100]);
+        output.write(bytes, 101, bytes.length - 101);
+
+        assertEquals(bytes.length, output.size());
+        assertArrayEquals(bytes, output.toByteArray());
+        assertEquals(PAGE, output.toString(UTF_8));
+
+        var copy = new ByteArrayOutputStream();
+        output.writeTo(copy);
+        assertArrayEquals(bytes, copy.toByteArray());
+
+        output.release();
+        assertEquals(0, output.size());
+        assertEquals("", output.toString(UTF_8));
+    }
+
+    @Test
+    void testWriteToWriter() throws IOException {
+        var output = new ChunkedOutputStream();
+        var bytes = PAGE.getBytes(UTF_8);
+        output.write(bytes, 0, bytes.length);
+
+        var writer = new StringWriter();
+        output.writeTo(writer, UTF_8);
+        assertEquals(PAGE, writer.toString());
+
+        var straddling = "x".repeat(CHUNK_SIZE - 1) + "é€";
+        var boundary = new ChunkedOutputStream();
+        boundary.write(straddling.getBytes(UTF_8), 0, straddling.getBytes(UTF_8).length);
+        var boundaryWriter = new StringWriter();
+        boundary.writeTo(boundaryWriter, UTF_8);
+        assertEquals(straddling, boundaryWriter.toString());
+    }
+
+    @Test
+    void testIndexOf() {
+        var output = new ChunkedOutputStream();
+        var bytes = PAGE.getBytes(UTF_8);
+        output.write(bytes, 0, bytes.length);
+
+        for (var marker : new String[] { START_MARKER, END_MARKER, "<td>", "é", "absent" }) {
+            var index = PAGE.indexOf(marker);
+            var expected = index == -1 ? -1 : PAGE.substring(0, index).getBytes(UTF_8).length;
+            assertEquals(expected, output.indexOf(marker.getBytes(UTF_8), 0), marker);
+        }
+
+        var straddling = new byte[] { 'a', 'b', 'c' };
+        var boundary = new ChunkedOutputStream();
+        boundary.write(new byte[CHUNK_SIZE - 1], 0, CHUNK_SIZE - 1);
+        boundary.write(straddling, 0, straddling.length);
+        assertEquals(CHUNK_SIZE - 1, boundary.indexOf(straddling, 0));
+        assertEquals(CHUNK_SIZE, boundary.indexOf(new byte[] { 'b' }, 0));
+        assertEquals(-1, boundary.indexOf(straddling, CHUNK_SIZE));
+        assertEquals(-1, boundary.indexOf(new byte[] { 'c', 'd' }, 0));
+    }
+
+    @Test
+    void testToStringRange() {
+        var output = new ChunkedOutputStream();
+        var bytes = PAGE.getBytes(UTF_8);
+        output.write(bytes, 0, bytes.length);
+
+        var beginIndex = output.indexOf(START_MARKER.getBytes(UTF_8), 0) + START_MARKER.length();
+        var endIndex = output.indexOf(END_MARKER.getBytes(UTF_8), beginIndex);
+        assertEquals(PAGE.substring(PAGE.indexOf(START_MARKER) + START_MARKER.length(), PAGE.indexOf(END_MARKER)), output.toString(beginIndex, endIndex, UTF_8));
+        assertEquals("<html>", output.toString(0, 6, UTF_8));
+        assertThrows(IndexOutOfBoundsException.class, () -> output.toString(0, bytes.length + 1, UTF_8));
+    }
+
+    // Helpers --------------------------------------------------------------------------------------------------------
+
+    private static String createPage() {
+        var html = new StringBuilder("<html><body><table>\n");
+
+        for (var i = 0; i < 2000; i++) {
+            if (i == 1500) {
+                html.append(START_MARKER).append("<p>cached café ").append(i).append("</p>").append(END_MARKER);
+            }
+
+            html.append("<tr><td>").append(i).append("</td><td>Item ").append(i * 31 % 97).append("</td></tr>\n");
+        }
+
+        return html.append("</table></body></html>").toString();
+    }
+
+}
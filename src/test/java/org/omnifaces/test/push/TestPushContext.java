@@ -0,0 +1,122 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.test.push;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.omnifaces.cdi.PushContext;
+
+/**
+ * Tests the default broadcast methods of PushContext for implementations which only implement the send methods.
+ *
+ * @author Bauke Scholtz
+ */
+class TestPushContext {
+
+    @Test
+    void testBroadcastAggregatesSendResults() throws Exception {
+        var pending = new CompletableFuture<Void>();
+        var pushContext = new SendOnlyPushContext(Set.of(completedFuture(null), pending));
+        var result = pushContext.broadcast("message");
+
+        assertFalse(result.isDone(), "must wait until all deliveries have completed");
+
+        pending.complete(null);
+        assertNull(result.get());
+        assertEquals(List.of("message"), pushContext.sent);
+    }
+
+    @Test
+    void testBroadcastFailsWhenAnySendFails() {
+        var pushContext = new SendOnlyPushContext(Set.of(completedFuture(null), failedFuture(new IllegalStateException())));
+        var result = pushContext.broadcast("message", Duration.ofSeconds(1));
+
+        assertAll(
+            () -> assertTrue(result.isCompletedExceptionally()),
+            () -> assertEquals(IllegalStateException.class, assertThrows(ExecutionException.class, result::get).getCause().getClass())
+        );
+    }
+
+    @Test
+    void testBroadcastToUsersAggregatesSendResultsOfAllUsers() throws Exception {
+        var pending = new CompletableFuture<Void>();
+        var pushContext = new SendOnlyPushContext(Set.of(pending));
+        var result = pushContext.broadcast("message", List.of("user1", "user2"));
+
+        assertFalse(result.isDone());
+
+        pending.complete(null);
+        assertNull(result.get());
+        assertEquals(List.of("message", "message"), pushContext.sent);
+    }
+
+    @Test
+    void testBroadcastWithoutSessions() throws Exception {
+        assertNull(new SendOnlyPushContext(Set.of()).broadcast("message").get());
+    }
+
+    private static final class SendOnlyPushContext implements PushContext {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Set<Future<Void>> results;
+        private final List<Object> sent = new ArrayList<>();
+
+        private SendOnlyPushContext(Set<Future<Void>> results) {
+            this.results = results;
+        }
+
+        @Override
+        public Set<Future<Void>> send(Object message) {
+            sent.add(message);
+            return results;
+        }
+
+        @Override
+        public <S extends Serializable> Set<Future<Void>> send(Object message, S user) {
+            sent.add(message);
+            return results;
+        }
+
+        @Override
+        public <S extends Serializable> Map<S, Set<Future<Void>>> send(Object message, Collection<S> users) {
+            Map<S, Set<Future<Void>>> resultsByUser = new LinkedHashMap<>();
+
+            for (S user : users) {
+                resultsByUser.put(user, send(message, user));
+            }
+
+            return resultsByUser;
+        }
+    }
+}
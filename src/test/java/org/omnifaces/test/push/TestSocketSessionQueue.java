@@ -0,0 +1,211 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.test.push;
+
+import static jakarta.websocket.CloseReason.CloseCodes.TRY_AGAIN_LATER;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.omnifaces.cdi.push.SocketMetrics.ChannelMetrics;
+import org.omnifaces.cdi.push.SocketSessionQueue;
+import org.omnifaces.cdi.push.SocketSessionQueue.Overflow;
+
+/**
+ * Tests the single writer and the overflow policies of SocketSessionQueue against a fake web socket session which
+ * only completes a send when the test says so.
+ *
+ * @author Bauke Scholtz
+ */
+class TestSocketSessionQueue {
+
+    private static final int MAX_SIZE = 2;
+
+    private List<String> sentTexts;
+    private List<SendHandler> sendHandlers;
+    private List<CloseReason> closeReasons;
+    private boolean completeSynchronously;
+    private Session session;
+    private ChannelMetrics metrics;
+
+    @BeforeEach
+    void setup() {
+        sentTexts = new ArrayList<>();
+        sendHandlers = new ArrayList<>();
+        closeReasons = new ArrayList<>();
+        completeSynchronously = false;
+        metrics = new ChannelMetrics("test");
+
+        var asyncRemote = (RemoteEndpoint.Async) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { RemoteEndpoint.Async.class }, (proxy, method, args) -> {
+            if ("sendText".equals(method.getName()) && args.length == 2) {
+                sentTexts.add((String) args[0]);
+
+                if (completeSynchronously) {
+                    ((SendHandler) args[1]).onResult(new SendResult());
+                }
+                else {
+                    sendHandlers.add((SendHandler) args[1]);
+                }
+            }
+
+            return null;
+        });
+
+        session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Session.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getAsyncRemote": return asyncRemote;
+                case "close": closeReasons.add((CloseReason) args[0]); return null;
+                default: return null;
+            }
+        });
+    }
+
+    @Test
+    void testOneOutstandingSendAtATime() throws Exception {
+        var queue = new SocketSessionQueue(session, MAX_SIZE, Overflow.DROP_OLDEST, metrics);
+        var first = queue.offer("m1");
+        var second = queue.offer("m2");
+
+        assertEquals(List.of("m1"), sentTexts, "second message must wait until first is completed");
+
+        completeNextSend();
+        assertEquals(List.of("m1", "m2"), sentTexts, "second message must be sent from completion callback of first");
+
+        completeNextSend();
+        assertAll(
+            () -> assertNull(first.get()),
+            () -> assertNull(second.get()),
+            () -> assertEquals(2, metrics.getSentMessages()),
+            () -> assertEquals(0, metrics.getQueueDepth())
+        );
+    }
+
+    @Test
+    void testDropOldest() throws Exception {
+        var queue = new SocketSessionQueue(session, MAX_SIZE, Overflow.DROP_OLDEST, metrics);
+        var futures = offer(queue, "m1", "m2", "m3", "m4");
+        completeAllSends();
+
+        assertAll(
+            () -> assertEquals(List.of("m1", "m3", "m4"), sentTexts),
+            () -> assertFailed(futures.get(1)),
+            () -> assertNull(futures.get(3).get()),
+            () -> assertEquals(1, metrics.getDroppedMessages()),
+            () -> assertEquals(3, metrics.getSentMessages()),
+            () -> assertTrue(closeReasons.isEmpty())
+        );
+    }
+
+    @Test
+    void testCoalesce() throws Exception {
+        var queue = new SocketSessionQueue(session, MAX_SIZE, Overflow.COALESCE, metrics);
+        var futures = offer(queue, "m1", "m2", "m3", "m4");
+        completeAllSends();
+
+        assertAll(
+            () -> assertEquals(List.of("m1", "m4"), sentTexts),
+            () -> assertFailed(futures.get(1)),
+            () -> assertFailed(futures.get(2)),
+            () -> assertNull(futures.get(3).get()),
+            () -> assertEquals(2, metrics.getDroppedMessages()),
+            () -> assertTrue(closeReasons.isEmpty())
+        );
+    }
+
+    @Test
+    void testClose() throws Exception {
+        var queue = new SocketSessionQueue(session, MAX_SIZE, Overflow.CLOSE, metrics);
+        var futures = offer(queue, "m1", "m2", "m3", "m4");
+        var afterClose = queue.offer("m5");
+        completeAllSends();
+
+        assertAll(
+            () -> assertEquals(List.of("m1"), sentTexts),
+            () -> assertEquals(1, closeReasons.size()),
+            () -> assertEquals(TRY_AGAIN_LATER, closeReasons.get(0).getCloseCode()),
+            () -> assertNull(futures.get(0).get()),
+            () -> assertFailed(futures.get(1)),
+            () -> assertFailed(futures.get(2)),
+            () -> assertFailed(futures.get(3)),
+            () -> assertFailed(afterClose),
+            () -> assertEquals(0, metrics.getQueueDepth())
+        );
+    }
+
+    @Test
+    void testCloseFailsPendingMessages() {
+        var queue = new SocketSessionQueue(session, MAX_SIZE, Overflow.DROP_OLDEST, metrics);
+        var futures = offer(queue, "m1", "m2");
+        queue.close();
+
+        assertAll(
+            () -> assertFalse(futures.get(0).isDone(), "outstanding send is up to the container"),
+            () -> assertFailed(futures.get(1)),
+            () -> assertFailed(queue.offer("m3"))
+        );
+    }
+
+    @Test
+    void testSynchronousCompletionDoesNotGrowStack() {
+        var messages = 100_000;
+        var queue = new SocketSessionQueue(session, messages, Overflow.DROP_OLDEST, metrics);
+        var futures = offer(queue, IntStream.range(0, messages).mapToObj(i -> "m" + i).toArray(String[]::new));
+
+        completeSynchronously = true;
+        completeNextSend();
+
+        assertAll(
+            () -> assertEquals(messages, sentTexts.size()),
+            () -> assertTrue(futures.stream().allMatch(Future::isDone)),
+            () -> assertEquals(messages, metrics.getSentMessages())
+        );
+    }
+
+    private static List<Future<Void>> offer(SocketSessionQueue queue, String... texts) {
+        return List.of(texts).stream().map(queue::offer).collect(toList());
+    }
+
+    private void completeNextSend() {
+        sendHandlers.remove(0).onResult(new SendResult());
+    }
+
+    private void completeAllSends() {
+        while (!sendHandlers.isEmpty()) {
+            completeNextSend();
+        }
+    }
+
+    private static void assertFailed(Future<Void> future) {
+        assertTrue(future.isDone(), "future must be done");
+        assertThrows(ExecutionException.class, future::get);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,157 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.test.push;
+
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.omnifaces.cdi.push.SocketMessage;
+import org.omnifaces.cdi.push.TcpSocketMessageBus;
+
+/**
+ * Tests TcpSocketMessageBus with two in-process nodes.
+ *
+ * @author Bauke Scholtz
+ */
+class TestTcpSocketMessageBus {
+
+    private static final int MESSAGES = 100;
+
+    private TcpSocketMessageBus nodeA;
+    private TcpSocketMessageBus nodeB;
+    private Queue<SocketMessage> receivedByA;
+    private Queue<SocketMessage> receivedByB;
+
+    @BeforeEach
+    void start() throws Exception {
+        receivedByA = new ConcurrentLinkedQueue<>();
+        receivedByB = new ConcurrentLinkedQueue<>();
+        nodeA = new TcpSocketMessageBus(0, emptyList());
+        nodeB = new TcpSocketMessageBus(0, emptyList());
+        nodeA.start(null, receivedByA::add);
+        nodeB.start(null, receivedByB::add);
+        nodeA.addPeer(new InetSocketAddress(InetAddress.getLoopbackAddress(), nodeB.getPort()));
+        nodeB.addPeer(new InetSocketAddress(InetAddress.getLoopbackAddress(), nodeA.getPort()));
+    }
+
+    @AfterEach
+    void stop() {
+        nodeA.stop();
+        nodeB.stop();
+    }
+
+    @Test
+    void testFields() throws Exception {
+        var users = Set.<Serializable>of("john", 42L, 7, UUID.randomUUID());
+        var received = new CountDownLatch(1);
+        var message = new SocketMessage[1];
+        nodeA.stop();
+        nodeA = new TcpSocketMessageBus(0, emptyList());
+        nodeA.start(null, m -> { message[0] = m; received.countDown(); });
+        nodeB.addPeer(new InetSocketAddress(InetAddress.getLoopbackAddress(), nodeA.getPort()));
+
+        nodeB.publish(new SocketMessage("channel", null, users, "{\"text\":\"héllo\"}", 250));
+        assertTrue(received.await(10, SECONDS), "Message received");
+        assertEquals("channel", message[0].getChannel());
+        assertNull(message[0].getChannelId());
+        assertEquals(users, message[0].getUsers());
+        assertEquals("{\"text\":\"héllo\"}", message[0].getJson());
+        assertEquals(250, message[0].getWindowInMillis());
+    }
+
+    @Test
+    void testWrongSecretIsRejected() throws Exception {
+        var peerB = new InetSocketAddress(InetAddress.getLoopbackAddress(), nodeB.getPort());
+        var nodeC = new TcpSocketMessageBus(InetAddress.getLoopbackAddress(), 0, List.of(peerB), "wrong");
+
+        try {
+            nodeC.start(null, message -> {});
+            nodeC.publish(new SocketMessage("channel", "channelId", null, "\"message\"", 0));
+            assertFalse(waitUntil(() -> !receivedByB.isEmpty(), 1), "Message from node with wrong secret is not received");
+        }
+        finally {
+            nodeC.stop();
+        }
+    }
+
+    @Test
+    void testSecretRequiredOnNonLoopbackAddress() throws Exception {
+        var anyAddress = InetAddress.getByName("0.0.0.0");
+        assertThrows(IllegalArgumentException.class, () -> new TcpSocketMessageBus(anyAddress, 0, emptyList(), null));
+    }
+
+    @Test
+    void testUnresponsivePeerDoesNotHoldUpOthers() throws Exception {
+        try (var unresponsivePeer = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+            nodeA.stop();
+            nodeA = new TcpSocketMessageBus(0, List.of(new InetSocketAddress(InetAddress.getLoopbackAddress(), unresponsivePeer.getLocalPort())));
+            nodeA.start(null, receivedByA::add);
+            nodeA.addPeer(new InetSocketAddress(InetAddress.getLoopbackAddress(), nodeB.getPort()));
+
+            nodeA.publish(new SocketMessage("channel", "channelId", null, "\"message\"", 0));
+            assertTrue(waitUntil(() -> !receivedByB.isEmpty(), 2), "Message received by responsive peer while unresponsive peer hangs in handshake");
+        }
+    }
+
+    @Test
+    void testMessagesArriveInOrder() throws Exception {
+        for (var i = 0; i < MESSAGES; i++) {
+            nodeA.publish(new SocketMessage("channel" + (i % 10), "channelId" + i, null, "\"message" + i + "\"", 0));
+        }
+
+        assertTrue(waitUntil(() -> receivedByB.size() == MESSAGES, 10), "All messages received");
+        assertTrue(receivedByA.isEmpty(), "Publishing node doesn't receive its own messages");
+
+        var i = 0;
+        for (var message : receivedByB) {
+            assertEquals("channelId" + i, message.getChannelId());
+            assertEquals("\"message" + i + "\"", message.getJson());
+            i++;
+        }
+    }
+
+    private static boolean waitUntil(BooleanSupplier condition, int seconds) throws InterruptedException {
+        var end = System.nanoTime() + SECONDS.toNanos(seconds);
+
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > end) {
+                return false;
+            }
+
+            Thread.sleep(10);
+        }
+
+        return true;
+    }
+
+}
\ No newline at end of file
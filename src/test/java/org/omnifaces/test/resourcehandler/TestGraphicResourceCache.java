@@ -0,0 +1,255 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.test.resourcehandler;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.omnifaces.resourcehandler.GraphicResourceCache;
+
+/**
+ * Tests the loading, size limits and spilling of GraphicResourceCache. Spilling is done via an executor which only runs
+ * the spill tasks when the test says so.
+ *
+ * @author Bauke Scholtz
+ */
+class TestGraphicResourceCache {
+
+    private static final int SIZE = 1000;
+    private static final int MAX_ENTRY_SIZE = SIZE / 10;
+
+    @TempDir
+    Path directory;
+
+    private AtomicInteger loads;
+    private List<Runnable> spills;
+
+    @BeforeEach
+    void setup() {
+        loads = new AtomicInteger();
+        spills = new ArrayList<>();
+    }
+
+    @Test
+    void testLoadOnlyOnce() throws IOException {
+        var cache = new GraphicResourceCache(SIZE, null);
+        var content = content(1, MAX_ENTRY_SIZE);
+
+        assertAll(
+            () -> assertArrayEquals(content, read(cache.get("key", loader(content)))),
+            () -> assertArrayEquals(content, read(cache.get("key", loader(content)))),
+            () -> assertEquals(1, loads.get())
+        );
+    }
+
+    @Test
+    void testConcurrentLoadsAreCollapsed() throws Exception {
+        var cache = new GraphicResourceCache(SIZE, null);
+        var content = content(1, MAX_ENTRY_SIZE);
+        var threads = 10;
+        var started = new CountDownLatch(threads);
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            var futures = new ArrayList<Future<byte[]>>();
+
+            for (var i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    started.countDown();
+                    return read(cache.get("key", () -> {
+                        await(release);
+                        return loader(content).load();
+                    }));
+                }));
+            }
+
+            started.await(10, SECONDS);
+            release.countDown();
+
+            for (var future : futures) {
+                assertArrayEquals(content, future.get(10, SECONDS));
+            }
+
+            assertEquals(1, loads.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testEntryLargerThanTenthOfSizeIsNotCached() throws IOException {
+        var cache = new GraphicResourceCache(SIZE, null);
+        var content = content(1, MAX_ENTRY_SIZE + 1);
+
+        assertAll(
+            () -> assertArrayEquals(content, read(cache.get("key", loader(content)))),
+            () -> assertArrayEquals(content, read(cache.get("key", loader(content)))),
+            () -> assertEquals(2, loads.get())
+        );
+    }
+
+    @Test
+    void testNoContentIsNotCached() throws IOException {
+        var cache = new GraphicResourceCache(SIZE, null);
+
+        assertAll(
+            () -> assertNull(cache.get("key", loader(null))),
+            () -> assertNull(cache.get("key", loader(null))),
+            () -> assertEquals(2, loads.get())
+        );
+    }
+
+    @Test
+    void testFailedLoadIsNotCached() throws IOException {
+        var cache = new GraphicResourceCache(SIZE, null);
+        var content = content(1, MAX_ENTRY_SIZE);
+
+        assertThrows(IOException.class, () -> cache.get("key", () -> { throw new IOException("failed"); }));
+        assertArrayEquals(content, read(cache.get("key", loader(content))));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testDirectoryIsCleanedOnStartup() throws IOException {
+        var staleFile = Files.createFile(directory.resolve("stale.rendition"));
+        var staleTemporaryFile = Files.createTempFile(directory, "stale.rendition", ".tmp");
+        var otherFile = Files.createFile(directory.resolve("other.txt"));
+        var otherTemporaryFile = Files.createFile(directory.resolve("other.tmp"));
+        new GraphicResourceCache(SIZE, directory, spills::add);
+
+        assertAll(
+            () -> assertFalse(Files.exists(staleFile)),
+            () -> assertFalse(Files.exists(staleTemporaryFile)),
+            () -> assertTrue(Files.exists(otherFile)),
+            () -> assertTrue(Files.exists(otherTemporaryFile))
+        );
+    }
+
+    @Test
+    void testEvictedContentIsSpilledInBackground() throws IOException {
+        var cache = new GraphicResourceCache(SIZE, directory, spills::add);
+        var entries = SIZE / MAX_ENTRY_SIZE;
+
+        for (var i = 0; i <= entries; i++) {
+            cache.get("key" + i, loader(content(i, MAX_ENTRY_SIZE)));
+        }
+
+        assertAll(
+            () -> assertEquals(entries + 1, loads.get()),
+            () -> assertEquals(1, spills.size(), "evicted content must be spilled in background"),
+            () -> assertEquals(0, countSpilledFiles(), "nothing may be written on the requesting thread")
+        );
+
+        var evictedContent = read(cache.get("key0", loader(content(0, MAX_ENTRY_SIZE))));
+
+        assertAll(
+            () -> assertArrayEquals(content(0, MAX_ENTRY_SIZE), evictedContent),
+            () -> assertEquals(entries + 1, loads.get(), "content which is still being spilled must not be loaded again")
+        );
+
+        runSpills();
+
+        assertTrue(countSpilledFiles() > 0, "evicted content must be spilled to directory");
+    }
+
+    @Test
+    void testSpilledContentIsReadFromDirectory() throws IOException {
+        var cache = new GraphicResourceCache(SIZE, directory, Runnable::run);
+        var entries = SIZE / MAX_ENTRY_SIZE;
+
+        for (var i = 0; i < entries * 2; i++) {
+            cache.get("key" + i, loader(content(i, MAX_ENTRY_SIZE)));
+        }
+
+        var spilledFiles = countSpilledFiles();
+        var loadsBefore = loads.get();
+
+        for (var i = 0; i < entries; i++) {
+            assertArrayEquals(content(i, MAX_ENTRY_SIZE), read(cache.get("key" + i, loader(null))));
+        }
+
+        assertAll(
+            () -> assertTrue(spilledFiles >= entries, "evicted content must be spilled to directory"),
+            () -> assertEquals(loadsBefore, loads.get(), "spilled content must not be loaded again")
+        );
+    }
+
+    private GraphicResourceCache.Loader loader(byte[] content) {
+        return () -> {
+            loads.incrementAndGet();
+            return content != null ? new ByteArrayInputStream(content) : null;
+        };
+    }
+
+    private void runSpills() {
+        while (!spills.isEmpty()) {
+            spills.remove(0).run();
+        }
+    }
+
+    private long countSpilledFiles() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".rendition")).count();
+        }
+    }
+
+    private static byte[] content(int seed, int length) {
+        var content = new byte[length];
+
+        for (var i = 0; i < length; i++) {
+            content[i] = (byte) (seed + i);
+        }
+
+        return content;
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await(10, SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static byte[] read(InputStream input) throws IOException {
+        try (input) {
+            return input.readAllBytes();
+        }
+    }
+}
\ No newline at end of file
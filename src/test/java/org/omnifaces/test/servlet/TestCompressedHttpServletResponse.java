@@ -0,0 +1,225 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.test.servlet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.omnifaces.servlet.CompressedHttpServletResponse.DEFAULT;
+import static org.omnifaces.servlet.CompressedHttpServletResponse.Algorithm.DEFLATE;
+import static org.omnifaces.servlet.CompressedHttpServletResponse.Algorithm.GZIP;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.omnifaces.io.DefaultServletOutputStream;
+import org.omnifaces.servlet.CompressedHttpServletResponse;
+import org.omnifaces.servlet.CompressedHttpServletResponse.Algorithm;
+import org.omnifaces.util.cache.Cache;
+import org.omnifaces.util.cache.DefaultCache;
+
+/**
+ * Tests the pooled GZIP and Deflate output streams of {@link Algorithm} and compares their output against a new
+ * {@link GZIPOutputStream}.
+ *
+ * @author Bauke Scholtz
+ */
+class TestCompressedHttpServletResponse {
+
+    private static final byte[] CONTENT = createContent();
+
+    @Test
+    void testGzip() throws IOException {
+        for (var level = DEFAULT; level <= 9; level++) {
+            var compressed = compress(GZIP, level);
+            assertArrayEquals(CONTENT, new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes());
+        }
+
+        var expected = new ByteArrayOutputStream();
+
+        try (var output = new GZIPOutputStream(expected)) {
+            output.write(CONTENT);
+        }
+
+        assertArrayEquals(expected.toByteArray(), compress(GZIP, DEFAULT));
+    }
+
+    @Test
+    void testDeflate() throws IOException {
+        for (var level = DEFAULT; level <= 9; level++) {
+            var compressed = compress(DEFLATE, level);
+            assertArrayEquals(CONTENT, new InflaterInputStream(new ByteArrayInputStream(compressed)).readAllBytes());
+        }
+    }
+
+    @Test
+    void testLevel() throws IOException {
+        assertTrue(compress(GZIP, 0).length > CONTENT.length);
+        assertTrue(compress(GZIP, 9).length < compress(GZIP, 1).length);
+        assertArrayEquals(compress(GZIP, 9), compress(GZIP, 11));
+    }
+
+    @Test
+    void testWriteAfterClose() throws IOException {
+        var output = GZIP.createOutputStream(new ByteArrayOutputStream());
+        output.close();
+        output.close();
+        assertThrows(IOException.class, () -> output.write(CONTENT));
+    }
+
+    @Test
+    void testCache() throws IOException {
+        var cache = new DefaultCache(null, null, 1_000_000L, null, true);
+        var other = "<p>other</p>".repeat(100).getBytes(UTF_8);
+        var cacheable = Map.of("Cache-Control", "public,max-age=60", "ETag", "\"1\"");
+
+        assertArrayEquals(CONTENT, gunzip(respond(cache, cacheable, CONTENT)));
+        assertArrayEquals(CONTENT, gunzip(respond(cache, cacheable, other)));
+        assertEquals(1, cache.getSize());
+
+        assertArrayEquals(other, gunzip(respond(cache, Map.of("Cache-Control", "public,max-age=60", "ETag", "\"2\""), other)));
+        assertArrayEquals(other, gunzip(respond(cache, Map.of("Cache-Control", "private,max-age=60", "ETag", "\"1\""), other)));
+        assertArrayEquals(other, gunzip(respond(cache, Map.of("Cache-Control", "max-age=0", "ETag", "\"1\""), other)));
+        assertArrayEquals(other, gunzip(respond(cache, Map.of("ETag", "\"1\""), other)));
+        assertArrayEquals(other, gunzip(respond(cache, Map.of("Cache-Control", "public,max-age=60"), other)));
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    void testCacheSkipsFailedResponse() throws IOException {
+        var cache = new DefaultCache(null, null, 1_000_000L, null, true);
+        var cacheable = Map.of("Cache-Control", "public,max-age=60", "ETag", "\"1\"");
+        var failingOnceOnWrite = new ByteArrayOutputStream() {
+            private boolean failed;
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                if (!failed && size() + length > 100) {
+                    failed = true;
+                    throw new IllegalStateException("Client aborted");
+                }
+
+                super.write(bytes, offset, length);
+            }
+        };
+        var failingOnClose = new ByteArrayOutputStream() {
+            @Override
+            public void close() throws IOException {
+                throw new IOException("Client aborted");
+            }
+        };
+
+        var incompressible = new byte[CONTENT.length];
+        new Random(0).nextBytes(incompressible); // So that the compressed body is written while the content is written.
+
+        assertThrows(IllegalStateException.class, () -> respond(cache, cacheable, incompressible, failingOnceOnWrite));
+        assertThrows(IOException.class, () -> respond(cache, cacheable, CONTENT, failingOnClose));
+        assertEquals(0, cache.getSize());
+
+        assertArrayEquals(CONTENT, gunzip(respond(cache, cacheable, CONTENT)));
+        assertEquals(1, cache.getSize());
+    }
+
+    // Helpers --------------------------------------------------------------------------------------------------------
+
+    private static byte[] compress(Algorithm algorithm, int level) throws IOException {
+        var compressed = new ByteArrayOutputStream();
+
+        try (var output = algorithm.createOutputStream(compressed, level, DEFAULT)) {
+            output.write(CONTENT, 0, CONTENT.length / 2);
+
+            for (var i = CONTENT.length / 2; i < CONTENT.length; i++) {
+                output.write(CONTENT[i]);
+            }
+        }
+
+        return compressed.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        return new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes();
+    }
+
+    private static byte[] respond(Cache cache, Map<String, String> headers, byte[] content) throws IOException {
+        return respond(cache, headers, content, new ByteArrayOutputStream());
+    }
+
+    private static byte[] respond(Cache cache, Map<String, String> headers, byte[] content, ByteArrayOutputStream body) throws IOException {
+        var response = new CompressedHttpServletResponse(createResponse(body), GZIP, 150, Set.of("text/html"));
+        response.setCache(cache, "/page", 100_000);
+        response.setContentType("text/html");
+        headers.forEach(response::setHeader);
+
+        try {
+            for (var offset = 0; offset < content.length; offset += 100) {
+                response.getOutputStream().write(Arrays.copyOfRange(content, offset, Math.min(offset + 100, content.length)));
+            }
+        }
+        finally {
+            response.close();
+        }
+
+        return body.toByteArray();
+    }
+
+    private static HttpServletResponse createResponse(ByteArrayOutputStream body) {
+        var headers = new HashMap<String, List<String>>();
+        var output = new DefaultServletOutputStream(body);
+
+        return (HttpServletResponse) Proxy.newProxyInstance(TestCompressedHttpServletResponse.class.getClassLoader(), new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "setContentType": headers.put("Content-Type", new ArrayList<>(List.of((String) args[0]))); return null;
+                case "getContentType": return headers.containsKey("Content-Type") ? headers.get("Content-Type").get(0) : null;
+                case "setHeader": headers.put((String) args[0], new ArrayList<>(List.of((String) args[1]))); return null;
+                case "addHeader": headers.computeIfAbsent((String) args[0], k -> new ArrayList<>()).add((String) args[1]); return null;
+                case "getHeader": return headers.containsKey(args[0]) ? headers.get(args[0]).get(0) : null;
+                case "getHeaders": return headers.getOrDefault(args[0], List.of());
+                case "getStatus": return 200;
+                case "getBufferSize": return 1024;
+                case "getCharacterEncoding": return "UTF-8";
+                case "isCommitted": return false;
+                case "getOutputStream": return output;
+                default: return null;
+            }
+        });
+    }
+
+    private static byte[] createContent() {
+        var html = new StringBuilder();
+
+        for (var i = 0; i < 200; i++) {
+            html.append("<tr><td class=\"id\">").append(i).append("</td><td class=\"name\">Item ").append(i * 31 % 97)
+                .append("</td><td><a href=\"/items/").append(i).append("\">Details</a></td></tr>\n");
+        }
+
+        return html.toString().getBytes(UTF_8);
+    }
+
+}
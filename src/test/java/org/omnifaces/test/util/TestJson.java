@@ -0,0 +1,207 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.test.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.beans.Introspector;
+import java.io.StringWriter;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.omnifaces.util.Json;
+
+/**
+ * Tests Json encoder and compares its cached bean encoders against plain introspection.
+ *
+ * @author Bauke Scholtz
+ */
+class TestJson {
+
+    @Test
+    void testEncodeStandardTypes() {
+        assertEquals("null", Json.encode(null));
+        assertEquals("true", Json.encode(true));
+        assertEquals("42", Json.encode(42));
+        assertEquals("\"a\\\"b\\\\c\\n\\u00e9\"", Json.encode("a\"b\\c\né"));
+        assertEquals("[1,2,3]", Json.encode(new int[] { 1, 2, 3 }));
+        assertEquals("[\"a\",null]", Json.encode(listOf("a", null)));
+        assertEquals("{\"a\":1,\"b\":[true]}", Json.encode(mapOf("a", 1, "b", List.of(true))));
+    }
+
+    @Test
+    void testEncodeBean() {
+        var bean = createBean();
+        assertEquals("{\"children\":[{\"id\":2,\"name\":\"child\"}],\"id\":1,\"name\":\"parent \\\"one\\\"\"}", Json.encode(bean));
+        assertEquals(encodeByIntrospection(bean, null), Json.encode(bean));
+    }
+
+    @Test
+    void testEncodeBeanLoadedByParentClassLoader() {
+        var bean = new SimpleImmutableEntry<>("a", 1);
+        assertEquals("{\"key\":\"a\",\"value\":1}", Json.encode(bean));
+        assertEquals(Json.encode(bean), Json.encode(bean));
+    }
+
+    @Test
+    void testEncodeBeanWithPropertyNameFormatter() {
+        var bean = createBean();
+        assertEquals("{\"CHILDREN\":[{\"ID\":2,\"NAME\":\"child\"}],\"ID\":1,\"NAME\":\"parent \\\"one\\\"\"}", Json.encode(bean, String::toUpperCase));
+        assertEquals("{\"children_\":[{\"id_\":2,\"name_\":\"child\"}],\"id_\":1,\"name_\":\"parent \\\"one\\\"\"}", Json.encode(bean, name -> name + "_"));
+        assertEquals(Json.encode(bean), Json.encode(bean, null));
+    }
+
+    @Test
+    void testEncodeToAppendable() throws Exception {
+        var bean = createBean();
+        var writer = new StringWriter();
+        Json.encodeTo(bean, writer);
+        assertEquals(Json.encode(bean), writer.toString());
+
+        var builder = new StringBuilder();
+        Json.encodeTo(List.of(bean, bean), builder, String::toUpperCase);
+        assertEquals(Json.encode(List.of(bean, bean), String::toUpperCase), builder.toString());
+    }
+
+    @Test
+    void testEncodeFailingGetter() {
+        assertThrows(IllegalArgumentException.class, () -> Json.encode(new FailingBean()));
+    }
+
+    // Helpers --------------------------------------------------------------------------------------------------------
+
+    private static Bean createBean() {
+        var child = new Bean();
+        child.setId(2);
+        child.setName("child");
+        var parent = new Bean();
+        parent.setId(1);
+        parent.setName("parent \"one\"");
+        parent.setChildren(List.of(child));
+        return parent;
+    }
+
+    private static <T> List<T> listOf(T first, T second) {
+        var list = new ArrayList<T>();
+        list.add(first);
+        list.add(second);
+        return list;
+    }
+
+    private static Map<String, Object> mapOf(String key1, Object value1, String key2, Object value2) {
+        var map = new LinkedHashMap<String, Object>();
+        map.put(key1, value1);
+        map.put(key2, value2);
+        return map;
+    }
+
+    /**
+     * The bean encoding as it was before the bean encoders were cached. Only beans, collections, numbers and strings.
+     */
+    private static String encodeByIntrospection(Object object, StringBuilder builder) {
+        var json = builder != null ? builder : new StringBuilder();
+
+        if (object instanceof Collection) {
+            json.append('[');
+            var i = 0;
+
+            for (var element : (Collection<?>) object) {
+                if (i++ > 0) {
+                    json.append(',');
+                }
+
+                encodeByIntrospection(element, json);
+            }
+
+            json.append(']');
+        }
+        else if (object instanceof Number || object instanceof String) {
+            json.append(Json.encode(object));
+        }
+        else {
+            try {
+                json.append('{');
+                var i = 0;
+
+                for (var property : Introspector.getBeanInfo(object.getClass()).getPropertyDescriptors()) {
+                    if (property.getReadMethod() == null || "class".equals(property.getName())) {
+                        continue;
+                    }
+
+                    var value = property.getReadMethod().invoke(object);
+
+                    if (value != null) {
+                        if (i++ > 0) {
+                            json.append(',');
+                        }
+
+                        json.append(Json.encode(property.getName())).append(':');
+                        encodeByIntrospection(value, json);
+                    }
+                }
+
+                json.append('}');
+            }
+            catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        return json.toString();
+    }
+
+    // Nested classes -------------------------------------------------------------------------------------------------
+
+    public static class Bean {
+        private Integer id;
+        private String name;
+        private List<Bean> children;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<Bean> getChildren() {
+            return children;
+        }
+
+        public void setChildren(List<Bean> children) {
+            this.children = children;
+        }
+    }
+
+    public static class FailingBean {
+        public String getValue() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
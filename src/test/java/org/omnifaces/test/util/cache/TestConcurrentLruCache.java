@@ -0,0 +1,51 @@
+package org.omnifaces.test.util.cache;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.omnifaces.util.FunctionalInterfaces.SerializableBiConsumer;
+import org.omnifaces.util.cache.ConcurrentLruCache;
+import org.omnifaces.util.cache.Weigher;
+
+class TestConcurrentLruCache extends TestLruCache {
+
+    @Override
+    <K extends Serializable, V extends Serializable> Map<K, V> createCache(int maximumCapacity, SerializableBiConsumer<K, V> evictionListener) {
+        return new ConcurrentLruCache<>(maximumCapacity, evictionListener);
+    }
+
+    @Override
+    <K extends Serializable, V extends Serializable> Map<K, V> createCache(int maximumCapacity, long maximumWeight, Weigher<K, V> weigher, SerializableBiConsumer<K, V> evictionListener) {
+        return new ConcurrentLruCache<>(maximumCapacity, maximumWeight, weigher, evictionListener);
+    }
+
+    @Test
+    void testNonSerializableKeysAndValues() {
+        List<Object> evicted = new ArrayList<>();
+        Map<Object, Object> cache = new ConcurrentLruCache<>(2, (key, value) -> evicted.add(value));
+        var key1 = new Object();
+        var key2 = new Object();
+        var key3 = new Object();
+        var value1 = new Object();
+
+        cache.put(key1, value1);
+        cache.put(key2, new Object());
+        cache.get(key1);
+        cache.put(key3, new Object());
+
+        assertAll(
+            () -> assertEquals(2, cache.size()),
+            () -> assertSame(value1, cache.get(key1)),
+            () -> assertNull(cache.get(key2)),
+            () -> assertEquals(1, evicted.size())
+        );
+    }
+}
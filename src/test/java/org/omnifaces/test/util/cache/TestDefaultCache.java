@@ -0,0 +1,282 @@
+package org.omnifaces.test.util.cache;
+
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.omnifaces.util.cache.Cache;
+import org.omnifaces.util.cache.DefaultCache;
+import org.omnifaces.util.cache.EncodedContent;
+
+class TestDefaultCache {
+
+    private Cache cache;
+
+    @BeforeEach
+    void setup() {
+        cache = new DefaultCache(null, null);
+    }
+
+    @Test
+    void testComputeIfAbsent() {
+        var computations = new AtomicInteger();
+
+        assertAll(
+            () -> assertEquals("v1", cache.computeIfAbsent("k", k -> "v" + computations.incrementAndGet())),
+            () -> assertEquals("v1", cache.computeIfAbsent("k", k -> "v" + computations.incrementAndGet())),
+            () -> assertEquals("v1", cache.get("k")),
+            () -> assertNull(cache.computeIfAbsent("n", k -> null)),
+            () -> assertNull(cache.get("n")),
+            () -> assertEquals(1, computations.get())
+        );
+    }
+
+    @Test
+    void testComputeIfAbsentIsSingleFlight() throws Exception {
+        var computations = new AtomicInteger();
+        var computing = new CountDownLatch(1);
+        var proceed = new CountDownLatch(1);
+
+        var first = supplyAsync(() -> cache.computeIfAbsent("k", k -> {
+            computing.countDown();
+            await(proceed);
+            return "v" + computations.incrementAndGet();
+        }));
+
+        await(computing);
+        var second = supplyAsync(() -> cache.computeIfAbsent("k", k -> "v" + computations.incrementAndGet()));
+        proceed.countDown();
+
+        assertAll(
+            () -> assertEquals("v1", first.get(5, SECONDS)),
+            () -> assertEquals("v1", second.get(5, SECONDS)),
+            () -> assertEquals(1, computations.get())
+        );
+    }
+
+    @Test
+    void testComputeIfAbsentFailureIsNotCached() {
+        assertThrows(IllegalStateException.class, () -> cache.computeIfAbsent("k", k -> { throw new IllegalStateException(); }));
+        assertEquals("v", cache.computeIfAbsent("k", k -> "v"));
+    }
+
+    @Test
+    void testComputeIfAbsentIsReentrant() throws Exception {
+        var nested = supplyAsync(() -> cache.computeIfAbsent("k", k -> "outer+" + cache.computeIfAbsent("k", n -> "inner")));
+
+        assertAll(
+            () -> assertEquals("outer+inner", nested.get(5, SECONDS)),
+            () -> assertEquals("outer+inner", cache.get("k"))
+        );
+    }
+
+    @Test
+    void testComputeIfAbsentOrStale() throws Exception {
+        var clockedCache = new ClockedCache();
+        clockedCache.computeIfAbsentOrStale("k", k -> "stale", 60);
+        clockedCache.advance(61); // Expired, but still retained for another time to live.
+        var computing = new CountDownLatch(1);
+        var proceed = new CountDownLatch(1);
+
+        assertNull(clockedCache.get("k"));
+
+        var first = supplyAsync(() -> clockedCache.computeIfAbsentOrStale("k", k -> {
+            computing.countDown();
+            await(proceed);
+            return "fresh";
+        }, 60));
+
+        await(computing);
+        var second = clockedCache.computeIfAbsentOrStale("k", k -> "unexpected", 60);
+        proceed.countDown();
+
+        assertAll(
+            () -> assertEquals("stale", second),
+            () -> assertEquals("fresh", first.get(5, SECONDS)),
+            () -> assertEquals("fresh", clockedCache.computeIfAbsentOrStale("k", k -> "unexpected", 60))
+        );
+    }
+
+    @Test
+    void testComputeIfAbsentOrStaleBeyondRetention() {
+        var clockedCache = new ClockedCache();
+        clockedCache.computeIfAbsentOrStale("k", k -> "stale", 60);
+        clockedCache.advance(121);
+
+        assertAll(
+            () -> assertEquals("fresh", clockedCache.computeIfAbsentOrStale("k", k -> "fresh", 60)),
+            () -> assertEquals("fresh", clockedCache.get("k"))
+        );
+    }
+
+    @Test
+    void testPutIsNotRetainedBeyondTimeToLive() {
+        var clockedCache = new ClockedCache();
+        clockedCache.put("k", "expired", 60);
+        clockedCache.advance(61);
+
+        assertAll(
+            () -> assertNull(clockedCache.get("k")),
+            () -> assertEquals(0, clockedCache.getSize())
+        );
+    }
+
+    @Test
+    void testStoreAsBytes() {
+        var content = "\u20ac".repeat(1000);
+        ((DefaultCache) cache).setStoreAsBytes(true, 100);
+        cache.put("k", content);
+        var stored = cache.getObject("k");
+
+        assertAll(
+            () -> assertTrue(stored instanceof EncodedContent),
+            () -> assertTrue(((EncodedContent) stored).isCompressed()),
+            () -> assertTrue(((EncodedContent) stored).getSize() < 100),
+            () -> assertEquals(content, cache.get("k")),
+            () -> assertEquals(content, cache.computeIfAbsent("k", k -> "unexpected"))
+        );
+    }
+
+    @Test
+    void testComputeObjectIfAbsent() {
+        var computations = new AtomicInteger();
+        var first = cache.computeObjectIfAbsent("k", k -> EncodedContent.of("v" + computations.incrementAndGet(), -1));
+        var second = cache.computeObjectIfAbsent("k", k -> EncodedContent.of("v" + computations.incrementAndGet(), -1));
+
+        assertAll(
+            () -> assertTrue(first instanceof EncodedContent),
+            () -> assertSame(first, second),
+            () -> assertSame(first, cache.getObject("k")),
+            () -> assertEquals("v1", cache.get("k")),
+            () -> assertEquals("v1", cache.computeIfAbsent("k", k -> "unexpected")),
+            () -> assertEquals(1, computations.get())
+        );
+    }
+
+    @Test
+    void testEncodedContent() throws Exception {
+        var content = "caf\u00e9 \u20ac ".repeat(100);
+        var uncompressed = EncodedContent.of(content, -1);
+        var compressed = EncodedContent.of(content, 0);
+        var writer = new StringWriter();
+        compressed.writeTo(writer);
+        var uncompressedWriter = new StringWriter();
+        uncompressed.writeTo(uncompressedWriter);
+
+        assertAll(
+            () -> assertFalse(uncompressed.isCompressed()),
+            () -> assertEquals(content, uncompressed.getContent()),
+            () -> assertTrue(compressed.isCompressed()),
+            () -> assertTrue(compressed.getSize() < uncompressed.getSize()),
+            () -> assertEquals(content, compressed.getContent()),
+            () -> assertEquals(content, writer.toString()),
+            () -> assertEquals(content, uncompressedWriter.toString())
+        );
+    }
+
+    @Test
+    void testMaxWeight() {
+        for (var concurrent : new boolean[] { false, true }) {
+            var weighted = new DefaultCache(null, null, 100L, (key, entry) -> ((String) entry.getValue()).length(), concurrent);
+            weighted.put("k1", "x".repeat(40));
+            weighted.put("k2", "x".repeat(40));
+            weighted.get("k1");
+            weighted.put("k3", "x".repeat(40)); // Should evict k2 as least recently used.
+            weighted.put("k4", "x".repeat(101)); // Should be rejected as it exceeds max weight on its own.
+
+            assertAll(
+                () -> assertEquals(2, weighted.getSize()),
+                () -> assertEquals(80, weighted.getWeight()),
+                () -> assertEquals(40, weighted.get("k1").length()),
+                () -> assertNull(weighted.get("k2")),
+                () -> assertEquals(40, weighted.get("k3").length()),
+                () -> assertNull(weighted.get("k4"))
+            );
+
+            weighted.put("k1", "x".repeat(10));
+            assertEquals(50, weighted.getWeight());
+            weighted.remove("k3");
+            assertEquals(10, weighted.getWeight());
+            weighted.clear();
+            assertEquals(0, weighted.getWeight());
+        }
+    }
+
+    @Test
+    void testDefaultWeigher() {
+        var weighted = new DefaultCache(null, null, 1000L, null, false);
+        weighted.put("key", "x".repeat(100));
+
+        assertAll(
+            () -> assertEquals(-1, cache.getWeight()),
+            () -> assertEquals(206, weighted.getWeight())
+        );
+
+        weighted.putAttribute("key", "name", "y".repeat(10), -1);
+        assertEquals(234, weighted.getWeight());
+    }
+
+    @Test
+    void testExpiredEntriesAreSweptWithoutAccess() throws Exception {
+        var clockedCache = new ClockedCache();
+        clockedCache.put("k1", "v1", 1);
+        clockedCache.put("k2", "v2");
+        clockedCache.computeIfAbsentOrStale("k3", k -> "v3", 2);
+        clockedCache.put("k4", "v4", 1);
+        clockedCache.remove("k4");
+        clockedCache.advance(3); // k1 is beyond its retention, k3 is expired but still retained.
+
+        for (var i = 0; i < 50 && clockedCache.getSize() > 2; i++) {
+            Thread.sleep(100);
+        }
+
+        assertAll(
+            () -> assertEquals(2, clockedCache.getSize()),
+            () -> assertEquals("v2", clockedCache.get("k2")),
+            () -> assertNull(clockedCache.get("k3")),
+            () -> assertEquals(2, clockedCache.getSize())
+        );
+    }
+
+    private static final class ClockedCache extends DefaultCache {
+
+        private static final long serialVersionUID = 1L;
+
+        private volatile long currentTimeMillis = System.currentTimeMillis();
+
+        ClockedCache() {
+            super(null, null);
+        }
+
+        @Override
+        protected long getCurrentTimeMillis() {
+            return currentTimeMillis;
+        }
+
+        void advance(int seconds) {
+            currentTimeMillis += SECONDS.toMillis(seconds);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, SECONDS));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
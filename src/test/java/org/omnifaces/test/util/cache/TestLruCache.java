@@ -7,10 +7,13 @@ import static java.util.stream.IntStream.rangeClosed;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.Serializable;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -26,7 +29,9 @@ import java.util.logging.Logger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.omnifaces.util.FunctionalInterfaces.SerializableBiConsumer;
 import org.omnifaces.util.cache.LruCache;
+import org.omnifaces.util.cache.Weigher;
 
 class TestLruCache {
 
@@ -39,10 +44,24 @@ class TestLruCache {
     private Map<String, String> lruCache;
     private Set<String> evicted;
 
+    /**
+     * Subclasses can override this to test another implementation against the same contract.
+     */
+    <K extends Serializable, V extends Serializable> Map<K, V> createCache(int maximumCapacity, SerializableBiConsumer<K, V> evictionListener) {
+        return new LruCache<>(maximumCapacity, evictionListener);
+    }
+
+    /**
+     * Subclasses can override this to test another implementation against the same contract.
+     */
+    <K extends Serializable, V extends Serializable> Map<K, V> createCache(int maximumCapacity, long maximumWeight, Weigher<K, V> weigher, SerializableBiConsumer<K, V> evictionListener) {
+        return new LruCache<>(maximumCapacity, maximumWeight, weigher, evictionListener);
+    }
+
     @BeforeEach
     void setup() {
         evicted = ConcurrentHashMap.newKeySet();
-        lruCache = new LruCache<>(SIZE, (k,v) -> evicted.add(k));
+        lruCache = createCache(SIZE, (k,v) -> evicted.add(k));
         range(0, SIZE).forEach(i -> lruCache.put("k" + (i * SIZE), "v" + i));
     }
 
@@ -109,7 +128,7 @@ class TestLruCache {
         final var CACHE_SIZE = 8;
         final var ROUNDS = 10;
         final var MAX_VALUE = 32;
-        final var cache = new LruCache<Integer, Integer>(CACHE_SIZE);
+        final Map<Integer, Integer> cache = createCache(CACHE_SIZE, (k,v) -> {});
 
         testThreadSafety((i, tasks) -> {
             rangeClosed(0, MAX_VALUE).boxed().forEach(index -> {
@@ -164,6 +183,22 @@ class TestLruCache {
         );
     }
 
+    @Test
+    void testValueExceedingMaximumWeightIsRejected() {
+        List<String> evictedValues = new ArrayList<>();
+        Map<String, String> weightedCache = createCache(SIZE, 10, (String key, String value) -> value.length(), (k, v) -> evictedValues.add(v));
+        weightedCache.put("k1", "small");
+        var previousValue = weightedCache.put("k1", "x".repeat(11));
+        weightedCache.put("k2", "x".repeat(11));
+
+        assertAll(
+            () -> assertEquals("small", previousValue),
+            () -> assertNull(weightedCache.get("k1"), "existing value must be removed as it has been replaced"),
+            () -> assertNull(weightedCache.get("k2"), "rejected value must not be stored"),
+            () -> assertEquals(List.of("small"), evictedValues, "only the removed existing value must be passed to eviction listener")
+        );
+    }
+
     @Test
     void testImmutableViews() {
         assertAll(